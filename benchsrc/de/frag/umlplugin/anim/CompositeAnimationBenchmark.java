@@ -0,0 +1,93 @@
+package de.frag.umlplugin.anim;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures the frame loop of a concurrent composite animation with one child animation per class, without any
+ * painting. Frames are computed like the animation player computes them for a one second animation.
+ */
+public class CompositeAnimationBenchmark implements Benchmark
+{
+  private static final int FRAME_COUNT = 60;
+
+  private CompositeAnimationObject animation;
+
+  public @NotNull String getName ()
+  {
+    return "CompositeAnimation.frameLoop";
+  }
+
+  /**
+   * Creates a concurrent composite animation with one moving point per class.
+   * @param size number of child animations
+   */
+  public void setUp (int size)
+  {
+    animation = CompositeAnimationFactory.createConcurrency ();
+    for (int i = 0; i < size; i++)
+    {
+      animation.addAnimation (new MovingPoint (i));
+    }
+  }
+
+  /**
+   * Does nothing, since the animation is initialized again by every invocation.
+   */
+  public void prepare ()
+  {
+  }
+
+  /**
+   * Initializes the animation, computes all frames of a one second animation and disposes it.
+   * @return animation
+   */
+  public Object run ()
+  {
+    animation.initAnimation ();
+    for (int frame = 0; frame <= FRAME_COUNT; frame++)
+    {
+      animation.calcFrame ((double) frame / FRAME_COUNT);
+    }
+    animation.disposeAnimation ();
+    return animation;
+  }
+
+  /**
+   * Animation that moves a point along a line, comparable to moving a single node.
+   */
+  private static class MovingPoint implements AnimationObject
+  {
+    private final double targetX;
+    private final double targetY;
+    private double       x;
+    private double       y;
+
+    private MovingPoint (int index)
+    {
+      this.targetX = index % 1000;
+      this.targetY = index / 1000;
+    }
+
+    public void initAnimation ()
+    {
+      x = 0;
+      y = 0;
+    }
+
+    public void calcFrame (double time)
+    {
+      x = targetX * time;
+      y = targetY * time;
+    }
+
+    public void disposeAnimation ()
+    {
+    }
+
+    public long preferredDuration ()
+    {
+      return 1000;
+    }
+  }
+}
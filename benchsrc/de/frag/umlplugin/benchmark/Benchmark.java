@@ -0,0 +1,33 @@
+package de.frag.umlplugin.benchmark;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Single benchmark that is measured for several problem sizes. For every measured invocation, the runner
+ * first calls {@link #prepare()} without measuring time and then measures {@link #run()}.
+ */
+public interface Benchmark
+{
+  /**
+   * Gets name of benchmark that is used in reports.
+   * @return benchmark name
+   */
+  public @NotNull String getName ();
+
+  /**
+   * Creates synthetic input data for given problem size.
+   * @param size problem size, usually the number of classes
+   */
+  public void setUp (int size);
+
+  /**
+   * Prepares a single invocation, e.g. by creating fresh objects that are modified by {@link #run()}.
+   */
+  public void prepare ();
+
+  /**
+   * Runs measured operation.
+   * @return any result of operation; results are consumed, so operations are not optimized away
+   */
+  public Object run ();
+}
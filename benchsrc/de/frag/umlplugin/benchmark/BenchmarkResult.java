@@ -0,0 +1,178 @@
+package de.frag.umlplugin.benchmark;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measured times of a single benchmark for a single problem size. Every measured iteration runs a batch of
+ * invocations, so each measured time is the mean time of all invocations of one batch.
+ */
+public class BenchmarkResult
+{
+  private static final double [] PERCENTILES = {50, 90, 99, 100};
+
+  private final String    name;
+  private final int       size;
+  private final int       batchSize;
+  private final double [] millis;
+
+  /**
+   * Creates a new benchmark result.
+   * @param name benchmark name
+   * @param size problem size
+   * @param batchSize number of invocations per measured iteration
+   * @param millis mean time per invocation of each measured iteration in milli seconds
+   */
+  public BenchmarkResult (@NotNull String name, int size, int batchSize, @NotNull double [] millis)
+  {
+    this.name      = name;
+    this.size      = size;
+    this.batchSize = batchSize;
+    this.millis    = millis.clone ();
+  }
+
+  /**
+   * Gets name of measured benchmark.
+   * @return benchmark name
+   */
+  public @NotNull String getName ()
+  {
+    return name;
+  }
+
+  /**
+   * Gets problem size the benchmark was measured for.
+   * @return problem size, usually the number of classes
+   */
+  public int getSize ()
+  {
+    return size;
+  }
+
+  /**
+   * Gets number of invocations that were run in every measured iteration.
+   * @return batch size
+   */
+  public int getBatchSize ()
+  {
+    return batchSize;
+  }
+
+  /**
+   * Gets number of measured iterations.
+   * @return number of measured times
+   */
+  public int getCount ()
+  {
+    return millis.length;
+  }
+
+  /**
+   * Gets mean time per invocation.
+   * @return mean time in milli seconds
+   */
+  public double getMean ()
+  {
+    double sum = 0;
+    for (double value : millis)
+    {
+      sum += value;
+    }
+    return millis.length > 0 ? sum / millis.length : 0;
+  }
+
+  /**
+   * Gets sample standard deviation of time per invocation.
+   * @return standard deviation in milli seconds
+   */
+  public double getStandardDeviation ()
+  {
+    if (millis.length < 2)
+    {
+      return 0;
+    }
+    double mean = getMean ();
+    double sum = 0;
+    for (double value : millis)
+    {
+      sum += (value - mean) * (value - mean);
+    }
+    return Math.sqrt (sum / (millis.length - 1));
+  }
+
+  /**
+   * Gets shortest measured time per invocation.
+   * @return minimum time in milli seconds; 0 if nothing was measured
+   */
+  public double getMin ()
+  {
+    double min = Double.MAX_VALUE;
+    for (double value : millis)
+    {
+      min = Math.min (min, value);
+    }
+    return millis.length > 0 ? min : 0;
+  }
+
+  /**
+   * Gets longest measured time per invocation.
+   * @return maximum time in milli seconds; 0 if nothing was measured
+   */
+  public double getMax ()
+  {
+    double max = 0;
+    for (double value : millis)
+    {
+      max = Math.max (max, value);
+    }
+    return max;
+  }
+
+  /**
+   * Gets time that given percentage of all invocations did not exceed.
+   * @param percentage percentage between 0 and 100
+   * @return percentile in milli seconds (nearest rank)
+   */
+  public double getPercentile (double percentage)
+  {
+    if (millis.length == 0)
+    {
+      return 0;
+    }
+    double [] sorted = millis.clone ();
+    Arrays.sort (sorted);
+    int rank = (int) Math.ceil (percentage / 100.0 * sorted.length);
+    return sorted [Math.max (0, Math.min (sorted.length - 1, rank - 1))];
+  }
+
+  /**
+   * Appends this result as JSON object to given builder.
+   * @param builder builder to append JSON to
+   */
+  public void appendJson (@NotNull StringBuilder builder)
+  {
+    builder.append ("{\"benchmark\": \"").append (name).append ("\", ");
+    builder.append ("\"size\": ").append (size).append (", ");
+    builder.append ("\"mode\": \"avgt\", \"unit\": \"ms/op\", ");
+    builder.append ("\"iterations\": ").append (millis.length).append (", ");
+    builder.append ("\"batchSize\": ").append (batchSize).append (", ");
+    builder.append (String.format (Locale.US,
+                                   "\"score\": %.6f, \"stddev\": %.6f, \"min\": %.6f, \"max\": %.6f, ",
+                                   getMean (), getStandardDeviation (), getMin (), getMax ()));
+    builder.append ("\"percentiles\": {");
+    for (int i = 0; i < PERCENTILES.length; i++)
+    {
+      builder.append (i > 0 ? ", " : "").append (String.format (Locale.US, "\"%.1f\": %.6f", PERCENTILES [i],
+                                                                 getPercentile (PERCENTILES [i])));
+    }
+    builder.append ("}, ");
+    builder.append ("\"rawData\": [");
+    for (int i = 0; i < millis.length; i++)
+    {
+      builder.append (i > 0 ? ", " : "").append (String.format (Locale.US, "%.6f", millis [i]));
+    }
+    builder.append ("]}");
+  }
+}
@@ -0,0 +1,229 @@
+package de.frag.umlplugin.benchmark;
+
+import de.frag.umlplugin.anim.CompositeAnimationBenchmark;
+import de.frag.umlplugin.classcloud.BidirectionalMultiMapBenchmark;
+import de.frag.umlplugin.classcloud.CloudLayouterBenchmark;
+import de.frag.umlplugin.classcloud.GridBenchmark;
+import de.frag.umlplugin.classcloud.ProjectDependenciesAnalyzerBenchmark;
+import de.frag.umlplugin.graphio.ImageScalerBenchmark;
+import de.frag.umlplugin.history.HistoryListBenchmark;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs all benchmarks for several problem sizes and writes results to a JSON file, so results of different
+ * revisions can be compared to find performance regressions. Every benchmark is warmed up before it is measured.
+ * Each iteration runs a batch of invocations that lasts at least 100 ms unless a fixed
+ * batch size is given, so short operations are not dominated by timer resolution and noise.
+ * Usage:
+ * <pre>
+ *   BenchmarkRunner [-o results.json] [-s 1000,10000,100000] [-w warmups] [-i iterations] [-b batch size]
+ *                   [name filter]
+ * </pre>
+ */
+public class BenchmarkRunner
+{
+  /** Default number of unmeasured warmup iterations. */
+  public static final int     DEFAULT_WARMUPS    = 10;
+  /** Default number of measured iterations. */
+  public static final int     DEFAULT_ITERATIONS = 20;
+  private static final int [] DEFAULT_SIZES      = {1000, 10000, 100000};
+  private static final long   MIN_BATCH_MILLIS   = 100;
+  private static final int    MAX_BATCH_SIZE     = 1 << 16;
+
+  private static volatile Object sink;
+
+  private BenchmarkRunner () {}
+
+  /**
+   * Gets all available benchmarks.
+   * @return benchmarks
+   */
+  public static @NotNull List<Benchmark> createBenchmarks ()
+  {
+    return Arrays.<Benchmark>asList (new GridBenchmark (),
+                                     new CloudLayouterBenchmark (),
+                                     new BidirectionalMultiMapBenchmark (),
+                                     new ProjectDependenciesAnalyzerBenchmark (),
+                                     new HistoryListBenchmark (),
+                                     new ImageScalerBenchmark (),
+                                     new CompositeAnimationBenchmark ());
+  }
+
+  /**
+   * Measures given benchmark for given problem size.
+   * @param benchmark benchmark to measure
+   * @param size problem size
+   * @param warmups number of unmeasured iterations
+   * @param iterations number of measured iterations
+   * @param batchSize number of invocations per iteration; 0 chooses a batch size that lasts long enough
+   * @return measured result
+   */
+  public static @NotNull BenchmarkResult measure (@NotNull Benchmark benchmark, int size, int warmups, int iterations,
+                                                  int batchSize)
+  {
+    benchmark.setUp (size);
+    int batch = batchSize > 0 ? batchSize : calibrateBatchSize (benchmark);
+    for (int i = 0; i < warmups; i++)
+    {
+      runBatch (benchmark, batch);
+    }
+    double [] millis = new double [iterations];
+    for (int i = 0; i < iterations; i++)
+    {
+      millis [i] = runBatch (benchmark, batch) / (batch * 1000000.0);
+    }
+    return new BenchmarkResult (benchmark.getName (), size, batch, millis);
+  }
+
+  /**
+   * Finds smallest power of two of invocations that lasts at least {@link #MIN_BATCH_MILLIS}. Calibration also
+   * warms up the benchmark.
+   * @param benchmark benchmark to measure
+   * @return batch size
+   */
+  private static int calibrateBatchSize (@NotNull Benchmark benchmark)
+  {
+    int batchSize = 1;
+    while (batchSize < MAX_BATCH_SIZE && runBatch (benchmark, batchSize) < MIN_BATCH_MILLIS * 1000000)
+    {
+      batchSize *= 2;
+    }
+    return batchSize;
+  }
+
+  /**
+   * Runs given number of invocations. Only the invocations themselves are measured, not their preparation.
+   * @param benchmark benchmark to run
+   * @param batchSize number of invocations
+   * @return summed time of all invocations in nano seconds
+   */
+  private static long runBatch (@NotNull Benchmark benchmark, int batchSize)
+  {
+    long nanos = 0;
+    for (int i = 0; i < batchSize; i++)
+    {
+      benchmark.prepare ();
+      long start = System.nanoTime ();
+      sink = benchmark.run ();
+      nanos += System.nanoTime () - start;
+    }
+    return nanos;
+  }
+
+  /**
+   * Creates JSON document for given results.
+   * @param results benchmark results
+   * @return JSON array containing one object per result
+   */
+  public static @NotNull String toJson (@NotNull List<BenchmarkResult> results)
+  {
+    StringBuilder builder = new StringBuilder ("[\n");
+    for (int i = 0; i < results.size (); i++)
+    {
+      builder.append ("  ");
+      results.get (i).appendJson (builder);
+      builder.append (i < results.size () - 1 ? ",\n" : "\n");
+    }
+    return builder.append ("]\n").toString ();
+  }
+
+  /**
+   * Runs benchmarks.
+   * @param args command line arguments
+   * @throws IOException if results could not be written
+   */
+  public static void main (String [] args) throws IOException
+  {
+    String output     = "benchmark-results.json";
+    int [] sizes      = DEFAULT_SIZES;
+    int    warmups    = DEFAULT_WARMUPS;
+    int    iterations = DEFAULT_ITERATIONS;
+    int    batchSize  = 0;
+    String filter     = "";
+    for (int i = 0; i < args.length; i++)
+    {
+      if ("-o".equals (args [i]))
+      {
+        output = args [++i];
+      }
+      else if ("-s".equals (args [i]))
+      {
+        String [] values = args [++i].split (",");
+        sizes = new int [values.length];
+        for (int s = 0; s < values.length; s++)
+        {
+          sizes [s] = Integer.parseInt (values [s].trim ());
+        }
+      }
+      else if ("-w".equals (args [i]))
+      {
+        warmups = Integer.parseInt (args [++i]);
+      }
+      else if ("-i".equals (args [i]))
+      {
+        iterations = Integer.parseInt (args [++i]);
+      }
+      else if ("-b".equals (args [i]))
+      {
+        batchSize = Integer.parseInt (args [++i]);
+      }
+      else
+      {
+        filter = args [i];
+      }
+    }
+
+    List<BenchmarkResult> results = new ArrayList<BenchmarkResult> ();
+    for (Benchmark benchmark : createBenchmarks ())
+    {
+      if (!benchmark.getName ().contains (filter))
+      {
+        continue;
+      }
+      for (int size : sizes)
+      {
+        BenchmarkResult result = measure (benchmark, size, warmups, iterations, batchSize);
+        report (result);
+        results.add (result);
+      }
+    }
+    writeJson (results, new File (output));
+  }
+
+  /**
+   * Prints given result to standard output.
+   * @param result benchmark result
+   */
+  public static void report (@NotNull BenchmarkResult result)
+  {
+    System.out.println (String.format ("%-48s %8d %12.3f ms/op +- %.3f (p50 %.3f, p90 %.3f, batch %d)",
+                                       result.getName (), result.getSize (), result.getMean (),
+                                       result.getStandardDeviation (), result.getPercentile (50),
+                                       result.getPercentile (90), result.getBatchSize ()));
+  }
+
+  /**
+   * Writes given results to given file.
+   * @param results benchmark results
+   * @param file JSON file to write
+   * @throws IOException if file could not be written
+   */
+  public static void writeJson (@NotNull List<BenchmarkResult> results, @NotNull File file) throws IOException
+  {
+    Writer writer = new OutputStreamWriter (new FileOutputStream (file), "UTF-8");
+    try
+    {
+      writer.write (toJson (results));
+    }
+    finally
+    {
+      writer.close ();
+    }
+    System.out.println ("Results written to " + file.getAbsolutePath ());
+  }
+}
@@ -0,0 +1,269 @@
+package de.frag.umlplugin.benchmark;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates Java sources of a synthetic project. Number of classes, distribution of dependencies, inheritance
+ * depth and the use of generics and collection fields are configurable, so analysis can be measured against code
+ * that resembles real projects. Equal settings always generate equal sources.
+ */
+public class SyntheticProject
+{
+  private int    classCount           = 1000;
+  private int    classesPerPackage    = 25;
+  private double meanFanOut           = 4;
+  private double fanInSkew            = 1;
+  private int    inheritanceDepth     = 3;
+  private double genericsRatio        = 0.2;
+  private double collectionFieldRatio = 0.3;
+  private long   seed                 = 1;
+
+  public int getClassCount ()
+  {
+    return classCount;
+  }
+
+  public void setClassCount (int classCount)
+  {
+    this.classCount = classCount;
+  }
+
+  public int getClassesPerPackage ()
+  {
+    return classesPerPackage;
+  }
+
+  public void setClassesPerPackage (int classesPerPackage)
+  {
+    this.classesPerPackage = classesPerPackage;
+  }
+
+  public double getMeanFanOut ()
+  {
+    return meanFanOut;
+  }
+
+  /**
+   * Sets mean number of classes used by each class. Number of used classes is geometrically distributed, so most
+   * classes use only a few other classes and some classes use many.
+   * @param meanFanOut mean number of used classes
+   */
+  public void setMeanFanOut (double meanFanOut)
+  {
+    this.meanFanOut = meanFanOut;
+  }
+
+  public double getFanInSkew ()
+  {
+    return fanInSkew;
+  }
+
+  /**
+   * Sets skew of fan-in distribution. With a skew of 0, every class is used equally often. Larger values make
+   * classes with small numbers much more popular, like utility classes in real projects.
+   * @param fanInSkew skew of fan-in distribution (0 or greater)
+   */
+  public void setFanInSkew (double fanInSkew)
+  {
+    this.fanInSkew = fanInSkew;
+  }
+
+  public int getInheritanceDepth ()
+  {
+    return inheritanceDepth;
+  }
+
+  public void setInheritanceDepth (int inheritanceDepth)
+  {
+    this.inheritanceDepth = inheritanceDepth;
+  }
+
+  public double getGenericsRatio ()
+  {
+    return genericsRatio;
+  }
+
+  public void setGenericsRatio (double genericsRatio)
+  {
+    this.genericsRatio = genericsRatio;
+  }
+
+  public double getCollectionFieldRatio ()
+  {
+    return collectionFieldRatio;
+  }
+
+  public void setCollectionFieldRatio (double collectionFieldRatio)
+  {
+    this.collectionFieldRatio = collectionFieldRatio;
+  }
+
+  public long getSeed ()
+  {
+    return seed;
+  }
+
+  public void setSeed (long seed)
+  {
+    this.seed = seed;
+  }
+
+  /**
+   * Gets qualified name of synthetic class with given number.
+   * @param index class number
+   * @return qualified class name
+   */
+  public @NotNull String getClassName (int index)
+  {
+    return getPackageName (index) + "." + getSimpleName (index);
+  }
+
+  /**
+   * Generates sources of all classes.
+   * @return mapping from relative file paths to file contents
+   */
+  public @NotNull Map<String, String> generate ()
+  {
+    Random random = new Random (seed);
+    boolean [] generic = new boolean [classCount];
+    for (int i = 0; i < classCount; i++)
+    {
+      generic [i] = random.nextDouble () < genericsRatio;
+    }
+    Map<String, String> files = new LinkedHashMap<String, String> ();
+    for (int i = 0; i < classCount; i++)
+    {
+      String path = getPackageName (i).replace ('.', '/') + "/" + getSimpleName (i) + ".java";
+      files.put (path, generateClass (i, generic, random));
+    }
+    return files;
+  }
+
+  /**
+   * Generates source of a single class. Classes extend their predecessor to build inheritance chains of
+   * configured depth and use other classes in fields, methods and local variables.
+   * @param index class number
+   * @param generic flags of all classes that have a type parameter
+   * @param random random generator
+   * @return class source
+   */
+  private @NotNull String generateClass (int index, @NotNull boolean [] generic, @NotNull Random random)
+  {
+    StringBuilder source = new StringBuilder ();
+    source.append ("package ").append (getPackageName (index)).append (";\n\n");
+    source.append ("public class ").append (getSimpleName (index)).append (generic [index] ? "<T>" : "");
+    if (inheritanceDepth > 0 && index % (inheritanceDepth + 1) != 0)
+    {
+      source.append (" extends ").append (getTypeReference (index - 1, generic));
+    }
+    source.append ("\n{\n");
+    if (generic [index])
+    {
+      source.append ("  private T value;\n\n");
+    }
+    int fanOut = getFanOut (random);
+    for (int f = 0; f < fanOut; f++)
+    {
+      int target = getTarget (index, random);
+      if (target < 0)
+      {
+        break;
+      }
+      String type = getTypeReference (target, generic);
+      if (random.nextDouble () < collectionFieldRatio)
+      {
+        switch (f % 3)
+        {
+          case 0:
+            source.append ("  private java.util.List<").append (type).append ("> field").append (f);
+            source.append (" = new java.util.ArrayList<").append (type).append ("> ();\n");
+            break;
+          case 1:
+            source.append ("  private java.util.Set<").append (type).append ("> field").append (f);
+            source.append (" = new java.util.HashSet<").append (type).append ("> ();\n");
+            break;
+          default:
+            source.append ("  private java.util.Map<String, ").append (type).append ("> field").append (f);
+            source.append (" = new java.util.HashMap<String, ").append (type).append ("> ();\n");
+        }
+      }
+      else if (f % 2 == 0)
+      {
+        source.append ("  private ").append (type).append (" field").append (f).append (";\n");
+      }
+      else
+      {
+        source.append ("  public void method").append (f).append (" ()\n  {\n");
+        source.append ("    ").append (type).append (" local = new ").append (type).append (" ();\n");
+        source.append ("    System.out.println (local);\n  }\n");
+      }
+    }
+    return source.append ("}\n").toString ();
+  }
+
+  /**
+   * Gets number of classes used by a single class.
+   * @param random random generator
+   * @return geometrically distributed number of used classes
+   */
+  private int getFanOut (@NotNull Random random)
+  {
+    if (meanFanOut <= 0)
+    {
+      return 0;
+    }
+    double p = 1.0 / (meanFanOut + 1);
+    return (int) (Math.log (1 - random.nextDouble ()) / Math.log (1 - p));
+  }
+
+  /**
+   * Chooses a class that is used by given class.
+   * @param index number of using class
+   * @param random random generator
+   * @return number of used class or -1, if there is no other class
+   */
+  private int getTarget (int index, @NotNull Random random)
+  {
+    if (classCount < 2)
+    {
+      return -1;
+    }
+    int target = (int) (classCount * Math.pow (random.nextDouble (), 1 + fanInSkew));
+    return target != index ? target : (target + 1) % classCount;
+  }
+
+  /**
+   * Gets type reference to given class, including type arguments for generic classes.
+   * @param index class number
+   * @param generic flags of all classes that have a type parameter
+   * @return qualified type reference
+   */
+  private @NotNull String getTypeReference (int index, @NotNull boolean [] generic)
+  {
+    return getClassName (index) + (generic [index] ? "<String>" : "");
+  }
+
+  /**
+   * Gets name of package that contains given class.
+   * @param index class number
+   * @return package name
+   */
+  private @NotNull String getPackageName (int index)
+  {
+    return "synthetic.p" + (index / classesPerPackage);
+  }
+
+  /**
+   * Gets unqualified name of given class.
+   * @param index class number
+   * @return simple class name
+   */
+  private @NotNull String getSimpleName (int index)
+  {
+    return "Class" + index;
+  }
+}
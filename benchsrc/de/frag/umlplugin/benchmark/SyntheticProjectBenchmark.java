@@ -0,0 +1,295 @@
+package de.frag.umlplugin.benchmark;
+
+import com.intellij.openapi.graph.view.Graph2D;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.module.StdModuleTypes;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.projectRoots.JavaSdk;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.roots.ContentEntry;
+import com.intellij.openapi.roots.LanguageLevelModuleExtension;
+import com.intellij.openapi.roots.ModifiableRootModel;
+import com.intellij.pom.java.LanguageLevel;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.intellij.util.ui.UIUtil;
+import de.frag.umlplugin.LayoutScheduler;
+import de.frag.umlplugin.classcloud.CloudLayouter;
+import de.frag.umlplugin.classcloud.ModuleShard;
+import de.frag.umlplugin.classcloud.ProjectDependenciesAnalyzer;
+import de.frag.umlplugin.codenavigator.graph.GraphBuilder;
+import de.frag.umlplugin.psi.ClassFinder;
+import de.frag.umlplugin.psi.DependencyAnalyzer;
+import de.frag.umlplugin.settings.Settings;
+import de.frag.umlplugin.uml.UMLDiagram;
+import de.frag.umlplugin.uml.command.AddClassCommand;
+import de.frag.umlplugin.uml.command.AddExtendedClassesCommand;
+import de.frag.umlplugin.uml.command.AddUsedClassesCommand;
+import de.frag.umlplugin.uml.command.DiagramCommand;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures PSI based analysis end to end on a synthetic project that is created in a light test fixture. The
+ * project is configured by system properties, so the same benchmark can be run for several project shapes:
+ * <ul>
+ *   <li><code>benchmark.classes</code> - number of classes (default 1000)</li>
+ *   <li><code>benchmark.fanOut</code> - mean number of used classes per class (default 4)</li>
+ *   <li><code>benchmark.fanInSkew</code> - skew of fan-in distribution (default 1)</li>
+ *   <li><code>benchmark.inheritanceDepth</code> - length of inheritance chains (default 3)</li>
+ *   <li><code>benchmark.generics</code> - ratio of generic classes (default 0.2)</li>
+ *   <li><code>benchmark.collections</code> - ratio of collection fields (default 0.3)</li>
+ *   <li><code>benchmark.warmups</code>, <code>benchmark.iterations</code> - iteration counts (default 10, 20)</li>
+ *   <li><code>benchmark.batchSize</code> - invocations per iteration (default 0, chosen automatically)</li>
+ *   <li><code>benchmark.output</code> - JSON result file (default psi-benchmark-results.json)</li>
+ * </ul>
+ * The synthetic project uses the JRE running the benchmark as its JDK, so no mock JDK or network access
+ * is needed.
+ */
+public class SyntheticProjectBenchmark extends LightCodeInsightFixtureTestCase
+{
+  private static final long                  LAYOUT_TIMEOUT = 60000;
+  private static final int                   DIAGRAM_SIZE   = 50;
+  private static final List<BenchmarkResult> results        = new ArrayList<BenchmarkResult> ();
+
+  private SyntheticProject project;
+  private List<PsiClass>   classes;
+
+  protected void setUp () throws Exception
+  {
+    super.setUp ();
+    project = new SyntheticProject ();
+    project.setClassCount           (Integer.getInteger ("benchmark.classes", 1000));
+    project.setMeanFanOut           (getDouble ("benchmark.fanOut", 4));
+    project.setFanInSkew            (getDouble ("benchmark.fanInSkew", 1));
+    project.setInheritanceDepth     (Integer.getInteger ("benchmark.inheritanceDepth", 3));
+    project.setGenericsRatio        (getDouble ("benchmark.generics", 0.2));
+    project.setCollectionFieldRatio (getDouble ("benchmark.collections", 0.3));
+    for (Map.Entry<String, String> file : project.generate ().entrySet ())
+    {
+      myFixture.addFileToProject (file.getKey (), file.getValue ());
+    }
+    classes = new ArrayList<PsiClass> ();
+    JavaPsiFacade facade = JavaPsiFacade.getInstance (getProject ());
+    GlobalSearchScope scope = GlobalSearchScope.projectScope (getProject ());
+    for (int i = 0; i < project.getClassCount (); i++)
+    {
+      PsiClass psiClass = facade.findClass (project.getClassName (i), scope);
+      assertNotNull (project.getClassName (i), psiClass);
+      classes.add (psiClass);
+    }
+  }
+
+  protected void tearDown () throws Exception
+  {
+    classes = null;
+    super.tearDown ();
+  }
+
+  protected @NotNull LightProjectDescriptor getProjectDescriptor ()
+  {
+    return new LightProjectDescriptor ()
+    {
+      public ModuleType getModuleType ()
+      {
+        return StdModuleTypes.JAVA;
+      }
+
+      public Sdk getSdk ()
+      {
+        return JavaSdk.getInstance ().createJdk ("benchmark", System.getProperty ("java.home"), true);
+      }
+
+      public void configureModule (Module module, ModifiableRootModel model, ContentEntry contentEntry)
+      {
+        model.getModuleExtension (LanguageLevelModuleExtension.class).setLanguageLevel (LanguageLevel.JDK_1_6);
+      }
+    };
+  }
+
+  /**
+   * Measures class cloud creation: module analysis, dependency traversal, placement and graph creation.
+   * @throws IOException if results could not be written
+   */
+  public void testClassCloud () throws IOException
+  {
+    measure (new AbstractBenchmark ("ClassCloud.endToEnd")
+    {
+      public Object run ()
+      {
+        ModuleShard shard = ModuleShard.analyze (myModule, new EmptyProgressIndicator ());
+        assertNotNull (shard);
+        ProjectDependenciesAnalyzer analyzer = new ProjectDependenciesAnalyzer ();
+        analyzer.addShard (shard, null);
+        analyzer.analyzeDependencies ();
+        CloudLayouter layouter = new CloudLayouter (analyzer.getClasses (), analyzer.getInfos ());
+        return layouter.createGraph ();
+      }
+    }, project.getClassCount ());
+  }
+
+  /**
+   * Measures graphical navigator graph creation including its layout for classes with different dependencies.
+   * @throws IOException if results could not be written
+   */
+  public void testNavigatorGraph () throws IOException
+  {
+    measure (new AbstractBenchmark ("GraphBuilder.createGraph")
+    {
+      private final LayoutScheduler scheduler = new LayoutScheduler ();
+      private int                   next;
+
+      public Object run ()
+      {
+        // popular classes have small numbers, so alternate between popular and rarely used classes
+        int index = next++;
+        int offset = (index / 2) % Math.min (10, classes.size ());
+        PsiClass subject = classes.get (index % 2 == 0 ? offset : classes.size () - 1 - offset);
+        final Graph2D [] created = new Graph2D [1];
+        new GraphBuilder ().createGraph (subject, scheduler, new GraphBuilder.GraphListener ()
+        {
+          public void graphCreated (@NotNull Graph2D graph)
+          {
+            created [0] = graph;
+          }
+        });
+        long deadline = System.currentTimeMillis () + LAYOUT_TIMEOUT;
+        while (created [0] == null)
+        {
+          assertTrue ("layout timed out", System.currentTimeMillis () < deadline);
+          UIUtil.dispatchAllInvocationEvents ();
+        }
+        return created [0];
+      }
+    }, project.getClassCount ());
+  }
+
+  /**
+   * Measures replaying a recorded UML diagram, i.e. executing all of its commands again.
+   * @throws IOException if results could not be written
+   */
+  public void testDiagramReplay () throws IOException
+  {
+    final UMLDiagram diagram = new UMLDiagram (getProject (), "benchmark");
+    List<DiagramCommand> commands = new ArrayList<DiagramCommand> ();
+    for (int i = 0; i < Math.min (DIAGRAM_SIZE, classes.size ()); i++)
+    {
+      String className = project.getClassName (i);
+      commands.add (new AddClassCommand (className));
+      commands.add (new AddUsedClassesCommand (className));
+      commands.add (new AddExtendedClassesCommand (className));
+    }
+    diagram.setCommands (commands);
+    measure (new AbstractBenchmark ("UMLDiagram.refreshDiagram")
+    {
+      public Object run ()
+      {
+        diagram.refreshDiagram ();
+        return diagram.getGraph ();
+      }
+    }, commands.size ());
+  }
+
+  /**
+   * Measures cost of classifying dependency targets as project classes, which is done for every found
+   * dependency. Size of this result is the number of classified dependencies.
+   * @throws IOException if results could not be written
+   */
+  public void testProjectClassClassification () throws IOException
+  {
+    final List<PsiClass> targets = new ArrayList<PsiClass> ();
+    for (PsiClass psiClass : classes)
+    {
+      for (PsiClass usedClass : new DependencyAnalyzer (psiClass, Settings.getSettings (), true).getUsedClasses ())
+      {
+        targets.add (usedClass);
+      }
+    }
+    BenchmarkResult result = measure (new AbstractBenchmark ("ClassFinder.isProjectClass")
+    {
+      public Object run ()
+      {
+        int count = 0;
+        for (PsiClass target : targets)
+        {
+          count += ClassFinder.isProjectClass (getProject (), target) ? 1 : 0;
+        }
+        return count;
+      }
+    }, targets.size ());
+    double nanosPerDependency = result.getMean () * 1000000 / Math.max (1, targets.size ());
+    System.out.println (String.format ("%.1f ns per dependency", nanosPerDependency));
+  }
+
+  /**
+   * Measures given benchmark and writes all results measured so far.
+   * @param benchmark benchmark to measure
+   * @param size problem size that is reported
+   * @return measured result
+   * @throws IOException if results could not be written
+   */
+  private @NotNull BenchmarkResult measure (@NotNull Benchmark benchmark, int size) throws IOException
+  {
+    BenchmarkResult result = BenchmarkRunner.measure (benchmark, size,
+                                                      Integer.getInteger ("benchmark.warmups",
+                                                                          BenchmarkRunner.DEFAULT_WARMUPS),
+                                                      Integer.getInteger ("benchmark.iterations",
+                                                                          BenchmarkRunner.DEFAULT_ITERATIONS),
+                                                      Integer.getInteger ("benchmark.batchSize", 0));
+    BenchmarkRunner.report (result);
+    synchronized (results)
+    {
+      results.add (result);
+      BenchmarkRunner.writeJson (results, new File (System.getProperty ("benchmark.output",
+                                                                        "psi-benchmark-results.json")));
+    }
+    return result;
+  }
+
+  /**
+   * Gets value of given system property as double.
+   * @param key property key
+   * @param defaultValue value that is used if property is not set
+   * @return property value or default value
+   */
+  private static double getDouble (@NotNull String key, double defaultValue)
+  {
+    String value = System.getProperty (key);
+    return value != null ? Double.parseDouble (value) : defaultValue;
+  }
+
+  /**
+   * Base class for benchmarks on the already created synthetic project.
+   */
+  private abstract static class AbstractBenchmark implements Benchmark
+  {
+    private final String name;
+
+    protected AbstractBenchmark (@NotNull String name)
+    {
+      this.name = name;
+    }
+
+    public @NotNull String getName ()
+    {
+      return name;
+    }
+
+    public void setUp (int size)
+    {
+    }
+
+    public void prepare ()
+    {
+    }
+  }
+}
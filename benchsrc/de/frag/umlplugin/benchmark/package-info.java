@@ -0,0 +1,4 @@
+/**
+ * Micro benchmark harness for IDE independent parts of the plugin is contained in this package.
+ */
+package de.frag.umlplugin.benchmark;
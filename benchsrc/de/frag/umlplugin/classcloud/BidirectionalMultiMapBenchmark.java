@@ -0,0 +1,73 @@
+package de.frag.umlplugin.classcloud;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures filling a bidirectional multi map with dependencies and querying it in both directions.
+ */
+public class BidirectionalMultiMapBenchmark implements Benchmark
+{
+  private static final int EDGES_PER_CLASS = 4;
+
+  private String [] names;
+  private int []    sources;
+  private int []    targets;
+
+  public @NotNull String getName ()
+  {
+    return "BidirectionalMultiMap.addAndQuery";
+  }
+
+  /**
+   * Creates class names and random dependencies between them.
+   * @param size number of classes
+   */
+  public void setUp (int size)
+  {
+    Random random = new Random (size);
+    names = new String [size];
+    for (int i = 0; i < size; i++)
+    {
+      names [i] = SyntheticDependencies.getClassName (i);
+    }
+    sources = new int [size * EDGES_PER_CLASS];
+    targets = new int [size * EDGES_PER_CLASS];
+    for (int i = 0; i < sources.length; i++)
+    {
+      sources [i] = i / EDGES_PER_CLASS;
+      targets [i] = random.nextInt (size);
+    }
+  }
+
+  /**
+   * Does nothing, since every invocation fills a new map.
+   */
+  public void prepare ()
+  {
+  }
+
+  /**
+   * Adds all dependencies to a new map and queries used and using classes of every class.
+   * @return number of found dependencies
+   */
+  public Object run ()
+  {
+    BidirectionalMultiMap<String, String> map = new BidirectionalMultiMap<String, String> ();
+    for (int i = 0; i < sources.length; i++)
+    {
+      map.add (names [sources [i]], names [targets [i]]);
+    }
+    int count = 0;
+    for (String name : names)
+    {
+      Set<String> forward  = map.getForward (name);
+      Set<String> backward = map.getBackward (name);
+      count += (forward != null ? forward.size () : 0) + (backward != null ? backward.size () : 0);
+    }
+    return count;
+  }
+}
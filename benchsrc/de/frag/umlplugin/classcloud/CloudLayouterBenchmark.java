@@ -0,0 +1,54 @@
+package de.frag.umlplugin.classcloud;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures placement of all classes of a synthetic class cloud. Creating the graph itself requires a running IDE,
+ * so only placement is measured.
+ */
+public class CloudLayouterBenchmark implements Benchmark
+{
+  private List<String>                                            sortedClasses;
+  private Map<String, ProjectDependenciesAnalyzer.DependencyInfo> infos;
+  private List<String>                                            classes;
+
+  public @NotNull String getName ()
+  {
+    return "CloudLayouter.placeClasses";
+  }
+
+  /**
+   * Creates and analyzes synthetic dependencies.
+   * @param size number of classes
+   */
+  public void setUp (int size)
+  {
+    ProjectDependenciesAnalyzer analyzer = SyntheticDependencies.createAnalyzer (size, size);
+    analyzer.analyzeDependencies ();
+    sortedClasses = analyzer.getClasses ();
+    infos         = analyzer.getInfos ();
+  }
+
+  /**
+   * Copies sorted classes, since the layouter reorders the given list.
+   */
+  public void prepare ()
+  {
+    // layouter reorders given list
+    classes = new ArrayList<String> (sortedClasses);
+  }
+
+  /**
+   * Places all classes of the cloud.
+   * @return layouter holding the placed classes
+   */
+  public Object run ()
+  {
+    return new CloudLayouter (classes, infos);
+  }
+}
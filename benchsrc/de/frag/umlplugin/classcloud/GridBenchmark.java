@@ -0,0 +1,60 @@
+package de.frag.umlplugin.classcloud;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * Measures placement of cells on a quadratic grid, where most cells prefer positions near the center.
+ */
+public class GridBenchmark implements Benchmark
+{
+  private Cell [] cells;
+  private int     size;
+  private Grid    grid;
+
+  public @NotNull String getName ()
+  {
+    return "Grid.placeCell";
+  }
+
+  /**
+   * Creates cells with preferred positions that are normally distributed around the grid center.
+   * @param size number of cells
+   */
+  public void setUp (int size)
+  {
+    int side = (int) Math.ceil (Math.sqrt (size));
+    Random random = new Random (size);
+    this.size  = side;
+    this.cells = new Cell [size];
+    for (int i = 0; i < size; i++)
+    {
+      int x = (int) Math.max (0, Math.min (side - 1, side / 2 + random.nextGaussian () * side / 4));
+      int y = (int) Math.max (0, Math.min (side - 1, side / 2 + random.nextGaussian () * side / 4));
+      cells [i] = new Cell (SyntheticDependencies.getClassName (i), x, y, random.nextInt (20));
+    }
+  }
+
+  /**
+   * Creates an empty grid, since every invocation fills the grid.
+   */
+  public void prepare ()
+  {
+    grid = new Grid (size, size);
+  }
+
+  /**
+   * Places all cells on the grid.
+   * @return filled grid
+   */
+  public Object run ()
+  {
+    for (Cell cell : cells)
+    {
+      grid.placeCell (cell);
+    }
+    return grid;
+  }
+}
@@ -0,0 +1,46 @@
+package de.frag.umlplugin.classcloud;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures traversal of dependencies and computation of normalized cloud positions for a synthetic project.
+ */
+public class ProjectDependenciesAnalyzerBenchmark implements Benchmark
+{
+  private int                         size;
+  private ProjectDependenciesAnalyzer analyzer;
+
+  public @NotNull String getName ()
+  {
+    return "ProjectDependenciesAnalyzer.analyzeDependencies";
+  }
+
+  /**
+   * Remembers problem size; analyzers are created by {@link #prepare()}.
+   * @param size number of classes
+   */
+  public void setUp (int size)
+  {
+    this.size = size;
+  }
+
+  /**
+   * Creates an unanalyzed analyzer for synthetic dependencies.
+   */
+  public void prepare ()
+  {
+    // traversal results are stored in analyzer, so every invocation needs an unanalyzed graph
+    analyzer = SyntheticDependencies.createAnalyzer (size, size);
+  }
+
+  /**
+   * Traverses all dependencies and computes cloud positions.
+   * @return dependency infos of all classes
+   */
+  public Object run ()
+  {
+    analyzer.analyzeDependencies ();
+    return analyzer.getInfos ();
+  }
+}
@@ -0,0 +1,63 @@
+package de.frag.umlplugin.classcloud;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * Creates synthetic dependency graphs that resemble dependencies of real projects: most classes use a few classes
+ * of lower layers, some classes extend a base class and a small fraction of dependencies creates cycles.
+ */
+public class SyntheticDependencies
+{
+  private static final int    CLASSES_PER_PACKAGE = 25;
+  private static final int    MAX_USED_CLASSES    = 6;
+  private static final double EXTENDS_PROBABILITY = 0.3;
+  private static final double CYCLE_PROBABILITY   = 0.01;
+
+  private SyntheticDependencies () {}
+
+  /**
+   * Gets qualified name of synthetic class with given number.
+   * @param index class number
+   * @return qualified class name
+   */
+  public static @NotNull String getClassName (int index)
+  {
+    return "synthetic.p" + (index / CLASSES_PER_PACKAGE) + ".Class" + index;
+  }
+
+  /**
+   * Creates an analyzer that contains a synthetic dependency graph. Dependencies are not analyzed yet.
+   * @param classCount number of classes
+   * @param seed seed of random generator, so equal seeds create equal graphs
+   * @return analyzer containing synthetic classes and dependencies
+   */
+  public static @NotNull ProjectDependenciesAnalyzer createAnalyzer (int classCount, long seed)
+  {
+    ProjectDependenciesAnalyzer analyzer = new ProjectDependenciesAnalyzer ();
+    Random random = new Random (seed);
+    for (int i = 0; i < classCount; i++)
+    {
+      analyzer.addClass (getClassName (i));
+    }
+    for (int i = 0; i < classCount - 1; i++)
+    {
+      String className = getClassName (i);
+      int usedCount = random.nextInt (MAX_USED_CLASSES + 1);
+      for (int u = 0; u < usedCount; u++)
+      {
+        analyzer.addUsed (className, getClassName (i + 1 + random.nextInt (classCount - i - 1)));
+      }
+      if (random.nextDouble () < EXTENDS_PROBABILITY)
+      {
+        analyzer.addExtended (className, getClassName (i + 1 + random.nextInt (classCount - i - 1)));
+      }
+      if (i > 0 && random.nextDouble () < CYCLE_PROBABILITY)
+      {
+        analyzer.addUsed (className, getClassName (random.nextInt (i)));
+      }
+    }
+    return analyzer;
+  }
+}
@@ -0,0 +1,59 @@
+package de.frag.umlplugin.graphio;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Measures scaling down a diagram image to thumbnail size. Image area grows linearly with the problem size,
+ * like the area of a class cloud grows with the number of classes.
+ */
+public class ImageScalerBenchmark implements Benchmark
+{
+  private static final int PIXELS_PER_CLASS = 100;
+  private static final int TARGET_HEIGHT    = 128;
+
+  private BufferedImage image;
+
+  public @NotNull String getName ()
+  {
+    return "ImageScaler.filter";
+  }
+
+  /**
+   * Creates a quadratic image with diagonal lines whose area grows with the problem size.
+   * @param size number of classes
+   */
+  public void setUp (int size)
+  {
+    int side = (int) Math.sqrt ((double) size * PIXELS_PER_CLASS);
+    image = new BufferedImage (side, side, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics ();
+    graphics.setColor (Color.WHITE);
+    graphics.fillRect (0, 0, side, side);
+    graphics.setColor (Color.BLACK);
+    for (int i = 0; i < side; i += 7)
+    {
+      graphics.drawLine (0, i, side, side - i);
+    }
+    graphics.dispose ();
+  }
+
+  /**
+   * Does nothing, since scaling does not modify the source image.
+   */
+  public void prepare ()
+  {
+  }
+
+  /**
+   * Scales the image down to thumbnail height.
+   * @return scaled image
+   */
+  public Object run ()
+  {
+    return new ImageScaler (TARGET_HEIGHT).filter (image);
+  }
+}
@@ -0,0 +1,62 @@
+package de.frag.umlplugin.history;
+
+import de.frag.umlplugin.benchmark.Benchmark;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures adding entries to a full history and stepping back and forth, like a user browsing classes.
+ */
+public class HistoryListBenchmark implements Benchmark
+{
+  private static final int MAX_SIZE = 100;
+
+  private String [] entries;
+
+  public @NotNull String getName ()
+  {
+    return "HistoryList.navigate";
+  }
+
+  /**
+   * Creates history entries.
+   * @param size number of added entries
+   */
+  public void setUp (int size)
+  {
+    entries = new String [size];
+    for (int i = 0; i < size; i++)
+    {
+      entries [i] = "synthetic.Class" + i;
+    }
+  }
+
+  /**
+   * Does nothing, since every invocation fills a new history.
+   */
+  public void prepare ()
+  {
+  }
+
+  /**
+   * Adds all entries to a new history and steps back and forth after every tenth entry.
+   * @return final size of history
+   */
+  public Object run ()
+  {
+    HistoryList<String> history = new HistoryList<String> (MAX_SIZE);
+    for (int i = 0; i < entries.length; i++)
+    {
+      history.add (entries [i]);
+      if (i % 10 == 9)
+      {
+        // step back a few entries and branch off, which discards forwardable entries
+        for (int s = 0; s < 3 && history.canStepBack (); s++)
+        {
+          history.stepBack ();
+        }
+        history.stepForward ();
+      }
+    }
+    return history.size ();
+  }
+}
@@ -0,0 +1,75 @@
+package de.frag.umlplugin;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of layout requests of a single layout scheduler. Every new request supersedes all previous ones.
+ * A request also becomes stale as soon as its graph is modified, so layouts computed for an outdated graph are
+ * never applied.
+ */
+class LayoutRequests
+{
+  private final AtomicLong generation = new AtomicLong ();
+
+  /**
+   * Starts a new request and supersedes all previous requests.
+   * @return started request
+   */
+  public @NotNull Request start ()
+  {
+    return new Request (generation.incrementAndGet ());
+  }
+
+  /**
+   * Supersedes all previous requests without starting a new one.
+   */
+  public void cancel ()
+  {
+    generation.incrementAndGet ();
+  }
+
+  /**
+   * Checks whether given request has been superseded by a newer request or by cancellation.
+   * @param request request to check
+   * @return true, if request is superseded; false if it is still the most recent request
+   */
+  public boolean isSuperseded (@NotNull Request request)
+  {
+    return request.generation != generation.get ();
+  }
+
+  /**
+   * Checks whether the result of given request may still be applied.
+   * @param request request to check
+   * @return true, if request is the most recent request and its graph has not been modified; false otherwise
+   */
+  public boolean isCurrent (@NotNull Request request)
+  {
+    return !isSuperseded (request) && request.modificationCount == 0;
+  }
+
+  /**
+   * Single layout request.
+   */
+  public static class Request
+  {
+    private final long    generation;
+    private volatile long modificationCount;
+
+    private Request (long generation)
+    {
+      this.generation = generation;
+    }
+
+    /**
+     * Records a modification of the graph this request computes a layout for. Graph events are fired on the event
+     * dispatch thread only, so modifications are never recorded concurrently.
+     */
+    public void graphModified ()
+    {
+      modificationCount++;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package de.frag.umlplugin;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.graph.GraphManager;
+import com.intellij.openapi.graph.base.Edge;
+import com.intellij.openapi.graph.base.GraphEvent;
+import com.intellij.openapi.graph.base.GraphListener;
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.graph.layout.CopiedLayoutGraph;
+import com.intellij.openapi.graph.layout.DefaultGraphLayout;
+import com.intellij.openapi.graph.layout.GraphLayout;
+import com.intellij.openapi.graph.layout.LayoutGraph;
+import com.intellij.openapi.graph.layout.Layouter;
+import de.frag.umlplugin.instrumentation.Instrumentation;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.concurrent.Future;
+
+/**
+ * Computes graph layouts in a background thread. The graph is copied on the event dispatch thread, the layouter
+ * runs on the copy in a pooled thread and the result is handed back to the event dispatch thread. If a new
+ * layout is scheduled before a pending one has finished, the pending layout is cancelled and its result is
+ * discarded, so only the most recent request is ever applied. If nodes or edges of the graph are created, removed
+ * or changed while the layout is computed, the outdated layout is discarded and the layout is scheduled again for
+ * the modified graph. Exceptions thrown by the layouter are rethrown on the event dispatch thread, so they are
+ * reported like any other error of the IDE.
+ */
+public class LayoutScheduler
+{
+  private final LayoutRequests requests = new LayoutRequests ();
+  private Future<?>            pending;
+  private LayoutGraph          pendingGraph;
+  private GraphListener        pendingListener;
+
+  /**
+   * Schedules a layout computation for given graph. Must be called on the event dispatch thread.
+   * @param graph graph to compute layout for
+   * @param layouter layouter that will be run on a copy of given graph
+   * @param listener listener that will be notified on the event dispatch thread as soon as the layout is ready
+   */
+  public void schedule (@NotNull final LayoutGraph graph, @NotNull final Layouter layouter,
+                        @NotNull final LayoutListener listener)
+  {
+    cancelPending ();
+    final LayoutRequests.Request request = requests.start ();
+    GraphManager graphManager = GraphManager.getGraphManager ();
+    final CopiedLayoutGraph copy = graphManager.createCopiedLayoutGraph (graph);
+    pendingGraph = graph;
+    pendingListener = new GraphListener ()
+    {
+      public void onGraphEvent (GraphEvent event)
+      {
+        request.graphModified ();
+      }
+    };
+    graph.addGraphListener (pendingListener);
+    pending = ApplicationManager.getApplication ().executeOnPooledThread (new Runnable () {
+      public void run ()
+      {
+        long start = Instrumentation.start ();
+        try
+        {
+          layouter.doLayout (copy);
+        }
+        catch (final RuntimeException e)
+        {
+          if (!requests.isSuperseded (request))
+          {
+            SwingUtilities.invokeLater (new Runnable () {
+              public void run ()
+              {
+                if (!requests.isSuperseded (request))
+                {
+                  cancelPending ();
+                  throw e;
+                }
+              }
+            });
+          }
+          return;
+        }
+        finally
+        {
+          Instrumentation.stop ("LayoutScheduler.layout", start);
+        }
+        if (requests.isSuperseded (request))
+        {
+          return;
+        }
+        SwingUtilities.invokeLater (new Runnable () {
+          public void run ()
+          {
+            // drop result if it was superseded; lay out modified graph again if it changed in the meantime
+            if (requests.isCurrent (request))
+            {
+              cancelPending ();
+              listener.layoutComputed (new LayoutResult (copy));
+            }
+            else if (!requests.isSuperseded (request))
+            {
+              schedule (graph, layouter, listener);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Cancels any pending layout computation. Results of cancelled computations will never be delivered.
+   */
+  public void cancel ()
+  {
+    requests.cancel ();
+    cancelPending ();
+  }
+
+  /**
+   * Cancels future of pending layout computation, if there is any, and stops listening to changes of its graph.
+   */
+  private void cancelPending ()
+  {
+    if (pending != null)
+    {
+      pending.cancel (true);
+      pending = null;
+    }
+    if (pendingGraph != null)
+    {
+      pendingGraph.removeGraphListener (pendingListener);
+      pendingGraph = null;
+      pendingListener = null;
+    }
+  }
+
+  /**
+   * Listener that is notified when a scheduled layout has been computed.
+   */
+  public interface LayoutListener
+  {
+    /**
+     * Called on the event dispatch thread after the layout of the most recent request has been computed.
+     * @param result computed layout
+     */
+    public void layoutComputed (@NotNull LayoutResult result);
+  }
+
+  /**
+   * Computed layout of a copied graph that can be applied to the original graph.
+   */
+  public static class LayoutResult
+  {
+    private final CopiedLayoutGraph copy;
+
+    private LayoutResult (@NotNull CopiedLayoutGraph copy)
+    {
+      this.copy = copy;
+    }
+
+    /**
+     * Applies computed layout to original graph in a single step.
+     */
+    public void commit ()
+    {
+      copy.commitLayoutToOriginalGraph ();
+    }
+
+    /**
+     * Creates a graph layout for the original graph, e.g. to be used by layout morphers.
+     * @return graph layout that maps nodes and edges of original graph to computed layouts
+     */
+    public @NotNull GraphLayout createGraphLayout ()
+    {
+      GraphManager graphManager = GraphManager.getGraphManager ();
+      DefaultGraphLayout graphLayout = graphManager.createDefaultGraphLayout ();
+      for (Node node : copy.getNodeArray ())
+      {
+        graphLayout.setNodeLayout (copy.getOriginalNode (node), copy.getLayout (node));
+      }
+      for (Edge edge : copy.getEdgeArray ())
+      {
+        graphLayout.setEdgeLayout (copy.getOriginalEdge (edge), copy.getLayout (edge));
+      }
+      return graphLayout;
+    }
+  }
+}
@@ -74,7 +74,7 @@ public class ProjectUtils
    * @return key for given type
    */
   @SuppressWarnings ({"unchecked"})
-  private static @NotNull <T> Key<T> getKey (@NotNull Class<T> type)
+  private static synchronized @NotNull <T> Key<T> getKey (@NotNull Class<T> type)
   {
     Key<T> key = keys.get (type);
     if (key == null)
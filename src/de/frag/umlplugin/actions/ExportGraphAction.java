@@ -51,7 +51,8 @@ public class ExportGraphAction extends AnAction implements Graph2DViewConsumer
         final SaveDialog saveDialog = new SaveDialog (project, "Save graph to file", "Choose folder.",
                                                       "Select folder for saving file.", "GraphPath",
                                                       GraphFileType.GIF, GraphFileType.JPG,
-                                                      GraphFileType.PNG, GraphFileType.SVG);
+                                                      GraphFileType.PNG, GraphFileType.SVG,
+                                                      GraphFileType.SVGZ);
         saveDialog.show (new Runnable () {
           public void run ()
           {
@@ -0,0 +1,93 @@
+package de.frag.umlplugin.actions;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.openapi.ui.Messages;
+import de.frag.umlplugin.instrumentation.Instrumentation;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shows recorded timing statistics of analysis and rendering stages. Statistics can be reset or dumped to a file.
+ */
+public class ShowStatisticsAction extends AnAction
+{
+  private static final int WIDTH  = 800;
+  private static final int HEIGHT = 600;
+
+  /**
+   * Shows statistics dialog.
+   * @param e event
+   */
+  public void actionPerformed (AnActionEvent e)
+  {
+    final Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    final JTextArea reportArea = new JTextArea (createReport ());
+    reportArea.setEditable (false);
+    reportArea.setFont (new Font ("Monospaced", Font.PLAIN, 12));
+    JScrollPane scrollPane = new JScrollPane (reportArea);
+    scrollPane.setPreferredSize (new Dimension (WIDTH, HEIGHT));
+
+    DialogBuilder dialogBuilder = new DialogBuilder (project);
+    dialogBuilder.setTitle ("Code Navigator Timing Statistics");
+    dialogBuilder.setCenterPanel (scrollPane);
+    dialogBuilder.addAction (new AbstractAction ("Reset")
+    {
+      public void actionPerformed (ActionEvent event)
+      {
+        Instrumentation.reset ();
+        reportArea.setText (createReport ());
+      }
+    });
+    dialogBuilder.addAction (new AbstractAction ("Save to File")
+    {
+      public void actionPerformed (ActionEvent event)
+      {
+        saveReport (project);
+      }
+    });
+    dialogBuilder.addCloseButton ();
+    dialogBuilder.show ();
+  }
+
+  /**
+   * Creates report of all recorded statistics.
+   * @return report text
+   */
+  private @NotNull String createReport ()
+  {
+    if (!Instrumentation.isEnabled ())
+    {
+      return "Recording of timing statistics is disabled, it can be enabled in settings.\n\n" +
+             Instrumentation.createReport ();
+    }
+    return Instrumentation.createReport ();
+  }
+
+  /**
+   * Writes report of all recorded statistics to a new file in the temporary directory.
+   * @param project current project
+   */
+  private void saveReport (Project project)
+  {
+    try
+    {
+      File file = File.createTempFile ("codenavigator-statistics-", ".txt");
+      Instrumentation.writeReport (file);
+      Messages.showInfoMessage (project, "Statistics were written to " + file.getAbsolutePath (), "Information");
+    }
+    catch (IOException ex)
+    {
+      Messages.showErrorDialog (project, "Could not write file, error: " + ex.getMessage (),
+                                "Error while saving file");
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package de.frag.umlplugin.anim;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Transparent variants of a single base color. Every variant is created once and shared by all animations,
+ * so fading nodes and edges does not create new colors in every animation frame.
+ */
+public class AlphaPalette
+{
+  private static final int                        MAX_PALETTES = 1024;
+  private static final Map<Integer, AlphaPalette> palettes     = new HashMap<Integer, AlphaPalette> ();
+
+  private final Color    base;
+  private final Color [] colors = new Color [256];
+
+  /**
+   * Creates a new empty palette.
+   * @param base opaque base color
+   */
+  private AlphaPalette (@NotNull Color base)
+  {
+    this.base = base;
+  }
+
+  /**
+   * Gets palette for given color. The alpha value of given color is ignored.
+   * @param color base color
+   * @return shared palette that contains all transparent variants of given color
+   */
+  public static synchronized @NotNull AlphaPalette getPalette (@NotNull Color color)
+  {
+    int rgb = color.getRGB () | 0xFF000000;
+    AlphaPalette palette = palettes.get (rgb);
+    if (palette == null)
+    {
+      if (palettes.size () >= MAX_PALETTES)
+      {
+        palettes.clear ();
+      }
+      palette = new AlphaPalette (new Color (rgb));
+      palettes.put (rgb, palette);
+    }
+    return palette;
+  }
+
+  /**
+   * Gets variant of base color with given alpha value.
+   * @param alpha alpha value; values outside of [0, 255] are clamped
+   * @return shared color
+   */
+  public @NotNull Color getColor (int alpha)
+  {
+    alpha = Math.max (0, Math.min (255, alpha));
+    Color color = colors [alpha];
+    if (color == null)
+    {
+      color = alpha == 255 ? base : new Color (base.getRed (), base.getGreen (), base.getBlue (), alpha);
+      colors [alpha] = color;
+    }
+    return color;
+  }
+}
@@ -17,6 +17,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Creates animation from one subject class to another class selected by the user.
@@ -28,6 +30,7 @@ public class AnimationBuilder
   private final Graph2D     newGraph;
   private final Node        selectedNodeInOldGraph;
   private final Settings    settings;
+  private final int         elementCount;
 
   /**
    * Creates an animation builder that can create animations from one graph to another.
@@ -45,6 +48,27 @@ public class AnimationBuilder
     this.newGraph               = newGraph;
     this.selectedNodeInOldGraph = selectedNodeInOldGraph;
     this.settings               = settings;
+    this.elementCount           = oldGraph.nodeCount () + oldGraph.edgeCount () +
+                                  newGraph.nodeCount () + newGraph.edgeCount ();
+  }
+
+  /**
+   * Checks whether graphs are too large to be animated smoothly, so the new graph should be shown immediately.
+   * Snapshot transitions are never skipped, since their costs do not depend on the size of the graphs.
+   * @return true, if animation should be skipped; false otherwise
+   */
+  public boolean isAnimationSkipped ()
+  {
+    return !settings.isSnapshotTransition () && elementCount > settings.getAnimationSkipThreshold ();
+  }
+
+  /**
+   * Checks whether graphs are so large that nodes and edges should be faded as a single group.
+   * @return true, if group fades should be used; false otherwise
+   */
+  private boolean isGroupFade ()
+  {
+    return elementCount > settings.getAnimationGroupThreshold ();
   }
 
   /**
@@ -70,34 +94,56 @@ public class AnimationBuilder
     return sequence;
   }
 
+  /**
+   * Creates a transition that crossfades and zooms from a snapshot of the old graph to a snapshot of the new graph.
+   * The transition exchanges the graphs in the view when it starts.
+   * @return created animation object
+   */
+  public @NotNull AnimationObject createSnapshotTransition ()
+  {
+    return new SnapshotTransition (graph2DView, oldGraph.getRealizer (selectedNodeInOldGraph), newGraph,
+                                   settings.getAnimationDuration ());
+  }
+
   /**
    * Creates an animation object that fades out all nodes and edges but the seubject node and the selected node.
    * @return created animation object
    */
   private @NotNull AnimationObject createFadeOut ()
   {
-    CompositeAnimationObject concurrency = CompositeAnimationFactory.createConcurrency ();
-    AnimationFactory factory = new AnimationFactory ();
+    List<NodeRealizer> nodeRealizers = new ArrayList<NodeRealizer> ();
+    List<EdgeRealizer> edgeRealizers = new ArrayList<EdgeRealizer> ();
     DataProvider nodeMap = oldGraph.getDataProvider (DataProviderKeys.DEPENDENCY_INFO_NODE_KEY);
     for (Node node : oldGraph.getNodeArray ())
     {
       GraphBuilder.NodeInfo nodeInfo = (GraphBuilder.NodeInfo) nodeMap.get (node);
       if (nodeInfo.getDependencyType () != DependencyType.SUBJECT && node != selectedNodeInOldGraph)
       {
-        NodeRealizer nodeRealizer = oldGraph.getRealizer (node);
-        AnimationObject animation = factory.fadeOut (nodeRealizer, settings.getAnimationDuration () / 3);
-        concurrency.addAnimation (animation);
+        nodeRealizers.add (oldGraph.getRealizer (node));
       }
     }
     for (final Edge edge : oldGraph.getEdgeArray ())
     {
       if (edge.source () != selectedNodeInOldGraph && edge.target () != selectedNodeInOldGraph)
       {
-        EdgeRealizer edgeRealizer = oldGraph.getRealizer (edge);
-        AnimationObject animation = factory.fadeOut (edgeRealizer, settings.getAnimationDuration () / 3);
-        concurrency.addAnimation (animation);
+        edgeRealizers.add (oldGraph.getRealizer (edge));
       }
     }
+    AnimationFactory factory = new AnimationFactory ();
+    long duration = settings.getAnimationDuration () / 3;
+    if (isGroupFade ())
+    {
+      return factory.fadeOut (nodeRealizers, edgeRealizers, duration);
+    }
+    CompositeAnimationObject concurrency = CompositeAnimationFactory.createConcurrency ();
+    for (NodeRealizer nodeRealizer : nodeRealizers)
+    {
+      concurrency.addAnimation (factory.fadeOut (nodeRealizer, duration));
+    }
+    for (EdgeRealizer edgeRealizer : edgeRealizers)
+    {
+      concurrency.addAnimation (factory.fadeOut (edgeRealizer, duration));
+    }
     return concurrency;
   }
 
@@ -155,16 +201,15 @@ public class AnimationBuilder
     // set all nodes but selectedNodeInNewGraph and subjectNodeInNewGraph to invisible
     // set all edges but edgeInNewGraph to invisible
     // create fade-in animations for all these nodes and edges
-    CompositeAnimationObject concurrency = CompositeAnimationFactory.createConcurrency ();
-    AnimationFactory factory = new AnimationFactory ();
+    List<NodeRealizer> nodeRealizers = new ArrayList<NodeRealizer> ();
+    List<EdgeRealizer> edgeRealizers = new ArrayList<EdgeRealizer> ();
     for (Node node : newGraph.getNodeArray ())
     {
       if (node != selectedNodeInNewGraph && node != subjectNodeInNewGraph)
       {
         NodeRealizer nodeRealizer = newGraph.getRealizer (node);
         nodeRealizer.setVisible (false);
-        AnimationObject animation = factory.fadeIn (nodeRealizer, settings.getAnimationDuration () / 3);
-        concurrency.addAnimation (animation);
+        nodeRealizers.add (nodeRealizer);
       }
     }
     for (final Edge edge : newGraph.getEdgeArray ())
@@ -173,10 +218,24 @@ public class AnimationBuilder
       {
         EdgeRealizer edgeRealizer = newGraph.getRealizer (edge);
         edgeRealizer.setVisible (false);
-        AnimationObject animation = factory.fadeIn (edgeRealizer, settings.getAnimationDuration () / 3);
-        concurrency.addAnimation (animation);
+        edgeRealizers.add (edgeRealizer);
       }
     }
+    AnimationFactory factory = new AnimationFactory ();
+    long duration = settings.getAnimationDuration () / 3;
+    if (isGroupFade ())
+    {
+      return factory.fadeIn (nodeRealizers, edgeRealizers, duration);
+    }
+    CompositeAnimationObject concurrency = CompositeAnimationFactory.createConcurrency ();
+    for (NodeRealizer nodeRealizer : nodeRealizers)
+    {
+      concurrency.addAnimation (factory.fadeIn (nodeRealizer, duration));
+    }
+    for (EdgeRealizer edgeRealizer : edgeRealizers)
+    {
+      concurrency.addAnimation (factory.fadeIn (edgeRealizer, duration));
+    }
     return concurrency;
   }
 
@@ -0,0 +1,142 @@
+package de.frag.umlplugin.anim;
+
+import de.frag.umlplugin.instrumentation.Instrumentation;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frame clock that drives all running animation players. A single swing timer ticks at a fixed frame rate, so
+ * frames are computed on the event dispatch thread and concurrent animations share one clock instead of each
+ * running its own thread. The timer only runs while there are players to drive. Frames are computed within a
+ * per-frame time budget; players that do not fit into the budget skip the current tick. Since players compute
+ * frames from elapsed time, skipped ticks simply drop frames and never slow down animations.
+ */
+public class AnimationClock
+{
+  private static final int  FRAME_INTERVAL = 16;
+  private static final long FRAME_BUDGET   = 12 * 1000000L;
+
+  private static AnimationClock instance;
+
+  private final List<AnimationPlayer> players = new ArrayList<AnimationPlayer> ();
+  private final Timer                 timer;
+  private int                         nextPlayer;
+
+  /**
+   * Creates a new stopped clock.
+   */
+  AnimationClock ()
+  {
+    timer = new Timer (FRAME_INTERVAL, new ActionListener ()
+    {
+      public void actionPerformed (ActionEvent e)
+      {
+        tick ();
+      }
+    });
+    timer.setCoalesce (true);
+  }
+
+  /**
+   * Gets clock that is shared by all animation players.
+   * @return shared clock
+   */
+  public static synchronized @NotNull AnimationClock getInstance ()
+  {
+    if (instance == null)
+    {
+      instance = new AnimationClock ();
+    }
+    return instance;
+  }
+
+  /**
+   * Gets current time of this clock.
+   * @return current time in nano seconds
+   */
+  long now ()
+  {
+    return System.nanoTime ();
+  }
+
+  /**
+   * Adds given player, so it is driven by this clock. The clock starts ticking if it was stopped.
+   * @param player player to add
+   */
+  void add (@NotNull AnimationPlayer player)
+  {
+    if (!players.contains (player))
+    {
+      players.add (player);
+    }
+    if (players.size () == 1)
+    {
+      startTimer ();
+    }
+  }
+
+  /**
+   * Removes given player. The clock stops ticking if there are no players left.
+   * @param player player to remove
+   */
+  void remove (@NotNull AnimationPlayer player)
+  {
+    if (players.remove (player) && players.isEmpty ())
+    {
+      stopTimer ();
+    }
+  }
+
+  /**
+   * Gets number of players driven by this clock.
+   * @return number of players
+   */
+  int getPlayerCount ()
+  {
+    return players.size ();
+  }
+
+  /**
+   * Computes next frame of all players within the frame budget. Players that did not get a frame are the first
+   * ones to be served in the next tick, so no player starves.
+   */
+  void tick ()
+  {
+    long deadline = now () + FRAME_BUDGET;
+    // players may finish and remove themselves while frames are computed
+    List<AnimationPlayer> current = new ArrayList<AnimationPlayer> (players);
+    int count = current.size ();
+    for (int i = 0; i < count; i++)
+    {
+      if (i > 0 && now () > deadline)
+      {
+        nextPlayer = (nextPlayer + i) % count;
+        Instrumentation.count ("AnimationClock.droppedFrames", count - i);
+        return;
+      }
+      current.get ((nextPlayer + i) % count).computeFrame (now ());
+    }
+    nextPlayer = 0;
+  }
+
+  /**
+   * Starts periodic ticks.
+   */
+  void startTimer ()
+  {
+    timer.start ();
+  }
+
+  /**
+   * Stops periodic ticks.
+   */
+  void stopTimer ()
+  {
+    timer.stop ();
+  }
+}
@@ -10,7 +10,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -78,6 +77,34 @@ public class AnimationFactory
     return new EdgeFadeOut (realizer, preferredDuration);
   }
 
+  /**
+   * Creates a single fade-in animation for all given realizers. Group fades change the transparency of all
+   * realizers in a few coarse steps only, so they stay smooth for large graphs.
+   * @param nodeRealizers node realizers to fade in
+   * @param edgeRealizers edge realizers to fade in
+   * @param preferredDuration duration in milli seconds
+   * @return created animation object
+   */
+  public @NotNull AnimationObject fadeIn (@NotNull List<NodeRealizer> nodeRealizers,
+                                          @NotNull List<EdgeRealizer> edgeRealizers, long preferredDuration)
+  {
+    return new GroupFade (nodeRealizers, edgeRealizers, true, preferredDuration);
+  }
+
+  /**
+   * Creates a single fade-out animation for all given realizers. Group fades change the transparency of all
+   * realizers in a few coarse steps only, so they stay smooth for large graphs.
+   * @param nodeRealizers node realizers to fade out
+   * @param edgeRealizers edge realizers to fade out
+   * @param preferredDuration duration in milli seconds
+   * @return created animation object
+   */
+  public @NotNull AnimationObject fadeOut (@NotNull List<NodeRealizer> nodeRealizers,
+                                           @NotNull List<EdgeRealizer> edgeRealizers, long preferredDuration)
+  {
+    return new GroupFade (nodeRealizers, edgeRealizers, false, preferredDuration);
+  }
+
   /**
    * Creates a morph animation from the given source realizer to the specified target realizer.
    * @param source source realizer
@@ -155,14 +182,34 @@ public class AnimationFactory
   //---------------------------------------------------------------------------------------------
 
   /**
-   * Creates a color with alpha computed from given transparency.
-   * @param color base color
-   * @param transparency transparency of new color, 0.0 means opaque, 1.0 means completely transparent.
-   * @return created color
+   * Fades a color between complete transparency and its original alpha value. Start and end values are captured
+   * once, so faded colors are never read back and repeated frames do not accumulate rounding errors.
    */
-  private @NotNull Color createTransparentColor (@NotNull Color color, double transparency)
+  private static class ColorFade
   {
-    return new Color (color.getRed (), color.getGreen (), color.getBlue (), (int) ((1.0 - transparency) * 255));
+    private final AlphaPalette palette;
+    private final int          alpha;
+
+    /**
+     * Creates a new color fade.
+     * @param color color to fade or null, if realizer has no such color
+     */
+    private ColorFade (@Nullable Color color)
+    {
+      this.palette = color != null ? AlphaPalette.getPalette (color) : null;
+      // colors of realizers that have been faded out completely are faded in to opaque colors
+      this.alpha   = color != null && color.getAlpha () > 0 ? color.getAlpha () : 255;
+    }
+
+    /**
+     * Gets faded color.
+     * @param opacity opacity of faded color, 0.0 means completely transparent, 1.0 means original alpha
+     * @return shared faded color or null, if realizer has no such color
+     */
+    private @Nullable Color getColor (double opacity)
+    {
+      return palette != null ? palette.getColor ((int) Math.round (opacity * alpha)) : null;
+    }
   }
 
 
@@ -196,6 +243,8 @@ public class AnimationFactory
   private class NodeFadeIn extends AbstractAnimationObject
   {
     private final NodeRealizer realizer;
+    private ColorFade          fillFade;
+    private ColorFade          lineFade;
 
     public NodeFadeIn (@NotNull NodeRealizer realizer, long preferredDuration)
     {
@@ -205,27 +254,25 @@ public class AnimationFactory
 
     public void initAnimation ()
     {
+      fillFade = new ColorFade (realizer.getFillColor ());
+      lineFade = new ColorFade (realizer.getLineColor ());
       for (int i = 0; i < realizer.labelCount (); i++)
       {
         realizer.getLabel (i).setVisible (false);
-        realizer.setVisible (true);
       }
+      realizer.setVisible (true);
     }
 
     public void calcFrame (double time)
     {
-      Color fillColor = realizer.getFillColor ();
-      Color lineColor = realizer.getLineColor ();
-      realizer.setFillColor (createTransparentColor (fillColor, 1.0 - time));
-      realizer.setLineColor (createTransparentColor (lineColor, 1.0 - time));
+      realizer.setFillColor (fillFade.getColor (time));
+      realizer.setLineColor (lineFade.getColor (time));
     }
 
     public void disposeAnimation ()
     {
-      Color fillColor = realizer.getFillColor ();
-      Color lineColor = realizer.getLineColor ();
-      realizer.setFillColor (createTransparentColor (fillColor, 0.0));
-      realizer.setLineColor (createTransparentColor (lineColor, 0.0));
+      realizer.setFillColor (fillFade.getColor (1.0));
+      realizer.setLineColor (lineFade.getColor (1.0));
       for (int i = 0; i < realizer.labelCount (); i++)
       {
         realizer.getLabel (i).setVisible (true);
@@ -238,6 +285,8 @@ public class AnimationFactory
   private class NodeFadeOut extends AbstractAnimationObject
   {
     private final NodeRealizer realizer;
+    private ColorFade          fillFade;
+    private ColorFade          lineFade;
 
     public NodeFadeOut (@NotNull NodeRealizer realizer, long preferredDuration)
     {
@@ -249,12 +298,16 @@ public class AnimationFactory
       }
     }
 
+    public void initAnimation ()
+    {
+      fillFade = new ColorFade (realizer.getFillColor ());
+      lineFade = new ColorFade (realizer.getLineColor ());
+    }
+
     public void calcFrame (double time)
     {
-      Color fillColor = realizer.getFillColor ();
-      Color lineColor = realizer.getLineColor ();
-      realizer.setFillColor (createTransparentColor (fillColor, time));
-      realizer.setLineColor (createTransparentColor (lineColor, time));
+      realizer.setFillColor (fillFade.getColor (1.0 - time));
+      realizer.setLineColor (lineFade.getColor (1.0 - time));
     }
 
     public void disposeAnimation ()
@@ -268,6 +321,7 @@ public class AnimationFactory
   private class EdgeFadeIn extends AbstractAnimationObject
   {
     private final EdgeRealizer realizer;
+    private ColorFade          lineFade;
 
     public EdgeFadeIn (@NotNull EdgeRealizer realizer, long preferredDuration)
     {
@@ -277,6 +331,7 @@ public class AnimationFactory
 
     public void initAnimation ()
     {
+      lineFade = new ColorFade (realizer.getLineColor ());
       for (int i = 0; i < realizer.labelCount (); i++)
       {
         realizer.getLabel (i).setVisible (false);
@@ -286,14 +341,12 @@ public class AnimationFactory
 
     public void calcFrame (double time)
     {
-      Color lineColor = realizer.getLineColor ();
-      realizer.setLineColor (createTransparentColor (lineColor, 1.0 - time));
+      realizer.setLineColor (lineFade.getColor (time));
     }
 
     public void disposeAnimation ()
     {
-      Color lineColor = realizer.getLineColor ();
-      realizer.setLineColor (createTransparentColor (lineColor, 0.0));
+      realizer.setLineColor (lineFade.getColor (1.0));
       for (int i = 0; i < realizer.labelCount (); i++)
       {
         realizer.getLabel (i).setVisible (true);
@@ -306,6 +359,7 @@ public class AnimationFactory
   private class EdgeFadeOut extends AbstractAnimationObject
   {
     private final EdgeRealizer realizer;
+    private ColorFade          lineFade;
 
     public EdgeFadeOut (@NotNull EdgeRealizer realizer, long preferredDuration)
     {
@@ -317,10 +371,14 @@ public class AnimationFactory
       }
     }
 
+    public void initAnimation ()
+    {
+      lineFade = new ColorFade (realizer.getLineColor ());
+    }
+
     public void calcFrame (double time)
     {
-      Color lineColor = realizer.getLineColor ();
-      realizer.setLineColor (createTransparentColor (lineColor, time));
+      realizer.setLineColor (lineFade.getColor (1.0 - time));
     }
 
     public void disposeAnimation ()
@@ -331,40 +389,169 @@ public class AnimationFactory
 
 
 
+  private class GroupFade extends AbstractAnimationObject
+  {
+    private static final int STEPS = 16;
+
+    private final List<NodeRealizer> nodeRealizers;
+    private final List<EdgeRealizer> edgeRealizers;
+    private final boolean            fadeIn;
+    private ColorFade []             fillFades;
+    private ColorFade []             nodeLineFades;
+    private ColorFade []             edgeLineFades;
+    private int                      step;
+
+    public GroupFade (@NotNull List<NodeRealizer> nodeRealizers, @NotNull List<EdgeRealizer> edgeRealizers,
+                      boolean fadeIn, long preferredDuration)
+    {
+      super (preferredDuration);
+      this.nodeRealizers = nodeRealizers;
+      this.edgeRealizers = edgeRealizers;
+      this.fadeIn        = fadeIn;
+      if (!fadeIn)
+      {
+        setLabelsVisible (false);
+      }
+    }
+
+    public void initAnimation ()
+    {
+      fillFades     = new ColorFade [nodeRealizers.size ()];
+      nodeLineFades = new ColorFade [nodeRealizers.size ()];
+      edgeLineFades = new ColorFade [edgeRealizers.size ()];
+      for (int i = 0; i < fillFades.length; i++)
+      {
+        NodeRealizer realizer = nodeRealizers.get (i);
+        fillFades     [i] = new ColorFade (realizer.getFillColor ());
+        nodeLineFades [i] = new ColorFade (realizer.getLineColor ());
+      }
+      for (int i = 0; i < edgeLineFades.length; i++)
+      {
+        edgeLineFades [i] = new ColorFade (edgeRealizers.get (i).getLineColor ());
+      }
+      if (fadeIn)
+      {
+        setLabelsVisible (false);
+        setVisible (true);
+      }
+      step = -1;
+    }
+
+    public void calcFrame (double time)
+    {
+      // colors only change when the coarse step changes, most frames do not touch any realizer
+      int newStep = (int) Math.round ((fadeIn ? time : 1.0 - time) * STEPS);
+      if (newStep != step)
+      {
+        step = newStep;
+        setOpacity ((double) step / STEPS);
+      }
+    }
+
+    public void disposeAnimation ()
+    {
+      if (fadeIn)
+      {
+        setOpacity (1.0);
+        setLabelsVisible (true);
+      }
+      else
+      {
+        setVisible (false);
+      }
+    }
+
+    /**
+     * Sets opacity of all realizers.
+     * @param opacity opacity, 0.0 means completely transparent, 1.0 means original alpha
+     */
+    private void setOpacity (double opacity)
+    {
+      for (int i = 0; i < fillFades.length; i++)
+      {
+        NodeRealizer realizer = nodeRealizers.get (i);
+        realizer.setFillColor (fillFades [i].getColor (opacity));
+        realizer.setLineColor (nodeLineFades [i].getColor (opacity));
+      }
+      for (int i = 0; i < edgeLineFades.length; i++)
+      {
+        edgeRealizers.get (i).setLineColor (edgeLineFades [i].getColor (opacity));
+      }
+    }
+
+    /**
+     * Shows or hides all realizers.
+     * @param visible true, if realizers should be shown; false otherwise
+     */
+    private void setVisible (boolean visible)
+    {
+      for (NodeRealizer realizer : nodeRealizers)
+      {
+        realizer.setVisible (visible);
+      }
+      for (EdgeRealizer realizer : edgeRealizers)
+      {
+        realizer.setVisible (visible);
+      }
+    }
+
+    /**
+     * Shows or hides labels of all realizers.
+     * @param visible true, if labels should be shown; false otherwise
+     */
+    private void setLabelsVisible (boolean visible)
+    {
+      for (NodeRealizer realizer : nodeRealizers)
+      {
+        for (int i = 0; i < realizer.labelCount (); i++)
+        {
+          realizer.getLabel (i).setVisible (visible);
+        }
+      }
+      for (EdgeRealizer realizer : edgeRealizers)
+      {
+        for (int i = 0; i < realizer.labelCount (); i++)
+        {
+          realizer.getLabel (i).setVisible (visible);
+        }
+      }
+    }
+  }
+
+
+
   private class NodeMorph extends AbstractAnimationObject
   {
     private final NodeRealizer source;
-    private final NodeRealizer target;
     private final double       sourceX;
     private final double       sourceY;
     private final double       sourceWidth;
     private final double       sourceHeight;
+    private final double       targetX;
+    private final double       targetY;
+    private final double       targetWidth;
+    private final double       targetHeight;
 
     public NodeMorph (@NotNull NodeRealizer source, NodeRealizer target, long preferredDuration)
     {
       super (preferredDuration);
       this.source       = source;
-      this.target       = target;
       this.sourceX      = source.getX ();
       this.sourceY      = source.getY ();
       this.sourceWidth  = source.getWidth ();
       this.sourceHeight = source.getHeight ();
+      this.targetX      = target.getX ();
+      this.targetY      = target.getY ();
+      this.targetWidth  = target.getWidth ();
+      this.targetHeight = target.getHeight ();
     }
 
     public void calcFrame (double time)
     {
-      double targetX      = target.getX ();
-      double targetY      = target.getY ();
-      double targetWidth  = target.getWidth ();
-      double targetHeight = target.getHeight ();
-      double x            = sourceX      + time * (targetX      - sourceX);
-      double y            = sourceY      + time * (targetY      - sourceY);
-      double width        = sourceWidth  + time * (targetWidth  - sourceWidth);
-      double height       = sourceHeight + time * (targetHeight - sourceHeight);
-      source.setX      (x);
-      source.setY      (y);
-      source.setWidth  (width);
-      source.setHeight (height);
+      source.setX      (sourceX      + time * (targetX      - sourceX));
+      source.setY      (sourceY      + time * (targetY      - sourceY));
+      source.setWidth  (sourceWidth  + time * (targetWidth  - sourceWidth));
+      source.setHeight (sourceHeight + time * (targetHeight - sourceHeight));
     }
   }
 
@@ -373,72 +560,146 @@ public class AnimationFactory
   private class EdgeMorph extends AbstractAnimationObject
   {
     private final EdgeRealizer source;
-    private final EdgeRealizer target;
-    private final List<YPoint> sourcePoints = new ArrayList<YPoint> ();
-    private final List<YPoint> targetPoints = new ArrayList<YPoint> ();
-    private final List<Double> sourceLabelAngles = new ArrayList<Double> ();
+    private final int          pointCount;
+    private final double []    sourceXs;
+    private final double []    sourceYs;
+    private final double []    targetXs;
+    private final double []    targetYs;
+    private final double []    sourceLabelAngles;
+    private final double []    labelAngleDiffs;
 
     public EdgeMorph (@NotNull EdgeRealizer source, @NotNull EdgeRealizer target, long preferredDuration)
     {
       super (preferredDuration);
       this.source = source;
-      this.target = target;
-      sourcePoints.add (source.getSourcePoint ());
-      targetPoints.add (target.getSourcePoint ());
-      for (int i = 0; i < source.pointCount (); i++)
+      // first and last entries are source and target point, bends are stored in between
+      pointCount = Math.max (source.pointCount (), target.pointCount ()) + 2;
+      sourceXs   = new double [pointCount];
+      sourceYs   = new double [pointCount];
+      targetXs   = new double [pointCount];
+      targetYs   = new double [pointCount];
+      readPoints (source, sourceXs, sourceYs);
+      readPoints (target, targetXs, targetYs);
+
+      int labelCount = Math.min (source.labelCount (), target.labelCount ());
+      sourceLabelAngles = new double [labelCount];
+      labelAngleDiffs   = new double [labelCount];
+      for (int i = 0; i < labelCount; i++)
+      {
+        double sourceAngle = source.getLabel (i).getRotationAngle ();
+        double diff        = target.getLabel (i).getRotationAngle () - sourceAngle;
+        if (diff > 180)
+        {
+          diff -= 360;
+        }
+        else if (diff < -180)
+        {
+          diff += 360;
+        }
+        sourceLabelAngles [i] = sourceAngle;
+        labelAngleDiffs   [i] = diff;
+      }
+    }
+
+    /**
+     * Adds bends to the morphed edge if it has fewer bends than its target. Added bends lie on the current path
+     * of the edge, so its shape does not change.
+     */
+    public void initAnimation ()
+    {
+      if (source.pointCount () < pointCount - 2)
       {
-        sourcePoints.add (source.getPoint (0));
-        targetPoints.add (target.getPoint (0));
+        source.clearBends ();
+        for (int i = 1; i < pointCount - 1; i++)
+        {
+          source.appendBend (sourceXs [i], sourceYs [i]);
+        }
       }
-      sourcePoints.add (source.getTargetPoint ());
-      targetPoints.add (target.getTargetPoint ());
+    }
 
-      for (int i = 0; i < source.labelCount (); i++)
+    /**
+     * Reads source point, bends and target point of given edge. If the edge has fewer bends than there are
+     * coordinates, the longest segment is split in halves until all coordinates are used, so the padded points
+     * still describe the path of the edge.
+     * @param realizer edge to read points of
+     * @param xs x coordinates; its length is the number of points to read
+     * @param ys y coordinates
+     */
+    private void readPoints (@NotNull EdgeRealizer realizer, @NotNull double [] xs, @NotNull double [] ys)
+    {
+      int count = realizer.pointCount () + 2;
+      setPoint (xs, ys, 0, realizer.getSourcePoint ());
+      for (int i = 1; i < count - 1; i++)
       {
-        sourceLabelAngles.add (source.getLabel (i).getRotationAngle ());
+        setPoint (xs, ys, i, realizer.getPoint (i - 1));
+      }
+      setPoint (xs, ys, count - 1, realizer.getTargetPoint ());
+      for (; count < xs.length; count++)
+      {
+        int longest = 0;
+        double longestLength = -1;
+        for (int i = 0; i < count - 1; i++)
+        {
+          double dx = xs [i + 1] - xs [i];
+          double dy = ys [i + 1] - ys [i];
+          double length = dx * dx + dy * dy;
+          if (length > longestLength)
+          {
+            longest       = i;
+            longestLength = length;
+          }
+        }
+        System.arraycopy (xs, longest + 1, xs, longest + 2, count - longest - 1);
+        System.arraycopy (ys, longest + 1, ys, longest + 2, count - longest - 1);
+        xs [longest + 1] = (xs [longest] + xs [longest + 2]) / 2;
+        ys [longest + 1] = (ys [longest] + ys [longest + 2]) / 2;
       }
     }
 
+    /**
+     * Stores coordinates of given point.
+     * @param xs x coordinates
+     * @param ys y coordinates
+     * @param index index to store coordinates at
+     * @param point point to store
+     */
+    private void setPoint (@NotNull double [] xs, @NotNull double [] ys, int index, @NotNull YPoint point)
+    {
+      xs [index] = point.getX ();
+      ys [index] = point.getY ();
+    }
+
     public void calcFrame (double time)
     {
       GraphManager graphManager = GraphManager.getGraphManager ();
-      for (int i = 0; i < source.pointCount () + 2; i++)
+      for (int i = 0; i < pointCount; i++)
       {
-        YPoint sourcePoint = sourcePoints.get (i);
-        YPoint targetPoint = targetPoints.get (i);
-        double sourceX = sourcePoint.getX ();
-        double sourceY = sourcePoint.getY ();
-        double targetX = targetPoint.getX ();
-        double targetY = targetPoint.getY ();
-        double x       = sourceX + time * (targetX - sourceX);
-        double y       = sourceY + time * (targetY - sourceY);
-        if (i == 0)
-        {
-          source.setSourcePoint (graphManager.createYPoint (x, y));
-        }
-        else if (i == sourcePoints.size () - 1)
+        double x = sourceXs [i] + time * (targetXs [i] - sourceXs [i]);
+        double y = sourceYs [i] + time * (targetYs [i] - sourceYs [i]);
+        if (i == 0 || i == pointCount - 1)
         {
-          source.setTargetPoint (graphManager.createYPoint (x, y));
+          // end points are immutable objects, so they are only replaced if they really move
+          if (sourceXs [i] != targetXs [i] || sourceYs [i] != targetYs [i])
+          {
+            YPoint point = graphManager.createYPoint (x, y);
+            if (i == 0)
+            {
+              source.setSourcePoint (point);
+            }
+            else
+            {
+              source.setTargetPoint (point);
+            }
+          }
         }
         else
         {
           source.setPoint (i - 1, x, y);
         }
       }
-      for (int i = 0; i < source.labelCount (); i++)
+      for (int i = 0; i < sourceLabelAngles.length; i++)
       {
-        double sourceAngle = sourceLabelAngles.get (i);
-        double targetAngle = target.getLabel (i).getRotationAngle ();
-        double diff        = targetAngle - sourceAngle;
-        if (diff > 180)
-        {
-          diff -= 360;
-        }
-        else if (diff < -180)
-        {
-          diff += 360;
-        }
-        source.getLabel (i).setRotationAngle (sourceAngle + time * diff);
+        source.getLabel (i).setRotationAngle (sourceLabelAngles [i] + time * labelAngleDiffs [i]);
       }
     }
   }
@@ -473,6 +734,7 @@ public class AnimationFactory
     private final Graph2DView view;
     private final Rectangle   sourceRectangle;
     private final Rectangle   targetRectangle;
+    private final Rectangle   frameRectangle = new Rectangle ();
 
     public FitRectangle (@NotNull Graph2DView view, @NotNull Rectangle rectangle, long preferredDuration)
     {
@@ -488,7 +750,8 @@ public class AnimationFactory
       double y      = sourceRectangle.getY      () + time * (targetRectangle.getY      () - sourceRectangle.getY      ());
       double width  = sourceRectangle.getWidth  () + time * (targetRectangle.getWidth  () - sourceRectangle.getWidth  ());
       double height = sourceRectangle.getHeight () + time * (targetRectangle.getHeight () - sourceRectangle.getHeight ());
-      view.fitRectangle (new Rectangle ((int) x, (int) y, (int) width, (int) height));
+      frameRectangle.setBounds ((int) x, (int) y, (int) width, (int) height);
+      view.fitRectangle (frameRectangle);
     }
 
     public void disposeAnimation ()
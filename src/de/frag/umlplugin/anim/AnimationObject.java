@@ -20,7 +20,7 @@ public interface AnimationObject
 
   /**
    * Disposes the animation object. This method is invoked by an animation player after the last invocation
-   * of calcFrame was performed or AnimationPlayer.stop() has been invoked.
+   * of calcFrame was performed or AnimationPlayer.cancel() has been invoked.
    */
   public void disposeAnimation ();
 
@@ -1,18 +1,41 @@
 package de.frag.umlplugin.anim;
 
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
 
 /**
- * Plays animations.
+ * Plays animations. Frames are computed on the event dispatch thread whenever the shared animation clock ticks,
+ * so animations may safely modify graphs that are painted at the same time. A player plays a single animation
+ * at a time; all methods must be called on the event dispatch thread.
  */
-@SuppressWarnings ({"EmptyCatchBlock"})
 public class AnimationPlayer
 {
-  private boolean playing  = false;
   private final Collection<AnimationListener> listeners = new ArrayList<AnimationListener> ();
+  private final AnimationClock                clock;
+  private AnimationObject                     animationObject;
+  private long                                startTime;
+  private long                                pauseTime;
+  private boolean                             paused;
+
+  /**
+   * Creates a new animation player that is driven by the shared animation clock.
+   */
+  public AnimationPlayer ()
+  {
+    this (AnimationClock.getInstance ());
+  }
+
+  /**
+   * Creates a new animation player that is driven by given clock.
+   * @param clock animation clock
+   */
+  AnimationPlayer (@NotNull AnimationClock clock)
+  {
+    this.clock = clock;
+  }
 
   /**
    * Adds an animation listener.
@@ -35,45 +58,131 @@ public class AnimationPlayer
   }
 
   /**
-   * Plays the animation represented by the given animation object
+   * Plays the animation represented by the given animation object. If this player is still playing another
+   * animation, that animation is finished first.
    * @param animationObject animation object to be played
    */
-  public void animate (@NotNull final AnimationObject animationObject)
+  public void animate (@NotNull AnimationObject animationObject)
+  {
+    cancel ();
+    this.animationObject = animationObject;
+    this.paused          = false;
+    try
+    {
+      animationObject.initAnimation ();
+    }
+    catch (RuntimeException e)
+    {
+      // try to catch some of the bugs in idea's graph framework wrappers
+      finish ();
+      return;
+    }
+    startTime = clock.now ();
+    clock.add (this);
+  }
+
+  /**
+   * Computes frame for given clock time. Called by animation clock on every tick.
+   * @param now current clock time in nano seconds
+   */
+  void computeFrame (long now)
   {
-    Thread thread = new Thread (new Runnable () {
-      public void run ()
-      {
-        try
-        {
-          playing = true;
-          animationObject.initAnimation ();
-          double time = 0;
-          long preferredDuration = animationObject.preferredDuration ();
-          long startTime = System.currentTimeMillis ();
-          while (playing && time <= 1.0)
-          {
-            animationObject.calcFrame (time);
-            callListeners ();
-            long timeElapsed = System.currentTimeMillis () - startTime;
-            time = (double) timeElapsed / (double) preferredDuration;
-          }
-          animationObject.calcFrame (1.0);
-          animationObject.disposeAnimation ();
-          callListeners ();
-        }
-        catch (Exception e)
-        {
-          // try to catch some of the bugs in idea's graph framework wrappers
-          animationObject.calcFrame (1.0);
-          animationObject.disposeAnimation ();
-          callListeners ();
-        }
-        finally
-        {
-          playing = false;
-        }
-      }
-    });
-    thread.start ();
+    if (animationObject == null || paused)
+    {
+      return;
+    }
+    double time = (double) (now - startTime) / (animationObject.preferredDuration () * 1000000.0);
+    if (time >= 1.0)
+    {
+      finish ();
+      return;
+    }
+    long start = Instrumentation.start ();
+    try
+    {
+      animationObject.calcFrame (Math.max (0.0, time));
+      callListeners ();
+    }
+    catch (RuntimeException e)
+    {
+      // try to catch some of the bugs in idea's graph framework wrappers
+      finish ();
+    }
+    Instrumentation.stop ("AnimationPlayer.frame", start);
+  }
+
+  /**
+   * Pauses current animation. Paused animations keep their current frame until they are resumed.
+   */
+  public void pause ()
+  {
+    if (animationObject != null && !paused)
+    {
+      paused    = true;
+      pauseTime = clock.now ();
+      clock.remove (this);
+    }
+  }
+
+  /**
+   * Resumes paused animation at the frame it was paused at.
+   */
+  public void resume ()
+  {
+    if (animationObject != null && paused)
+    {
+      paused = false;
+      startTime += clock.now () - pauseTime;
+      clock.add (this);
+    }
+  }
+
+  /**
+   * Cancels current animation. The final frame is shown immediately and the animation is disposed.
+   */
+  public void cancel ()
+  {
+    if (animationObject != null)
+    {
+      finish ();
+    }
+  }
+
+  /**
+   * Checks whether an animation is currently played. Paused animations are still played.
+   * @return true, if an animation is played; false otherwise
+   */
+  public boolean isPlaying ()
+  {
+    return animationObject != null;
+  }
+
+  /**
+   * Checks whether current animation is paused.
+   * @return true, if animation is paused; false otherwise
+   */
+  public boolean isPaused ()
+  {
+    return paused;
+  }
+
+  /**
+   * Shows final frame of current animation and disposes it.
+   */
+  private void finish ()
+  {
+    AnimationObject finished = animationObject;
+    animationObject = null;
+    paused          = false;
+    clock.remove (this);
+    try
+    {
+      finished.calcFrame (1.0);
+    }
+    finally
+    {
+      finished.disposeAnimation ();
+      callListeners ();
+    }
   }
 }
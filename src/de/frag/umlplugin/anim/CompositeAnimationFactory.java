@@ -45,7 +45,7 @@ public class CompositeAnimationFactory
    */
   private static class Concurrency extends AbstractCompositeAnimationObject
   {
-    private long duration;
+    private double [] timeScales;
 
     public void initAnimation ()
     {
@@ -53,16 +53,20 @@ public class CompositeAnimationFactory
       {
         child.initAnimation ();
       }
-      duration = preferredDuration ();
+      // durations do not change while playing, so time scales of all children are computed only once
+      long duration = preferredDuration ();
+      timeScales = new double [children.size ()];
+      for (int i = 0; i < timeScales.length; i++)
+      {
+        timeScales [i] = (double) duration / (double) children.get (i).preferredDuration ();
+      }
     }
 
     public void calcFrame (double time)
     {
-      for (AnimationObject child : children)
+      for (int i = 0; i < timeScales.length; i++)
       {
-        long childDuration = child.preferredDuration ();
-        double childTime = Math.min (1.0, time * ((double) duration / (double) childDuration));
-        child.calcFrame (childTime);
+        children.get (i).calcFrame (Math.min (1.0, time * timeScales [i]));
       }
     }
 
@@ -100,9 +104,9 @@ public class CompositeAnimationFactory
 
     public void calcFrame (double time)
     {
-      for (AnimationObject child : children)
+      for (int i = 0; i < children.size (); i++)
       {
-        child.calcFrame (time);
+        children.get (i).calcFrame (time);
       }
     }
 
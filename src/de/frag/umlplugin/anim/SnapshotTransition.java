@@ -0,0 +1,242 @@
+package de.frag.umlplugin.anim;
+
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.graph.view.Graph2D;
+import com.intellij.openapi.graph.view.Graph2DView;
+import com.intellij.openapi.graph.view.NodeRealizer;
+import de.frag.umlplugin.codenavigator.graph.GraphUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.image.BufferedImage;
+
+/**
+ * Transition from one graph to another that renders both graphs only once into offscreen images and crossfades
+ * and zooms between these images. The costs of a single frame do not depend on the size of the graphs and no
+ * realizer is modified while the transition is running.
+ */
+class SnapshotTransition extends AbstractAnimationObject
+{
+  private static final double            ZOOM        = 1.25;
+  private static final int               ALPHA_STEPS = 64;
+  private static final AlphaComposite [] COMPOSITES  = new AlphaComposite [ALPHA_STEPS + 1];
+
+  static
+  {
+    for (int i = 0; i <= ALPHA_STEPS; i++)
+    {
+      COMPOSITES [i] = AlphaComposite.getInstance (AlphaComposite.SRC_OVER, i / (float) ALPHA_STEPS);
+    }
+  }
+
+  private final Graph2DView  view;
+  private final NodeRealizer selectedRealizer;
+  private final Graph2D      newGraph;
+
+  private final ComponentListener canvasListener = new ComponentAdapter ()
+  {
+    public void componentResized (ComponentEvent e)
+    {
+      updateOverlayBounds ();
+    }
+
+    public void componentMoved (ComponentEvent e)
+    {
+      updateOverlayBounds ();
+    }
+  };
+
+  private BufferedImage oldImage;
+  private BufferedImage newImage;
+  private Overlay       overlay;
+  private double        oldX;
+  private double        oldY;
+  private double        newX;
+  private double        newY;
+  private double        time;
+
+  /**
+   * Creates a new snapshot transition.
+   * @param view view that currently shows the old graph and will show the new graph afterwards
+   * @param selectedRealizer realizer of the node in the old graph that the user navigated to
+   * @param newGraph new graph
+   * @param preferredDuration duration in milli seconds
+   */
+  SnapshotTransition (@NotNull Graph2DView view, @NotNull NodeRealizer selectedRealizer, @NotNull Graph2D newGraph,
+                      long preferredDuration)
+  {
+    super (preferredDuration);
+    this.view             = view;
+    this.selectedRealizer = selectedRealizer;
+    this.newGraph         = newGraph;
+  }
+
+  /**
+   * Renders old graph, exchanges graphs in view, renders new graph and shows both snapshots in an overlay
+   * that covers the view canvas.
+   */
+  public void initAnimation ()
+  {
+    JComponent canvas = view.getCanvasComponent ();
+    JRootPane rootPane = SwingUtilities.getRootPane (canvas);
+    int width  = canvas.getWidth  ();
+    int height = canvas.getHeight ();
+    boolean showing = rootPane != null && canvas.isShowing () && width > 0 && height > 0;
+    if (showing)
+    {
+      oldX = view.toViewCoordX (selectedRealizer.getCenterX ());
+      oldY = view.toViewCoordY (selectedRealizer.getCenterY ());
+      oldImage = createSnapshot (canvas, width, height);
+      overlay = new Overlay ();
+      rootPane.getLayeredPane ().add (overlay, JLayeredPane.DRAG_LAYER);
+      updateOverlayBounds ();
+      canvas.addComponentListener (canvasListener);
+    }
+    view.setGraph2D (newGraph);
+    view.fitContent ();
+    view.updateView ();
+    view.adjustScrollBarVisibility ();
+    if (showing)
+    {
+      Node subjectNode = GraphUtils.findSubjectNode (newGraph);
+      NodeRealizer subjectRealizer = subjectNode != null ? newGraph.getRealizer (subjectNode) : null;
+      newX = subjectRealizer != null ? view.toViewCoordX (subjectRealizer.getCenterX ()) : width  / 2.0;
+      newY = subjectRealizer != null ? view.toViewCoordY (subjectRealizer.getCenterY ()) : height / 2.0;
+      newImage = createSnapshot (canvas, width, height);
+    }
+  }
+
+  public void calcFrame (double time)
+  {
+    this.time = time;
+    if (overlay != null)
+    {
+      overlay.repaint ();
+    }
+  }
+
+  /**
+   * Removes overlay and releases both snapshots. The new graph is already shown by the view underneath.
+   */
+  public void disposeAnimation ()
+  {
+    view.getCanvasComponent ().removeComponentListener (canvasListener);
+    if (overlay != null)
+    {
+      Container parent = overlay.getParent ();
+      if (parent != null)
+      {
+        parent.remove (overlay);
+        parent.repaint (overlay.getX (), overlay.getY (), overlay.getWidth (), overlay.getHeight ());
+      }
+      overlay = null;
+    }
+    if (oldImage != null)
+    {
+      oldImage.flush ();
+      oldImage = null;
+    }
+    if (newImage != null)
+    {
+      newImage.flush ();
+      newImage = null;
+    }
+  }
+
+  /**
+   * Places overlay over the view canvas, so it keeps covering the canvas if the view is resized or moved while
+   * the transition is running.
+   */
+  private void updateOverlayBounds ()
+  {
+    Container parent = overlay != null ? overlay.getParent () : null;
+    if (parent != null)
+    {
+      JComponent canvas = view.getCanvasComponent ();
+      Rectangle bounds = new Rectangle (0, 0, canvas.getWidth (), canvas.getHeight ());
+      overlay.setBounds (SwingUtilities.convertRectangle (canvas, bounds, parent));
+      overlay.repaint ();
+    }
+  }
+
+  /**
+   * Renders the currently visible part of the graph in the view into a new image. The image is compatible to
+   * the screen configuration, so it can be accelerated and drawn without conversion.
+   * @param canvas canvas component of view
+   * @param width image width
+   * @param height image height
+   * @return created image
+   */
+  private @NotNull BufferedImage createSnapshot (@NotNull JComponent canvas, int width, int height)
+  {
+    GraphicsConfiguration configuration = canvas.getGraphicsConfiguration ();
+    BufferedImage image = configuration != null ? configuration.createCompatibleImage (width, height) :
+                          new BufferedImage (width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics ();
+    try
+    {
+      graphics.setColor (canvas.getBackground ());
+      graphics.fillRect (0, 0, width, height);
+      view.paintVisibleContent (graphics);
+    }
+    finally
+    {
+      graphics.dispose ();
+    }
+    return image;
+  }
+
+  /**
+   * Draws given snapshot scaled around the current anchor point.
+   * @param graphics graphics to draw to
+   * @param image snapshot to draw
+   * @param x x coordinate of point in snapshot that is placed at anchor point
+   * @param y y coordinate of point in snapshot that is placed at anchor point
+   * @param scale scale factor
+   */
+  private void drawSnapshot (@NotNull Graphics2D graphics, @Nullable BufferedImage image, double x, double y,
+                             double scale)
+  {
+    if (image != null)
+    {
+      double anchorX = oldX + time * (newX - oldX);
+      double anchorY = oldY + time * (newY - oldY);
+      int left = (int) Math.round (anchorX - x * scale);
+      int top  = (int) Math.round (anchorY - y * scale);
+      graphics.drawImage (image, left, top, (int) Math.round (image.getWidth  () * scale),
+                          (int) Math.round (image.getHeight () * scale), null);
+    }
+  }
+
+  /**
+   * Component that covers the view canvas and paints the current frame of the transition.
+   */
+  private class Overlay extends JComponent
+  {
+    private static final long serialVersionUID = 1L;
+
+    public Overlay ()
+    {
+      setOpaque (true);
+    }
+
+    protected void paintComponent (Graphics g)
+    {
+      Graphics2D graphics = (Graphics2D) g;
+      graphics.setColor (view.getCanvasComponent ().getBackground ());
+      graphics.fillRect (0, 0, getWidth (), getHeight ());
+      graphics.setRenderingHint (RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      // old snapshot zooms in towards the selected node, new snapshot zooms in from the same point and fades in
+      drawSnapshot (graphics, oldImage, oldX, oldY, 1 + time * (ZOOM - 1));
+      Composite composite = graphics.getComposite ();
+      graphics.setComposite (COMPOSITES [(int) Math.round (time * ALPHA_STEPS)]);
+      drawSnapshot (graphics, newImage, newX, newY, 1 / ZOOM + time * (1 - 1 / ZOOM));
+      graphics.setComposite (composite);
+    }
+  }
+}
@@ -16,5 +16,10 @@
  * Concurrency and Sequence. By adding atomic edge and or node animations to such composite animations and combining
  * several composite animations by using other composite animation objects, complete animation sequences containing
  * hundreds of single steps can be created.</p> 
+ * <p>Animations are played by an {@link de.frag.umlplugin.anim.AnimationPlayer AnimationPlayer}. All players are
+ * driven by the shared {@link de.frag.umlplugin.anim.AnimationClock AnimationClock}, which computes frames on the
+ * event dispatch thread at a fixed frame rate.</p>
+ * <p>As an alternative to animating single nodes and edges, a snapshot transition renders both graphs once into
+ * offscreen images and crossfades between these images, so its frames are equally cheap for graphs of any size.</p>
  */
 package de.frag.umlplugin.anim;
\ No newline at end of file
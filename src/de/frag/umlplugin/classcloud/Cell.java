@@ -7,10 +7,11 @@ import org.jetbrains.annotations.NotNull;
  */
 public class Cell
 {
-  private final String className;
-  private final int    preferredX;
-  private final int    preferredY;
-  private final int    dependencyCount;
+  private final String  className;
+  private final int     preferredX;
+  private final int     preferredY;
+  private final int     dependencyCount;
+  private final boolean packageCell;
 
   /**
    * Creates new cell.
@@ -20,11 +21,25 @@ public class Cell
    * @param dependencyCount number of dependencies between this cell and all other cells
    */
   public Cell (@NotNull String className, int preferredX, int preferredY, int dependencyCount)
+  {
+    this (className, preferredX, preferredY, dependencyCount, false);
+  }
+
+  /**
+   * Creates new cell.
+   * @param className qualified class name or package name for class cloud cell
+   * @param preferredX preferred x-coordinate. 0.0 means left, 1.0 means right
+   * @param preferredY preferred y-coordinate. 0.0 means top, 1.0 means bottom
+   * @param dependencyCount number of dependencies between this cell and all other cells
+   * @param packageCell true, if cell represents an aggregated package; false, if it represents a single class
+   */
+  public Cell (@NotNull String className, int preferredX, int preferredY, int dependencyCount, boolean packageCell)
   {
     this.className       = className;
     this.preferredX      = preferredX;
     this.preferredY      = preferredY;
     this.dependencyCount = dependencyCount;
+    this.packageCell     = packageCell;
   }
 
   /**
@@ -63,6 +78,15 @@ public class Cell
     return dependencyCount;
   }
 
+  /**
+   * Checks whether this cell represents an aggregated package.
+   * @return true, if class name is a package name; false otherwise
+   */
+  public boolean isPackage ()
+  {
+    return packageCell;
+  }
+
   public @NotNull String toString ()
   {
     return className + ", preferred: (" + preferredX + ", " + preferredY + ")";
@@ -5,6 +5,10 @@ import com.intellij.openapi.graph.GraphManager;
 import com.intellij.openapi.graph.base.Edge;
 import com.intellij.openapi.graph.base.Node;
 import com.intellij.openapi.graph.view.*;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.wm.ToolWindow;
@@ -13,6 +17,7 @@ import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.openapi.wm.ToolWindowType;
 //import com.intellij.peer.PeerFactory;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.SearchScope;
 import com.intellij.ui.DocumentAdapter;
 import com.intellij.ui.SearchTextField;
 import com.intellij.ui.content.Content;
@@ -31,8 +36,14 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Handles creation and presentation of class clouds.
@@ -43,14 +54,18 @@ public class ClassCloud
   private static final int    UNSELECTED_TRANSPARENCY =  50;
   private static final int    OPAQUE                  = 255;
 
-  private final Project                     project;
-  private final DelayedExecutor             executor = new DelayedExecutor (400);
-  private final Map<String, Node>           classNamesToNodes = new HashMap<String, Node> ();
-  private final ProjectDependenciesAnalyzer analyzer = new ProjectDependenciesAnalyzer ();
-  private final Graph2DView                 graph2DView;
-  private UMLEdgeFactory                    edgeFactory;
-  private boolean                           goToSourceOnClick = true;
-  private JPanel                            graphViewContainer;
+  private final Project                       project;
+  private final DelayedExecutor               executor = new DelayedExecutor (400);
+  private final Map<String, Node>             classNamesToNodes = new HashMap<String, Node> ();
+  private final Map<String, SearchScope>      addedModules = new LinkedHashMap<String, SearchScope> ();
+  private final List<ModuleShard>             addedShards = new ArrayList<ModuleShard> ();
+  private final ProjectDependenciesAnalyzer   analyzer = new ProjectDependenciesAnalyzer ();
+  private final Set<String>                   expandedPackages = new HashSet<String> ();
+  private final Graph2DView                   graph2DView;
+  private ProjectDependenciesAnalyzer         displayed = analyzer;
+  private UMLEdgeFactory                      edgeFactory;
+  private boolean                             goToSourceOnClick = true;
+  private JPanel                              graphViewContainer;
 
   /**
    * Creates a new class cloud.
@@ -65,12 +80,15 @@ public class ClassCloud
   }
 
   /**
-   * Analyzes given class.
-   * @param psiClass class to analyze
+   * Adds classes of given module shard.
+   * @param shard analyzed module shard
+   * @param scope scope that limits added classes or null, if all classes of given shard should be added
    */
-  public void analyzeClass (@NotNull PsiClass psiClass)
+  public void addShard (@NotNull ModuleShard shard, @Nullable SearchScope scope)
   {
-    analyzer.analyzeClass (psiClass);
+    addedModules.put (shard.getModuleName (), scope);
+    addedShards.add (shard);
+    analyzer.addShard (shard, scope);
   }
 
   /**
@@ -79,17 +97,89 @@ public class ClassCloud
   public void show ()
   {
     analyzer.analyzeDependencies ();
-    final java.util.List<String> sortedClasses = analyzer.getClasses ();
-    if (sortedClasses.isEmpty ())
+    expandedPackages.clear ();
+    if (analyzer.getClassCount () == 0)
     {
       Messages.showInfoMessage (project, "Selected scope does not contain any classes.", "Information");
       return;
     }
-    final Map<String, ProjectDependenciesAnalyzer.DependencyInfo> infos = analyzer.getInfos ();
-    CloudLayouter layouter = new CloudLayouter (sortedClasses, infos);
+    showCloud ();
+  }
+
+  /**
+   * Expands package associated to given node, so its classes are shown instead of the package. Dependencies are
+   * aggregated again from already analyzed relations, so no classes are analyzed again.
+   * @param packageNode node of aggregated package
+   */
+  public void expandPackage (@NotNull Node packageNode)
+  {
+    Cell cell = ClassCloudData.findCell (packageNode);
+    if (cell != null && cell.isPackage ())
+    {
+      expandedPackages.add (cell.getClassName ());
+      showCloud ();
+    }
+  }
+
+  /**
+   * Collapses package of class associated to given node, so the package is shown instead of its classes.
+   * @param classNode node of class in expanded package
+   */
+  public void collapsePackage (@NotNull Node classNode)
+  {
+    Cell cell = ClassCloudData.findCell (classNode);
+    if (cell != null && !cell.isPackage () && expandedPackages.remove (displayed.getPackage (cell.getClassName ())))
+    {
+      showCloud ();
+    }
+  }
+
+  /**
+   * Checks whether given node represents an aggregated package that can be expanded.
+   * @param node class cloud node
+   * @return true, if node represents an aggregated package; false otherwise
+   */
+  public boolean isExpandable (@NotNull Node node)
+  {
+    Cell cell = ClassCloudData.findCell (node);
+    return cell != null && cell.isPackage ();
+  }
+
+  /**
+   * Checks whether given node represents a class of an expanded package.
+   * @param node class cloud node
+   * @return true, if node represents a class whose package can be collapsed; false otherwise
+   */
+  public boolean isCollapsible (@NotNull Node node)
+  {
+    Cell cell = ClassCloudData.findCell (node);
+    return cell != null && !cell.isPackage () && displayed != analyzer &&
+           expandedPackages.contains (displayed.getPackage (cell.getClassName ()));
+  }
+
+  /**
+   * Lays out analyzed classes and shows created graph. If aggregation is enabled, classes of all packages that
+   * are not expanded are aggregated into package nodes.
+   */
+  private void showCloud ()
+  {
+    Settings settings = Settings.getSettings ();
+    if (displayed != analyzer)
+    {
+      // packages are aggregated again, so previously aggregated nodes are not restored
+      displayed.clear ();
+      displayed = analyzer;
+    }
+    restoreRelations ();
+    displayed = settings.isAggregatedClassCloud () ? analyzer.aggregateByPackage (expandedPackages) : analyzer;
+    final java.util.List<String> sortedClasses = displayed.getClasses ();
+    final Map<String, ProjectDependenciesAnalyzer.DependencyInfo> infos = displayed.getInfos ();
+    CloudLayouter layouter = new CloudLayouter (sortedClasses, infos, displayed.getPackageNodes ());
     Graph2D graph = layouter.createGraph ();
+    releaseRelations ();
 
     // add mapping from class names to nodes
+    classNamesToNodes.clear ();
     for (Node node : graph.getNodeArray ())
     {
       Cell cell = ClassCloudData.findCell (node);
@@ -175,7 +265,15 @@ public class ClassCloud
   public void clear ()
   {
     classNamesToNodes.clear ();
+    addedModules.clear ();
+    addedShards.clear ();
+    if (displayed != analyzer)
+    {
+      displayed.clear ();
+    }
     analyzer.clear ();
+    expandedPackages.clear ();
+    displayed = analyzer;
     goToSourceOnClick = true;
   }
   
@@ -186,10 +284,35 @@ public class ClassCloud
   public void highlightDependencies (@NotNull Node subjectNode)
   {
     removeAllEdges ();
+    if (displayed != analyzer)
+    {
+      restoreRelations ();
+      highlightAggregatedDependencies (subjectNode);
+      releaseRelations ();
+    }
+    else
+    {
+      if (Settings.getSettings ().isHightlightCyclicEdges () && !displayed.hasCycles ())
+      {
+        // relations were swapped while cyclic edges were not highlighted, so cycles have not been computed yet
+        restoreRelations ();
+        releaseRelations ();
+      }
+      highlightClassDependencies (subjectNode);
+    }
+  }
+
+  /**
+   * Highlights classes dependent to class associated to given node in a class cloud that is not aggregated.
+   * Dependencies are taken from the PSI of the subject class, so swapped relations are not restored.
+   * @param subjectNode subject node
+   */
+  private void highlightClassDependencies (@NotNull Node subjectNode)
+  {
     PsiClass psiClass = ClassCloudData.findPsiClass (project, subjectNode);
     if (psiClass != null)
     {
-      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
       DependencyCollection usingClasses     = analyzer.getUsingClasses ();
       DependencyCollection usedClasses      = analyzer.getUsedClasses ();
       DependencyCollection extendingClasses = analyzer.getExtendingClasses ();
@@ -210,10 +333,147 @@ public class ClassCloud
     }
   }
 
+  /**
+   * Highlights all classes and dependencies that take part in any dependency cycle. In aggregated class clouds,
+   * cycles between packages are highlighted.
+   */
+  public void highlightCycles ()
+  {
+    removeAllEdges ();
+    restoreRelations ();
+    StronglyConnectedComponents cycles = displayed.getCycles ();
+    for (Map.Entry<String, Node> entry : classNamesToNodes.entrySet ())
+    {
+      setTransparency (entry.getValue (), cycles.isCyclic (entry.getKey ()) ? OPAQUE : UNSELECTED_TRANSPARENCY);
+    }
+    for (Map.Entry<String, Node> entry : classNamesToNodes.entrySet ())
+    {
+      String sourceName = entry.getKey ();
+      if (cycles.isCyclic (sourceName))
+      {
+        addCyclicEdges (entry.getValue (), sourceName, DependencyType.USING,     UsageType.REFERENCE, cycles);
+        addCyclicEdges (entry.getValue (), sourceName, DependencyType.EXTENDING, UsageType.EXTENDS,   cycles);
+      }
+    }
+    releaseRelations ();
+    graph2DView.updateView ();
+  }
+
   //--------------------------------------------------------------------------------------
   //-------------------------------- internal methods ------------------------------------
   //--------------------------------------------------------------------------------------
 
+  /**
+   * Restores classes and relations that were swapped to temporary files. If swapped content cannot be read, the
+   * error is reported and all relations are collected again from module shards.
+   */
+  private void restoreRelations ()
+  {
+    try
+    {
+      analyzer.restore ();
+      displayed.restore ();
+    }
+    catch (IOException e)
+    {
+      Messages.showErrorDialog (project, "Could not restore class cloud dependencies, error: " + e.getMessage () +
+                                         "\nDependencies are collected again from analyzed modules.", "Error");
+      rebuild ();
+    }
+  }
+
+  /**
+   * Swaps classes and relations to temporary files, if compact class clouds are enabled. Relations are only
+   * needed again for expanding packages or highlighting dependencies, so they are restored on demand. If cyclic
+   * edges are highlighted, cycles are computed before, since they remain in memory and are needed whenever cyclic
+   * edges are marked. As soon as relations are swapped, added module shards are released, since their content
+   * has been merged and they would keep all relations in memory.
+   */
+  private void releaseRelations ()
+  {
+    if (Settings.getSettings ().isCompactClassCloud ())
+    {
+      if (Settings.getSettings ().isHightlightCyclicEdges ())
+      {
+        displayed.getCycles ();
+      }
+      analyzer.swap ();
+      if (displayed != analyzer)
+      {
+        displayed.swap ();
+      }
+      if (analyzer.isSwapped () && !addedShards.isEmpty ())
+      {
+        ModuleShardCache.getInstance (project).release (addedShards);
+        addedShards.clear ();
+      }
+    }
+  }
+
+  /**
+   * Collects all classes and relations again from module shards and aggregates them again, if aggregated
+   * packages are displayed. If added shards have already been released, shards of added modules are requested
+   * again from the shard cache, which analyzes them again if needed. If that analysis is cancelled, the class
+   * cloud remains empty.
+   */
+  private void rebuild ()
+  {
+    boolean aggregated = displayed != analyzer;
+    if (aggregated)
+    {
+      displayed.clear ();
+    }
+    analyzer.clear ();
+    if (addedShards.isEmpty ())
+    {
+      addedShards.addAll (getShardsOfAddedModules ());
+    }
+    for (ModuleShard shard : addedShards)
+    {
+      analyzer.addShard (shard, addedModules.get (shard.getModuleName ()));
+    }
+    analyzer.analyzeDependencies ();
+    displayed = aggregated ? analyzer.aggregateByPackage (expandedPackages) : analyzer;
+  }
+
+  /**
+   * Gets shards of all added modules from the shard cache. Modules that have been removed from the project in
+   * the meantime are skipped.
+   * @return shards of added modules; empty list, if analysis was cancelled
+   */
+  private @NotNull List<ModuleShard> getShardsOfAddedModules ()
+  {
+    final List<Module> modules = new ArrayList<Module> ();
+    ModuleManager moduleManager = ModuleManager.getInstance (project);
+    for (String moduleName : addedModules.keySet ())
+    {
+      Module module = moduleManager.findModuleByName (moduleName);
+      if (module != null)
+      {
+        modules.add (module);
+      }
+    }
+    final List<ModuleShard> shards = new ArrayList<ModuleShard> ();
+    if (modules.isEmpty ())
+    {
+      return shards;
+    }
+    final ProgressManager progressManager = ProgressManager.getInstance ();
+    progressManager.runProcessWithProgressSynchronously (new Runnable () {
+      public void run ()
+      {
+        ProgressIndicator progressIndicator = progressManager.getProgressIndicator ();
+        progressIndicator.setIndeterminate (true);
+        List<ModuleShard> moduleShards = ModuleShardCache.getInstance (project).getShards (modules, progressIndicator);
+        if (moduleShards != null)
+        {
+          shards.addAll (moduleShards);
+        }
+      }
+    }, "Analyzing dependencies", true, project);
+    return shards;
+  }
+
   /**
    * Removes all edges from class cloud.
    */
@@ -226,6 +486,53 @@ public class ClassCloud
     }
   }
 
+  /**
+   * Highlights classes and packages dependent to node in an aggregated class cloud. Dependencies are taken from
+   * aggregated relations and edges are labeled with the number of aggregated class dependencies.
+   * @param subjectNode subject node
+   */
+  private void highlightAggregatedDependencies (@NotNull Node subjectNode)
+  {
+    Cell cell = ClassCloudData.findCell (subjectNode);
+    if (cell == null)
+    {
+      return;
+    }
+    for (Node node : classNamesToNodes.values ())
+    {
+      setTransparency (node, UNSELECTED_TRANSPARENCY);
+    }
+    setTransparency (subjectNode, OPAQUE);
+    String subjectName = cell.getClassName ();
+    DependencyType [] dependencyTypes = {DependencyType.USING,     DependencyType.USED,
+                                         DependencyType.EXTENDING, DependencyType.EXTENDED};
+    for (DependencyType dependencyType : dependencyTypes)
+    {
+      boolean forward = dependencyType == DependencyType.USING || dependencyType == DependencyType.EXTENDING;
+      boolean extending = dependencyType == DependencyType.EXTENDING || dependencyType == DependencyType.EXTENDED;
+      for (String dependentName : displayed.getDependencies (subjectName, dependencyType))
+      {
+        Node node = classNamesToNodes.get (dependentName);
+        if (node != null && node != subjectNode)
+        {
+          setTransparency (node, OPAQUE);
+          Node source = forward ? subjectNode : node;
+          Node target = forward ? node : subjectNode;
+          edgeFactory.createEdge (source, target, extending ? UsageType.EXTENDS : UsageType.REFERENCE);
+          markCyclicEdge (source, target, false);
+          Edge edge = source.getEdgeTo (target);
+          if (edge != null)
+          {
+            int multiplicity = forward ? displayed.getMultiplicity (subjectName, dependentName) :
+                                         displayed.getMultiplicity (dependentName, subjectName);
+            graph2DView.getGraph2D ().getRealizer (edge).setLabelText (String.valueOf (multiplicity));
+          }
+        }
+      }
+    }
+    graph2DView.updateView ();
+  }
+
   /**
    * Highlights all classes contained in given dependency collection and adds corresponding edges.
    * @param subjectNode subject node
@@ -245,15 +552,19 @@ public class ClassCloud
         {
           case USING:
             edgeFactory.createEdge (node, subjectNode, UsageType.REFERENCE);
+            markCyclicEdge (node, subjectNode, false);
             break;
           case USED:
             edgeFactory.createEdge (subjectNode, node, UsageType.REFERENCE);
+            markCyclicEdge (subjectNode, node, false);
             break;
           case EXTENDING:
             edgeFactory.createEdge (node, subjectNode, UsageType.EXTENDS);
+            markCyclicEdge (node, subjectNode, false);
             break;
           case EXTENDED:
             edgeFactory.createEdge (subjectNode, node, UsageType.EXTENDS);
+            markCyclicEdge (subjectNode, node, false);
             break;
           default:
             throw new IllegalArgumentException ("unknown dependency type: " + dependencyType);
@@ -262,6 +573,52 @@ public class ClassCloud
     }
   }
 
+  /**
+   * Adds edges for all dependencies of given class that take part in a dependency cycle.
+   * @param sourceNode node of dependent class
+   * @param sourceName name of dependent class
+   * @param dependencyType either USING or EXTENDING
+   * @param usageType usage type of created edges
+   * @param cycles dependency cycles of displayed classes
+   */
+  private void addCyclicEdges (@NotNull Node sourceNode, @NotNull String sourceName,
+                               @NotNull DependencyType dependencyType, @NotNull UsageType usageType,
+                               @NotNull StronglyConnectedComponents cycles)
+  {
+    for (String targetName : displayed.getDependencies (sourceName, dependencyType))
+    {
+      Node targetNode = classNamesToNodes.get (targetName);
+      if (targetNode != null && targetNode != sourceNode && cycles.isCyclicEdge (sourceName, targetName))
+      {
+        edgeFactory.createEdge (sourceNode, targetNode, usageType);
+        markCyclicEdge (sourceNode, targetNode, true);
+      }
+    }
+  }
+
+  /**
+   * Colors edge between given nodes, if it takes part in a dependency cycle.
+   * @param sourceNode source node of edge
+   * @param targetNode target node of edge
+   * @param force true, if edge should be colored regardless of settings; false, if it should only be colored
+   *              if highlighting of cyclic edges is enabled
+   */
+  private void markCyclicEdge (@NotNull Node sourceNode, @NotNull Node targetNode, boolean force)
+  {
+    if (!force && !Settings.getSettings ().isHightlightCyclicEdges ())
+    {
+      return;
+    }
+    Edge edge = sourceNode.getEdgeTo (targetNode);
+    Cell sourceCell = ClassCloudData.findCell (sourceNode);
+    Cell targetCell = ClassCloudData.findCell (targetNode);
+    if (edge != null && sourceCell != null && targetCell != null &&
+        displayed.getCycles ().isCyclicEdge (sourceCell.getClassName (), targetCell.getClassName ()))
+    {
+      graph2DView.getGraph2D ().getRealizer (edge).setLineColor (Color.RED);
+    }
+  }
+
   /**
    * Creates new tool window.
    * @param project current project
@@ -345,7 +702,11 @@ public class ClassCloud
         {
           Node hitNode = hitInfo.getHitNode ();
           PsiClass psiClass = ClassCloudData.findPsiClass (project, hitNode);
-          if (goToSourceOnClick)
+          if (goToSourceOnClick && isExpandable (hitNode))
+          {
+            expandPackage (hitNode);
+          }
+          else if (goToSourceOnClick)
           {
             if (psiClass != null)
             {
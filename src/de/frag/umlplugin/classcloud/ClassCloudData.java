@@ -36,7 +36,7 @@ public class ClassCloudData
   public static @Nullable PsiClass findPsiClass (@NotNull Project project, @NotNull Node node)
   {
     Cell cell = findCell (node);
-    if (cell != null)
+    if (cell != null && !cell.isPackage ())
     {
       String qualifiedClassName = cell.getClassName ();
       return ClassFinder.findPsiClass (project, qualifiedClassName);
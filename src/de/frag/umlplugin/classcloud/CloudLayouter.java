@@ -6,9 +6,12 @@ import com.intellij.openapi.graph.geom.YDimension;
 import com.intellij.openapi.graph.view.Graph2D;
 import com.intellij.openapi.graph.view.NodeLabel;
 import com.intellij.openapi.graph.view.NodeRealizer;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import de.frag.umlplugin.settings.Settings;
 
+import java.awt.*;
 import java.util.*;
+import java.util.List;
 
 /**
  * Layouter for class clouds.
@@ -21,6 +24,7 @@ public class CloudLayouter
 
   private final List<String> sortedClasses;
   private final Map<String,ProjectDependenciesAnalyzer.DependencyInfo> infos;
+  private final Set<String>  packageNodes;
   private final Grid grid;
 
   /**
@@ -29,9 +33,23 @@ public class CloudLayouter
    * @param infos mapping from qualified class names to dependency infos
    */
   public CloudLayouter (List<String> sortedClasses, Map<String, ProjectDependenciesAnalyzer.DependencyInfo> infos)
+  {
+    this (sortedClasses, infos, Collections.<String>emptySet ());
+  }
+
+  /**
+   * Creates a new class cloud layouter for a cloud that contains aggregated packages.
+   * @param sortedClasses list of class and package names sorted by distance to center of dependency cloud
+   * @param infos mapping from class and package names to dependency infos
+   * @param packageNodes names of all aggregated packages contained in given list
+   */
+  public CloudLayouter (List<String> sortedClasses, Map<String, ProjectDependenciesAnalyzer.DependencyInfo> infos,
+                        Set<String> packageNodes)
   {
     this.sortedClasses = sortedClasses;
     this.infos         = infos;
+    this.packageNodes  = packageNodes;
+    long start = Instrumentation.start ();
     int horizontalBorderCount = computeHorizontalBorderClassCount ();
     int verticalBorderCount   = computeVerticalBorderClassCount ();
     double relation = (double) horizontalBorderCount / (double) verticalBorderCount;
@@ -47,6 +65,7 @@ public class CloudLayouter
     placeClasses (extractCorners ());
     placeClasses (extractBorders ());
     placeClasses (sortedClasses);
+    Instrumentation.stop ("CloudLayouter.placeClasses", start);
   }
 
   /**
@@ -109,7 +128,8 @@ public class CloudLayouter
       Cell cell = new Cell (className,
                             (int) (info.getNormalizedUsing () * grid.getWidth ()),
                             (int) ((1.0 - info.getNormalizedExtending ()) * grid.getHeight ()),
-                            info.getUsedCount () + info.getUsingCount ());
+                            info.getUsedCount () + info.getUsingCount (),
+                            packageNodes.contains (className));
       grid.placeCell (cell);
     }
   }
@@ -162,11 +182,15 @@ public class CloudLayouter
    */
   public Graph2D createGraph ()
   {
+    long start = Instrumentation.start ();
     Settings settings = Settings.getSettings ();
     int maxDependencyCount = computeMaxDependencyCount (grid);
     GraphManager graphManager = GraphManager.getGraphManager ();
     Graph2D graph = graphManager.createGraph2D ();
     Map<String, Node> allNodes = new HashMap <String, Node> ();
+    // nodes are copied from one template per font size and share fonts and colors instead of creating their own
+    Map<Integer, NodeRealizer> templates = new HashMap<Integer, NodeRealizer> ();
+    Map<Color, Color> colors = new HashMap<Color, Color> ();
 
     // create graph nodes at each grid cell
     for (int y = 0; y < grid.getHeight (); y++)
@@ -178,18 +202,19 @@ public class CloudLayouter
         {
           String label = cell.getClassName ();
           int dotPos = label.lastIndexOf ('.');
-          if (dotPos >= 0)
+          if (dotPos >= 0 && !cell.isPackage ())
           {
             label = label.substring (dotPos + 1);
           }
-          Node node = graph.createNode (x, y, label);
+          int fontSize = computeFontSize (cell.getDependencyCount (), maxDependencyCount);
+          NodeRealizer realizer = getTemplate (graph, templates, fontSize).createCopy ();
+          realizer.setLabelText (label);
+          Color color = ColorComputer.computeColor (cell.getPreferredX (), cell.getPreferredY (),
+                                                    grid.getWidth (), grid.getHeight (), settings);
+          realizer.setFillColor (getSharedColor (colors, color));
+          Node node = graph.createNode (realizer);
           ClassCloudData.attachCell (node, cell);
           allNodes.put (cell.getClassName (), node);
-          NodeRealizer realizer = graph.getRealizer (node);
-          realizer.setFillColor (ColorComputer.computeColor (cell.getPreferredX (), cell.getPreferredY (),
-                                                             grid.getWidth (), grid.getHeight (), settings));
-          NodeLabel nodeLabel = realizer.getLabel ();
-          nodeLabel.setFontSize (computeFontSize (cell.getDependencyCount (), maxDependencyCount));
         }
       }
     }
@@ -214,12 +239,15 @@ public class CloudLayouter
         }
       }
     }
+    Instrumentation.stop ("CloudLayouter.createNodes", start);
+    long compactionStart = Instrumentation.start ();
     // partition all cells into several vertical columns of nodes
     List<List<NodeRealizer>> cellColumns = partitionCells (graph, allNodes);
     // compact all columns by shifting classes down or up to column center
     compactVertically (cellColumns);
     // compact cloud by shifting classes left or right to neighbour classes
     compactHorizontally (cellColumns);
+    Instrumentation.stop ("CloudLayouter.compaction", compactionStart);
     return graph;
   }
 
@@ -416,6 +444,43 @@ public class CloudLayouter
     return (int) (MIN_FONT_SIZE + (dependencyCount / maxDependencyCount) * (MAX_FONT_SIZE - MIN_FONT_SIZE));
   }
 
+  /**
+   * Gets node realizer template for given font size. Templates are created on first request.
+   * @param graph graph whose default node realizer is used as base for new templates
+   * @param templates templates by font size
+   * @param fontSize font size of node labels
+   * @return template for given font size
+   */
+  private NodeRealizer getTemplate (Graph2D graph, Map<Integer, NodeRealizer> templates, int fontSize)
+  {
+    NodeRealizer template = templates.get (fontSize);
+    if (template == null)
+    {
+      template = graph.getDefaultNodeRealizer ().createCopy ();
+      NodeLabel nodeLabel = template.getLabel ();
+      nodeLabel.setFontSize (fontSize);
+      templates.put (fontSize, template);
+    }
+    return template;
+  }
+
+  /**
+   * Gets a shared instance of given color, so nodes with equal colors do not hold separate color objects.
+   * @param colors shared colors
+   * @param color color to share
+   * @return shared color that is equal to given color
+   */
+  private Color getSharedColor (Map<Color, Color> colors, Color color)
+  {
+    Color sharedColor = colors.get (color);
+    if (sharedColor == null)
+    {
+      colors.put (color, color);
+      sharedColor = color;
+    }
+    return sharedColor;
+  }
+
   /**
    * Computes size of biggest node in class cloud.
    * @param graph graph containing nodes
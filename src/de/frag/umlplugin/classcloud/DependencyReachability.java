@@ -0,0 +1,277 @@
+package de.frag.umlplugin.classcloud;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Answers transitive dependency queries on the condensed dependency graph, in which every strongly connected
+ * component is a single node. Every component carries two labels. The first one is the interval of component
+ * numbers it can reach; components are numbered in reverse topological order, so most negative queries are
+ * answered by comparing these labels. The second one is the post-order interval of the component in a depth
+ * first spanning forest; targets that are tree descendants of the source are reachable, so most positive queries
+ * are answered by comparing these labels. Only the remaining queries run a search that skips all components whose
+ * labels exclude the target and stops as soon as a tree label proves reachability.
+ */
+public class DependencyReachability
+{
+  private final StronglyConnectedComponents components;
+  private final int []                      successorOffsets;
+  private final int []                      successors;
+  private final int []                      predecessorOffsets;
+  private final int []                      predecessors;
+  private final int []                      lowestReachable;
+  private final int []                      treeLow;
+  private final int []                      treeHigh;
+  private final int []                      visited;
+  private int                               visitStamp;
+
+  /**
+   * Creates reachability labels for given components.
+   * @param components computed strongly connected components
+   */
+  public DependencyReachability (@NotNull StronglyConnectedComponents components)
+  {
+    this.components       = components;
+    this.successorOffsets = components.getSuccessorOffsets ();
+    this.successors       = components.getSuccessors ();
+    int componentCount = components.getComponentCount ();
+
+    // successors always have smaller numbers, so labels can be computed in a single ascending pass
+    lowestReachable = new int [componentCount];
+    for (int c = 0; c < componentCount; c++)
+    {
+      int lowest = c;
+      for (int s = successorOffsets [c]; s < successorOffsets [c + 1]; s++)
+      {
+        lowest = Math.min (lowest, lowestReachable [successors [s]]);
+      }
+      lowestReachable [c] = lowest;
+    }
+
+    // invert condensed graph for queries on dependent classes
+    predecessorOffsets = new int [componentCount + 1];
+    for (int successor : successors)
+    {
+      predecessorOffsets [successor + 1]++;
+    }
+    for (int c = 0; c < componentCount; c++)
+    {
+      predecessorOffsets [c + 1] += predecessorOffsets [c];
+    }
+    predecessors = new int [successors.length];
+    int [] fill = Arrays.copyOf (predecessorOffsets, componentCount);
+    for (int c = 0; c < componentCount; c++)
+    {
+      for (int s = successorOffsets [c]; s < successorOffsets [c + 1]; s++)
+      {
+        predecessors [fill [successors [s]]++] = c;
+      }
+    }
+
+    // number components in post-order of a depth first spanning forest, starting at components nobody depends on
+    treeLow  = new int [componentCount];
+    treeHigh = new int [componentCount];
+    boolean [] discovered = new boolean [componentCount];
+    int [] nextSuccessor = new int [componentCount];
+    int [] stack = new int [componentCount];
+    int postOrder = 0;
+    for (int root = componentCount - 1; root >= 0; root--)
+    {
+      if (discovered [root])
+      {
+        continue;
+      }
+      int stackSize = 0;
+      discovered [root] = true;
+      nextSuccessor [root] = successorOffsets [root];
+      treeLow [root] = postOrder;
+      stack [stackSize++] = root;
+      while (stackSize > 0)
+      {
+        int component = stack [stackSize - 1];
+        if (nextSuccessor [component] < successorOffsets [component + 1])
+        {
+          int successor = successors [nextSuccessor [component]++];
+          if (!discovered [successor])
+          {
+            // all components finished below this one get post-order numbers starting at its low bound
+            discovered [successor] = true;
+            nextSuccessor [successor] = successorOffsets [successor];
+            treeLow [successor] = postOrder;
+            stack [stackSize++] = successor;
+          }
+        }
+        else
+        {
+          treeHigh [component] = postOrder++;
+          stackSize--;
+        }
+      }
+    }
+    visited = new int [componentCount];
+  }
+
+  /**
+   * Checks whether given target class is reachable from given source class, i.e. whether source class
+   * depends on target class directly or transitively.
+   * @param source qualified name of dependent class
+   * @param target qualified name of class that source may depend on
+   * @return true, if target is reachable from source; false otherwise
+   */
+  public synchronized boolean isReachable (@NotNull String source, @NotNull String target)
+  {
+    int sourceComponent = components.getComponent (source);
+    int targetComponent = components.getComponent (target);
+    if (sourceComponent < 0 || targetComponent < 0)
+    {
+      return false;
+    }
+    if (sourceComponent == targetComponent)
+    {
+      return true;
+    }
+    if (!mayReach (sourceComponent, targetComponent))
+    {
+      return false;
+    }
+    if (isTreeDescendant (sourceComponent, targetComponent))
+    {
+      return true;
+    }
+    // labels could not decide, so search condensed graph and prune by labels
+    int stamp = nextVisitStamp ();
+    int [] stack = new int [16];
+    int stackSize = 0;
+    stack [stackSize++] = sourceComponent;
+    visited [sourceComponent] = stamp;
+    while (stackSize > 0)
+    {
+      int component = stack [--stackSize];
+      for (int s = successorOffsets [component]; s < successorOffsets [component + 1]; s++)
+      {
+        int successor = successors [s];
+        if (successor == targetComponent || isTreeDescendant (successor, targetComponent))
+        {
+          return true;
+        }
+        if (visited [successor] != stamp && mayReach (successor, targetComponent))
+        {
+          visited [successor] = stamp;
+          if (stackSize == stack.length)
+          {
+            stack = Arrays.copyOf (stack, stackSize * 2);
+          }
+          stack [stackSize++] = successor;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets all classes that depend on given class directly or transitively, i.e. all classes that may be affected
+   * by changes of given class.
+   * @param className qualified class name
+   * @return qualified names of all dependent classes (not including given class)
+   */
+  public @NotNull List<String> getTransitiveUsers (@NotNull String className)
+  {
+    return collect (className, predecessorOffsets, predecessors);
+  }
+
+  /**
+   * Gets all classes that given class depends on directly or transitively.
+   * @param className qualified class name
+   * @return qualified names of all classes given class depends on (not including given class)
+   */
+  public @NotNull List<String> getTransitiveDependencies (@NotNull String className)
+  {
+    return collect (className, successorOffsets, successors);
+  }
+
+  /**
+   * Collects members of all components that are reachable from the component of given class.
+   * @param className qualified class name
+   * @param offsets offsets of adjacency lists of condensed graph
+   * @param adjacent adjacency lists of condensed graph
+   * @return qualified names of all reachable classes (not including given class)
+   */
+  private synchronized @NotNull List<String> collect (@NotNull String className, @NotNull int [] offsets,
+                                                      @NotNull int [] adjacent)
+  {
+    List<String> result = new ArrayList<String> ();
+    int start = components.getComponent (className);
+    if (start < 0)
+    {
+      return result;
+    }
+    int stamp = nextVisitStamp ();
+    int [] queue = new int [16];
+    int head = 0;
+    int tail = 0;
+    queue [tail++] = start;
+    visited [start] = stamp;
+    while (head < tail)
+    {
+      int component = queue [head++];
+      for (String member : components.getMembers (component))
+      {
+        if (!member.equals (className))
+        {
+          result.add (member);
+        }
+      }
+      for (int a = offsets [component]; a < offsets [component + 1]; a++)
+      {
+        int next = adjacent [a];
+        if (visited [next] != stamp)
+        {
+          visited [next] = stamp;
+          if (tail == queue.length)
+          {
+            queue = Arrays.copyOf (queue, tail * 2);
+          }
+          queue [tail++] = next;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks labels of given components. If this method returns false, target is not reachable from source.
+   * @param source source component
+   * @param target target component
+   * @return false, if target is definitely not reachable from source; true, if it may be reachable
+   */
+  private boolean mayReach (int source, int target)
+  {
+    return target < source && target >= lowestReachable [source] && lowestReachable [target] >= lowestReachable [source];
+  }
+
+  /**
+   * Checks tree labels of given components. If this method returns true, target is reachable from source.
+   * @param source source component
+   * @param target target component
+   * @return true, if target is a descendant of source in the spanning forest; false, if it is not
+   */
+  private boolean isTreeDescendant (int source, int target)
+  {
+    return treeLow [source] <= treeHigh [target] && treeHigh [target] <= treeHigh [source];
+  }
+
+  /**
+   * Gets a new stamp for marking visited components, so visited marks never have to be cleared.
+   * @return new stamp
+   */
+  private int nextVisitStamp ()
+  {
+    if (++visitStamp == Integer.MAX_VALUE)
+    {
+      Arrays.fill (visited, 0);
+      visitStamp = 1;
+    }
+    return visitStamp;
+  }
+}
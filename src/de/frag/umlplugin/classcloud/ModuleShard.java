@@ -0,0 +1,289 @@
+package de.frag.umlplugin.classcloud;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.LocalSearchScope;
+import com.intellij.psi.search.SearchScope;
+import de.frag.umlplugin.instrumentation.Instrumentation;
+import de.frag.umlplugin.psi.ClassFinder;
+import de.frag.umlplugin.psi.DependencyAnalyzer;
+import de.frag.umlplugin.psi.DependencyCollection;
+import de.frag.umlplugin.psi.DependencyIndex;
+import de.frag.umlplugin.psi.SourceDependencyScanner.ScannedClass;
+import de.frag.umlplugin.settings.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Dependencies of all classes of a single module. Edges may point to classes of other modules; they are
+ * stitched together when several shards are merged by {@link ProjectDependenciesAnalyzer}. Shards do not
+ * depend on each other, so they can be computed in parallel and cached independently.
+ */
+public class ModuleShard
+{
+  private final String                    moduleName;
+  private final Map<String, VirtualFile>  classFiles = new LinkedHashMap<String, VirtualFile> ();
+  private final Map<String, Set<String>>  used       = new HashMap<String, Set<String>> ();
+  private final Map<String, Set<String>>  extended   = new HashMap<String, Set<String>> ();
+  private final Map<String, ScannedClass> indexed    = new HashMap<String, ScannedClass> ();
+  private final Map<String, String>       packages   = new HashMap<String, String> ();
+
+  /**
+   * Creates a new empty shard.
+   * @param moduleName name of module
+   */
+  private ModuleShard (@NotNull String moduleName)
+  {
+    this.moduleName = moduleName;
+  }
+
+  /**
+   * Analyzes all classes of given module. Must be called inside a read action.
+   * @param module module to analyze
+   * @param progressIndicator progress indicator that is checked for cancellation
+   * @return analyzed shard or null, if analysis was cancelled
+   */
+  public static @Nullable ModuleShard analyze (@NotNull Module module, @NotNull final ProgressIndicator progressIndicator)
+  {
+    long start = Instrumentation.start ();
+    final ModuleShard shard = new ModuleShard (module.getName ());
+    boolean completed = ClassFinder.processAllClasses (module, ClassFinder.DEFAULT_CHUNK_SIZE, new ClassFinder.ClassConsumer ()
+    {
+      public boolean consume (@NotNull List<PsiClass> classes)
+      {
+        for (PsiClass psiClass : classes)
+        {
+          shard.analyzeClass (psiClass);
+          if (progressIndicator.isCanceled ())
+          {
+            return false;
+          }
+        }
+        return true;
+      }
+    });
+    Instrumentation.stop ("ModuleShard.analyze", start);
+    Instrumentation.count ("ModuleShard.classes", shard.classFiles.size ());
+    return completed ? shard : null;
+  }
+
+  /**
+   * Analyzes dependencies of given class and all of its inner classes.
+   * @param psiClass class to analyze
+   */
+  private void analyzeClass (@NotNull PsiClass psiClass)
+  {
+    if (!ClassFinder.isProjectClass (psiClass.getProject (), psiClass))
+    {
+      return;
+    }
+    String qualifiedName = psiClass.getQualifiedName ();
+    PsiFile containingFile = psiClass.getContainingFile ();
+    if (qualifiedName == null || containingFile == null || classFiles.containsKey (qualifiedName))
+    {
+      return;
+    }
+    // indexed references are resolved as soon as all classes of merged shards are known
+    classFiles.put (qualifiedName, containingFile.getVirtualFile ());
+    addPackage (qualifiedName, psiClass);
+    ScannedClass scannedClass = Settings.getSettings ().isIndexedClassCloud () ?
+                                DependencyIndex.getScannedClass (psiClass) : null;
+    if (scannedClass != null)
+    {
+      indexed.put (qualifiedName, scannedClass);
+    }
+    else
+    {
+      analyzeClassTree (psiClass, qualifiedName);
+    }
+
+    for (PsiClass innerClass : psiClass.getAllInnerClasses ())
+    {
+      analyzeClass (innerClass);
+    }
+  }
+
+  /**
+   * Analyzes dependencies of given class by visiting its PSI tree.
+   * @param psiClass class to analyze
+   * @param qualifiedName qualified name of class
+   */
+  private void analyzeClassTree (@NotNull PsiClass psiClass, @NotNull String qualifiedName)
+  {
+    DependencyAnalyzer dependencyAnalyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
+
+    // find all classes that are used by current class
+    DependencyCollection usedClasses = dependencyAnalyzer.getUsedClasses ();
+    for (PsiClass usedClass : usedClasses)
+    {
+      if (psiClass != usedClass)
+      {
+        String usedQualifiedName = usedClass.getQualifiedName ();
+        if (usedQualifiedName != null)
+        {
+          addEdge (used, qualifiedName, usedQualifiedName);
+          addPackage (usedQualifiedName, usedClass);
+        }
+      }
+    }
+
+    // find all classes that are extended by current class
+    DependencyCollection extendedClasses = dependencyAnalyzer.getExtendedClasses ();
+    for (PsiClass extendedClass : extendedClasses)
+    {
+      String extendedQualifiedName = extendedClass.getQualifiedName ();
+      if (extendedQualifiedName != null)
+      {
+        addEdge (extended, qualifiedName, extendedQualifiedName);
+        addPackage (extendedQualifiedName, extendedClass);
+      }
+    }
+  }
+
+  /**
+   * Records package of given class.
+   * @param qualifiedName qualified name of class
+   * @param psiClass class to record package for
+   */
+  private void addPackage (@NotNull String qualifiedName, @NotNull PsiClass psiClass)
+  {
+    PsiFile containingFile = psiClass.getContainingFile ();
+    if (containingFile instanceof PsiJavaFile && !packages.containsKey (qualifiedName))
+    {
+      packages.put (qualifiedName, ((PsiJavaFile) containingFile).getPackageName ());
+    }
+  }
+
+  /**
+   * Adds an edge to given edge map.
+   * @param edges edge map
+   * @param source qualified name of source class
+   * @param target qualified name of target class
+   */
+  private static void addEdge (@NotNull Map<String, Set<String>> edges, @NotNull String source, @NotNull String target)
+  {
+    Set<String> targets = edges.get (source);
+    if (targets == null)
+    {
+      targets = new LinkedHashSet<String> ();
+      edges.put (source, targets);
+    }
+    targets.add (target);
+  }
+
+  /**
+   * Gets name of analyzed module.
+   * @return module name
+   */
+  public @NotNull String getModuleName ()
+  {
+    return moduleName;
+  }
+
+  /**
+   * Gets qualified names of all classes of this shard that are contained in given scope.
+   * @param scope scope to restrict classes to or null, if all classes should be returned
+   * @return qualified class names
+   */
+  public @NotNull Collection<String> getClasses (@Nullable SearchScope scope)
+  {
+    if (scope == null)
+    {
+      return classFiles.keySet ();
+    }
+    List<String> classes = new ArrayList<String> ();
+    for (Map.Entry<String, VirtualFile> entry : classFiles.entrySet ())
+    {
+      VirtualFile file = entry.getValue ();
+      if (file != null && isInScope (scope, file))
+      {
+        classes.add (entry.getKey ());
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Checks whether given file is contained in given scope.
+   * @param scope global or local search scope
+   * @param file file to check
+   * @return true, if file is contained in scope; false otherwise
+   */
+  private static boolean isInScope (@NotNull SearchScope scope, @NotNull VirtualFile file)
+  {
+    if (scope instanceof GlobalSearchScope)
+    {
+      return ((GlobalSearchScope) scope).contains (file);
+    }
+    return scope instanceof LocalSearchScope && ((LocalSearchScope) scope).isInScope (file);
+  }
+
+  /**
+   * Gets qualified names of all classes used by given class.
+   * @param className qualified name of using class
+   * @return used classes (may be empty)
+   */
+  public @NotNull Set<String> getUsed (@NotNull String className)
+  {
+    Set<String> targets = used.get (className);
+    return targets != null ? targets : Collections.<String>emptySet ();
+  }
+
+  /**
+   * Gets qualified names of all classes extended or implemented by given class.
+   * @param className qualified name of extending class
+   * @return extended classes (may be empty)
+   */
+  public @NotNull Set<String> getExtended (@NotNull String className)
+  {
+    Set<String> targets = extended.get (className);
+    return targets != null ? targets : Collections.<String>emptySet ();
+  }
+
+  /**
+   * Adds all dependencies of this shard to given component computation.
+   * @param components strongly connected components that have not been computed yet
+   */
+  public void addEdgesTo (@NotNull StronglyConnectedComponents components)
+  {
+    components.addEdges (used);
+    components.addEdges (extended);
+  }
+
+  /**
+   * Checks whether given shard contains the same dependencies as this shard.
+   * @param other other shard of the same module
+   * @return true, if both shards contain the same dependencies; false otherwise
+   */
+  public boolean hasSameEdges (@NotNull ModuleShard other)
+  {
+    return used.equals (other.used) && extended.equals (other.extended);
+  }
+
+  /**
+   * Gets mapping from qualified class names to package names. The mapping contains all classes of this shard
+   * and all classes they depend on.
+   * @return mapping from qualified class names to package names
+   */
+  public @NotNull Map<String, String> getPackages ()
+  {
+    return packages;
+  }
+
+  /**
+   * Gets unresolved index entry for given class.
+   * @param className qualified name of class
+   * @return index entry or null, if class was analyzed using its PSI tree
+   */
+  public @Nullable ScannedClass getIndexed (@NotNull String className)
+  {
+    return indexed.get (className);
+  }
+}
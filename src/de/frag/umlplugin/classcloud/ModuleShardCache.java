@@ -0,0 +1,644 @@
+package de.frag.umlplugin.classcloud;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationAdapter;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtil;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.Computable;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.settings.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Caches analyzed module shards. A shard is discarded as soon as any PSI element of its module or of any module
+ * it depends on changes, since its references to changed classes may resolve differently. So editing a single
+ * module only requires that module and its dependent modules to be analyzed again. All shards are discarded when
+ * project roots change or when settings that influence dependency analysis change. Missing shards are analyzed in
+ * parallel. Dependency cycles of analyzed shards are cached as well; they are only computed again if the
+ * dependencies of any shard really changed. If cycles are highlighted, discarded shards of cached cycles are
+ * analyzed again in the background as soon as editing pauses, so cycles stay up to date without another class
+ * cloud. Modules are analyzed in read actions that give way to write actions: as soon as a write action is
+ * pending, the analysis of a module is stopped and started again after the write action. A shard is only cached
+ * if its module has not been changed since its analysis started. Shards whose content has been merged elsewhere,
+ * e.g. into a compact class cloud, can be released, so they are not kept in memory any longer.
+ */
+public class ModuleShardCache
+{
+  private static final int REFRESH_DELAY = 2000;
+
+  private final DelayedExecutor                    refreshExecutor = new DelayedExecutor (REFRESH_DELAY);
+  private final Project                            project;
+  private final ConcurrentMap<String, ModuleShard> shards = new ConcurrentHashMap<String, ModuleShard> ();
+  private final Map<String, Set<String>>           affectedModules = new HashMap<String, Set<String>> ();
+  private final Map<String, Long>                  moduleStamps = new HashMap<String, Long> ();
+  private long                                     modificationCount;
+  private long                                     clearedStamp;
+  private String                                   settingsStamp;
+  private Map<String, ModuleShard>                 cycleShards = Collections.emptyMap ();
+  private Map<String, Long>                        cycleStamps = Collections.emptyMap ();
+  private StronglyConnectedComponents              cycles;
+  private DependencyReachability                   reachability;
+
+  /**
+   * Creates a new shard cache and registers listeners that discard outdated shards.
+   * @param project current project
+   */
+  private ModuleShardCache (@NotNull Project project)
+  {
+    this.project = project;
+    project.getMessageBus ().connect (project).subscribe (ProjectTopics.PROJECT_ROOTS, new ModuleRootListener ()
+    {
+      public void beforeRootsChange (ModuleRootEvent event)
+      {
+      }
+
+      public void rootsChanged (ModuleRootEvent event)
+      {
+        // module dependencies might have changed as well
+        affectedModules.clear ();
+        clearShards ();
+      }
+    });
+    PsiManager.getInstance (project).addPsiTreeChangeListener (new PsiTreeChangeAdapter ()
+    {
+      public void childAdded (PsiTreeChangeEvent event)
+      {
+        invalidate (event);
+      }
+
+      public void childRemoved (PsiTreeChangeEvent event)
+      {
+        invalidate (event);
+      }
+
+      public void childReplaced (PsiTreeChangeEvent event)
+      {
+        invalidate (event);
+      }
+
+      public void childrenChanged (PsiTreeChangeEvent event)
+      {
+        invalidate (event);
+      }
+
+      public void childMoved (PsiTreeChangeEvent event)
+      {
+        invalidate (event);
+      }
+
+      public void propertyChanged (PsiTreeChangeEvent event)
+      {
+        invalidate (event);
+      }
+    }, project);
+  }
+
+  /**
+   * Gets shard cache for given project. If there is no cache yet, a new one will be created.
+   * @param project current project
+   * @return existing or new shard cache
+   */
+  public static synchronized @NotNull ModuleShardCache getInstance (@NotNull Project project)
+  {
+    ModuleShardCache cache = ProjectUtils.get (project, ModuleShardCache.class);
+    if (cache == null)
+    {
+      cache = new ModuleShardCache (project);
+      ProjectUtils.set (project, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Gets shards for all given modules. Cached shards are reused, missing shards are analyzed in parallel
+   * pooled threads.
+   * @param modules modules to get shards for
+   * @param progressIndicator progress indicator that is checked for cancellation
+   * @return shards of given modules or null, if analysis was cancelled
+   */
+  public @Nullable List<ModuleShard> getShards (@NotNull Collection<Module> modules,
+                                                @NotNull final ProgressIndicator progressIndicator)
+  {
+    validateSettings ();
+    List<ModuleShard> result = new ArrayList<ModuleShard> ();
+    Map<Module, Future<ModuleShard>> pending = new LinkedHashMap<Module, Future<ModuleShard>> ();
+    for (final Module module : modules)
+    {
+      ModuleShard shard = shards.get (module.getName ());
+      if (shard != null)
+      {
+        result.add (shard);
+      }
+      else
+      {
+        pending.put (module, ApplicationManager.getApplication ().executeOnPooledThread (new Callable<ModuleShard> ()
+        {
+          public ModuleShard call ()
+          {
+            return analyze (module, progressIndicator);
+          }
+        }));
+      }
+    }
+    int analyzed = 0;
+    try
+    {
+      for (Map.Entry<Module, Future<ModuleShard>> entry : pending.entrySet ())
+      {
+        progressIndicator.setText ("Analyzing module " + entry.getKey ().getName ());
+        ModuleShard shard = waitFor (entry.getKey (), entry.getValue (), progressIndicator);
+        if (progressIndicator.isCanceled ())
+        {
+          return null;
+        }
+        if (shard != null)
+        {
+          result.add (shard);
+        }
+        analyzed++;
+        progressIndicator.setText2 (analyzed + " of " + pending.size () + " modules analyzed");
+      }
+    }
+    finally
+    {
+      // after cancellation or failure, analyses that are still waiting or running are stopped
+      for (Future<ModuleShard> future : pending.values ())
+      {
+        future.cancel (true);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether given shards are still up to date. Shards are outdated as soon as they have been discarded
+   * because their module or a module they depend on has changed.
+   * @param moduleShards shards to check
+   * @return true, if all given shards are still cached; false otherwise
+   */
+  public boolean isCurrent (@NotNull Collection<ModuleShard> moduleShards)
+  {
+    for (ModuleShard shard : moduleShards)
+    {
+      if (shards.get (shard.getModuleName ()) != shard)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets dependency cycles between classes of given shards. If the shards contain the same dependencies as the
+   * shards of the last computation, e.g. because edits did not change any dependency, the cached result is
+   * reused. Cycles remain up to date until any of the given shards is discarded, even if the shards are released.
+   * @param moduleShards shards to compute cycles for
+   * @return strongly connected components of all dependencies of given shards
+   */
+  public synchronized @NotNull StronglyConnectedComponents getCycles (@NotNull Collection<ModuleShard> moduleShards)
+  {
+    Map<String, ModuleShard> shardsByName = new HashMap<String, ModuleShard> ();
+    Map<String, Long> stampsByName = new HashMap<String, Long> ();
+    boolean changed = cycles == null || moduleShards.size () != cycleShards.size ();
+    for (ModuleShard shard : moduleShards)
+    {
+      String moduleName = shard.getModuleName ();
+      shardsByName.put (moduleName, shard);
+      // shards that are not cached any more are already outdated
+      stampsByName.put (moduleName, shards.get (moduleName) == shard ? getStamp (moduleName) : -1L);
+      ModuleShard previous = cycleShards.get (shard.getModuleName ());
+      changed |= previous == null || (previous != shard && !shard.hasSameEdges (previous));
+    }
+    if (changed)
+    {
+      cycles = new StronglyConnectedComponents ();
+      for (ModuleShard shard : moduleShards)
+      {
+        shard.addEdgesTo (cycles);
+      }
+      cycles.compute ();
+      reachability = null;
+    }
+    cycleShards = shardsByName;
+    cycleStamps = stampsByName;
+    return cycles;
+  }
+
+  /**
+   * Gets cached dependency cycles, if they are still up to date. Cycles are outdated as soon as any shard they
+   * were computed from has been discarded.
+   * @return cached cycles or null, if there are no up to date cycles
+   */
+  public synchronized @Nullable StronglyConnectedComponents getCurrentCycles ()
+  {
+    for (Map.Entry<String, Long> entry : cycleStamps.entrySet ())
+    {
+      if (getStamp (entry.getKey ()) != entry.getValue ())
+      {
+        return null;
+      }
+    }
+    return cycles;
+  }
+
+  /**
+   * Gets reachability queries on dependencies of given shards. Reachability labels are computed lazily from the
+   * cached dependency cycles and reused as long as the dependencies do not change.
+   * @param moduleShards shards to compute reachability for
+   * @return reachability of all dependencies of given shards
+   */
+  public synchronized @NotNull DependencyReachability getReachability (@NotNull Collection<ModuleShard> moduleShards)
+  {
+    StronglyConnectedComponents components = getCycles (moduleShards);
+    if (reachability == null)
+    {
+      reachability = new DependencyReachability (components);
+    }
+    return reachability;
+  }
+
+  /**
+   * Releases given shards, so they are not referenced by this cache any longer. Released shards are not
+   * discarded: cached cycles computed from them remain up to date, but the shards are analyzed again when they
+   * are requested next time.
+   * @param moduleShards shards to release
+   */
+  public synchronized void release (@NotNull Collection<ModuleShard> moduleShards)
+  {
+    for (ModuleShard shard : moduleShards)
+    {
+      shards.remove (shard.getModuleName (), shard);
+    }
+    // released shards are not compared with new shards any more, so cycles are simply computed again
+    cycleShards = Collections.emptyMap ();
+  }
+
+  /**
+   * Clears all cached shards.
+   */
+  public void clear ()
+  {
+    clearShards ();
+  }
+
+  /**
+   * Analyzes given module and caches its shard. Analysis runs in a read action that is stopped as soon as a write
+   * action is pending; it is started again after the write action, which might have changed the module. The shard
+   * is only cached and returned if its module has not been changed since analysis started.
+   * @param module module to analyze
+   * @param progressIndicator progress indicator of all analyses
+   * @return analyzed shard or null, if analysis was cancelled
+   */
+  private @Nullable ModuleShard analyze (@NotNull final Module module, @NotNull ProgressIndicator progressIndicator)
+  {
+    Application application = ApplicationManager.getApplication ();
+    while (!progressIndicator.isCanceled ())
+    {
+      final ProgressIndicator attemptIndicator = new AttemptIndicator (progressIndicator);
+      ApplicationAdapter writeListener = new ApplicationAdapter ()
+      {
+        public void beforeWriteActionStart (Object action)
+        {
+          attemptIndicator.cancel ();
+        }
+      };
+      application.addApplicationListener (writeListener);
+      try
+      {
+        // read actions wait for pending write actions, so an analysis that gave way starts after the write action
+        final long [] stamp = new long [1];
+        ModuleShard shard = application.runReadAction (new Computable<ModuleShard> ()
+        {
+          public ModuleShard compute ()
+          {
+            if (module.isDisposed ())
+            {
+              return null;
+            }
+            stamp [0] = getStamp (module.getName ());
+            return ModuleShard.analyze (module, attemptIndicator);
+          }
+        });
+        if (module.isDisposed ())
+        {
+          return null;
+        }
+        if (shard != null && putIfCurrent (shard, stamp [0]))
+        {
+          return shard;
+        }
+      }
+      finally
+      {
+        application.removeApplicationListener (writeListener);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets modification stamp of given module. The stamp changes whenever the shard of that module is discarded.
+   * @param moduleName name of module
+   * @return modification stamp
+   */
+  private synchronized long getStamp (@NotNull String moduleName)
+  {
+    Long stamp = moduleStamps.get (moduleName);
+    return stamp != null ? Math.max (stamp, clearedStamp) : clearedStamp;
+  }
+
+  /**
+   * Caches given shard, if its module has not been changed since given stamp was taken.
+   * @param shard analyzed shard
+   * @param stamp stamp of module when analysis started
+   * @return true, if shard was cached; false if it is outdated
+   */
+  private synchronized boolean putIfCurrent (@NotNull ModuleShard shard, long stamp)
+  {
+    if (getStamp (shard.getModuleName ()) != stamp)
+    {
+      return false;
+    }
+    shards.put (shard.getModuleName (), shard);
+    return true;
+  }
+
+  /**
+   * Discards all shards, including shards whose analysis is still running.
+   */
+  private synchronized void clearShards ()
+  {
+    clearedStamp = ++modificationCount;
+    moduleStamps.clear ();
+    shards.clear ();
+  }
+
+  /**
+   * Discards shard of given module, including a shard whose analysis is still running.
+   * @param moduleName name of module
+   */
+  private synchronized void discardShard (@NotNull String moduleName)
+  {
+    moduleStamps.put (moduleName, ++modificationCount);
+    shards.remove (moduleName);
+  }
+
+  /**
+   * Waits for given shard analysis to finish. If analysis failed, the failure is reported to the user and given
+   * progress indicator is cancelled, so analyses of all other modules are stopped as well.
+   * @param module analyzed module
+   * @param future future of shard analysis
+   * @param progressIndicator progress indicator of all analyses
+   * @return analyzed shard or null, if analysis was cancelled or failed
+   */
+  private @Nullable ModuleShard waitFor (@NotNull Module module, @NotNull Future<ModuleShard> future,
+                                         @NotNull ProgressIndicator progressIndicator)
+  {
+    try
+    {
+      return future.get ();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt ();
+      return null;
+    }
+    catch (ExecutionException e)
+    {
+      progressIndicator.cancel ();
+      final String message = "Could not analyze module " + module.getName () + ", error: " + e.getCause ();
+      ApplicationManager.getApplication ().invokeLater (new Runnable ()
+      {
+        public void run ()
+        {
+          if (!project.isDisposed ())
+          {
+            Messages.showErrorDialog (project, message, "Error while analyzing dependencies");
+          }
+        }
+      });
+      return null;
+    }
+  }
+
+  /**
+   * Discards all shards if settings that influence dependency analysis have changed since shards were analyzed.
+   */
+  private synchronized void validateSettings ()
+  {
+    Settings settings = Settings.getSettings ();
+    String stamp = settings.isIncludeNonProjectClasses () + "|" + settings.isIncludeTestClasses () + "|" +
+                   settings.isIndexedClassCloud () + "|" + settings.getCollectionVersion ();
+    if (!stamp.equals (settingsStamp))
+    {
+      clearShards ();
+      settingsStamp = stamp;
+    }
+  }
+
+  /**
+   * Discards shards of all modules affected by given change. Changes are recorded even if no shard is cached
+   * yet, since analyses that are still running must not cache outdated shards. Changes outside of module content
+   * do not influence any shard, so they are ignored.
+   * @param event PSI change event
+   */
+  private void invalidate (@NotNull PsiTreeChangeEvent event)
+  {
+    Set<Module> modules = new HashSet<Module> ();
+    PsiFile file = event.getFile ();
+    if (file != null)
+    {
+      addModule (modules, file);
+    }
+    else
+    {
+      // changes of directories or whole files; moved elements also change the module they were moved from
+      addModule (modules, event.getParent ());
+      addModule (modules, event.getOldParent ());
+      addModule (modules, event.getNewParent ());
+      addModule (modules, event.getElement ());
+      addModule (modules, event.getChild ());
+    }
+    for (Module module : modules)
+    {
+      for (String moduleName : getAffectedModules (module))
+      {
+        discardShard (moduleName);
+      }
+    }
+    if (!modules.isEmpty ())
+    {
+      scheduleCycleRefresh ();
+    }
+  }
+
+  /**
+   * Schedules recomputation of cached dependency cycles, if cyclic edges are highlighted. Earlier scheduled
+   * recomputations that have not started yet are discarded.
+   */
+  private void scheduleCycleRefresh ()
+  {
+    if (Settings.getSettings ().isHightlightCyclicEdges ())
+    {
+      refreshExecutor.execute (new Runnable ()
+      {
+        public void run ()
+        {
+          refreshCycles ();
+        }
+      });
+    }
+  }
+
+  /**
+   * Analyzes discarded shards of cached cycles again and recomputes cycles, if dependencies of these shards have
+   * changed. Analysis is cancelled as soon as a write action starts, so it never blocks editing; in that case it
+   * is scheduled again.
+   */
+  private void refreshCycles ()
+  {
+    final List<String> moduleNames;
+    synchronized (this)
+    {
+      if (cycleStamps.isEmpty () || getCurrentCycles () != null)
+      {
+        return;
+      }
+      moduleNames = new ArrayList<String> (cycleStamps.keySet ());
+    }
+    final List<Module> modules = new ArrayList<Module> ();
+    Application application = ApplicationManager.getApplication ();
+    application.runReadAction (new Runnable ()
+    {
+      public void run ()
+      {
+        if (!project.isDisposed ())
+        {
+          ModuleManager moduleManager = ModuleManager.getInstance (project);
+          for (String moduleName : moduleNames)
+          {
+            Module module = moduleManager.findModuleByName (moduleName);
+            if (module != null)
+            {
+              modules.add (module);
+            }
+          }
+        }
+      }
+    });
+    if (modules.isEmpty ())
+    {
+      return;
+    }
+    final ProgressIndicator progressIndicator = new EmptyProgressIndicator ();
+    final boolean [] interrupted = new boolean [1];
+    ApplicationAdapter writeListener = new ApplicationAdapter ()
+    {
+      public void beforeWriteActionStart (Object action)
+      {
+        interrupted [0] = true;
+        progressIndicator.cancel ();
+      }
+    };
+    application.addApplicationListener (writeListener);
+    try
+    {
+      List<ModuleShard> refreshedShards = getShards (modules, progressIndicator);
+      if (refreshedShards != null)
+      {
+        getCycles (refreshedShards);
+      }
+    }
+    finally
+    {
+      application.removeApplicationListener (writeListener);
+    }
+    if (interrupted [0])
+    {
+      scheduleCycleRefresh ();
+    }
+  }
+
+  /**
+   * Adds module that contains given element, if any.
+   * @param modules set of modules to add module to
+   * @param element changed element or null
+   */
+  private void addModule (@NotNull Set<Module> modules, @Nullable PsiElement element)
+  {
+    Module module = element != null && element.isValid () ? ModuleUtil.findModuleForPsiElement (element) : null;
+    if (module != null)
+    {
+      modules.add (module);
+    }
+  }
+
+  /**
+   * Gets names of given module and of all modules that depend on it directly or indirectly. Results are cached
+   * until project roots change.
+   * @param module changed module
+   * @return names of all modules whose shards are affected by changes of given module
+   */
+  private @NotNull Set<String> getAffectedModules (@NotNull Module module)
+  {
+    Set<String> moduleNames = affectedModules.get (module.getName ());
+    if (moduleNames == null)
+    {
+      moduleNames = new HashSet<String> ();
+      ModuleManager moduleManager = ModuleManager.getInstance (project);
+      LinkedList<Module> queue = new LinkedList<Module> ();
+      queue.add (module);
+      while (!queue.isEmpty ())
+      {
+        Module affected = queue.removeFirst ();
+        if (moduleNames.add (affected.getName ()))
+        {
+          queue.addAll (moduleManager.getModuleDependentModules (affected));
+        }
+      }
+      affectedModules.put (module.getName (), moduleNames);
+    }
+    return moduleNames;
+  }
+
+  /**
+   * Progress indicator of a single analysis attempt. It is cancelled when a write action is pending or when the
+   * progress indicator of all analyses is cancelled.
+   */
+  private static class AttemptIndicator extends EmptyProgressIndicator
+  {
+    private final ProgressIndicator progressIndicator;
+
+    private AttemptIndicator (@NotNull ProgressIndicator progressIndicator)
+    {
+      this.progressIndicator = progressIndicator;
+    }
+
+    public boolean isCanceled ()
+    {
+      return super.isCanceled () || progressIndicator.isCanceled ();
+    }
+  }
+}
@@ -1,77 +1,132 @@
 package de.frag.umlplugin.classcloud;
 
-import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.SearchScope;
 import de.frag.umlplugin.codenavigator.graph.DependencyType;
-import de.frag.umlplugin.psi.ClassFinder;
-import de.frag.umlplugin.psi.DependencyAnalyzer;
-import de.frag.umlplugin.psi.DependencyCollection;
-import de.frag.umlplugin.settings.Settings;
+import de.frag.umlplugin.instrumentation.Instrumentation;
+import de.frag.umlplugin.psi.SourceDependencyScanner.ScannedClass;
+import de.frag.umlplugin.psi.SourceDependencyScanner.ScannedReference;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.*;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Analyzes dependencies between several classes in a project.
+ * Analyzes dependencies between several classes in a project. Classes and their dependencies are taken from
+ * module shards, so clouds for any union of modules can be created without analyzing classes again.
  */
 public class ProjectDependenciesAnalyzer
 {
-  private final Set<String>                           classes  = new HashSet<String> ();
-  private final BidirectionalMultiMap<String, String> used     = new BidirectionalMultiMap<String, String> ();
-  private final BidirectionalMultiMap<String, String> extended = new BidirectionalMultiMap<String, String> ();
-  private final Map<String, DependencyInfo>           infos    = new HashMap<String, DependencyInfo> ();
+  public static final String DEFAULT_PACKAGE = "<default>";
+
+  private final Set<String>                           classes        = new HashSet<String> ();
+  private final BidirectionalMultiMap<String, String> used           = new BidirectionalMultiMap<String, String> ();
+  private final BidirectionalMultiMap<String, String> extended       = new BidirectionalMultiMap<String, String> ();
+  private final Map<String, DependencyInfo>           infos          = new HashMap<String, DependencyInfo> ();
+  private final List<ScannedClass>                    indexed        = new ArrayList<ScannedClass> ();
+  private final Set<String>                           packageNodes   = new HashSet<String> ();
+  private final Map<String, Map<String, Integer>>     multiplicities = new HashMap<String, Map<String, Integer>> ();
+  private Map<String, String>                         packages       = new HashMap<String, String> ();
+  private StronglyConnectedComponents                 cycles;
+  private File                                        swapFile;
 
   /**
-   * Analyzes dependencies of given class
-   * @param psiClass class to analyze
+   * Adds classes and dependencies of given module shard. Dependencies to classes of other shards are stitched
+   * by qualified class name, so shards can be added in any order.
+   * @param shard shard to add
+   * @param scope scope that limits added classes or null, if all classes of given shard should be added
    */
-  public void analyzeClass (@NotNull PsiClass psiClass)
+  public void addShard (@NotNull ModuleShard shard, @Nullable SearchScope scope)
   {
-    if (!ClassFinder.isProjectClass (psiClass))
+    assertRestored ();
+    packages.putAll (shard.getPackages ());
+    for (String qualifiedName : shard.getClasses (scope))
     {
-      return;
-    }
-    String qualifiedName = psiClass.getQualifiedName ();
-    if (qualifiedName == null || classes.contains (qualifiedName))
-    {
-      return;
+      if (!classes.add (qualifiedName))
+      {
+        continue;
+      }
+      // indexed references are resolved as soon as all classes are known
+      ScannedClass scannedClass = shard.getIndexed (qualifiedName);
+      if (scannedClass != null)
+      {
+        indexed.add (scannedClass);
+      }
+      for (String usedName : shard.getUsed (qualifiedName))
+      {
+        addUsed (qualifiedName, usedName);
+      }
+      for (String extendedName : shard.getExtended (qualifiedName))
+      {
+        addExtended (qualifiedName, extendedName);
+      }
     }
-    // add class to analyzed classes and create a dependency analyzer
-    classes.add (qualifiedName);
-    DependencyAnalyzer dependencyAnalyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+  }
 
-    // find all classes that are used by current class
-    DependencyCollection usedClasses = dependencyAnalyzer.getUsedClasses ();
-    for (PsiClass usedClass : usedClasses)
+  /**
+   * Resolves references of all classes that were analyzed using the dependency index. References are resolved
+   * against the set of analyzed classes, so only dependencies between analyzed classes are found.
+   */
+  private void resolveIndexedClasses ()
+  {
+    for (ScannedClass scannedClass : indexed)
     {
-      if (psiClass != usedClass)
+      String qualifiedName = scannedClass.getQualifiedName ();
+      for (ScannedReference reference : scannedClass.getReferences ())
       {
-        String usedQualifiedName = usedClass.getQualifiedName ();
-        if (usedQualifiedName != null)
+        String referencedName = reference.resolve (classes);
+        if (referencedName != null && !referencedName.equals (qualifiedName))
         {
-          used.add (qualifiedName, usedQualifiedName);
-          DependencyInfo.incrementUsingCount (infos, qualifiedName);
-          DependencyInfo.incrementUsedCount  (infos, usedQualifiedName);
+          if (reference.isSuperType ())
+          {
+            addExtended (qualifiedName, referencedName);
+          }
+          if (reference.isUsage ())
+          {
+            addUsed (qualifiedName, referencedName);
+          }
         }
       }
     }
+    indexed.clear ();
+  }
 
-    // find all classes that are extended by current class
-    DependencyCollection extendedClasses = dependencyAnalyzer.getExtendedClasses ();
-    for (PsiClass extendedClass : extendedClasses)
-    {
-      String extendedQualifiedName = extendedClass.getQualifiedName ();
-      if (extendedQualifiedName != null)
-      {
-        extended.add (qualifiedName, extendedQualifiedName);
-        DependencyInfo.incrementUsingCount (infos, qualifiedName);
-        DependencyInfo.incrementUsedCount  (infos, extendedQualifiedName);
-      }
-    }
+  /**
+   * Adds a class without dependencies. Used to feed synthetic dependency graphs, e.g. in benchmarks.
+   * @param qualifiedName qualified name of class
+   */
+  void addClass (@NotNull String qualifiedName)
+  {
+    assertRestored ();
+    classes.add (qualifiedName);
+  }
 
-    for (PsiClass innerClass : psiClass.getAllInnerClasses ())
-    {
-      analyzeClass (innerClass);
-    }
+  /**
+   * Adds a usage dependency.
+   * @param usingName qualified name of using class
+   * @param usedName qualified name of used class
+   */
+  void addUsed (@NotNull String usingName, @NotNull String usedName)
+  {
+    cycles = null;
+    used.add (usingName, usedName);
+    DependencyInfo.incrementUsingCount (infos, usingName);
+    DependencyInfo.incrementUsedCount  (infos, usedName);
+  }
+
+  /**
+   * Adds an extends or implements dependency.
+   * @param extendingName qualified name of extending class
+   * @param extendedName qualified name of extended class
+   */
+  void addExtended (@NotNull String extendingName, @NotNull String extendedName)
+  {
+    cycles = null;
+    extended.add (extendingName, extendedName);
+    DependencyInfo.incrementUsingCount (infos, extendingName);
+    DependencyInfo.incrementUsedCount  (infos, extendedName);
   }
 
   /**
@@ -79,6 +134,9 @@ public class ProjectDependenciesAnalyzer
    */
   public void analyzeDependencies ()
   {
+    assertRestored ();
+    long start = Instrumentation.start ();
+    resolveIndexedClasses ();
     Set<String> usingClasses     = new HashSet<String> ();
     Set<String> usedClasses      = new HashSet<String> ();
     Set<String> extendingClasses = new HashSet<String> ();
@@ -124,6 +182,8 @@ public class ProjectDependenciesAnalyzer
 
     computeNormalized (DependencyType.USING);
     computeNormalized (DependencyType.EXTENDING);
+    Instrumentation.stop ("ProjectDependenciesAnalyzer.analyzeDependencies", start);
+    Instrumentation.count ("ProjectDependenciesAnalyzer.classes", classes.size ());
   }
 
   /**
@@ -132,20 +192,230 @@ public class ProjectDependenciesAnalyzer
    */
   public @NotNull List<String> getClasses ()
   {
+    assertRestored ();
     List<String> sorted = new ArrayList<String> (classes);
     Collections.sort (sorted, new PositionComparator ());
     return sorted;
   }
 
+  /**
+   * Gets dependency cycles between analyzed classes or aggregated nodes. Cycles are computed on first access
+   * and cached until dependencies change.
+   * @return strongly connected components of all used and extended relations
+   */
+  public @NotNull StronglyConnectedComponents getCycles ()
+  {
+    if (cycles == null)
+    {
+      assertRestored ();
+      resolveIndexedClasses ();
+      StronglyConnectedComponents components = new StronglyConnectedComponents ();
+      for (String className : used.forwardKeys ())
+      {
+        for (String usedClass : getDependencies (className, DependencyType.USING))
+        {
+          components.addEdge (className, usedClass);
+        }
+      }
+      for (String className : extended.forwardKeys ())
+      {
+        for (String extendedClass : getDependencies (className, DependencyType.EXTENDING))
+        {
+          components.addEdge (className, extendedClass);
+        }
+      }
+      cycles = components.compute ();
+    }
+    return cycles;
+  }
+
+  /**
+   * Checks whether dependency cycles have already been computed. Computed cycles are available even if content
+   * is swapped.
+   * @return true, if cycles are computed; false otherwise
+   */
+  public boolean hasCycles ()
+  {
+    return cycles != null;
+  }
+
+  /**
+   * Gets number of analyzed classes or aggregated nodes.
+   * @return number of classes
+   */
+  public int getClassCount ()
+  {
+    assertRestored ();
+    return classes.size ();
+  }
+
   /**
    * Gets mapping from qualified class names to dependency infos.
    * @return mapping from qualified class names to dependency infos
    */
   public @NotNull Map<String, DependencyInfo> getInfos ()
   {
+    assertRestored ();
     return infos;
   }
 
+  /**
+   * Gets all classes that given class depends on with respect to given dependency type.
+   * @param className qualified class name or package name in aggregated analyzers
+   * @param dependencyType dependency type
+   * @return dependent classes (may be empty)
+   */
+  public @NotNull Set<String> getDependencies (@NotNull String className, @NotNull DependencyType dependencyType)
+  {
+    assertRestored ();
+    Set<String> targetClasses;
+    switch (dependencyType)
+    {
+      case USING:     targetClasses = used.getForward      (className); break;
+      case USED:      targetClasses = used.getBackward     (className); break;
+      case EXTENDING: targetClasses = extended.getForward  (className); break;
+      case EXTENDED:  targetClasses = extended.getBackward (className); break;
+      default: throw new IllegalArgumentException ("unknown dependency type: " + dependencyType);
+    }
+    return targetClasses != null ? targetClasses : Collections.<String>emptySet ();
+  }
+
+  /**
+   * Rolls class dependencies up to package nodes in a single pass over all collected relations. Classes of
+   * expanded packages remain separate nodes. Dependencies between nodes are counted, so the multiplicity of
+   * every aggregated edge is known and every package is sized by the total dependency count of its classes.
+   * Must be called after {@link #analyzeDependencies()}.
+   * @param expandedPackages names of package nodes that should be shown as separate classes
+   * @return new analyzer that contains aggregated nodes and whose dependencies are already analyzed
+   */
+  public @NotNull ProjectDependenciesAnalyzer aggregateByPackage (@NotNull Set<String> expandedPackages)
+  {
+    assertRestored ();
+    ProjectDependenciesAnalyzer aggregated = new ProjectDependenciesAnalyzer ();
+    // packages of classes do not depend on expanded packages, so all aggregated copies share a read-only view
+    aggregated.packages = Collections.unmodifiableMap (packages);
+    for (String className : classes)
+    {
+      String nodeName = aggregated.getNodeName (className, expandedPackages);
+      aggregated.classes.add (nodeName);
+      // only packages of analyzed classes become nodes; dependency targets outside the scope do not
+      if (!nodeName.equals (className))
+      {
+        aggregated.packageNodes.add (nodeName);
+      }
+    }
+    for (String usingClass : used.forwardKeys ())
+    {
+      String usingNode = aggregated.getNodeName (usingClass, expandedPackages);
+      for (String usedClass : getDependencies (usingClass, DependencyType.USING))
+      {
+        aggregated.addAggregated (aggregated.used, usingNode, aggregated.getNodeName (usedClass, expandedPackages));
+      }
+    }
+    for (String extendingClass : extended.forwardKeys ())
+    {
+      String extendingNode = aggregated.getNodeName (extendingClass, expandedPackages);
+      for (String extendedClass : getDependencies (extendingClass, DependencyType.EXTENDING))
+      {
+        aggregated.addAggregated (aggregated.extended, extendingNode,
+                                  aggregated.getNodeName (extendedClass, expandedPackages));
+      }
+    }
+    aggregated.analyzeDependencies ();
+    return aggregated;
+  }
+
+  /**
+   * Gets name of node that represents given class in an aggregated analyzer.
+   * @param className qualified class name
+   * @param expandedPackages names of package nodes that should be shown as separate classes
+   * @return package name or given class name, if its package is expanded
+   */
+  private @NotNull String getNodeName (@NotNull String className, @NotNull Set<String> expandedPackages)
+  {
+    String packageName = getPackage (className);
+    return expandedPackages.contains (packageName) ? className : packageName;
+  }
+
+  /**
+   * Adds a single class dependency to an aggregated analyzer. Dependencies within the same node only
+   * contribute to the dependency count of that node.
+   * @param edges used or extended relation
+   * @param sourceNode name of source node
+   * @param targetNode name of target node
+   */
+  private void addAggregated (@NotNull BidirectionalMultiMap<String, String> edges, @NotNull String sourceNode,
+                              @NotNull String targetNode)
+  {
+    DependencyInfo.incrementUsingCount (infos, sourceNode);
+    DependencyInfo.incrementUsedCount  (infos, targetNode);
+    if (!sourceNode.equals (targetNode))
+    {
+      cycles = null;
+      edges.add (sourceNode, targetNode);
+      Map<String, Integer> targets = multiplicities.get (sourceNode);
+      if (targets == null)
+      {
+        targets = new HashMap<String, Integer> ();
+        multiplicities.put (sourceNode, targets);
+      }
+      Integer multiplicity = targets.get (targetNode);
+      targets.put (targetNode, multiplicity != null ? multiplicity + 1 : 1);
+    }
+  }
+
+  /**
+   * Gets number of class dependencies that were aggregated into the edge between given nodes.
+   * @param sourceNode name of source node
+   * @param targetNode name of target node
+   * @return number of aggregated class dependencies or 0, if nodes are not connected
+   */
+  public int getMultiplicity (@NotNull String sourceNode, @NotNull String targetNode)
+  {
+    assertRestored ();
+    Map<String, Integer> targets = multiplicities.get (sourceNode);
+    Integer multiplicity = targets != null ? targets.get (targetNode) : null;
+    return multiplicity != null ? multiplicity : 0;
+  }
+
+  /**
+   * Checks whether given node represents an aggregated package.
+   * @param nodeName name of node
+   * @return true, if node represents a package; false, if it represents a single class
+   */
+  public boolean isPackage (@NotNull String nodeName)
+  {
+    assertRestored ();
+    return packageNodes.contains (nodeName);
+  }
+
+  /**
+   * Gets names of all nodes that represent aggregated packages.
+   * @return package node names
+   */
+  public @NotNull Set<String> getPackageNodes ()
+  {
+    assertRestored ();
+    return Collections.unmodifiableSet (packageNodes);
+  }
+
+  /**
+   * Gets name of package node for given class.
+   * @param className qualified class name
+   * @return package name or {@link #DEFAULT_PACKAGE} for classes in the default package
+   */
+  public @NotNull String getPackage (@NotNull String className)
+  {
+    String packageName = packages.get (className);
+    if (packageName == null)
+    {
+      // class was not analyzed, so guess package from qualified name
+      int dotPos = className.lastIndexOf ('.');
+      packageName = dotPos >= 0 ? className.substring (0, dotPos) : "";
+    }
+    return packageName.length () > 0 ? packageName : DEFAULT_PACKAGE;
+  }
+
   /**
    * Traverses all dependencies from given start classes with respect to given dependency type
    * @param startClasses list of start classes
@@ -170,25 +440,13 @@ public class ProjectDependenciesAnalyzer
    */
   private void traverseDependencies (@NotNull String sourceClass, int index, @NotNull DependencyType dependencyType)
   {
-    Set<String> targetClasses;
-    switch (dependencyType)
+    for (String targetClass : getDependencies (sourceClass, dependencyType))
     {
-      case USING:     targetClasses = used.getForward      (sourceClass); break;
-      case USED:      targetClasses = used.getBackward     (sourceClass); break;
-      case EXTENDING: targetClasses = extended.getForward  (sourceClass); break;
-      case EXTENDED:  targetClasses = extended.getBackward (sourceClass); break;
-      default: throw new IllegalArgumentException ("unknown dependency type: " + dependencyType);
-    }
-    if (targetClasses != null)
-    {
-      for (String targetClass : targetClasses)
+      DependencyInfo dependencyInfo = DependencyInfo.get (infos, targetClass);
+      if (index < dependencyInfo.index.get (dependencyType))
       {
-        DependencyInfo dependencyInfo = DependencyInfo.get (infos, targetClass);
-        if (index < dependencyInfo.index.get (dependencyType))
-        {
-          dependencyInfo.index.put (dependencyType, index);
-          traverseDependencies (targetClass, index + 1, dependencyType);
-        }
+        dependencyInfo.index.put (dependencyType, index);
+        traverseDependencies (targetClass, index + 1, dependencyType);
       }
     }
   }
@@ -218,15 +476,280 @@ public class ProjectDependenciesAnalyzer
     }
   }
 
+  /**
+   * Moves all classes, relations and dependency infos to a temporary file, so they do not occupy memory while a
+   * laid out class cloud is displayed. Package names and computed cycles remain in memory. Swapped content must be
+   * restored by {@link #restore()} before it is accessed again. If content cannot be written, it simply remains
+   * in memory.
+   * @return true, if content was swapped; false otherwise
+   */
+  public boolean swap ()
+  {
+    if (swapFile != null || classes.isEmpty ())
+    {
+      return false;
+    }
+    resolveIndexedClasses ();
+    DataOutputStream out = null;
+    try
+    {
+      swapFile = File.createTempFile ("classcloud", ".swap");
+      swapFile.deleteOnExit ();
+      out = new DataOutputStream (new GZIPOutputStream (new BufferedOutputStream (new FileOutputStream (swapFile))));
+      writeStrings (out, classes);
+      writeStrings (out, packageNodes);
+      writeRelation (out, used);
+      writeRelation (out, extended);
+      out.writeInt (multiplicities.size ());
+      for (Map.Entry<String, Map<String, Integer>> entry : multiplicities.entrySet ())
+      {
+        out.writeUTF (entry.getKey ());
+        out.writeInt (entry.getValue ().size ());
+        for (Map.Entry<String, Integer> target : entry.getValue ().entrySet ())
+        {
+          out.writeUTF (target.getKey ());
+          out.writeInt (target.getValue ());
+        }
+      }
+      out.writeInt (infos.size ());
+      for (Map.Entry<String, DependencyInfo> entry : infos.entrySet ())
+      {
+        out.writeUTF (entry.getKey ());
+        entry.getValue ().write (out);
+      }
+      out.close ();
+      out = null;
+    }
+    catch (IOException e)
+    {
+      closeQuietly (out);
+      deleteSwapFile ();
+      return false;
+    }
+    // cycles do not refer to relations, so they remain valid
+    StronglyConnectedComponents swappedCycles = cycles;
+    clearRelations ();
+    cycles = swappedCycles;
+    return true;
+  }
+
+  /**
+   * Checks whether classes and relations are currently swapped to a temporary file.
+   * @return true, if content is swapped; false otherwise
+   */
+  public boolean isSwapped ()
+  {
+    return swapFile != null;
+  }
+
+  /**
+   * Restores content that was moved to a temporary file by {@link #swap()}. Nothing happens, if content is not
+   * swapped. The temporary file is deleted in any case, so if it cannot be read, the analyzer is empty afterwards
+   * and has to be filled again.
+   * @throws IOException if swapped content could not be read
+   */
+  public void restore () throws IOException
+  {
+    if (swapFile == null)
+    {
+      return;
+    }
+    File file = swapFile;
+    swapFile = null;
+    StronglyConnectedComponents swappedCycles = cycles;
+    DataInputStream in = null;
+    boolean restored = false;
+    try
+    {
+      in = new DataInputStream (new GZIPInputStream (new BufferedInputStream (new FileInputStream (file))));
+      readStrings (in, classes);
+      readStrings (in, packageNodes);
+      readRelation (in, used);
+      readRelation (in, extended);
+      int sourceCount = in.readInt ();
+      for (int i = 0; i < sourceCount; i++)
+      {
+        Map<String, Integer> targets = new HashMap<String, Integer> ();
+        multiplicities.put (in.readUTF (), targets);
+        int targetCount = in.readInt ();
+        for (int j = 0; j < targetCount; j++)
+        {
+          targets.put (in.readUTF (), in.readInt ());
+        }
+      }
+      int infoCount = in.readInt ();
+      for (int i = 0; i < infoCount; i++)
+      {
+        DependencyInfo.get (infos, in.readUTF ()).read (in);
+      }
+      cycles = swappedCycles;
+      restored = true;
+    }
+    finally
+    {
+      closeQuietly (in);
+      if (!file.delete ())
+      {
+        file.deleteOnExit ();
+      }
+      if (!restored)
+      {
+        clearContent ();
+      }
+    }
+  }
+
+  /**
+   * Makes sure that content is not swapped while it is accessed.
+   */
+  private void assertRestored ()
+  {
+    if (swapFile != null)
+    {
+      throw new IllegalStateException ("swapped content must be restored before it is accessed");
+    }
+  }
+
+  /**
+   * Writes all given strings.
+   * @param out output stream
+   * @param strings strings to write
+   * @throws IOException on IO error
+   */
+  private static void writeStrings (@NotNull DataOutputStream out, @NotNull Set<String> strings) throws IOException
+  {
+    out.writeInt (strings.size ());
+    for (String string : strings)
+    {
+      out.writeUTF (string);
+    }
+  }
+
+  /**
+   * Reads strings that were written by {@link #writeStrings}.
+   * @param in input stream
+   * @param strings set to add read strings to
+   * @throws IOException on IO error
+   */
+  private static void readStrings (@NotNull DataInputStream in, @NotNull Set<String> strings) throws IOException
+  {
+    int count = in.readInt ();
+    for (int i = 0; i < count; i++)
+    {
+      strings.add (in.readUTF ());
+    }
+  }
+
+  /**
+   * Writes all pairs of given relation.
+   * @param out output stream
+   * @param relation used or extended relation
+   * @throws IOException on IO error
+   */
+  private static void writeRelation (@NotNull DataOutputStream out,
+                                     @NotNull BidirectionalMultiMap<String, String> relation) throws IOException
+  {
+    out.writeInt (relation.forwardKeys ().size ());
+    for (String source : relation.forwardKeys ())
+    {
+      Set<String> targets = relation.getForward (source);
+      out.writeUTF (source);
+      out.writeInt (targets != null ? targets.size () : 0);
+      if (targets != null)
+      {
+        for (String target : targets)
+        {
+          out.writeUTF (target);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads all pairs of a relation that was written by {@link #writeRelation}. Dependency infos are not changed,
+   * since they are restored separately.
+   * @param in input stream
+   * @param relation used or extended relation to add read pairs to
+   * @throws IOException on IO error
+   */
+  private static void readRelation (@NotNull DataInputStream in,
+                                    @NotNull BidirectionalMultiMap<String, String> relation) throws IOException
+  {
+    int sourceCount = in.readInt ();
+    for (int i = 0; i < sourceCount; i++)
+    {
+      String source = in.readUTF ();
+      int targetCount = in.readInt ();
+      for (int j = 0; j < targetCount; j++)
+      {
+        relation.add (source, in.readUTF ());
+      }
+    }
+  }
+
+  /**
+   * Closes given stream and ignores any IO error.
+   * @param stream stream to close or null
+   */
+  private static void closeQuietly (@Nullable Closeable stream)
+  {
+    if (stream != null)
+    {
+      try
+      {
+        stream.close ();
+      }
+      catch (IOException e)
+      {
+        // ignore, stream is not used anymore
+      }
+    }
+  }
+
+  /**
+   * Deletes temporary file of swapped content, if any.
+   */
+  private void deleteSwapFile ()
+  {
+    if (swapFile != null && !swapFile.delete ())
+    {
+      swapFile.deleteOnExit ();
+    }
+    swapFile = null;
+  }
+
   /**
    * Clears all cached content.
    */
   public void clear ()
+  {
+    deleteSwapFile ();
+    clearContent ();
+  }
+
+  /**
+   * Clears all classes, relations and derived data that are held in memory.
+   */
+  private void clearContent ()
+  {
+    clearRelations ();
+    this.indexed.clear ();
+    // packages may be shared with aggregated copies, so they are replaced instead of cleared
+    this.packages = new HashMap<String, String> ();
+  }
+
+  /**
+   * Clears all content that is moved to a temporary file by {@link #swap()}.
+   */
+  private void clearRelations ()
   {
     this.classes.clear ();
     this.infos.clear ();
     this.used.clear ();
     this.extended.clear ();
+    this.packageNodes.clear ();
+    this.multiplicities.clear ();
+    this.cycles = null;
   }
 
   /**
@@ -295,6 +818,41 @@ public class ProjectDependenciesAnalyzer
              "[" + normalizedUsing + ", " + normalizedExtending + "]";
     }
 
+    /**
+     * Writes all values of this info.
+     * @param out output stream
+     * @throws IOException on IO error
+     */
+    private void write (@NotNull DataOutputStream out) throws IOException
+    {
+      for (int dependencyIndex : index.values ())
+      {
+        out.writeInt (dependencyIndex);
+      }
+      out.writeDouble (normalizedUsing);
+      out.writeDouble (normalizedExtending);
+      out.writeInt (usingCount);
+      out.writeInt (usedCount);
+    }
+
+    /**
+     * Reads all values that were written by {@link #write}.
+     * @param in input stream
+     * @throws IOException on IO error
+     */
+    private void read (@NotNull DataInputStream in) throws IOException
+    {
+      // enum maps iterate in declaration order, so indices are read in the order they were written
+      for (DependencyType dependencyType : index.keySet ())
+      {
+        index.put (dependencyType, in.readInt ());
+      }
+      normalizedUsing     = in.readDouble ();
+      normalizedExtending = in.readDouble ();
+      usingCount          = in.readInt ();
+      usedCount           = in.readInt ();
+    }
+
     private static void incrementUsingCount (@NotNull Map<String, DependencyInfo> infos, @NotNull String qualifiedName)
     {
       get (infos, qualifiedName).usingCount++;
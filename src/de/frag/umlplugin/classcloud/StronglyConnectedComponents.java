@@ -0,0 +1,330 @@
+package de.frag.umlplugin.classcloud;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Strongly connected components of a directed class dependency graph. Classes that belong to a component with
+ * more than one class (or that depend on themselves) take part in a dependency cycle. Components are computed
+ * by an iterative variant of Tarjan's algorithm, so computation takes linear time and deep dependency chains do
+ * not overflow the stack.
+ */
+public class StronglyConnectedComponents
+{
+  private final Map<String, Integer> indices = new HashMap<String, Integer> ();
+  private final List<String>         names   = new ArrayList<String> ();
+  private int []                     sources = new int [16];
+  private int []                     targets = new int [16];
+  private int                        edgeCount;
+  private int []                     components;
+  private boolean []                 cyclicComponents;
+  private int []                     memberOffsets;
+  private int []                     members;
+  private int []                     successorOffsets;
+  private int []                     successors;
+
+  /**
+   * Adds a dependency. Dependencies must not be added after components have been computed.
+   * @param source qualified name of dependent class
+   * @param target qualified name of class that source depends on
+   */
+  public void addEdge (@NotNull String source, @NotNull String target)
+  {
+    if (components != null)
+    {
+      throw new IllegalStateException ("components have already been computed");
+    }
+    if (edgeCount == sources.length)
+    {
+      sources = Arrays.copyOf (sources, edgeCount * 2);
+      targets = Arrays.copyOf (targets, edgeCount * 2);
+    }
+    sources [edgeCount] = getIndex (source);
+    targets [edgeCount] = getIndex (target);
+    edgeCount++;
+  }
+
+  /**
+   * Adds all dependencies of given relation.
+   * @param relation relation from dependent classes to classes they depend on
+   */
+  public void addEdges (@NotNull Map<String, ? extends Collection<String>> relation)
+  {
+    for (Map.Entry<String, ? extends Collection<String>> entry : relation.entrySet ())
+    {
+      for (String target : entry.getValue ())
+      {
+        addEdge (entry.getKey (), target);
+      }
+    }
+  }
+
+  /**
+   * Computes strongly connected components of all added dependencies.
+   * @return this object
+   */
+  public @NotNull StronglyConnectedComponents compute ()
+  {
+    int nodeCount = names.size ();
+    // store adjacency lists in compressed form: successors of node n are adjacent [offsets [n]..offsets [n + 1]]
+    int [] offsets = new int [nodeCount + 1];
+    for (int i = 0; i < edgeCount; i++)
+    {
+      offsets [sources [i] + 1]++;
+    }
+    for (int n = 0; n < nodeCount; n++)
+    {
+      offsets [n + 1] += offsets [n];
+    }
+    int [] adjacent = new int [edgeCount];
+    int [] fill = Arrays.copyOf (offsets, nodeCount);
+    boolean [] selfLoops = new boolean [nodeCount];
+    for (int i = 0; i < edgeCount; i++)
+    {
+      adjacent [fill [sources [i]]++] = targets [i];
+      selfLoops [sources [i]] |= sources [i] == targets [i];
+    }
+
+    components = new int [nodeCount];
+    int [] index     = new int [nodeCount];
+    int [] lowLink   = new int [nodeCount];
+    int [] nextEdge  = new int [nodeCount];
+    int [] stack     = new int [nodeCount];
+    int [] callStack = new int [nodeCount];
+    boolean [] onStack = new boolean [nodeCount];
+    Arrays.fill (index, -1);
+    List<Boolean> cyclic = new ArrayList<Boolean> ();
+    int counter = 0;
+    int stackSize = 0;
+    for (int root = 0; root < nodeCount; root++)
+    {
+      if (index [root] >= 0)
+      {
+        continue;
+      }
+      int callDepth = 0;
+      callStack [callDepth++] = root;
+      index [root] = lowLink [root] = counter++;
+      nextEdge [root] = offsets [root];
+      stack [stackSize++] = root;
+      onStack [root] = true;
+      while (callDepth > 0)
+      {
+        int node = callStack [callDepth - 1];
+        if (nextEdge [node] < offsets [node + 1])
+        {
+          int successor = adjacent [nextEdge [node]++];
+          if (index [successor] < 0)
+          {
+            // descend into successor
+            callStack [callDepth++] = successor;
+            index [successor] = lowLink [successor] = counter++;
+            nextEdge [successor] = offsets [successor];
+            stack [stackSize++] = successor;
+            onStack [successor] = true;
+          }
+          else if (onStack [successor])
+          {
+            lowLink [node] = Math.min (lowLink [node], index [successor]);
+          }
+        }
+        else
+        {
+          callDepth--;
+          if (lowLink [node] == index [node])
+          {
+            // node is root of a component, so pop all component members from stack
+            int component = cyclic.size ();
+            int size = 0;
+            int member;
+            do
+            {
+              member = stack [--stackSize];
+              onStack [member] = false;
+              components [member] = component;
+              size++;
+            }
+            while (member != node);
+            cyclic.add (size > 1 || selfLoops [node]);
+          }
+          if (callDepth > 0)
+          {
+            int parent = callStack [callDepth - 1];
+            lowLink [parent] = Math.min (lowLink [parent], lowLink [node]);
+          }
+        }
+      }
+    }
+    cyclicComponents = new boolean [cyclic.size ()];
+    for (int i = 0; i < cyclicComponents.length; i++)
+    {
+      cyclicComponents [i] = cyclic.get (i);
+    }
+    computeCondensation (offsets, adjacent);
+    // edges are not needed anymore
+    sources = targets = null;
+    return this;
+  }
+
+  /**
+   * Computes members of all components and the condensed graph that contains a single node per component.
+   * @param offsets offsets of successor lists of all classes
+   * @param adjacent successor lists of all classes
+   */
+  private void computeCondensation (@NotNull int [] offsets, @NotNull int [] adjacent)
+  {
+    int componentCount = cyclicComponents.length;
+    memberOffsets = new int [componentCount + 1];
+    for (int component : components)
+    {
+      memberOffsets [component + 1]++;
+    }
+    for (int c = 0; c < componentCount; c++)
+    {
+      memberOffsets [c + 1] += memberOffsets [c];
+    }
+    members = new int [components.length];
+    int [] fill = Arrays.copyOf (memberOffsets, componentCount);
+    for (int n = 0; n < components.length; n++)
+    {
+      members [fill [components [n]]++] = n;
+    }
+    // collect distinct successor components of every component
+    successorOffsets = new int [componentCount + 1];
+    int [] condensed = new int [adjacent.length];
+    int [] marks = new int [componentCount];
+    int count = 0;
+    for (int c = 0; c < componentCount; c++)
+    {
+      successorOffsets [c] = count;
+      for (int m = memberOffsets [c]; m < memberOffsets [c + 1]; m++)
+      {
+        int member = members [m];
+        for (int e = offsets [member]; e < offsets [member + 1]; e++)
+        {
+          int successor = components [adjacent [e]];
+          if (successor != c && marks [successor] != c + 1)
+          {
+            marks [successor] = c + 1;
+            condensed [count++] = successor;
+          }
+        }
+      }
+    }
+    successorOffsets [componentCount] = count;
+    successors = Arrays.copyOf (condensed, count);
+  }
+
+  /**
+   * Gets number of computed components.
+   * @return number of components
+   */
+  public int getComponentCount ()
+  {
+    return cyclicComponents.length;
+  }
+
+  /**
+   * Gets component of given class.
+   * @param className qualified class name
+   * @return component number or -1, if class is not contained in analyzed dependencies
+   */
+  public int getComponent (@NotNull String className)
+  {
+    Integer index = indices.get (className);
+    return index != null ? components [index] : -1;
+  }
+
+  /**
+   * Checks whether given class takes part in any dependency cycle.
+   * @param className qualified class name
+   * @return true, if class is part of a cycle; false otherwise
+   */
+  public boolean isCyclic (@NotNull String className)
+  {
+    int component = getComponent (className);
+    return component >= 0 && cyclicComponents [component];
+  }
+
+  /**
+   * Checks whether a dependency between given classes takes part in any dependency cycle.
+   * @param source qualified name of dependent class
+   * @param target qualified name of class that source depends on
+   * @return true, if both classes are part of the same cycle; false otherwise
+   */
+  public boolean isCyclicEdge (@NotNull String source, @NotNull String target)
+  {
+    int component = getComponent (source);
+    return component >= 0 && component == getComponent (target) && cyclicComponents [component];
+  }
+
+  /**
+   * Gets all classes that take part in any dependency cycle.
+   * @return set of qualified class names
+   */
+  public @NotNull Set<String> getCyclicClasses ()
+  {
+    Set<String> cyclicClasses = new HashSet<String> ();
+    for (int i = 0; i < names.size (); i++)
+    {
+      if (cyclicComponents [components [i]])
+      {
+        cyclicClasses.add (names.get (i));
+      }
+    }
+    return cyclicClasses;
+  }
+
+  /**
+   * Gets qualified names of all classes of given component.
+   * @param component component number
+   * @return qualified class names
+   */
+  public @NotNull List<String> getMembers (int component)
+  {
+    List<String> memberNames = new ArrayList<String> (memberOffsets [component + 1] - memberOffsets [component]);
+    for (int m = memberOffsets [component]; m < memberOffsets [component + 1]; m++)
+    {
+      memberNames.add (names.get (members [m]));
+    }
+    return memberNames;
+  }
+
+  /**
+   * Gets offsets of successor lists in condensed graph. Successors of component c are stored at
+   * indices successorOffsets [c] (inclusive) to successorOffsets [c + 1] (exclusive). Components are numbered
+   * in reverse topological order, so every successor has a smaller number than its predecessors.
+   * @return offsets of successor lists
+   */
+  int [] getSuccessorOffsets ()
+  {
+    return successorOffsets;
+  }
+
+  /**
+   * Gets successor lists of all components in condensed graph.
+   * @return successor components
+   */
+  int [] getSuccessors ()
+  {
+    return successors;
+  }
+
+  /**
+   * Gets index of given class. Unknown classes get a new index.
+   * @param className qualified class name
+   * @return index of class
+   */
+  private int getIndex (@NotNull String className)
+  {
+    Integer index = indices.get (className);
+    if (index == null)
+    {
+      index = names.size ();
+      indices.put (className, index);
+      names.add (className);
+    }
+    return index;
+  }
+}
@@ -3,15 +3,18 @@ package de.frag.umlplugin.classcloud.actions;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogBuilder;
-import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.SearchScope;
 import de.frag.umlplugin.ProjectUtils;
 import de.frag.umlplugin.classcloud.ClassCloud;
-import de.frag.umlplugin.psi.ClassFinder;
+import de.frag.umlplugin.classcloud.ModuleShard;
+import de.frag.umlplugin.classcloud.ModuleShardCache;
 import de.frag.umlplugin.scopes.SearchScopeComboBox;
 import de.frag.umlplugin.settings.Settings;
 import org.jetbrains.annotations.NotNull;
@@ -19,6 +22,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -42,22 +46,24 @@ public class ClassCloudAction extends AnAction
     progressManager.runProcessWithProgressSynchronously (new Runnable () {
       public void run ()
       {
-        // start progress that analyzes each class...
+        // start progress that analyzes or reuses shards of all modules that intersect chosen scope...
         final ClassCloud classCloud = getClassCloud (project);
         final ProgressIndicator progressIndicator = progressManager.getProgressIndicator ();
-        List<PsiClass> classes = ClassFinder.findAllClassesForContext (project, searchScope);
-        int index = 0;
-        for (PsiClass psiClass : classes)
+        progressIndicator.setIndeterminate (true);
+        List<Module> modules = findModules (project, searchScope);
+        ModuleShardCache shardCache = ModuleShardCache.getInstance (project);
+        List<ModuleShard> shards = shardCache.getShards (modules, progressIndicator);
+        if (shards == null)
         {
-          progressIndicator.setText ("Analyzing " + psiClass.getQualifiedName ());
-          classCloud.analyzeClass (psiClass);
-          progressIndicator.setFraction ((double) index / classes.size ());
-          if (progressIndicator.isCanceled ())
-          {
-            break;
-          }
-          index++;
+          return;
         }
+        for (ModuleShard shard : shards)
+        {
+          classCloud.addShard (shard, searchScope);
+        }
+        // update dependency cycles that are highlighted in graphical navigator
+        progressIndicator.setText ("Computing dependency cycles");
+        shardCache.getCycles (shards);
         if (!progressIndicator.isCanceled ())
         {
           // show class cloud as soon as progress indicator is closed...
@@ -73,6 +79,26 @@ public class ClassCloudAction extends AnAction
     }, "Analyzing dependencies", true, project);
   }
 
+  /**
+   * Finds all modules whose content may contain classes of given scope.
+   * @param project current project
+   * @param searchScope chosen search scope
+   * @return modules to analyze
+   */
+  private @NotNull List<Module> findModules (@NotNull Project project, @NotNull SearchScope searchScope)
+  {
+    List<Module> modules = new ArrayList<Module> ();
+    for (Module module : ModuleManager.getInstance (project).getModules ())
+    {
+      if (!(searchScope instanceof GlobalSearchScope) ||
+          ((GlobalSearchScope) searchScope).isSearchInModuleContent (module))
+      {
+        modules.add (module);
+      }
+    }
+    return modules;
+  }
+
   /**
    * Gets class cloud or creates a new cloud if there is none.
    * @param project project
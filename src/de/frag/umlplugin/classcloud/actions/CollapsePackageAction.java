@@ -0,0 +1,42 @@
+package de.frag.umlplugin.classcloud.actions;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.project.Project;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.classcloud.ClassCloud;
+
+/**
+ * Collapses package of selected class in class cloud.
+ */
+public class CollapsePackageAction extends AnAction
+{
+  /**
+   * Collapses package of selected class in class cloud.
+   * @param e Carries information on the invocation place
+   */
+  public void actionPerformed (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    ClassCloud classCloud = ProjectUtils.get (project, ClassCloud.class);
+    Node node = ProjectUtils.get (project, Node.class);
+    if (node != null && classCloud != null)
+    {
+      classCloud.collapsePackage (node);
+    }
+  }
+
+  /**
+   * Enables action only for nodes that can be collapsed.
+   * @param e Carries information on the invocation place
+   */
+  public void update (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    ClassCloud classCloud = ProjectUtils.get (project, ClassCloud.class);
+    Node node = ProjectUtils.get (project, Node.class);
+    e.getPresentation ().setEnabled (node != null && classCloud != null && classCloud.isCollapsible (node));
+  }
+}
@@ -0,0 +1,28 @@
+package de.frag.umlplugin.classcloud.actions;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.project.Project;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.classcloud.ClassCloud;
+
+/**
+ * Highlights all classes in class cloud that take part in any dependency cycle.
+ */
+public class HighlightCyclesAction extends AnAction
+{
+  /**
+   * Highlights all classes in class cloud that take part in any dependency cycle.
+   * @param e Carries information on the invocation place
+   */
+  public void actionPerformed (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    ClassCloud classCloud = ProjectUtils.get (project, ClassCloud.class);
+    if (classCloud != null)
+    {
+      classCloud.highlightCycles ();
+    }
+  }
+}
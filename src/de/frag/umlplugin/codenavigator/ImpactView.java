@@ -0,0 +1,92 @@
+package de.frag.umlplugin.codenavigator;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.psi.PsiClass;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.psi.ClassFinder;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lists all classes that depend on a subject class directly or transitively, i.e. all classes that may be
+ * affected by changes of the subject class. Double clicking a listed class shows it in graphical navigator.
+ */
+public class ImpactView
+{
+  private final Project       project;
+  private final DialogBuilder builder;
+  private final JList         classList;
+
+  /**
+   * Creates a new impact view.
+   * @param project current project
+   * @param subjectClassName qualified name of changed class
+   * @param impactedClassNames qualified names of all classes that depend on subject class
+   */
+  public ImpactView (@NotNull Project project, @NotNull String subjectClassName,
+                     @NotNull List<String> impactedClassNames)
+  {
+    this.project = project;
+    List<String> sortedClassNames = new ArrayList<String> (impactedClassNames);
+    Collections.sort (sortedClassNames);
+    classList = new JList (sortedClassNames.toArray ());
+    classList.setSelectionMode (ListSelectionModel.SINGLE_SELECTION);
+    classList.addMouseListener (new MouseAdapter ()
+    {
+      public void mouseClicked (MouseEvent e)
+      {
+        if (e.getClickCount () == 2)
+        {
+          showSelectedClass ();
+        }
+      }
+    });
+
+    JPanel panel = new JPanel (new BorderLayout ());
+    panel.add (new JLabel (sortedClassNames.size () + " classes depend on " + subjectClassName),
+               BorderLayout.NORTH);
+    JScrollPane scrollPane = new JScrollPane (classList);
+    scrollPane.setPreferredSize (new Dimension (500, 400));
+    panel.add (scrollPane, BorderLayout.CENTER);
+
+    builder = new DialogBuilder (project);
+    builder.setTitle ("Impact of changes to " + subjectClassName);
+    builder.setCenterPanel (panel);
+    builder.addCloseButton ();
+  }
+
+  /**
+   * Shows this view.
+   */
+  public void show ()
+  {
+    builder.show ();
+  }
+
+  /**
+   * Shows selected class in graphical navigator and closes this view.
+   */
+  private void showSelectedClass ()
+  {
+    String className = (String) classList.getSelectedValue ();
+    Navigator navigator = ProjectUtils.get (project, Navigator.class);
+    if (className != null && navigator != null)
+    {
+      PsiClass psiClass = ClassFinder.findPsiClass (project, className);
+      if (psiClass != null)
+      {
+        navigator.startNavigation (psiClass);
+        builder.getDialogWrapper ().close (DialogWrapper.CLOSE_EXIT_CODE);
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@ import com.intellij.pom.Navigatable;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import de.frag.umlplugin.LayoutScheduler;
 import de.frag.umlplugin.ProjectUtils;
 import de.frag.umlplugin.anim.AnimationBuilder;
 import de.frag.umlplugin.anim.AnimationListenerAdapter;
@@ -38,6 +39,9 @@ public class Navigator
   private final Project           project;
   private final Graph2DView       graph2DView;
   private final NavigationHistory navigationHistory;
+  private final LayoutScheduler   layoutScheduler  = new LayoutScheduler ();
+  private final AnimationPlayer   animationPlayer  = new AnimationPlayer ();
+  private final AnimationPlayer   transitionPlayer = new AnimationPlayer ();
 
   /**
    * Creates new navigator.
@@ -51,6 +55,7 @@ public class Navigator
     this.project = project;
     this.graph2DView = graph2DView;
     this.navigationHistory = navigationHistory;
+    this.animationPlayer.addAnimationListener (new AnimationListenerAdapter (graph2DView));
   }
 
   /**
@@ -59,30 +64,53 @@ public class Navigator
    */
   public void startNavigation (@NotNull PsiClass psiClass)
   {
-    NavigatorProjectComponent projectComponent = ProjectUtils.get (project, NavigatorProjectComponent.class);
-    NavigationHistory         history          = ProjectUtils.get (project, NavigationHistory.class);
+    final NavigatorProjectComponent projectComponent = ProjectUtils.get (project, NavigatorProjectComponent.class);
+    final NavigationHistory         history          = ProjectUtils.get (project, NavigationHistory.class);
     if (projectComponent != null && history != null)
     {
-      ToolWindowManager toolWindowManager = ToolWindowManager.getInstance (project);
-      ToolWindow toolWindow = toolWindowManager.getToolWindow (NavigatorProjectComponent.GRAPHICAL_NAVIGATOR_TOOL_WINDOW_ID);
-
       GraphBuilder graphBuilder = new GraphBuilder ();
-      Graph2D graph2D = graphBuilder.createGraph (psiClass);
-      final Graph2DView graph2DView = projectComponent.getGraph2DView ();
-      graph2DView.setGraph2D (graph2D);
-      history.clear ();
-
-      toolWindow.activate (new Runnable () {
-        public void run ()
+      graphBuilder.createGraph (psiClass, layoutScheduler, new GraphBuilder.GraphListener ()
+      {
+        public void graphCreated (@NotNull Graph2D graph2D)
         {
-          graph2DView.adjustScrollBarVisibility ();
-          graph2DView.fitContent ();
-          graph2DView.updateView ();
+          ToolWindowManager toolWindowManager = ToolWindowManager.getInstance (project);
+          ToolWindow toolWindow = toolWindowManager.getToolWindow (NavigatorProjectComponent.GRAPHICAL_NAVIGATOR_TOOL_WINDOW_ID);
+          final Graph2DView graph2DView = projectComponent.getGraph2DView ();
+          graph2DView.setGraph2D (graph2D);
+          history.clear ();
+
+          toolWindow.activate (new Runnable () {
+            public void run ()
+            {
+              graph2DView.adjustScrollBarVisibility ();
+              graph2DView.fitContent ();
+              graph2DView.updateView ();
+            }
+          });
         }
       });
     }
   }
 
+  /**
+   * Shows graph for given class without animation and without modifying the navigation history.
+   * @param psiClass new subject class
+   */
+  public void showClass (@NotNull PsiClass psiClass)
+  {
+    GraphBuilder graphBuilder = new GraphBuilder ();
+    graphBuilder.createGraph (psiClass, layoutScheduler, new GraphBuilder.GraphListener ()
+    {
+      public void graphCreated (@NotNull Graph2D graph2D)
+      {
+        graph2DView.setGraph2D (graph2D);
+        graph2DView.adjustScrollBarVisibility ();
+        graph2DView.fitContent ();
+        graph2DView.updateView ();
+      }
+    });
+  }
+
   /**
    * Navigates to given class and dependency type.
    * @param psiClass class to navigate to
@@ -91,16 +119,21 @@ public class Navigator
   public void navigate (@NotNull PsiClass psiClass, @NotNull DependencyType dependencyType)
   {
     Graph2D graph = graph2DView.getGraph2D ();
-    Node node = GraphUtils.findNode (graph, psiClass, dependencyType);
+    final Node node = GraphUtils.findNode (graph, psiClass, dependencyType);
     if (node != null)
     {
-      Graph2D oldGraph = graph2DView.getGraph2D ();
+      final Graph2D oldGraph = graph2DView.getGraph2D ();
       DataProvider nodeMap = oldGraph.getDataProvider (DataProviderKeys.DEPENDENCY_INFO_NODE_KEY);
       GraphBuilder.NodeInfo info = (GraphBuilder.NodeInfo) nodeMap.get (node);
       PsiClass classToNavigateTo = info.getPsiClass ();
       GraphBuilder graphBuilder = new GraphBuilder ();
-      Graph2D newGraph = graphBuilder.createGraph (classToNavigateTo);
-      navigateToClass (oldGraph, newGraph, node);
+      graphBuilder.createGraph (classToNavigateTo, layoutScheduler, new GraphBuilder.GraphListener ()
+      {
+        public void graphCreated (@NotNull Graph2D newGraph)
+        {
+          navigateToClass (oldGraph, newGraph, node);
+        }
+      });
     }
   }
 
@@ -108,9 +141,9 @@ public class Navigator
    * Navigates to given node.
    * @param node node to navigate to
    */
-  public void navigate (@NotNull Node node)
+  public void navigate (@NotNull final Node node)
   {
-    Graph2D oldGraph = graph2DView.getGraph2D ();
+    final Graph2D oldGraph = graph2DView.getGraph2D ();
     DataProvider nodeMap = oldGraph.getDataProvider (DataProviderKeys.DEPENDENCY_INFO_NODE_KEY);
     GraphBuilder.NodeInfo info = (GraphBuilder.NodeInfo) nodeMap.get (node);
     PsiClass classToNavigateTo = info.getPsiClass ();
@@ -120,16 +153,22 @@ public class Navigator
     }
     else
     {
-      GraphBuilder graphBuilder = new GraphBuilder ();
-      Graph2D newGraph = graphBuilder.createGraph (classToNavigateTo);
       Node subjectNode = GraphUtils.findSubjectNode (oldGraph);
       GraphBuilder.NodeInfo selectedNodeInfo = (GraphBuilder.NodeInfo) nodeMap.get (node);
       GraphBuilder.NodeInfo subjectNodeInfo  = (GraphBuilder.NodeInfo) nodeMap.get (subjectNode);
-      PsiClass       subjectClass   = subjectNodeInfo.getPsiClass ();
-      PsiClass       selectedClass  = selectedNodeInfo.getPsiClass ();
-      DependencyType dependencyType = selectedNodeInfo.getDependencyType ();
-      navigationHistory.navigatedTo (subjectClass, selectedClass, dependencyType);
-      navigateToClass (oldGraph, newGraph, node);
+      final PsiClass       subjectClass   = subjectNodeInfo.getPsiClass ();
+      final PsiClass       selectedClass  = selectedNodeInfo.getPsiClass ();
+      final DependencyType dependencyType = selectedNodeInfo.getDependencyType ();
+      GraphBuilder graphBuilder = new GraphBuilder ();
+      graphBuilder.createGraph (classToNavigateTo, layoutScheduler, new GraphBuilder.GraphListener ()
+      {
+        public void graphCreated (@NotNull Graph2D newGraph)
+        {
+          // navigation is only recorded if it was not superseded by another navigation
+          navigationHistory.navigatedTo (subjectClass, selectedClass, dependencyType);
+          navigateToClass (oldGraph, newGraph, node);
+        }
+      });
     }
   }
 
@@ -171,14 +210,21 @@ public class Navigator
    */
   private void navigateToClass (@NotNull Graph2D oldGraph, @NotNull Graph2D newGraph, @NotNull Node selectedNode)
   {
+    // a navigation that is still animated is finished before the next one is built from the current view state
+    animationPlayer.cancel ();
+    transitionPlayer.cancel ();
     Settings settings = Settings.getSettings ();
-    if (settings.isAnimateNavigation ())
+    AnimationBuilder animBuilder = settings.isAnimateNavigation () ?
+                                   new AnimationBuilder (graph2DView, oldGraph, newGraph, selectedNode, settings) : null;
+    if (animBuilder != null && settings.isSnapshotTransition ())
+    {
+      // snapshot transitions paint their own overlay, so their player does not repaint the view in every frame
+      transitionPlayer.animate (animBuilder.createSnapshotTransition ());
+    }
+    else if (animBuilder != null && !animBuilder.isAnimationSkipped ())
     {
-      AnimationBuilder animBuilder = new AnimationBuilder (graph2DView, oldGraph, newGraph, selectedNode, settings);
       AnimationObject animation = animBuilder.createNavigationAnimation ();
-      AnimationPlayer player = new AnimationPlayer ();
-      player.addAnimationListener (new AnimationListenerAdapter (graph2DView));
-      player.animate (animation);
+      animationPlayer.animate (animation);
     }
     else
     {
@@ -56,6 +56,7 @@ public class NavigatorProjectComponent implements ProjectComponent
 
     private final Project project;
     private final Graph2DView graph2DView;
+    private final Navigator navigator;
 
 
     /**
@@ -67,7 +68,7 @@ public class NavigatorProjectComponent implements ProjectComponent
         this.project = project;
         this.graph2DView = Graph2DViewBuilder.createGraph2DView(project);
         NavigationHistory navigationHistory = new NavigationHistory(Settings.getSettings().getMaxHistorySize());
-        Navigator navigator = new Navigator(project, graph2DView, navigationHistory);
+        this.navigator = new Navigator(project, graph2DView, navigationHistory);
         ProjectUtils.set(project, this);
         ProjectUtils.set(project, navigator);
         ProjectUtils.set(project, navigationHistory);
@@ -137,16 +138,11 @@ public class NavigatorProjectComponent implements ProjectComponent
                         if (psiFile != null) {
                             PsiClass psiClass = PsiTreeUtil.getChildOfType(psiFile, PsiClass.class);
                             if (psiClass != null) {
-                                GraphBuilder graphBuilder = new GraphBuilder();
-                                Graph2D graph2D = graphBuilder.createGraph(psiClass);
-                                graph2DView.setGraph2D(graph2D);
                                 NavigationHistory history = ProjectUtils.get(project, NavigationHistory.class);
                                 if (history != null) {
                                     history.clear();
                                 }
-                                graph2DView.adjustScrollBarVisibility();
-                                graph2DView.fitContent();
-                                graph2DView.updateView();
+                                navigator.showClass(psiClass);
                             }
                         }
                     }
@@ -239,18 +235,17 @@ public class NavigatorProjectComponent implements ProjectComponent
                 DataProvider nodeMap = graph.getDataProvider(DataProviderKeys.DEPENDENCY_INFO_NODE_KEY);
                 GraphBuilder.NodeInfo nodeInfo = (GraphBuilder.NodeInfo) nodeMap.get(subjectNode);
                 PsiClass subjectClass = nodeInfo.getPsiClass();
-                if ((!ClassFinder.isProjectClass(subjectClass) && !settings.isIncludeNonProjectClasses())
+                if ((!ClassFinder.isProjectClass(project, subjectClass) && !settings.isIncludeNonProjectClasses())
 //                    || (TestUtil.isTestClass(subjectClass) && !settings.isIncludeTestClasses())
                     ) {
                     graph.clear();
+                    graph2DView.fitContent();
+                    graph2DView.updateView();
                 } else {
-                    GraphBuilder graphBuilder = new GraphBuilder();
-                    Graph2D graph2D = graphBuilder.createGraph(subjectClass);
-                    graph2DView.setGraph2D(graph2D);
+                    // graph is fitted as soon as it has been created and layouted
+                    navigator.showClass(subjectClass);
                 }
             }
-            graph2DView.fitContent();
-            graph2DView.updateView();
         }
     }
 }
@@ -0,0 +1,111 @@
+package de.frag.umlplugin.codenavigator.actions;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.graph.view.Graph2D;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.classcloud.DependencyReachability;
+import de.frag.umlplugin.classcloud.ModuleShard;
+import de.frag.umlplugin.classcloud.ModuleShardCache;
+import de.frag.umlplugin.codenavigator.ImpactView;
+import de.frag.umlplugin.codenavigator.NavigatorProjectComponent;
+import de.frag.umlplugin.codenavigator.graph.GraphBuilder;
+import de.frag.umlplugin.codenavigator.graph.GraphUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shows all classes that depend on the subject class of graphical navigator directly or transitively.
+ * Dependencies of all modules are analyzed (or reused from shard cache) in a background task before the impact
+ * set is computed, so the IDE remains usable while modules are analyzed for the first time. Analysis gives way
+ * to write actions, so editing is not blocked while the task runs.
+ */
+public class ShowImpactAction extends AnAction
+{
+  /**
+   * Invoked when an action occurs.
+   * @param e action event
+   */
+  public void actionPerformed (AnActionEvent e)
+  {
+    final Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    PsiClass subjectClass = findSubjectClass (project);
+    if (subjectClass == null || subjectClass.getQualifiedName () == null)
+    {
+      return;
+    }
+    final String subjectClassName = subjectClass.getQualifiedName ();
+    ProgressManager.getInstance ().run (new Task.Backgroundable (project, "Analyzing dependencies", true)
+    {
+      private List<String> transitiveUsers;
+
+      public void run (@NotNull ProgressIndicator progressIndicator)
+      {
+        progressIndicator.setIndeterminate (true);
+        ModuleShardCache shardCache = ModuleShardCache.getInstance (project);
+        List<Module> modules = Arrays.asList (ModuleManager.getInstance (project).getModules ());
+        // modules give way to write actions while they are analyzed; if an edit discarded a shard that was
+        // already analyzed, analysis is restarted, so the impact set is never computed from outdated shards
+        List<ModuleShard> shards = shardCache.getShards (modules, progressIndicator);
+        while (shards != null && !shardCache.isCurrent (shards) && !progressIndicator.isCanceled ())
+        {
+          shards = shardCache.getShards (modules, progressIndicator);
+        }
+        if (shards != null && !progressIndicator.isCanceled ())
+        {
+          progressIndicator.setText ("Computing transitive dependencies");
+          DependencyReachability reachability = shardCache.getReachability (shards);
+          transitiveUsers = reachability.getTransitiveUsers (subjectClassName);
+        }
+      }
+
+      public void onSuccess ()
+      {
+        if (transitiveUsers != null && !project.isDisposed ())
+        {
+          new ImpactView (project, subjectClassName, transitiveUsers).show ();
+        }
+      }
+    });
+  }
+
+  /**
+   * Update action state.
+   * @param e event
+   */
+  public void update (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    e.getPresentation ().setEnabled (findSubjectClass (project) != null);
+  }
+
+  /**
+   * Finds subject class of graphical navigator.
+   * @param project current project
+   * @return subject class or null, if graphical navigator does not show any class
+   */
+  private @Nullable PsiClass findSubjectClass (@Nullable Project project)
+  {
+    NavigatorProjectComponent component = ProjectUtils.get (project, NavigatorProjectComponent.class);
+    if (component == null)
+    {
+      return null;
+    }
+    Graph2D graph = component.getGraph2DView ().getGraph2D ();
+    Node subjectNode = GraphUtils.findSubjectNode (graph);
+    GraphBuilder.NodeInfo nodeInfo = subjectNode != null ? GraphUtils.getNodeInfo (subjectNode) : null;
+    return nodeInfo != null ? nodeInfo.getPsiClass () : null;
+  }
+}
@@ -5,19 +5,22 @@ import com.intellij.openapi.graph.base.Edge;
 import com.intellij.openapi.graph.base.EdgeMap;
 import com.intellij.openapi.graph.base.Node;
 import com.intellij.openapi.graph.base.NodeMap;
-import com.intellij.openapi.graph.layout.Layouter;
 import com.intellij.openapi.graph.view.*;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiNamedElement;
+import de.frag.umlplugin.LayoutScheduler;
+import de.frag.umlplugin.classcloud.ModuleShardCache;
+import de.frag.umlplugin.classcloud.StronglyConnectedComponents;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import de.frag.umlplugin.psi.*;
 import de.frag.umlplugin.settings.Settings;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -28,16 +31,42 @@ public class GraphBuilder
   private static final String UML_ANGLE_ARROW_NAME = "angle";
   private static final Color  LABEL_BG_COLOR       = new Color (0x77FFFFFF, true);
 
-  private Graph2D graph2D;
-  private NodeMap nodeMap;
-  private EdgeMap edgeMap;
+  private Graph2D                     graph2D;
+  private NodeMap                     nodeMap;
+  private EdgeMap                     edgeMap;
+  private StronglyConnectedComponents cycles;
 
   /**
-   * Creates a new graph for the given class.
+   * Creates a new graph for the given class. The graph is built immediately, its layout is computed in the
+   * background by the given scheduler and the listener is notified as soon as the layouted graph is ready.
+   * @param psiClass new central class
+   * @param scheduler layout scheduler that computes the layout of the created graph
+   * @param listener listener that receives the layouted graph
+   */
+  public void createGraph (@NotNull PsiClass psiClass, @NotNull LayoutScheduler scheduler,
+                           @NotNull final GraphListener listener)
+  {
+    final long start = Instrumentation.start ();
+    final Graph2D graph = buildGraph (psiClass);
+    Instrumentation.stop ("GraphBuilder.buildGraph", start);
+    scheduler.schedule (graph, new GraphicalNavigationLayouter (), new LayoutScheduler.LayoutListener ()
+    {
+      public void layoutComputed (@NotNull LayoutScheduler.LayoutResult result)
+      {
+        result.commit ();
+        GraphicalNavigationLayouter.alignEdgeLabels (graph);
+        Instrumentation.stop ("GraphBuilder.createGraph", start);
+        listener.graphCreated (graph);
+      }
+    });
+  }
+
+  /**
+   * Creates a new graph for the given class without computing a layout.
    * @param psiClass new central class
    * @return created graph
    */
-  public @NotNull Graph2D createGraph (@NotNull PsiClass psiClass)
+  private @NotNull Graph2D buildGraph (@NotNull PsiClass psiClass)
   {
     GraphManager graphManager = GraphManager.getGraphManager ();
     graph2D = graphManager.createGraph2D ();
@@ -46,39 +75,63 @@ public class GraphBuilder
     graph2D.addDataProvider (DataProviderKeys.DEPENDENCY_INFO_NODE_KEY, nodeMap);
     graph2D.addDataProvider (DataProviderKeys.DEPENDENCY_INFO_EDGE_KEY, edgeMap);
 
-    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
 
     DependencyCollection usedClasses      = analyzer.getUsedClasses ();
     DependencyCollection usingClasses     = analyzer.getUsingClasses ();
     DependencyCollection extendedClasses  = analyzer.getExtendedClasses ();
     DependencyCollection extendingClasses = analyzer.getExtendingClasses ();
 
+    cycles = Settings.getSettings ().isHightlightCyclicEdges () ?
+             ModuleShardCache.getInstance (psiClass.getProject ()).getCurrentCycles () : null;
     Node classNode = createClassNode (psiClass, DependencyType.SUBJECT);
     NodeRealizer realizer = graph2D.getRealizer (classNode);
     realizer.setSize (realizer.getWidth () + 50, realizer.getHeight () + 100);
 
-    Set<PsiClass> cyclicDependendClasses = computeCyclicDependencies (usedClasses,  usingClasses);
+    Set<PsiClass> cyclicDependendClasses = computeCyclicDependencies (psiClass, usedClasses, usingClasses);
 
     addDependencies (classNode, usedClasses,      DependencyType.USED,      true,  cyclicDependendClasses);
     addDependencies (classNode, usingClasses,     DependencyType.USING,     false, cyclicDependendClasses);
     addDependencies (classNode, extendedClasses,  DependencyType.EXTENDED,  true,  cyclicDependendClasses);
     addDependencies (classNode, extendingClasses, DependencyType.EXTENDING, false, cyclicDependendClasses);
-    
-    Layouter layouter = new GraphicalNavigationLayouter ();
-    layouter.doLayout (graph2D);
 
     return graph2D;
   }
 
   /**
-   * Computes cyclic dependend classes.
+   * Computes cyclic dependend classes. If project wide dependency cycles are known, all used and using classes
+   * whose dependency takes part in any cycle are found. Otherwise only direct two-way dependencies are found.
+   * @param subjectClass subject class
    * @param usedClasses used classes
    * @param usingClasses using classes
-   * @return set of classes that are both used by subject class and are using the subject class
+   * @return set of classes whose dependency to or from subject class takes part in a dependency cycle
    */
-  private @NotNull Set<PsiClass> computeCyclicDependencies (@NotNull DependencyCollection usedClasses,
+  private @NotNull Set<PsiClass> computeCyclicDependencies (@NotNull PsiClass subjectClass,
+                                                            @NotNull DependencyCollection usedClasses,
                                                             @NotNull DependencyCollection usingClasses)
   {
+    String subjectName = subjectClass.getQualifiedName ();
+    if (cycles != null && subjectName != null && cycles.getComponent (subjectName) >= 0)
+    {
+      Set<PsiClass> result = new HashSet<PsiClass> ();
+      for (PsiClass usedClass : usedClasses)
+      {
+        String usedName = usedClass.getQualifiedName ();
+        if (usedName != null && cycles.isCyclicEdge (subjectName, usedName))
+        {
+          result.add (usedClass);
+        }
+      }
+      for (PsiClass usingClass : usingClasses)
+      {
+        String usingName = usingClass.getQualifiedName ();
+        if (usingName != null && cycles.isCyclicEdge (usingName, subjectName))
+        {
+          result.add (usingClass);
+        }
+      }
+      return result;
+    }
     Set<PsiClass> usingClassesSet = new HashSet<PsiClass> ();
     for (PsiClass usingClass : usingClasses)
     {
@@ -114,8 +167,7 @@ public class GraphBuilder
       if (!dependendClass.equals (subjectClass))
       {
         Node dependendNode = createClassNode (dependendClass, dependencyType);
-        List<DependencyReason> filteredReasons = ClassFinder.filterReasons (collection.getDependencyReasons (dependendClass));
-        for (DependencyReason reason : filteredReasons)
+        for (DependencyReason reason : collection.getDependencyReasons (dependendClass))
         {
           boolean cycle = (dependencyType == DependencyType.USED || dependencyType == DependencyType.USING) &&
                           cyclicDependendClasses.contains (dependendClass) &&
@@ -150,6 +202,11 @@ public class GraphBuilder
     nodeMap.set (classNode, info);
     ClassType classType = DependencyAnalyzer.computeClassType (psiClass);
     nodeRealizer.setFillColor (Settings.getSettings ().getColorForClassType (classType));
+    String qualifiedName = psiClass.getQualifiedName ();
+    if (cycles != null && qualifiedName != null && cycles.isCyclic (qualifiedName))
+    {
+      nodeRealizer.setLineColor (Color.RED);
+    }
     nodeRealizer.setLabelText (createNodeText (psiClass, classType));
     NodeLabel label = nodeRealizer.getLabel ();
     nodeRealizer.setLocation (100, 100);
@@ -273,17 +330,31 @@ public class GraphBuilder
     return customArrow;
   }
 
+  /**
+   * Listener that receives graphs as soon as their layout has been computed.
+   */
+  public interface GraphListener
+  {
+    /**
+     * Called on the event dispatch thread when the created graph is layouted.
+     * @param graph created and layouted graph
+     */
+    public void graphCreated (@NotNull Graph2D graph);
+  }
+
   /**
    * Stores additional node information.
    */
   public static class NodeInfo
   {
     private final PsiClass       psiClass;
+    private final String         className;
     private final DependencyType dependencyType;
 
     public NodeInfo (@NotNull PsiClass psiClass, @NotNull DependencyType dependencyType)
     {
       this.psiClass = psiClass;
+      this.className = psiClass.getName ();
       this.dependencyType = dependencyType;
     }
 
@@ -292,6 +363,15 @@ public class GraphBuilder
       return psiClass;
     }
 
+    /**
+     * Gets simple class name that was read on creation, so it can be accessed without read access to PSI.
+     * @return simple class name or null, if class has no name
+     */
+    public @Nullable String getClassName ()
+    {
+      return className;
+    }
+
     public @NotNull DependencyType getDependencyType ()
     {
       return dependencyType;
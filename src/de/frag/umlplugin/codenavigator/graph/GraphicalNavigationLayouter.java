@@ -11,6 +11,7 @@ import com.intellij.openapi.graph.layout.LayoutGraph;
 import com.intellij.openapi.graph.layout.Layouter;
 import com.intellij.openapi.graph.view.EdgeLabel;
 import com.intellij.openapi.graph.view.EdgeRealizer;
+import com.intellij.openapi.graph.view.Graph2D;
 import de.frag.umlplugin.settings.Settings;
 import org.jetbrains.annotations.NotNull;
 
@@ -229,12 +230,41 @@ public class GraphicalNavigationLayouter implements Layouter
     }
   }
 
+  /**
+   * Aligns labels of all edges between center node and using or used nodes. Layouts computed on copied graphs
+   * can not rotate labels, since labels are only known to realizers of the original graph.
+   * @param graph original graph that contains layouted edges
+   */
+  public static void alignEdgeLabels (@NotNull Graph2D graph)
+  {
+    for (Edge edge : graph.getEdgeArray ())
+    {
+      GraphBuilder.NodeInfo sourceInfo = GraphUtils.getNodeInfo (edge.source ());
+      GraphBuilder.NodeInfo targetInfo = GraphUtils.getNodeInfo (edge.target ());
+      if (sourceInfo != null && targetInfo != null &&
+          (isHorizontalGroup (sourceInfo.getDependencyType ()) || isHorizontalGroup (targetInfo.getDependencyType ())))
+      {
+        rotateLabels (graph, edge);
+      }
+    }
+  }
+
+  /**
+   * Checks whether nodes of given dependency type are placed left or right of the center node.
+   * @param dependencyType dependency type to check
+   * @return true, if nodes are placed left or right of center node; false otherwise
+   */
+  private static boolean isHorizontalGroup (@NotNull DependencyType dependencyType)
+  {
+    return dependencyType == DependencyType.USING || dependencyType == DependencyType.USED;
+  }
+
   /**
    * Rotates all labels to be aligned to edge.
    * @param graph graph containg edge
    * @param edge edge to rotate labels for
    */
-  private void rotateLabels (@NotNull LayoutGraph graph, @NotNull Edge edge)
+  private static void rotateLabels (@NotNull LayoutGraph graph, @NotNull Edge edge)
   {
     EdgeLayout layout = graph.getLayout (edge);
     if (layout instanceof EdgeRealizer)
@@ -360,8 +390,8 @@ public class GraphicalNavigationLayouter implements Layouter
       {
         GraphBuilder.NodeInfo info1 = (GraphBuilder.NodeInfo) nodeMap.get (node1);
         GraphBuilder.NodeInfo info2 = (GraphBuilder.NodeInfo) nodeMap.get (node2);
-        String name1 = info1.getPsiClass ().getName ();
-        String name2 = info2.getPsiClass ().getName ();
+        String name1 = info1.getClassName ();
+        String name2 = info2.getClassName ();
         return name1 == null ? -1 : name1.compareTo (name2);
       }
     };
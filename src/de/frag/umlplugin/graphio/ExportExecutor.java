@@ -0,0 +1,61 @@
+package de.frag.umlplugin.graphio;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded thread pool that is shared by all exports. It has one thread per available processor at most; idle
+ * threads are stopped after a while. Tasks that run in this pool must not block until other tasks of the pool
+ * have been started, since all threads might be waiting otherwise; a task that is still queued should rather be
+ * run by the waiting thread itself.
+ */
+public class ExportExecutor
+{
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private static ExecutorService executor;
+
+  private ExportExecutor ()
+  {
+  }
+
+  /**
+   * Gets the shared export pool.
+   * @return shared export pool
+   */
+  public static synchronized @NotNull ExecutorService getExecutor ()
+  {
+    if (executor == null)
+    {
+      int threads = Runtime.getRuntime ().availableProcessors ();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor (threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                        new LinkedBlockingQueue<Runnable> (), new ThreadFactory ()
+      {
+        public Thread newThread (Runnable runnable)
+        {
+          return new ExportThread (runnable);
+        }
+      });
+      pool.allowCoreThreadTimeOut (true);
+      executor = pool;
+    }
+    return executor;
+  }
+
+  /**
+   * Daemon thread of the shared export pool.
+   */
+  private static class ExportThread extends Thread
+  {
+    private ExportThread (@NotNull Runnable runnable)
+    {
+      super (runnable, "CodeNavigator export");
+      setDaemon (true);
+    }
+  }
+}
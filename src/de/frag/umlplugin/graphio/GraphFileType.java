@@ -1,6 +1,7 @@
 package de.frag.umlplugin.graphio;
 
 import com.intellij.openapi.graph.view.Graph2D;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
@@ -11,10 +12,18 @@ import java.awt.image.BufferedImage;
  */
 public enum GraphFileType implements FileType
 {
-  GIF ("GIF image",  "Saves current diagram as GIF image",  ".gif", new ImageGraphWriter ("gif")),
-  JPG ("JPEG image", "Saves current diagram as JPEG image", ".jpg", new ImageGraphWriter ("jpg")),
-  PNG ("PNG image",  "Saves current diagram as PNG image",  ".png", new ImageGraphWriter ("png")),
-  SVG ("SVG image",  "Saves current diagram as SVG image",  ".svg", new SVGGraphWriter ());
+  GIF     ("GIF image",     "Saves current diagram as GIF image",
+           ".gif", new ImageGraphWriter ("gif")),
+  JPG     ("JPEG image",    "Saves current diagram as JPEG image",
+           ".jpg", new ImageGraphWriter ("jpg")),
+  PNG     ("PNG image",     "Saves current diagram as PNG image",
+           ".png", new ImageGraphWriter ("png")),
+  SVG     ("SVG image",     "Saves current diagram as SVG image",
+           ".svg", new SVGGraphWriter (false)),
+  SVGZ    ("SVGZ image",    "Saves current diagram as compressed SVG image",
+           ".svgz", new SVGGraphWriter (true)),
+  GRAPHML ("Graphml file",  "Saves current diagram as Graphml graph (readable by yed)",
+           ".graphml", new GraphmlGraphWriter ());
 
   private final String      name;
   private final String      description;
@@ -76,7 +85,9 @@ public enum GraphFileType implements FileType
   public void writeGraph (@NotNull Graph2D graph, @NotNull String path, boolean saveThumbnail,
                                    int thumbnailHeight) throws IOException
   {
+    long start = Instrumentation.start ();
     graphWriter.writeGraph (graph, path, saveThumbnail, thumbnailHeight);
+    Instrumentation.stop ("GraphWriter." + name (), start);
   }
 
   /**
@@ -3,20 +3,32 @@ package de.frag.umlplugin.graphio;
 import com.intellij.openapi.graph.GraphManager;
 import com.intellij.openapi.graph.view.Graph2D;
 import com.intellij.openapi.graph.view.Graph2DView;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import org.jetbrains.annotations.NotNull;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
- * Write graphs to image files (JPG, PNG, GIF).
+ * Write graphs to image files (JPG, PNG, GIF). PNG images are painted in tiles and encoded row by row, so
+ * the memory needed for exporting does not depend on the size of the graph.
  */
 public class ImageGraphWriter implements GraphWriter
 {
   private static final String THUMBNAIL_SUFFIX = "_thumb";
+  private static final String PNG              = "png";
+  private static final int    TILE_SIZE        = 256;
+  private static final int    BORDER           = 20;
 
   private final String extension;
 
@@ -52,52 +64,234 @@ public class ImageGraphWriter implements GraphWriter
   public void writeGraph (@NotNull Graph2D graph, @NotNull String path, boolean saveThumbnail, int thumbnailHeight)
                           throws IOException
   {
-    FileOutputStream stream      = null;
-    FileOutputStream thumbStream = null;
-    try
+    Rectangle rectangle = graph.getBoundingBox ();
+    int x      = (int) rectangle.getX ();
+    int y      = (int) rectangle.getY ();
+    int width  = (int) rectangle.getWidth  () + Math.abs (x) + 2 * BORDER;
+    int height = (int) rectangle.getHeight () + Math.abs (y) + 2 * BORDER;
+    if (PNG.equalsIgnoreCase (extension))
+    {
+      long start = Instrumentation.start ();
+      OutputStream stream = new BufferedOutputStream (new FileOutputStream (path));
+      try
+      {
+        writeTiles (graph, stream, x - BORDER, y - BORDER, width, height);
+      }
+      finally
+      {
+        stream.close ();
+      }
+      Instrumentation.stop ("ImageGraphWriter.writeTiles", start);
+      if (saveThumbnail)
+      {
+        // paint thumbnail directly at its target size instead of scaling down the huge image
+        double zoom = (double) thumbnailHeight / (double) height;
+        int thumbnailWidth = Math.max (1, (int) Math.ceil (width * zoom));
+        BufferedImage thumbnail = new BufferedImage (thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_RGB);
+        paint (graph, thumbnail, x - BORDER, y - BORDER, zoom);
+        writeImage (thumbnail, createThumbnailPath (path));
+      }
+    }
+    else
     {
-      final int border = 20;
-      Rectangle rectangle = graph.getBoundingBox ();
-      int x      = (int) rectangle.getX ();
-      int y      = (int) rectangle.getY ();
-      int width  = (int) rectangle.getWidth  () + Math.abs (x) + 2 * border;
-      int height = (int) rectangle.getHeight () + Math.abs (y) + 2 * border;
       BufferedImage image = new BufferedImage (width, height, BufferedImage.TYPE_INT_RGB);
-      Graphics2D graphics = (Graphics2D) image.getGraphics ();
+      paint (graph, image, x - BORDER, y - BORDER, 1.0);
+      writeImage (image, path);
+      if (saveThumbnail)
+      {
+        // create thumbnail
+        ImageScaler scaler = new ImageScaler (thumbnailHeight);
+        writeImage (scaler.filter (image), createThumbnailPath (path));
+      }
+    }
+  }
 
-      GraphManager graphManager = GraphManager.getGraphManager ();
-      Graph2DView imageView = graphManager.createGraph2DView (graph);
+  /**
+   * Paints given graph into the given image using a temporary view.
+   * @param graph graph to paint
+   * @param image target image
+   * @param viewX world x coordinate of upper left image corner
+   * @param viewY world y coordinate of upper left image corner
+   * @param zoom zoom factor
+   */
+  private void paint (@NotNull Graph2D graph, @NotNull BufferedImage image, int viewX, int viewY, double zoom)
+  {
+    Graphics2D graphics = image.createGraphics ();
+    GraphManager graphManager = GraphManager.getGraphManager ();
+    Graph2DView imageView = graphManager.createGraph2DView (graph);
+    try
+    {
       imageView.setAntialiasedPainting (true);
 //      imageView.setSecureDrawingMode   (true); //TODO
-      imageView.setBounds              (0, 0, width, height);
-      imageView.setViewPoint           (x - border, y - border);
+      imageView.setBounds              (0, 0, image.getWidth (), image.getHeight ());
+      imageView.setZoom                (zoom);
+      imageView.setViewPoint           (viewX, viewY);
       imageView.paintVisibleContent    (graphics);
-      graph.removeView                 (imageView);
-      // save image
-      stream = new FileOutputStream (path);
+    }
+    finally
+    {
+      graph.removeView (imageView);
+      graphics.dispose ();
+    }
+  }
+
+  /**
+   * Writes given image to file in the format of this writer.
+   * @param image image to write
+   * @param path path to target file
+   * @throws IOException on IO error
+   */
+  private void writeImage (@NotNull BufferedImage image, @NotNull String path) throws IOException
+  {
+    FileOutputStream stream = new FileOutputStream (path);
+    try
+    {
       ImageIO.write (image, extension, stream);
+    }
+    finally
+    {
+      stream.close ();
+    }
+  }
 
-      if (saveThumbnail)
+  /**
+   * Paints graph in tiles and streams the painted rows into a PNG encoder. All tiles are painted one after another
+   * by a single view in the calling thread, so labels are never painted concurrently. Tiles have a fixed size of
+   * TILE_SIZE x TILE_SIZE pixels and are copied into a band of TILE_SIZE rows spanning the whole image width; while
+   * a band is encoded by the shared export pool, the next band is painted into a second buffer.
+   * @param graph graph to write
+   * @param stream target stream
+   * @param viewX world x coordinate of upper left image corner
+   * @param viewY world y coordinate of upper left image corner
+   * @param width image width in pixels
+   * @param height image height in pixels
+   * @throws IOException on IO error
+   */
+  private void writeTiles (@NotNull Graph2D graph, @NotNull OutputStream stream, int viewX, int viewY,
+                           final int width, int height) throws IOException
+  {
+    // bands are one tile high, so wide images are painted in as few tiles as narrow ones of the same area
+    int bandHeight = Math.min (TILE_SIZE, height);
+    BufferedImage tile = new BufferedImage (Math.min (TILE_SIZE, width), bandHeight, BufferedImage.TYPE_INT_RGB);
+    int [][] bands = {new int [width * bandHeight], new int [width * bandHeight]};
+    final PngStreamWriter writer = new PngStreamWriter (stream, width, height);
+    Graph2DView view = GraphManager.getGraphManager ().createGraph2DView (graph);
+    FutureTask<Object> pending = null;
+    try
+    {
+      view.setAntialiasedPainting (true);
+      view.setBounds              (0, 0, tile.getWidth (), tile.getHeight ());
+      for (int bandY = 0, band = 0; bandY < height; bandY += bandHeight, band++)
       {
-        // create thumbnail
-        ImageScaler scaler = new ImageScaler (thumbnailHeight);
-        BufferedImage thumbnail = scaler.filter (image);
-        // save thumbnail image
-        String thumbnailPath = createThumbnailPath (path);
-        thumbStream = new FileOutputStream (thumbnailPath);
-        ImageIO.write (thumbnail, extension, thumbStream);
+        if (Thread.currentThread ().isInterrupted ())
+        {
+          throw new InterruptedIOException ("image export interrupted");
+        }
+        final int    rows   = Math.min (bandHeight, height - bandY);
+        final int [] pixels = bands [band % 2];
+        paintBand (view, tile, pixels, viewX, viewY + bandY, width, rows);
+        // the other buffer may only be painted after it has been encoded
+        await (pending);
+        pending = null;
+        pending = new FutureTask<Object> (new Callable<Object> ()
+        {
+          public Object call () throws IOException
+          {
+            writer.writeRows (pixels, 0, width, rows);
+            return null;
+          }
+        });
+        ExportExecutor.getExecutor ().execute (pending);
       }
+      await (pending);
+      pending = null;
+      writer.finish ();
     }
     finally
     {
-      if (stream != null)
+      if (pending != null)
       {
-        stream.close ();
+        pending.cancel (false);
+      }
+      // waits for a band that is still being encoded
+      writer.dispose ();
+      graph.removeView (view);
+    }
+  }
+
+  /**
+   * Paints all tiles of a single band and copies them into the band buffer.
+   * @param view view that paints tiles; its size is the tile size
+   * @param tile image for painting a single tile
+   * @param pixels target band buffer with the width of the image
+   * @param viewX world x coordinate of left image border
+   * @param worldY world y coordinate of upper band border
+   * @param width image width in pixels
+   * @param rows number of rows in band
+   */
+  private void paintBand (@NotNull Graph2DView view, @NotNull BufferedImage tile, @NotNull int [] pixels,
+                          int viewX, int worldY, int width, int rows)
+  {
+    int [] tilePixels = ((DataBufferInt) tile.getRaster ().getDataBuffer ()).getData ();
+    int tileWidth = tile.getWidth ();
+    for (int tileX = 0; tileX < width; tileX += tileWidth)
+    {
+      Graphics2D graphics = tile.createGraphics ();
+      try
+      {
+        view.setViewPoint        (viewX + tileX, worldY);
+        view.paintVisibleContent (graphics);
+      }
+      finally
+      {
+        graphics.dispose ();
+      }
+      int columns = Math.min (tileWidth, width - tileX);
+      for (int y = 0; y < rows; y++)
+      {
+        System.arraycopy (tilePixels, y * tileWidth, pixels, y * width + tileX, columns);
+      }
+    }
+  }
+
+  /**
+   * Waits until given band is encoded. If the shared pool has not started encoding yet, the band is encoded in the
+   * current thread, so exports never wait for work of other exports that is queued in the pool.
+   * @param future future of band or null, if no band is being encoded
+   * @throws IOException if encoding failed or waiting was interrupted
+   */
+  private void await (FutureTask<?> future) throws IOException
+  {
+    if (future == null)
+    {
+      return;
+    }
+    try
+    {
+      future.run ();
+      future.get ();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("image export interrupted");
+    }
+    catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause ();
+      if (cause instanceof IOException)
+      {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
       }
-      if (thumbStream != null)
+      if (cause instanceof Error)
       {
-        thumbStream.close ();
+        throw (Error) cause;
       }
+      throw new IOException ("encoding image failed: " + cause);
     }
   }
 
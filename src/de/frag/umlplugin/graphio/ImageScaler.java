@@ -1,12 +1,31 @@
 package de.frag.umlplugin.graphio;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 
 /**
- * Scales down an image using an area averaging filter.
+ * Scales down an image using an area averaging filter. Large reduction factors are first reduced by averaging
+ * blocks of a power of two size, the remaining factor is applied by two separable area averaging passes. All passes work
+ * directly on the integer pixels of the images and split rows of large images between the threads of the shared
+ * export pool.
+ * Images with alpha channel are averaged in premultiplied form, so transparent pixels do not darken the result.
  */
 public class ImageScaler
 {
+  private static final int PARALLEL_PIXELS = 1 << 20;
+  private static final int WEIGHT_ONE      = 1 << 12;
+  private static final int MAX_SHIFT       = 10;
+
   private final int targetHeight;
 
   /**
@@ -30,44 +49,369 @@ public class ImageScaler
     double scale     = (srcHeight != 0) ? (double) targetHeight / (double) srcHeight : 1.0;
     int    dstWidth  = (int) Math.ceil (srcWidth  * scale);
     int    dstHeight = (int) Math.ceil (srcHeight * scale);
-    double stepH     = (double) srcWidth  / (double) dstWidth;
-    double stepV     = (double) srcHeight / (double) dstHeight;
 
-    BufferedImage dst = new BufferedImage (dstWidth, dstHeight, src.getType ());
-    int [] srcPixels = src.getRGB (0, 0, srcWidth, srcHeight, null, 0, srcWidth);
-    int [] dstPixels = new int [dstWidth * dstHeight];
-    for (int dstY = 0; dstY < dstHeight; dstY++)
+    boolean alpha = src.getColorModel ().hasAlpha ();
+    int type = alpha ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB;
+    int [] pixels = getPixels (src, type);
+    int width  = srcWidth;
+    int height = srcHeight;
+    boolean parallel = (long) srcWidth * srcHeight >= PARALLEL_PIXELS &&
+                       Runtime.getRuntime ().availableProcessors () > 1;
+    ExecutorService executor = parallel ? ExportExecutor.getExecutor () : null;
+    // reduce by the largest power of two that keeps the image at least as large as the thumbnail
+    int shift = 0;
+    while (shift < MAX_SHIFT && width >> (shift + 1) >= dstWidth && height >> (shift + 1) >= dstHeight)
+    {
+      shift++;
+    }
+    if (shift > 0)
+    {
+      pixels = reduce (executor, pixels, width, height, shift);
+      width  >>= shift;
+      height >>= shift;
+    }
+    pixels = scaleHorizontally (executor, pixels, width, height, dstWidth);
+    pixels = scaleVertically   (executor, pixels, dstWidth, height, dstHeight);
+
+    BufferedImage dst = new BufferedImage (dstWidth, dstHeight, type);
+    int [] dstPixels = ((DataBufferInt) dst.getRaster ().getDataBuffer ()).getData ();
+    System.arraycopy (pixels, 0, dstPixels, 0, dstPixels.length);
+    if (alpha)
     {
-      for (int dstX = 0; dstX < dstWidth; dstX++)
+      // thumbnails are written by image encoders that expect non premultiplied colors
+      BufferedImage result = new BufferedImage (dstWidth, dstHeight, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D graphics = result.createGraphics ();
+      graphics.setComposite (AlphaComposite.Src);
+      graphics.drawImage (dst, 0, 0, null);
+      graphics.dispose ();
+      return result;
+    }
+    return dst;
+  }
+
+  /**
+   * Gets the pixels of given image. If the image already stores its pixels as integers of the desired type
+   * without padding, the pixel array of the image is returned without copying; it must not be modified.
+   * Otherwise the image is converted once.
+   * @param image image to get pixels from
+   * @param type desired integer image type
+   * @return pixel array with one integer per pixel and no padding between rows
+   */
+  private static @NotNull int [] getPixels (@NotNull BufferedImage image, int type)
+  {
+    if (image.getType () == type && image.getRaster ().getDataBuffer () instanceof DataBufferInt &&
+        image.getSampleModel () instanceof SinglePixelPackedSampleModel)
+    {
+      SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) image.getSampleModel ();
+      DataBufferInt dataBuffer = (DataBufferInt) image.getRaster ().getDataBuffer ();
+      if (sampleModel.getScanlineStride () == image.getWidth () && dataBuffer.getOffset () == 0 &&
+          image.getRaster ().getSampleModelTranslateX () == 0 && image.getRaster ().getSampleModelTranslateY () == 0)
+      {
+        return dataBuffer.getData ();
+      }
+    }
+    BufferedImage converted = new BufferedImage (image.getWidth (), image.getHeight (), type);
+    Graphics2D graphics = converted.createGraphics ();
+    graphics.setComposite (AlphaComposite.Src);
+    graphics.drawImage (image, 0, 0, null);
+    graphics.dispose ();
+    return ((DataBufferInt) converted.getRaster ().getDataBuffer ()).getData ();
+  }
+
+  /**
+   * Reduces width and height of an image by averaging square blocks of pixels. Each source pixel is read exactly
+   * once, row by row. Remaining rows and columns that do not fill a complete block are added to the blocks of the
+   * last row and column, so no part of the image is lost.
+   * @param executor executor for parallel rows; null, if rows should be computed in current thread
+   * @param src source pixels
+   * @param srcWidth source width
+   * @param srcHeight source height
+   * @param shift binary logarithm of block size
+   * @return pixels of reduced image
+   */
+  private static @NotNull int [] reduce (ExecutorService executor, @NotNull final int [] src, final int srcWidth,
+                                         final int srcHeight, final int shift)
+  {
+    final int blockSize = 1 << shift;
+    final int dstWidth  = srcWidth  >> shift;
+    final int dstHeight = srcHeight >> shift;
+    final int [] dst = new int [dstWidth * dstHeight];
+    forRows (executor, dstHeight, new RowTask ()
+    {
+      public void run (int fromRow, int toRow)
       {
-        int srcYStart = (int) (dstY * stepV);
-        int srcYEnd   = (int) Math.min ((dstY + 1) * stepV, srcHeight);
-        int srcXStart = (int) (dstX * stepH);
-        int srcXEnd   = (int) Math.min ((dstX + 1) * stepH, srcWidth);
-        int r = 0;
-        int g = 0;
-        int b = 0;
-        int count = 0;
-        for (int srcY = srcYStart; srcY < srcYEnd; srcY++)
+        int [] a = new int [dstWidth];
+        int [] r = new int [dstWidth];
+        int [] g = new int [dstWidth];
+        int [] b = new int [dstWidth];
+        int lastColumns = srcWidth - ((dstWidth - 1) << shift);
+        for (int y = fromRow; y < toRow; y++)
         {
-          for (int srcX = srcXStart; srcX < srcXEnd; srcX++)
+          Arrays.fill (a, 0);
+          Arrays.fill (r, 0);
+          Arrays.fill (g, 0);
+          Arrays.fill (b, 0);
+          int rows = y == dstHeight - 1 ? srcHeight - (y << shift) : blockSize;
+          for (int row = (y << shift) * srcWidth, end = row + rows * srcWidth; row < end; row += srcWidth)
           {
-            int rgb = srcPixels[srcY * srcWidth + srcX];
-            r += (rgb >> 16) & 0xFF;
-            g += (rgb >>  8) & 0xFF;
-            b +=  rgb        & 0xFF;
-            count++;
+            for (int x = 0, i = row; x < dstWidth; x++)
+            {
+              int sumA = 0;
+              int sumR = 0;
+              int sumG = 0;
+              int sumB = 0;
+              for (int blockEnd = i + (x == dstWidth - 1 ? lastColumns : blockSize); i < blockEnd; i++)
+              {
+                int p = src [i];
+                sumA += p >>> 24;
+                sumR += p >> 16 & 0xFF;
+                sumG += p >>  8 & 0xFF;
+                sumB += p       & 0xFF;
+              }
+              a [x] += sumA;
+              r [x] += sumR;
+              g [x] += sumG;
+              b [x] += sumB;
+            }
+          }
+          int index = y * dstWidth;
+          for (int x = 0; x < dstWidth; x++)
+          {
+            int count = rows * (x == dstWidth - 1 ? lastColumns : blockSize);
+            int round = count >> 1;
+            dst [index++] = (a [x] + round) / count << 24 | (r [x] + round) / count << 16 |
+                            (g [x] + round) / count << 8  | (b [x] + round) / count;
           }
         }
-        if (count > 0)
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Scales rows of an image to the given width.
+   * @param executor executor for parallel rows; null, if rows should be computed in current thread
+   * @param src source pixels
+   * @param srcWidth source width
+   * @param height image height
+   * @param dstWidth target width
+   * @return pixels of scaled image
+   */
+  private static @NotNull int [] scaleHorizontally (ExecutorService executor, @NotNull final int [] src,
+                                                    final int srcWidth, int height, final int dstWidth)
+  {
+    final Weights weights = new Weights (srcWidth, dstWidth);
+    final int [] dst = new int [dstWidth * height];
+    forRows (executor, height, new RowTask ()
+    {
+      public void run (int fromRow, int toRow)
+      {
+        for (int y = fromRow; y < toRow; y++)
         {
-          dstPixels [dstY * dstWidth + dstX] = (((r / count) & 0xFF) << 16) |
-                                               (((g / count) & 0xFF) << 8) |
-                                                ((b / count) & 0xFF);
+          int row   = y * srcWidth;
+          int index = y * dstWidth;
+          for (int x = 0; x < dstWidth; x++)
+          {
+            int a = 0;
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            int first = weights.first [x];
+            int w     = weights.offset [x];
+            int end   = weights.offset [x + 1];
+            for (int i = row + first; w < end; i++, w++)
+            {
+              int p      = src [i];
+              int weight = weights.weights [w];
+              a += (p >>> 24)       * weight;
+              r += (p >> 16 & 0xFF) * weight;
+              g += (p >>  8 & 0xFF) * weight;
+              b += (p       & 0xFF) * weight;
+            }
+            dst [index++] = pack (a, r, g, b);
+          }
         }
       }
-    }
-    dst.setRGB (0, 0, dstWidth, dstHeight, dstPixels, 0, dstWidth);
+    });
     return dst;
   }
+
+  /**
+   * Scales columns of an image to the given height.
+   * @param executor executor for parallel rows; null, if rows should be computed in current thread
+   * @param src source pixels
+   * @param width image width
+   * @param srcHeight source height
+   * @param dstHeight target height
+   * @return pixels of scaled image
+   */
+  private static @NotNull int [] scaleVertically (ExecutorService executor, @NotNull final int [] src,
+                                                  final int width, int srcHeight, int dstHeight)
+  {
+    final Weights weights = new Weights (srcHeight, dstHeight);
+    final int [] dst = new int [width * dstHeight];
+    forRows (executor, dstHeight, new RowTask ()
+    {
+      public void run (int fromRow, int toRow)
+      {
+        int [] a = new int [width];
+        int [] r = new int [width];
+        int [] g = new int [width];
+        int [] b = new int [width];
+        for (int y = fromRow; y < toRow; y++)
+        {
+          Arrays.fill (a, 0);
+          Arrays.fill (r, 0);
+          Arrays.fill (g, 0);
+          Arrays.fill (b, 0);
+          int row = weights.first [y] * width;
+          for (int w = weights.offset [y]; w < weights.offset [y + 1]; w++, row += width)
+          {
+            int weight = weights.weights [w];
+            // accumulate whole source rows, so memory is read sequentially
+            for (int x = 0; x < width; x++)
+            {
+              int p = src [row + x];
+              a [x] += (p >>> 24)       * weight;
+              r [x] += (p >> 16 & 0xFF) * weight;
+              g [x] += (p >>  8 & 0xFF) * weight;
+              b [x] += (p       & 0xFF) * weight;
+            }
+          }
+          int index = y * width;
+          for (int x = 0; x < width; x++)
+          {
+            dst [index++] = pack (a [x], r [x], g [x], b [x]);
+          }
+        }
+      }
+    });
+    return dst;
+  }
+
+  /**
+   * Packs weighted channel sums into a single pixel.
+   * @param a weighted alpha sum
+   * @param r weighted red sum
+   * @param g weighted green sum
+   * @param b weighted blue sum
+   * @return packed pixel
+   */
+  private static int pack (int a, int r, int g, int b)
+  {
+    int half = WEIGHT_ONE / 2;
+    return Math.min (255, (a + half) / WEIGHT_ONE) << 24 | Math.min (255, (r + half) / WEIGHT_ONE) << 16 |
+           Math.min (255, (g + half) / WEIGHT_ONE) << 8  | Math.min (255, (b + half) / WEIGHT_ONE);
+  }
+
+  /**
+   * Runs given task for all rows, split into one part per processor. Parts that have not been started by the
+   * executor yet are run by the current thread, so scaling never waits for work of other exports that is queued
+   * in the shared export pool.
+   * @param executor executor for parallel rows; null, if rows should be computed in current thread
+   * @param rows number of rows
+   * @param task task to run
+   */
+  private static void forRows (ExecutorService executor, int rows, @NotNull final RowTask task)
+  {
+    if (executor == null || rows < 2)
+    {
+      task.run (0, rows);
+      return;
+    }
+    int parts = Math.min (rows, Runtime.getRuntime ().availableProcessors ());
+    List<FutureTask<Object>> futures = new ArrayList<FutureTask<Object>> (parts);
+    for (int part = 0; part < parts; part++)
+    {
+      final int fromRow = (int) ((long) rows * part / parts);
+      final int toRow   = (int) ((long) rows * (part + 1) / parts);
+      FutureTask<Object> future = new FutureTask<Object> (new Runnable ()
+      {
+        public void run ()
+        {
+          task.run (fromRow, toRow);
+        }
+      }, null);
+      futures.add (future);
+      executor.execute (future);
+    }
+    try
+    {
+      for (FutureTask<Object> future : futures)
+      {
+        future.run ();
+        future.get ();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IllegalStateException ("image scaling interrupted", e);
+    }
+    catch (ExecutionException e)
+    {
+      throw new IllegalStateException ("image scaling failed", e.getCause ());
+    }
+  }
+
+  /**
+   * Part of a scaling pass that computes a range of target rows.
+   */
+  private interface RowTask
+  {
+    /**
+     * Computes given rows.
+     * @param fromRow first row (inclusive)
+     * @param toRow last row (exclusive)
+     */
+    public void run (int fromRow, int toRow);
+  }
+
+  /**
+   * Fixed point weights of all source pixels that overlap each target pixel along one axis. The weights of each
+   * target pixel sum up to WEIGHT_ONE.
+   */
+  private static class Weights
+  {
+    private final int [] first;
+    private final int [] offset;
+    private final int [] weights;
+
+    public Weights (int srcSize, int dstSize)
+    {
+      double step = (double) srcSize / (double) dstSize;
+      first  = new int [dstSize];
+      offset = new int [dstSize + 1];
+      int [] buffer = new int [dstSize * ((int) Math.ceil (step) + 2)];
+      int count = 0;
+      for (int i = 0; i < dstSize; i++)
+      {
+        double start = i * step;
+        double end   = Math.min ((i + 1) * step, srcSize);
+        int    from  = Math.min ((int) start, srcSize - 1);
+        int    to    = Math.max (from + 1, (int) Math.ceil (end));
+        first  [i] = from;
+        offset [i] = count;
+        int sum = 0;
+        int largest = count;
+        for (int j = from; j < to; j++)
+        {
+          double overlap = Math.min (j + 1, end) - Math.max (j, start);
+          int weight = end > start ? (int) Math.round (WEIGHT_ONE * overlap / (end - start)) : WEIGHT_ONE;
+          buffer [count] = weight;
+          if (weight > buffer [largest])
+          {
+            largest = count;
+          }
+          sum += weight;
+          count++;
+        }
+        // rounding errors are added to the largest weight, so colors of uniform areas are preserved exactly
+        buffer [largest] += WEIGHT_ONE - sum;
+      }
+      offset [dstSize] = count;
+      weights = new int [count];
+      System.arraycopy (buffer, 0, weights, 0, count);
+    }
+  }
 }
@@ -0,0 +1,298 @@
+package de.frag.umlplugin.graphio;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits label texts into styled lines for vector export. Labels may contain the simple HTML that is used for
+ * class nodes and edge labels; block elements start new lines, images are treated as compartment separators and
+ * italic, underlined and small text is recognized. All other markup is ignored.
+ */
+public class LabelText
+{
+  /**
+   * A single line of a label.
+   */
+  public static class Line
+  {
+    private final String  text;
+    private final boolean separator;
+    private final boolean centered;
+    private final boolean italic;
+    private final boolean underlined;
+    private final boolean small;
+
+    public Line (@NotNull String text, boolean separator, boolean centered, boolean italic, boolean underlined,
+                 boolean small)
+    {
+      this.text       = text;
+      this.separator  = separator;
+      this.centered   = centered;
+      this.italic     = italic;
+      this.underlined = underlined;
+      this.small      = small;
+    }
+
+    public @NotNull String getText ()
+    {
+      return text;
+    }
+
+    /**
+     * Checks whether this line is a horizontal separator between compartments.
+     * @return true, if this line is a separator without text; false otherwise
+     */
+    public boolean isSeparator ()
+    {
+      return separator;
+    }
+
+    public boolean isCentered ()
+    {
+      return centered;
+    }
+
+    public boolean isItalic ()
+    {
+      return italic;
+    }
+
+    public boolean isUnderlined ()
+    {
+      return underlined;
+    }
+
+    public boolean isSmall ()
+    {
+      return small;
+    }
+  }
+
+  /**
+   * Text style while parsing, one instance per open element.
+   */
+  private static class Style
+  {
+    private final String  tag;
+    private final boolean centered;
+    private final boolean italic;
+    private final boolean underlined;
+    private final boolean small;
+
+    private Style (@NotNull String tag, boolean centered, boolean italic, boolean underlined, boolean small)
+    {
+      this.tag        = tag;
+      this.centered   = centered;
+      this.italic     = italic;
+      this.underlined = underlined;
+      this.small      = small;
+    }
+  }
+
+  private final List<Line>    lines   = new ArrayList<Line> ();
+  private final List<Style>   styles  = new ArrayList<Style> ();
+  private final StringBuilder current = new StringBuilder ();
+  private Style               lineStyle;
+
+  private LabelText ()
+  {
+    styles.add (new Style ("", false, false, false, false));
+  }
+
+  /**
+   * Splits given label text into lines.
+   * @param text plain or HTML label text
+   * @return lines of label; plain text lines are centered
+   */
+  public static @NotNull List<Line> parse (@NotNull String text)
+  {
+    LabelText labelText = new LabelText ();
+    if (text.regionMatches (true, 0, "<html>", 0, 6))
+    {
+      labelText.parseHtml (text);
+    }
+    else
+    {
+      for (String line : text.split ("\n", -1))
+      {
+        labelText.lines.add (new Line (line, false, true, false, false, false));
+      }
+    }
+    return labelText.lines;
+  }
+
+  /**
+   * Parses HTML label text.
+   * @param html HTML text
+   */
+  private void parseHtml (@NotNull String html)
+  {
+    int length = html.length ();
+    int index = 0;
+    while (index < length)
+    {
+      char c = html.charAt (index);
+      if (c == '<')
+      {
+        int end = html.indexOf ('>', index);
+        if (end < 0)
+        {
+          end = length;
+        }
+        handleTag (html.substring (index + 1, end));
+        index = end + 1;
+      }
+      else if (c == '&')
+      {
+        int end = html.indexOf (';', index);
+        if (end < 0 || end - index > 8)
+        {
+          appendText ("&");
+          index++;
+        }
+        else
+        {
+          appendText (decodeEntity (html.substring (index + 1, end)));
+          index = end + 1;
+        }
+      }
+      else
+      {
+        appendText (Character.isWhitespace (c) ? " " : String.valueOf (c));
+        index++;
+      }
+    }
+    endLine ();
+  }
+
+  /**
+   * Handles a start or end tag.
+   * @param tag contents of tag without angle brackets
+   */
+  private void handleTag (@NotNull String tag)
+  {
+    boolean end = tag.startsWith ("/");
+    String name = readName (tag, end ? 1 : 0);
+    boolean block = name.equals ("div") || name.equals ("center") || name.equals ("p") || name.equals ("br") ||
+                    name.equals ("hr") || name.equals ("html") || name.equals ("li");
+    if (block)
+    {
+      endLine ();
+    }
+    if (end)
+    {
+      // close innermost element with this name and all elements opened after it
+      for (int i = styles.size () - 1; i > 0; i--)
+      {
+        if (styles.get (i).tag.equals (name))
+        {
+          while (styles.size () > i)
+          {
+            styles.remove (styles.size () - 1);
+          }
+          break;
+        }
+      }
+    }
+    else if (name.equals ("img") || name.equals ("hr"))
+    {
+      lines.add (new Line ("", true, false, false, false, false));
+    }
+    else if (!name.equals ("br") && !tag.endsWith ("/"))
+    {
+      Style parent = styles.get (styles.size () - 1);
+      String lowerTag = tag.toLowerCase ();
+      boolean centered   = parent.centered || name.equals ("center") || lowerTag.contains ("text-align:center");
+      boolean italic     = parent.italic || name.equals ("i") || name.equals ("em") ||
+                           lowerTag.contains ("font-style:italic");
+      boolean underlined = parent.underlined || name.equals ("u") || lowerTag.contains ("text-decoration:underline");
+      boolean small      = parent.small || name.equals ("small") ||
+                           (name.equals ("font") && lowerTag.contains ("size='-"));
+      styles.add (new Style (name, centered, italic, underlined, small));
+    }
+  }
+
+  /**
+   * Reads lower case element name of a tag.
+   * @param tag tag contents
+   * @param start start index of name
+   * @return element name
+   */
+  private static @NotNull String readName (@NotNull String tag, int start)
+  {
+    int end = start;
+    while (end < tag.length () && Character.isLetterOrDigit (tag.charAt (end)))
+    {
+      end++;
+    }
+    return tag.substring (start, end).toLowerCase ();
+  }
+
+  /**
+   * Appends text to current line. Consecutive white space is collapsed to a single space.
+   * @param text text to append
+   */
+  private void appendText (@NotNull String text)
+  {
+    if (text.equals (" "))
+    {
+      if (current.length () > 0 && current.charAt (current.length () - 1) != ' ')
+      {
+        current.append (' ');
+      }
+      return;
+    }
+    if (current.length () == 0)
+    {
+      lineStyle = styles.get (styles.size () - 1);
+    }
+    current.append (text);
+  }
+
+  /**
+   * Finishes current line, if it contains any text.
+   */
+  private void endLine ()
+  {
+    String text = current.toString ().trim ();
+    if (text.length () > 0)
+    {
+      lines.add (new Line (text, false, lineStyle.centered, lineStyle.italic, lineStyle.underlined, lineStyle.small));
+    }
+    current.setLength (0);
+  }
+
+  /**
+   * Decodes a character entity.
+   * @param entity entity name without ampersand and semicolon
+   * @return decoded text
+   */
+  private static @NotNull String decodeEntity (@NotNull String entity)
+  {
+    if (entity.startsWith ("#"))
+    {
+      try
+      {
+        boolean hex = entity.startsWith ("#x") || entity.startsWith ("#X");
+        int code = Integer.parseInt (entity.substring (hex ? 2 : 1), hex ? 16 : 10);
+        return new String (Character.toChars (code));
+      }
+      catch (IllegalArgumentException e)
+      {
+        return "&" + entity + ";";
+      }
+    }
+    if (entity.equals ("lt"))     return "<";
+    if (entity.equals ("gt"))     return ">";
+    if (entity.equals ("amp"))    return "&";
+    if (entity.equals ("quot"))   return "\"";
+    if (entity.equals ("apos"))   return "'";
+    if (entity.equals ("nbsp"))   return "\u00A0";
+    if (entity.equals ("laquo"))  return "\u00AB";
+    if (entity.equals ("raquo"))  return "\u00BB";
+    if (entity.equals ("hellip")) return "\u2026";
+    return "&" + entity + ";";
+  }
+}
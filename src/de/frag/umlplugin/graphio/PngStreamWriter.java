@@ -0,0 +1,204 @@
+package de.frag.umlplugin.graphio;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an opaque RGB image as PNG stream row by row, so images of any size can be encoded without holding
+ * all pixels in memory. Rows are written from top to bottom using the "sub" filter. All methods are synchronized,
+ * so rows can be encoded in another thread than the one that disposes the writer.
+ */
+public class PngStreamWriter
+{
+  private static final byte [] SIGNATURE  = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  private static final int     CHUNK_SIZE = 64 * 1024;
+
+  private final OutputStream         stream;
+  private final int                  width;
+  private final int                  height;
+  private final byte []              row;
+  private final Deflater             compressor;
+  private final DeflaterOutputStream deflater;
+  private int                        rowCount;
+
+  /**
+   * Creates a new writer and writes PNG header to given stream.
+   * @param stream target stream; it is not closed by this writer
+   * @param width image width in pixels
+   * @param height image height in pixels
+   * @throws IOException on IO error
+   */
+  public PngStreamWriter (@NotNull OutputStream stream, int width, int height) throws IOException
+  {
+    if (width <= 0 || height <= 0)
+    {
+      throw new IllegalArgumentException ("invalid image size: " + width + "x" + height);
+    }
+    this.stream     = stream;
+    this.width      = width;
+    this.height     = height;
+    this.row        = new byte [1 + 3 * width];
+    this.compressor = new Deflater (Deflater.BEST_SPEED);
+    this.deflater   = new DeflaterOutputStream (new ChunkOutputStream (stream), compressor, CHUNK_SIZE);
+    stream.write (SIGNATURE);
+    byte [] header = new byte [13];
+    writeInt (header, 0, width);
+    writeInt (header, 4, height);
+    header [8]  = 8; // bit depth
+    header [9]  = 2; // color type RGB
+    header [10] = 0; // deflate compression
+    header [11] = 0; // adaptive filtering
+    header [12] = 0; // no interlace
+    writeChunk (stream, "IHDR", header, header.length);
+  }
+
+  /**
+   * Writes next rows of the image. Alpha values of given pixels are ignored.
+   * @param pixels pixels in default RGB color model
+   * @param offset index of first pixel of first row in pixel array
+   * @param scanline distance between rows in pixel array
+   * @param rows number of rows to write
+   * @throws IOException on IO error
+   */
+  public synchronized void writeRows (@NotNull int [] pixels, int offset, int scanline, int rows) throws IOException
+  {
+    if (rowCount + rows > height)
+    {
+      throw new IllegalStateException ("image has only " + height + " rows");
+    }
+    for (int y = 0; y < rows; y++)
+    {
+      int start = offset + y * scanline;
+      row [0] = 1; // sub filter
+      int left = 0;
+      for (int x = 0, index = 1; x < width; x++, index += 3)
+      {
+        int rgb = pixels [start + x];
+        row [index]     = (byte) ((rgb >> 16) - (left >> 16));
+        row [index + 1] = (byte) ((rgb >>  8) - (left >>  8));
+        row [index + 2] = (byte) ( rgb        -  left);
+        left = rgb;
+      }
+      deflater.write (row);
+    }
+    rowCount += rows;
+  }
+
+  /**
+   * Finishes compressed image data and writes end of PNG stream. The target stream is flushed but not closed.
+   * @throws IOException on IO error or if not all rows have been written
+   */
+  public synchronized void finish () throws IOException
+  {
+    if (rowCount != height)
+    {
+      throw new IOException ("only " + rowCount + " of " + height + " rows have been written");
+    }
+    deflater.finish ();
+    deflater.flush ();
+    dispose ();
+    writeChunk (stream, "IEND", new byte [0], 0);
+    stream.flush ();
+  }
+
+  /**
+   * Releases native compressor resources. Called by finish; must be called explicitly if writing is aborted.
+   * Waits until rows that are currently written by another thread are complete.
+   */
+  public synchronized void dispose ()
+  {
+    compressor.end ();
+  }
+
+  /**
+   * Writes a complete chunk to given stream.
+   * @param stream target stream
+   * @param type chunk type
+   * @param data chunk data
+   * @param length number of data bytes
+   * @throws IOException on IO error
+   */
+  private static void writeChunk (@NotNull OutputStream stream, @NotNull String type, @NotNull byte [] data,
+                                  int length) throws IOException
+  {
+    byte [] typeBytes = type.getBytes ("US-ASCII");
+    byte [] buffer = new byte [4];
+    writeInt (buffer, 0, length);
+    stream.write (buffer);
+    stream.write (typeBytes);
+    stream.write (data, 0, length);
+    CRC32 crc = new CRC32 ();
+    crc.update (typeBytes);
+    crc.update (data, 0, length);
+    writeInt (buffer, 0, (int) crc.getValue ());
+    stream.write (buffer);
+  }
+
+  /**
+   * Writes an integer in network byte order.
+   * @param buffer target buffer
+   * @param offset offset in buffer
+   * @param value value to write
+   */
+  private static void writeInt (@NotNull byte [] buffer, int offset, int value)
+  {
+    buffer [offset]     = (byte) (value >>> 24);
+    buffer [offset + 1] = (byte) (value >>> 16);
+    buffer [offset + 2] = (byte) (value >>>  8);
+    buffer [offset + 3] = (byte)  value;
+  }
+
+  /**
+   * Collects compressed data and writes it as IDAT chunks of bounded size.
+   */
+  private static class ChunkOutputStream extends OutputStream
+  {
+    private final OutputStream stream;
+    private final byte []      buffer = new byte [CHUNK_SIZE];
+    private int                length;
+
+    public ChunkOutputStream (@NotNull OutputStream stream)
+    {
+      this.stream = stream;
+    }
+
+    public void write (int b) throws IOException
+    {
+      if (length == buffer.length)
+      {
+        flush ();
+      }
+      buffer [length++] = (byte) b;
+    }
+
+    public void write (@NotNull byte [] data, int offset, int count) throws IOException
+    {
+      while (count > 0)
+      {
+        if (length == buffer.length)
+        {
+          flush ();
+        }
+        int copied = Math.min (count, buffer.length - length);
+        System.arraycopy (data, offset, buffer, length, copied);
+        length += copied;
+        offset += copied;
+        count  -= copied;
+      }
+    }
+
+    public void flush () throws IOException
+    {
+      if (length > 0)
+      {
+        writeChunk (stream, "IDAT", buffer, length);
+        length = 0;
+      }
+    }
+  }
+}
@@ -1,25 +1,50 @@
 package de.frag.umlplugin.graphio;
 
-import com.intellij.openapi.graph.GraphManager;
-import com.intellij.openapi.graph.view.Graph2D;
-import com.intellij.openapi.graph.view.Graph2DView;
-import org.apache.batik.svggen.SVGGraphics2D;
+import com.intellij.openapi.graph.base.DataProvider;
+import com.intellij.openapi.graph.base.Edge;
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.graph.geom.YPoint;
+import com.intellij.openapi.graph.view.*;
+import de.frag.umlplugin.psi.UsageType;
+import de.frag.umlplugin.uml.graph.DataProviderKeys;
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
-import org.w3c.dom.bootstrap.DOMImplementationRegistry;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Writes graphs to SVG documents.
+ * Writes graphs to SVG documents. Nodes, edges, arrows and labels are read from the realizers of the graph and
+ * written as compact SVG elements directly to the target file, so no document model is built in memory.
+ * Elements with equal appearance share a single CSS class that is named after the kind of element; edge classes
+ * are named after the usage type of the edge, if the graph provides usage types of its edges.
  */
 public class SVGGraphWriter implements GraphWriter
 {
+  private static final int    BORDER        = 20;
+  private static final int    BUFFER_SIZE   = 64 * 1024;
+  private static final double CORNER_RADIUS = 5;
+  private static final double SMALL_FONT    = 0.83;
+  private static final double LINE_SPACING  = 1.2;
+
+  private final boolean compressed;
+
+  /**
+   * Creates a new SVG graph writer.
+   * @param compressed true, if written documents should be gzip compressed (SVGZ); false otherwise
+   */
+  public SVGGraphWriter (boolean compressed)
+  {
+    this.compressed = compressed;
+  }
+
   /**
    * Writes given graph to file.
    * @param graph graph to write
@@ -31,48 +56,316 @@ public class SVGGraphWriter implements GraphWriter
   public void writeGraph (@NotNull Graph2D graph, @NotNull String path, boolean saveThumbnail,
                           int thumbnailHeight) throws IOException
   {
-    DOMImplementationRegistry registry = null;
+    Rectangle rectangle = graph.getBoundingBox ();
+    int x      = (int) rectangle.getX ();
+    int y      = (int) rectangle.getY ();
+    int width  = (int) rectangle.getWidth  () + Math.abs (x) + 2 * BORDER;
+    int height = (int) rectangle.getHeight () + Math.abs (y) + 2 * BORDER;
+
+    OutputStream stream = new FileOutputStream (path);
     try
     {
-      registry = DOMImplementationRegistry.newInstance ();
+      if (compressed)
+      {
+        stream = new GZIPOutputStream (stream, BUFFER_SIZE);
+      }
+      Writer writer = new BufferedWriter (new OutputStreamWriter (stream, "UTF-8"), BUFFER_SIZE);
+      SVGStreamWriter svg = new SVGStreamWriter (writer);
+      // all style classes are collected first, so the style sheet can precede the elements
+      write (graph, svg, false);
+      svg.startDocument (x - BORDER, y - BORDER, width, height);
+      write (graph, svg, true);
+      svg.endDocument ();
+    }
+    finally
+    {
+      stream.close ();
+    }
+  }
+
+  /**
+   * Walks all visible nodes and edges of given graph. Edges are written after nodes, so arrow heads are not
+   * hidden by node fills.
+   * @param graph graph to write
+   * @param svg SVG writer
+   * @param write true, if elements should be written; false, if style classes should only be registered
+   * @throws IOException on IO error
+   */
+  private void write (@NotNull Graph2D graph, @NotNull SVGStreamWriter svg, boolean write) throws IOException
+  {
+    DataProvider usageTypes = graph.getDataProvider (DataProviderKeys.DEPENDENCY_INFO_EDGE_KEY);
+    for (Node node : graph.getNodeArray ())
+    {
+      NodeRealizer realizer = graph.getRealizer (node);
+      if (realizer.isVisible ())
+      {
+        writeNode (svg, realizer, write);
+      }
+    }
+    for (Edge edge : graph.getEdgeArray ())
+    {
+      EdgeRealizer realizer = graph.getRealizer (edge);
+      if (realizer.isVisible ())
+      {
+        Object usageType = usageTypes != null ? usageTypes.get (edge) : null;
+        writeEdge (svg, realizer, usageType instanceof UsageType ? (UsageType) usageType : null, write);
+      }
+    }
+  }
+
+  /**
+   * Writes a single node with its label.
+   * @param svg SVG writer
+   * @param realizer node realizer
+   * @param write true, if elements should be written; false, if style classes should only be registered
+   * @throws IOException on IO error
+   */
+  private void writeNode (@NotNull SVGStreamWriter svg, @NotNull NodeRealizer realizer, boolean write)
+    throws IOException
+  {
+    String fill = SVGStreamWriter.formatColor (realizer.getFillColor ());
+    String styleClass = svg.getStyleClass ("node", "fill:" + fill + ";" +
+                                                   formatStroke (realizer.getLineColor (), realizer.getLineType ()));
+    double x      = realizer.getX ();
+    double y      = realizer.getY ();
+    double width  = realizer.getWidth ();
+    double height = realizer.getHeight ();
+    if (write)
+    {
+      byte shapeType = realizer instanceof ShapeNodeRealizer ? ((ShapeNodeRealizer) realizer).getShapeType () :
+                       ShapeNodeRealizer.RECT;
+      if (shapeType == ShapeNodeRealizer.ELLIPSE)
+      {
+        svg.ellipse (x, y, width, height, styleClass);
+      }
+      else
+      {
+        svg.rect (x, y, width, height, shapeType == ShapeNodeRealizer.ROUND_RECT ? CORNER_RADIUS : 0, styleClass);
+      }
+    }
+    if (realizer.labelCount () > 0)
+    {
+      writeLabel (svg, realizer.getLabel (), x, width, realizer.getLineColor (), write);
+    }
+  }
+
+  /**
+   * Writes a single edge with its labels. Arrows are written as markers in the color of the edge.
+   * @param svg SVG writer
+   * @param realizer edge realizer
+   * @param usageType usage type of edge or null, if it is unknown
+   * @param write true, if elements should be written; false, if style classes should only be registered
+   * @throws IOException on IO error
+   */
+  private void writeEdge (@NotNull SVGStreamWriter svg, @NotNull EdgeRealizer realizer, @Nullable UsageType usageType,
+                          boolean write) throws IOException
+  {
+    Color color = realizer.getLineColor ();
+    StringBuilder style = new StringBuilder ("fill:none;");
+    style.append (formatStroke (color, realizer.getLineType ()));
+    SVGStreamWriter.Marker sourceMarker = getMarker (realizer.getSourceArrow ());
+    SVGStreamWriter.Marker targetMarker = getMarker (realizer.getTargetArrow ());
+    if (sourceMarker != null)
+    {
+      style.append (";marker-start:").append (svg.getMarkerReference (sourceMarker, color, true));
     }
-    catch (Exception e)
+    if (targetMarker != null)
     {
-      e.printStackTrace ();
+      style.append (";marker-end:").append (svg.getMarkerReference (targetMarker, color, false));
     }
-    if (registry != null)
+    String name = usageType != null ? usageType.name ().toLowerCase ().replace ('_', '-') : "edge";
+    String styleClass = svg.getStyleClass (name, style.toString ());
+    if (write)
     {
-      DOMImplementation dom = registry.getDOMImplementation ("");
-      if (dom != null)
+      int bendCount = realizer.bendCount ();
+      double [] points = new double [2 * (bendCount + 2)];
+      YPoint source = realizer.getSourceIntersection ();
+      YPoint target = realizer.getTargetIntersection ();
+      points [0] = source.getX ();
+      points [1] = source.getY ();
+      for (int i = 0; i < bendCount; i++)
       {
-        final int border = 20;
-        Rectangle rectangle = graph.getBoundingBox ();
-        int x      = (int) rectangle.getX ();
-        int y      = (int) rectangle.getY ();
-        int width  = (int) rectangle.getWidth  () + Math.abs (x) + 2 * border;
-        int height = (int) rectangle.getHeight () + Math.abs (y) + 2 * border;
-
-        String svgNS = "http://www.w3.org/2000/svg";
-        Document document = dom.createDocument (svgNS, "svg", null);
-        SVGGraphics2D graphics = new SVGGraphics2D (document);
-        graphics.setSVGCanvasSize (new Dimension (width, height));
-
-        GraphManager graphManager = GraphManager.getGraphManager ();
-        Graph2DView imageView = graphManager.createGraph2DView (graph);
-        imageView.setAntialiasedPainting (true);
-//        imageView.setSecureDrawingMode   (true); //TODO
-        imageView.setBounds              (0, 0, width, height);
-        imageView.setViewPoint           (x - border, y - border);
-        imageView.paintVisibleContent    (graphics);
-        graph.removeView                 (imageView);
-
-        boolean useCSS = true;
-        FileOutputStream fos = new FileOutputStream (path);
-        Writer writer = new OutputStreamWriter (fos, "UTF-8");
-        graphics.stream (writer, useCSS);
-        writer.close ();
-        fos.close ();
+        Bend bend = realizer.getBend (i);
+        points [2 * i + 2] = bend.getX ();
+        points [2 * i + 3] = bend.getY ();
       }
+      points [points.length - 2] = target.getX ();
+      points [points.length - 1] = target.getY ();
+      svg.polyline (points, bendCount + 2, styleClass);
+    }
+    for (int i = 0; i < realizer.labelCount (); i++)
+    {
+      EdgeLabel label = realizer.getLabel (i);
+      writeLabel (svg, label, label.getLocation ().getX (), label.getWidth (), realizer.getLineColor (), write);
+    }
+  }
+
+  /**
+   * Writes all lines of a label. Lines are centered vertically within the label bounds; compartment separators
+   * span the given horizontal range.
+   * @param svg SVG writer
+   * @param label label to write
+   * @param separatorX x coordinate of compartment separators
+   * @param separatorWidth width of compartment separators
+   * @param separatorColor color of compartment separators
+   * @param write true, if elements should be written; false, if style classes should only be registered
+   * @throws IOException on IO error
+   */
+  private void writeLabel (@NotNull SVGStreamWriter svg, @NotNull YLabel label, double separatorX,
+                           double separatorWidth, @Nullable Color separatorColor, boolean write) throws IOException
+  {
+    String text = label.getText ();
+    if (text == null || text.length () == 0 || !label.isVisible ())
+    {
+      return;
+    }
+    List<LabelText.Line> lines = LabelText.parse (text);
+    Font font = label.getFont ();
+    double fontSize = font.getSize2D ();
+    String fontStyle = "font-family:" + formatFontFamily (font) + (font.isBold () ? ";font-weight:bold" : "") +
+                       ";fill:" + SVGStreamWriter.formatColor (label.getTextColor ());
+    double labelX = label.getLocation ().getX ();
+    double labelY = label.getLocation ().getY ();
+    double textHeight = 0;
+    for (LabelText.Line line : lines)
+    {
+      textHeight += line.isSeparator () ? 1 : getFontSize (line, fontSize) * LINE_SPACING;
+    }
+    Color background = label.getBackgroundColor ();
+    if (background != null)
+    {
+      String backgroundClass = svg.getStyleClass ("label-background",
+                                                  "fill:" + SVGStreamWriter.formatColor (background));
+      if (write)
+      {
+        svg.rect (labelX, labelY, label.getWidth (), label.getHeight (), 0, backgroundClass);
+      }
+    }
+    double y = labelY + (label.getHeight () - textHeight) / 2;
+    String separatorClass = null;
+    for (LabelText.Line line : lines)
+    {
+      if (line.isSeparator ())
+      {
+        if (separatorClass == null)
+        {
+          separatorClass = svg.getStyleClass ("separator", "fill:none;" + formatStroke (separatorColor, null));
+        }
+        if (write)
+        {
+          svg.polyline (new double [] {separatorX, y + 0.5, separatorX + separatorWidth, y + 0.5}, 2, separatorClass);
+        }
+        y += 1;
+      }
+      else
+      {
+        double size = getFontSize (line, fontSize);
+        String lineClass = svg.getStyleClass ("label", fontStyle + ";font-size:" + Math.round (size * 10) / 10.0 +
+                                                       (line.isItalic ()     ? ";font-style:italic"         : "") +
+                                                       (line.isUnderlined () ? ";text-decoration:underline" : ""));
+        y += size * LINE_SPACING;
+        if (write)
+        {
+          double x = line.isCentered () ? labelX + label.getWidth () / 2 : labelX;
+          // base line is placed above the descent of the line
+          svg.text (x, y - size * (LINE_SPACING - 0.9), line.isCentered (), line.getText (), lineClass);
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes font size for given line.
+   * @param line label line
+   * @param fontSize font size of label
+   * @return font size of line
+   */
+  private double getFontSize (@NotNull LabelText.Line line, double fontSize)
+  {
+    return line.isSmall () ? fontSize * SMALL_FONT : fontSize;
+  }
+
+  /**
+   * Formats font family of given font. Logical Java font names are replaced by generic CSS font families.
+   * @param font font
+   * @return CSS font family
+   */
+  private @NotNull String formatFontFamily (@NotNull Font font)
+  {
+    String family = font.getFamily ();
+    if (family.equals (Font.DIALOG) || family.equals (Font.DIALOG_INPUT) || family.equals (Font.SANS_SERIF))
+    {
+      return "sans-serif";
+    }
+    else if (family.equals (Font.SERIF))
+    {
+      return "serif";
+    }
+    else if (family.equals (Font.MONOSPACED))
+    {
+      return "monospace";
+    }
+    return "'" + family + "'";
+  }
+
+  /**
+   * Formats CSS declarations for given line color and type.
+   * @param color line color or null for no line
+   * @param lineType line type or null for a solid line of width 1
+   * @return formatted CSS declarations
+   */
+  private @NotNull String formatStroke (@Nullable Color color, @Nullable LineType lineType)
+  {
+    StringBuilder builder = new StringBuilder ("stroke:").append (SVGStreamWriter.formatColor (color));
+    if (lineType != null)
+    {
+      if (lineType.getLineWidth () != 1)
+      {
+        builder.append (";stroke-width:").append (lineType.getLineWidth ());
+      }
+      float [] dashes = lineType.getDashArray ();
+      if (dashes != null && dashes.length > 0)
+      {
+        builder.append (";stroke-dasharray:");
+        for (int i = 0; i < dashes.length; i++)
+        {
+          builder.append (i > 0 ? "," : "").append (dashes [i]);
+        }
+      }
+    }
+    return builder.toString ();
+  }
+
+  /**
+   * Gets marker for given arrow.
+   * @param arrow arrow
+   * @return marker or null, if no arrow head should be painted
+   */
+  private @Nullable SVGStreamWriter.Marker getMarker (@NotNull Arrow arrow)
+  {
+    if (arrow == Arrow.WHITE_DELTA)
+    {
+      return SVGStreamWriter.Marker.WHITE_DELTA;
+    }
+    else if (arrow == Arrow.DELTA || arrow == Arrow.STANDARD)
+    {
+      return SVGStreamWriter.Marker.DELTA;
+    }
+    else if (arrow == Arrow.DIAMOND)
+    {
+      return SVGStreamWriter.Marker.DIAMOND;
+    }
+    else if (arrow == Arrow.WHITE_DIAMOND)
+    {
+      return SVGStreamWriter.Marker.WHITE_DIAMOND;
+    }
+    else if (arrow.getCustomName () != null && arrow.getCustomName ().equals ("angle"))
+    {
+      return SVGStreamWriter.Marker.ANGLE;
+    }
+    else
+    {
+      return null;
     }
   }
 
@@ -0,0 +1,340 @@
+package de.frag.umlplugin.graphio;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes SVG elements directly to a character stream. Presentation attributes are not repeated for every element;
+ * instead every distinct style is registered once and written as shared CSS class into the style sheet of the
+ * document. Markers are registered the same way, once for every color and direction they are used with.
+ * Coordinates are written with one decimal place at most.
+ */
+public class SVGStreamWriter
+{
+  /** Arrow heads that can be used as start or end markers of paths. */
+  public enum Marker
+  {
+    DELTA         ("M-12,-5 L0,0 L-12,5 Z",   "%1$s", "none", true),
+    WHITE_DELTA   ("M-12,-6 L0,0 L-12,6 Z",   "#fff", "%1$s", true),
+    DIAMOND       ("M0,0 L8,-4 L16,0 L8,4 Z", "%1$s", "none", false),
+    WHITE_DIAMOND ("M0,0 L8,-4 L16,0 L8,4 Z", "#fff", "%1$s", false),
+    ANGLE         ("M-8,-5 L0,0 L-8,5",       "none", "%1$s", true);
+
+    private final String  path;
+    private final String  fill;
+    private final String  stroke;
+    private final boolean pointsForward;
+
+    /**
+     * Creates a marker.
+     * @param path path data of marker shape; the point 0,0 is placed at the end of the marked path
+     * @param fill fill color; "%1$s" is replaced by the color of the marked path
+     * @param stroke stroke color; "%1$s" is replaced by the color of the marked path
+     * @param pointsForward true, if shape points along the direction of the path, so it fits the path end;
+     *                      false, if it fits the path start
+     */
+    private Marker (@NotNull String path, @NotNull String fill, @NotNull String stroke, boolean pointsForward)
+    {
+      this.path          = path;
+      this.fill          = fill;
+      this.stroke        = stroke;
+      this.pointsForward = pointsForward;
+    }
+  }
+
+  private final Writer              writer;
+  private final Map<String, String> styleClasses = new LinkedHashMap<String, String> ();
+  private final Set<String>         classNames   = new HashSet<String> ();
+  private final Map<String, String> markers      = new LinkedHashMap<String, String> ();
+
+  /**
+   * Creates a new SVG writer.
+   * @param writer target writer; should be buffered, since elements are written in many small pieces
+   */
+  public SVGStreamWriter (@NotNull Writer writer)
+  {
+    this.writer = writer;
+  }
+
+  /**
+   * Registers given CSS declarations as shared style class. The class is named after the kind of element it is
+   * used for; if elements of the same kind have different styles, e.g. edges of different colors, further classes
+   * get a numeric suffix. All styles must be registered before {@link #startDocument} is called.
+   * @param name name of style class, for example the usage type of an edge; must be a valid CSS identifier
+   * @param declarations CSS declarations, for example "fill:#ff0000;stroke:none"
+   * @return name of style class for given declarations
+   */
+  public @NotNull String getStyleClass (@NotNull String name, @NotNull String declarations)
+  {
+    String key = name + '{' + declarations;
+    String styleClass = styleClasses.get (key);
+    if (styleClass == null)
+    {
+      styleClass = name;
+      for (int suffix = 2; !classNames.add (styleClass); suffix++)
+      {
+        styleClass = name + "-" + suffix;
+      }
+      styleClasses.put (key, styleClass);
+    }
+    return styleClass;
+  }
+
+  /**
+   * Registers given marker for given color and position and gets a reference that can be used in marker-start and
+   * marker-end properties. Markers that are used at the other end of a path than they are designed for are
+   * registered as rotated copies, since orientation 'auto' aligns markers with the path direction at both ends.
+   * All markers must be registered before {@link #startDocument} is called.
+   * @param marker marker shape
+   * @param color color of the marked path or null for no color
+   * @param start true, if marker is placed at the start of a path; false, if it is placed at its end
+   * @return marker reference
+   */
+  public @NotNull String getMarkerReference (@NotNull Marker marker, @Nullable Color color, boolean start)
+  {
+    String colorValue = formatColor (color);
+    boolean reversed = start == marker.pointsForward;
+    String id = marker.name ().toLowerCase () + "-" +
+                (color != null ? Integer.toHexString (color.getRGB ()) : "none") + (reversed ? "-reversed" : "");
+    if (!markers.containsKey (id))
+    {
+      markers.put (id, "<path d='" + marker.path + "' fill='" + String.format (marker.fill, colorValue) +
+                       "' stroke='" + String.format (marker.stroke, colorValue) + "'" +
+                       (reversed ? " transform='rotate(180)'" : "") + "/>");
+    }
+    return "url(#" + id + ")";
+  }
+
+  /**
+   * Writes document start, marker definitions and style sheet with all registered style classes.
+   * @param x x coordinate of upper left corner of visible area
+   * @param y y coordinate of upper left corner of visible area
+   * @param width width of visible area
+   * @param height height of visible area
+   * @throws IOException on IO error
+   */
+  public void startDocument (double x, double y, double width, double height) throws IOException
+  {
+    writer.write ("<?xml version='1.0' encoding='UTF-8'?>\n");
+    writer.write ("<svg xmlns='http://www.w3.org/2000/svg' version='1.1' width='");
+    writeNumber (width);
+    writer.write ("' height='");
+    writeNumber (height);
+    writer.write ("' viewBox='");
+    writeNumber (x);
+    writer.write (' ');
+    writeNumber (y);
+    writer.write (' ');
+    writeNumber (width);
+    writer.write (' ');
+    writeNumber (height);
+    writer.write ("'>\n<defs>\n");
+    for (Map.Entry<String, String> entry : markers.entrySet ())
+    {
+      writer.write ("<marker id='");
+      writer.write (entry.getKey ());
+      writer.write ("' markerUnits='userSpaceOnUse' orient='auto' overflow='visible'>");
+      writer.write (entry.getValue ());
+      writer.write ("</marker>\n");
+    }
+    writer.write ("<style type='text/css'><![CDATA[\n");
+    for (Map.Entry<String, String> entry : styleClasses.entrySet ())
+    {
+      writer.write ('.');
+      writer.write (entry.getValue ());
+      // key consists of class name and declarations separated by the opening brace
+      writer.write (entry.getKey ().substring (entry.getKey ().indexOf ('{')));
+      writer.write ("}\n");
+    }
+    writer.write ("]]></style>\n</defs>\n");
+  }
+
+  /**
+   * Writes end of document and flushes writer.
+   * @throws IOException on IO error
+   */
+  public void endDocument () throws IOException
+  {
+    writer.write ("</svg>\n");
+    writer.flush ();
+  }
+
+  /**
+   * Writes a rectangle.
+   * @param x x coordinate of upper left corner
+   * @param y y coordinate of upper left corner
+   * @param width width
+   * @param height height
+   * @param radius corner radius or 0 for sharp corners
+   * @param styleClass style class
+   * @throws IOException on IO error
+   */
+  public void rect (double x, double y, double width, double height, double radius, @NotNull String styleClass)
+    throws IOException
+  {
+    writer.write ("<rect class='");
+    writer.write (styleClass);
+    writer.write ("' x='");
+    writeNumber (x);
+    writer.write ("' y='");
+    writeNumber (y);
+    writer.write ("' width='");
+    writeNumber (width);
+    writer.write ("' height='");
+    writeNumber (height);
+    if (radius > 0)
+    {
+      writer.write ("' rx='");
+      writeNumber (radius);
+    }
+    writer.write ("'/>\n");
+  }
+
+  /**
+   * Writes an ellipse that fills the given bounds.
+   * @param x x coordinate of upper left corner of bounds
+   * @param y y coordinate of upper left corner of bounds
+   * @param width width of bounds
+   * @param height height of bounds
+   * @param styleClass style class
+   * @throws IOException on IO error
+   */
+  public void ellipse (double x, double y, double width, double height, @NotNull String styleClass)
+    throws IOException
+  {
+    writer.write ("<ellipse class='");
+    writer.write (styleClass);
+    writer.write ("' cx='");
+    writeNumber (x + width / 2);
+    writer.write ("' cy='");
+    writeNumber (y + height / 2);
+    writer.write ("' rx='");
+    writeNumber (width / 2);
+    writer.write ("' ry='");
+    writeNumber (height / 2);
+    writer.write ("'/>\n");
+  }
+
+  /**
+   * Writes an open polyline.
+   * @param points alternating x and y coordinates
+   * @param pointCount number of points
+   * @param styleClass style class
+   * @throws IOException on IO error
+   */
+  public void polyline (@NotNull double [] points, int pointCount, @NotNull String styleClass) throws IOException
+  {
+    writer.write ("<polyline class='");
+    writer.write (styleClass);
+    writer.write ("' points='");
+    for (int i = 0; i < pointCount; i++)
+    {
+      if (i > 0)
+      {
+        writer.write (' ');
+      }
+      writeNumber (points [2 * i]);
+      writer.write (',');
+      writeNumber (points [2 * i + 1]);
+    }
+    writer.write ("'/>\n");
+  }
+
+  /**
+   * Writes a single line of text.
+   * @param x x coordinate of anchor point
+   * @param y y coordinate of base line
+   * @param centered true, if text is centered at anchor point; false, if text starts at anchor point
+   * @param text text to write
+   * @param styleClass style class
+   * @throws IOException on IO error
+   */
+  public void text (double x, double y, boolean centered, @NotNull String text, @NotNull String styleClass)
+    throws IOException
+  {
+    writer.write ("<text class='");
+    writer.write (styleClass);
+    writer.write ("' x='");
+    writeNumber (x);
+    writer.write ("' y='");
+    writeNumber (y);
+    if (centered)
+    {
+      writer.write ("' text-anchor='middle");
+    }
+    writer.write ("'>");
+    writeEscaped (text);
+    writer.write ("</text>\n");
+  }
+
+  /**
+   * Formats given color as CSS color value.
+   * @param color color to format or null for no color
+   * @return CSS color value
+   */
+  public static @NotNull String formatColor (@Nullable Color color)
+  {
+    if (color == null || color.getAlpha () == 0)
+    {
+      return "none";
+    }
+    String hex = Integer.toHexString (0x1000000 | (color.getRGB () & 0xFFFFFF)).substring (1);
+    if (color.getAlpha () == 255)
+    {
+      return "#" + hex;
+    }
+    return "rgba(" + color.getRed () + "," + color.getGreen () + "," + color.getBlue () + "," +
+           Math.round (color.getAlpha () / 2.55) / 100.0 + ")";
+  }
+
+  /**
+   * Writes a number with at most one decimal place.
+   * @param value number to write
+   * @throws IOException on IO error
+   */
+  private void writeNumber (double value) throws IOException
+  {
+    long tenths = Math.round (value * 10);
+    if (tenths < 0)
+    {
+      writer.write ('-');
+      tenths = -tenths;
+    }
+    writer.write (Long.toString (tenths / 10));
+    if (tenths % 10 != 0)
+    {
+      writer.write ('.');
+      writer.write ((char) ('0' + tenths % 10));
+    }
+  }
+
+  /**
+   * Writes text with XML special characters escaped.
+   * @param text text to write
+   * @throws IOException on IO error
+   */
+  private void writeEscaped (@NotNull String text) throws IOException
+  {
+    for (int i = 0; i < text.length (); i++)
+    {
+      char c = text.charAt (i);
+      switch (c)
+      {
+        case '<':  writer.write ("&lt;");   break;
+        case '>':  writer.write ("&gt;");   break;
+        case '&':  writer.write ("&amp;");  break;
+        case '\'': writer.write ("&apos;"); break;
+        case '"':  writer.write ("&quot;"); break;
+        default:   writer.write (c);
+      }
+    }
+  }
+}
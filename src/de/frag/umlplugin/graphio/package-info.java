@@ -1,7 +1,7 @@
 /**
  * <style type="text/css">a:link img {border: none;vertical-align:top;} a:visited img {border: none;vertical-align:top;}</style>
- * <p>General graph I/O classes are contained in this package. Graphs can be stored as images (GIF, PNG, JPEG)
- * or as SVG vector graphic files.</p>
+ * <p>General graph I/O classes are contained in this package. Graphs can be stored as images (GIF, PNG, JPEG),
+ * as SVG vector graphic files, optionally gzip compressed (SVGZ), or as Graphml files.</p>
  * <p>This static class diagram shows the graph IO classes and their relations:
  * <a href="doc-files/graphio.png" target="_blank"><img src="doc-files/graphio_thumb.png" alt="UML diagram"/></a>.</p>
  */
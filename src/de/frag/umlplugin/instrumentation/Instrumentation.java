@@ -0,0 +1,193 @@
+package de.frag.umlplugin.instrumentation;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records named timers and counters of analysis and rendering stages. Instrumentation is disabled by default;
+ * while it is disabled, timers and counters only check a single flag, so instrumented code does not slow down.
+ * Usage:
+ * <pre>
+ *   long start = Instrumentation.start ();
+ *   ...
+ *   Instrumentation.stop ("stage", start);
+ * </pre>
+ */
+public class Instrumentation
+{
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private static final ConcurrentMap<String, Statistic> timers   = new ConcurrentHashMap<String, Statistic> ();
+  private static final ConcurrentMap<String, Statistic> counters = new ConcurrentHashMap<String, Statistic> ();
+  private static volatile boolean                       enabled;
+
+  private Instrumentation () {}
+
+  /**
+   * Enables or disables instrumentation. Already recorded statistics are kept.
+   * @param enabled true, if timers and counters should be recorded; false otherwise
+   */
+  public static void setEnabled (boolean enabled)
+  {
+    Instrumentation.enabled = enabled;
+  }
+
+  /**
+   * Checks whether instrumentation is enabled.
+   * @return true, if timers and counters are recorded; false otherwise
+   */
+  public static boolean isEnabled ()
+  {
+    return enabled;
+  }
+
+  /**
+   * Starts a timer.
+   * @return start time that must be passed to {@link #stop} or 0, if instrumentation is disabled
+   */
+  public static long start ()
+  {
+    return enabled ? System.nanoTime () : 0;
+  }
+
+  /**
+   * Stops a timer and records elapsed time.
+   * @param name name of timer
+   * @param startTime start time returned by {@link #start}
+   */
+  public static void stop (@NotNull String name, long startTime)
+  {
+    if (startTime != 0 && enabled)
+    {
+      getStatistic (timers, name).record (System.nanoTime () - startTime);
+    }
+  }
+
+  /**
+   * Records a counter value, e.g. the number of processed classes of a single run.
+   * @param name name of counter
+   * @param value counted value
+   */
+  public static void count (@NotNull String name, long value)
+  {
+    if (enabled)
+    {
+      getStatistic (counters, name).record (value);
+    }
+  }
+
+  /**
+   * Gets statistic of given timer.
+   * @param name name of timer
+   * @return statistic or null, if timer was never stopped
+   */
+  public static @Nullable Statistic getTimer (@NotNull String name)
+  {
+    return timers.get (name);
+  }
+
+  /**
+   * Gets statistic of given counter.
+   * @param name name of counter
+   * @return statistic or null, if counter was never recorded
+   */
+  public static @Nullable Statistic getCounter (@NotNull String name)
+  {
+    return counters.get (name);
+  }
+
+  /**
+   * Discards all recorded statistics.
+   */
+  public static void reset ()
+  {
+    timers.clear ();
+    counters.clear ();
+  }
+
+  /**
+   * Creates a textual report of all recorded timers and counters including histograms.
+   * @return report
+   */
+  public static @NotNull String createReport ()
+  {
+    StringBuilder builder = new StringBuilder ();
+    builder.append (String.format ("Timers%n======%n"));
+    for (Statistic statistic : sort (timers))
+    {
+      statistic.appendReport (builder, NANOS_PER_MILLI, "ms");
+    }
+    builder.append (String.format ("%nCounters%n========%n"));
+    for (Statistic statistic : sort (counters))
+    {
+      statistic.appendReport (builder, 1, "");
+    }
+    return builder.toString ();
+  }
+
+  /**
+   * Writes report of all recorded timers and counters to given file.
+   * @param file target file
+   * @throws IOException on IO error
+   */
+  public static void writeReport (@NotNull File file) throws IOException
+  {
+    Writer writer = new OutputStreamWriter (new FileOutputStream (file), "UTF-8");
+    try
+    {
+      writer.write (createReport ());
+    }
+    finally
+    {
+      writer.close ();
+    }
+  }
+
+  /**
+   * Gets statistic with given name. Missing statistics are created.
+   * @param statistics timers or counters
+   * @param name name of statistic
+   * @return existing or new statistic
+   */
+  private static @NotNull Statistic getStatistic (@NotNull ConcurrentMap<String, Statistic> statistics,
+                                                  @NotNull String name)
+  {
+    Statistic statistic = statistics.get (name);
+    if (statistic == null)
+    {
+      Statistic newStatistic = new Statistic (name);
+      statistic = statistics.putIfAbsent (name, newStatistic);
+      if (statistic == null)
+      {
+        statistic = newStatistic;
+      }
+    }
+    return statistic;
+  }
+
+  /**
+   * Sorts given statistics by name.
+   * @param statistics timers or counters
+   * @return sorted statistics
+   */
+  private static @NotNull List<Statistic> sort (@NotNull ConcurrentMap<String, Statistic> statistics)
+  {
+    List<Statistic> sorted = new ArrayList<Statistic> (statistics.values ());
+    Collections.sort (sorted, new Comparator<Statistic> ()
+    {
+      public int compare (Statistic statistic1, Statistic statistic2)
+      {
+        return statistic1.getName ().compareTo (statistic2.getName ());
+      }
+    });
+    return sorted;
+  }
+}
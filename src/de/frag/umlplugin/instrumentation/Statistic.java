@@ -0,0 +1,167 @@
+package de.frag.umlplugin.instrumentation;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Statistic of recorded values of a single timer or counter. Values are summarized by count, sum, minimum and
+ * maximum and are collected in a histogram whose buckets are powers of two.
+ */
+public class Statistic
+{
+  private static final int BUCKET_COUNT = 64;
+
+  private final String  name;
+  private final long [] buckets = new long [BUCKET_COUNT];
+  private long          count;
+  private long          sum;
+  private long          min     = Long.MAX_VALUE;
+  private long          max     = Long.MIN_VALUE;
+
+  /**
+   * Creates a new empty statistic.
+   * @param name name of timer or counter
+   */
+  public Statistic (@NotNull String name)
+  {
+    this.name = name;
+  }
+
+  /**
+   * Records a single value.
+   * @param value value to record (negative values are recorded as zero)
+   */
+  public synchronized void record (long value)
+  {
+    value = Math.max (value, 0);
+    count++;
+    sum += value;
+    min = Math.min (min, value);
+    max = Math.max (max, value);
+    buckets [getBucket (value)]++;
+  }
+
+  /**
+   * Gets histogram bucket of given value. Bucket b contains all values from 2^(b-1) to 2^b - 1, bucket 0 contains
+   * only zero.
+   * @param value non negative value
+   * @return bucket index
+   */
+  static int getBucket (long value)
+  {
+    return BUCKET_COUNT - Long.numberOfLeadingZeros (value);
+  }
+
+  /**
+   * Gets lower bound of given histogram bucket.
+   * @param bucket bucket index
+   * @return smallest value contained in bucket
+   */
+  static long getBucketLowerBound (int bucket)
+  {
+    return bucket == 0 ? 0 : 1L << (bucket - 1);
+  }
+
+  /**
+   * Gets name of timer or counter.
+   * @return name
+   */
+  public @NotNull String getName ()
+  {
+    return name;
+  }
+
+  /**
+   * Gets number of recorded values.
+   * @return number of values
+   */
+  public synchronized long getCount ()
+  {
+    return count;
+  }
+
+  /**
+   * Gets sum of all recorded values.
+   * @return sum of values
+   */
+  public synchronized long getSum ()
+  {
+    return sum;
+  }
+
+  /**
+   * Gets smallest recorded value.
+   * @return smallest value or 0, if no value was recorded
+   */
+  public synchronized long getMin ()
+  {
+    return count > 0 ? min : 0;
+  }
+
+  /**
+   * Gets largest recorded value.
+   * @return largest value or 0, if no value was recorded
+   */
+  public synchronized long getMax ()
+  {
+    return count > 0 ? max : 0;
+  }
+
+  /**
+   * Gets number of recorded values in given histogram bucket.
+   * @param bucket bucket index
+   * @return number of values
+   */
+  public synchronized long getBucketCount (int bucket)
+  {
+    return buckets [bucket];
+  }
+
+  /**
+   * Discards all recorded values, so the next run starts with an empty histogram.
+   */
+  public synchronized void reset ()
+  {
+    Arrays.fill (buckets, 0);
+    count = 0;
+    sum   = 0;
+    min   = Long.MAX_VALUE;
+    max   = Long.MIN_VALUE;
+  }
+
+  /**
+   * Appends a textual summary and histogram of this statistic to given builder.
+   * @param builder builder to append report to
+   * @param unitDivisor divisor that converts recorded values to reported unit
+   * @param unit name of reported unit
+   */
+  synchronized void appendReport (@NotNull StringBuilder builder, double unitDivisor, @NotNull String unit)
+  {
+    builder.append (name).append (": count=").append (count);
+    builder.append (String.format (", total=%.3f%s, mean=%.3f%s, min=%.3f%s, max=%.3f%s%n",
+                                   sum / unitDivisor, unit,
+                                   count > 0 ? sum / unitDivisor / count : 0.0, unit,
+                                   getMin () / unitDivisor, unit,
+                                   getMax () / unitDivisor, unit));
+    long maxBucketCount = 0;
+    for (long bucketCount : buckets)
+    {
+      maxBucketCount = Math.max (maxBucketCount, bucketCount);
+    }
+    for (int b = 0; b < BUCKET_COUNT; b++)
+    {
+      if (buckets [b] > 0)
+      {
+        int barLength = (int) Math.max (1, 40 * buckets [b] / maxBucketCount);
+        builder.append (String.format ("  >= %12.3f%s %8d ", getBucketLowerBound (b) / unitDivisor, unit,
+                                       buckets [b]));
+        for (int i = 0; i < barLength; i++)
+        {
+          builder.append ('#');
+        }
+        builder.append (String.format ("%n"));
+      }
+    }
+  }
+}
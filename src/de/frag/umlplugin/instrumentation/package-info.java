@@ -0,0 +1,5 @@
+/**
+ * Classes for recording timing statistics and counters of analysis and rendering stages are contained in this
+ * package.
+ */
+package de.frag.umlplugin.instrumentation;
@@ -1,20 +1,21 @@
 package de.frag.umlplugin.psi;
 
-//import com.intellij.codeInsight.TestUtil;
-import com.intellij.ide.DataManager;
-import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.roots.ContentIterator;
+import com.intellij.openapi.roots.FileIndex;
+import com.intellij.openapi.roots.ModuleFileIndex;
+import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.PsiSearchScopeUtil;
-import com.intellij.psi.search.SearchScope;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,6 +23,8 @@ import java.util.List;
  */
 public class ClassFinder
 {
+  public static final int DEFAULT_CHUNK_SIZE = 100;
+
   /**
    * Finds psi class for given qualified class name.
    * @param project current project
@@ -37,166 +40,118 @@ public class ClassFinder
   }
 
   /**
-   * Finds all classes for given data context.
-   * @param project current project
-   * @param searchScope search scope that will be used to limit found classes
-   * @return list of all found classes
-   */
-  public static @NotNull List<PsiClass> findAllClassesForContext (@NotNull Project project,
-                                                                  @NotNull SearchScope searchScope)
-  {
-    final ProjectRootManager rootManager = ProjectRootManager.getInstance (project);
-    final PsiManager psiManager = PsiManager.getInstance (project);
-    final VirtualFile [] directories = rootManager.getContentSourceRoots ();
-    return findAllClasses (directories, psiManager, searchScope);
-  }
-
-  /**
-   * Finds all classes in given directories.
-   * @param directories directories to search
-   * @param psiManager PSI manager
-   * @param searchScope search scope that will be used to limit found classes
-   * @return list of found classes
+   * Enumerates all top level classes in source files of given module. Found classes are passed to given
+   * consumer in chunks.
+   * @param module module to enumerate classes of
+   * @param chunkSize maximum number of classes per chunk
+   * @param consumer consumer that will receive chunks of found classes
+   * @return true, if all classes were enumerated; false, if consumer stopped enumeration
    */
-  private static @NotNull List<PsiClass> findAllClasses (@NotNull VirtualFile [] directories,
-                                                         @NotNull PsiManager psiManager,
-                                                         @NotNull SearchScope searchScope)
+  public static boolean processAllClasses (@NotNull Module module, int chunkSize, @NotNull final ClassConsumer consumer)
   {
-    List<PsiClass> result = new ArrayList<PsiClass> ();
-    for (VirtualFile directory : directories)
+    long start = Instrumentation.start ();
+    ModuleFileIndex fileIndex = ModuleRootManager.getInstance (module).getFileIndex ();
+    PsiManager psiManager = PsiManager.getInstance (module.getProject ());
+    final int [] found = new int [1];
+    boolean completed = processAllClasses (fileIndex, psiManager, chunkSize, new ClassConsumer ()
     {
-      final PsiDirectory psiDirectory = psiManager.findDirectory (directory);
-      if (psiDirectory != null)
+      public boolean consume (@NotNull List<PsiClass> classes)
       {
-        addAllClasses (psiDirectory, result, searchScope);
+        found [0] += classes.size ();
+        return consumer.consume (classes);
       }
-    }
-    return result;
+    });
+    // includes the time spent by the consumer, since classes are processed while files are enumerated
+    Instrumentation.stop ("ClassFinder.processAllClasses", start);
+    Instrumentation.count ("ClassFinder.foundClasses", found [0]);
+    return completed;
   }
 
   /**
-   * Adds all classes in given directory to specified list of classes.
-   * @param directory directory to scan
-   * @param classes list of classes to add found classes to
-   * @param searchScope search scope that will be used to limit found classes
+   * Enumerates all top level classes in source files of given file index. Files are iterated using the file index,
+   * so every file is visited exactly once, even if its package is spread over several source roots.
+   * @param fileIndex module file index
+   * @param psiManager PSI manager of current project
+   * @param chunkSize maximum number of classes per chunk
+   * @param consumer consumer that will receive chunks of found classes
+   * @return true, if all classes were enumerated; false, if consumer stopped enumeration
    */
-  private static void addAllClasses (@NotNull PsiDirectory directory, @NotNull List<PsiClass> classes,
-                                     @NotNull SearchScope searchScope)
+  private static boolean processAllClasses (@NotNull final FileIndex fileIndex, @NotNull final PsiManager psiManager,
+                                            final int chunkSize, @NotNull final ClassConsumer consumer)
   {
-
-    PsiPackage psiPackage = JavaDirectoryService.getInstance().getPackage(directory);// directory.getPackage ();
-    if (psiPackage != null)
+    final List<PsiClass> chunk = new ArrayList<PsiClass> (chunkSize);
+    boolean completed = fileIndex.iterateContent (new ContentIterator ()
     {
-      PsiClass [] containedClasses = psiPackage.getClasses ();
-      for (PsiClass psiClass : containedClasses)
+      public boolean processFile (VirtualFile file)
       {
-        if (PsiSearchScopeUtil.isInScope (searchScope, psiClass))
+        if (file.isDirectory () || file.getFileType () != StdFileTypes.JAVA || !fileIndex.isInSourceContent (file))
         {
-          classes.add (psiClass);
+          return true;
         }
+        PsiFile psiFile = psiManager.findFile (file);
+        if (psiFile instanceof PsiJavaFile)
+        {
+          chunk.addAll (Arrays.asList (((PsiJavaFile) psiFile).getClasses ()));
+        }
+        return chunk.size () < chunkSize || flush (chunk, consumer);
       }
-      PsiDirectory [] subDirectories = directory.getSubdirectories ();
-      for (PsiDirectory subDirectory : subDirectories)
-      {
-        addAllClasses (subDirectory, classes, searchScope);
-      }
-    }
+    });
+    return completed && flush (chunk, consumer);
   }
 
   /**
-   * Checks whether given class is a project class or a reference to an external class.
-   * @param psiClass class to be checked
-   * @return true, if class is a project class; false it is a reference to an external class
+   * Passes given chunk to consumer and clears it afterwards.
+   * @param chunk chunk of classes
+   * @param consumer consumer to pass chunk to
+   * @return true, if enumeration should continue; false otherwise
    */
-  public static boolean isProjectClass (@NotNull PsiElement psiClass)
+  private static boolean flush (@NotNull List<PsiClass> chunk, @NotNull ClassConsumer consumer)
   {
-    Project project = DataKeys.PROJECT.getData (DataManager.getInstance ().getDataContext ());
-    PsiFile containingFile = psiClass.getContainingFile ();
-    if (project == null || containingFile == null)
-    {
-      return false;
-    }
-    VirtualFile virtualFile = containingFile.getVirtualFile ();
-    if (virtualFile == null)
+    if (chunk.isEmpty ())
     {
-      return false;
+      return true;
     }
-    ProjectRootManager projectRootManager = ProjectRootManager.getInstance (project);
-    ProjectFileIndex projectFileIndex = projectRootManager.getFileIndex ();
-    boolean inLibrarySource = projectFileIndex.isInLibrarySource (virtualFile);
-    boolean inLibraryClasses = projectFileIndex.isInLibraryClasses (virtualFile);
-    //System.out.println (psiClass + " is in library source: " + inLibrarySource + ", in library classes: " + inLibraryClasses);
-    return !inLibrarySource && !inLibraryClasses;
+    boolean proceed = consumer.consume (chunk);
+    chunk.clear ();
+    return proceed;
   }
 
   /**
-   * Checks whether given class is a test class or a production class.
-   * @param psiClass class to be checked
-   * @return true, if class is a test class; false it is a production class
+   * Consumer for chunks of classes found while enumerating classes.
    */
-  public static boolean isTestClass (@NotNull PsiClass psiClass)
+  public interface ClassConsumer
   {
-    Project project = DataKeys.PROJECT.getData (DataManager.getInstance ().getDataContext ());
-    PsiFile containingFile = psiClass.getContainingFile ();
-    if (project == null || containingFile == null)
-    {
-      return false;
-    }
-    VirtualFile virtualFile = containingFile.getVirtualFile ();
-    if (virtualFile == null)
-    {
-      return false;
-    }
-    ProjectRootManager projectRootManager = ProjectRootManager.getInstance (project);
-    ProjectFileIndex projectFileIndex = projectRootManager.getFileIndex ();
-    boolean inTestSourceContent = projectFileIndex.isInTestSourceContent (virtualFile);
-//    boolean testClass = TestUtil.isTestClass (psiClass);
-    //System.out.println (psiClass + " is in test source: " + inTestSourceContent + ", is test class: " + testClass);
-    return inTestSourceContent;// || testClass;
+    /**
+     * Consumes a chunk of found classes. The chunk list is reused after this method returns, so consumers
+     * must not keep a reference to it.
+     * @param classes found classes
+     * @return true, if enumeration should continue; false, if it should be stopped
+     */
+    public boolean consume (@NotNull List<PsiClass> classes);
   }
 
   /**
-   * Filters reasons so that the number of dependencies is minimized.
-   * @param reasons reasons to filter
-   * @return filtered reasons
+   * Checks whether given class is a project class or a reference to an external class.
+   * @param project current project
+   * @param psiClass class to be checked
+   * @return true, if class is a project class; false it is a reference to an external class
    */
-  public static @NotNull List<DependencyReason> filterReasons (@NotNull List<DependencyReason> reasons)
+  public static boolean isProjectClass (@NotNull Project project, @NotNull PsiElement psiClass)
   {
-    // first check whether fields or new expressions are contained in given reason list
-    boolean oneFieldsContained  = false;
-    boolean manyFieldsContained = false;
-    boolean newContained        = false;
-    for (DependencyReason reason : reasons)
-    {
-      if (reason.getUsageType () == UsageType.FIELD_TYPE_ONE)
-      {
-        oneFieldsContained = true;
-      }
-      if (reason.getUsageType () == UsageType.FIELD_TYPE_MANY)
-      {
-        manyFieldsContained = true;
-      }
-      else if (reason.getUsageType () == UsageType.NEW_EXPRESSION)
-      {
-        newContained = true;
-      }
-    }
-    // now filter given reason list
-    List<DependencyReason> filteredReasons = new ArrayList<DependencyReason> ();
-    for (DependencyReason reason : reasons)
-    {
-      boolean isManyField         = reason.getUsageType () == UsageType.FIELD_TYPE_MANY;
-      boolean isOneField          = !manyFieldsContained && reason.getUsageType () == UsageType.FIELD_TYPE_ONE;
-      boolean isNewAndNotField    = !oneFieldsContained && !manyFieldsContained &&
-                                    reason.getUsageType () == UsageType.NEW_EXPRESSION;
-      boolean isNotFieldAndNotNew = !oneFieldsContained && !manyFieldsContained && !newContained;
-      boolean isEmpty             = filteredReasons.isEmpty ();
+    FileClassificationCache.Classification classification = FileClassificationCache.getInstance (project).classify (psiClass);
+    return classification == FileClassificationCache.Classification.PROJECT ||
+           classification == FileClassificationCache.Classification.TEST;
+  }
 
-      if ((isManyField || isOneField || isNewAndNotField || isNotFieldAndNotNew) && isEmpty)
-      {
-        filteredReasons.add (reason);
-      }
-    }
-    return filteredReasons;
+  /**
+   * Checks whether given class is a test class or a production class.
+   * @param project current project
+   * @param psiClass class to be checked
+   * @return true, if class is a test class; false it is a production class
+   */
+  public static boolean isTestClass (@NotNull Project project, @NotNull PsiClass psiClass)
+  {
+    FileClassificationCache.Classification classification = FileClassificationCache.getInstance (project).classify (psiClass);
+    return classification == FileClassificationCache.Classification.TEST;
   }
 }
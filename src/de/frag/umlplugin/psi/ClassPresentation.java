@@ -7,6 +7,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Handles presentation of class, fields and methods.
@@ -15,16 +17,23 @@ public class ClassPresentation
 {
   public static final String MAGIC_WIDTH = "87";
 
+  private static final URL PIXEL_URL = ClassPresentation.class.getResource ("/de/frag/umlplugin/icons/pixel.png");
+
   /**
    * Renders HTML code that shows information about a class.
    * @param psiClass class to render
    * @param classType class type
-   * @param renderFields true, if fields should be contained in output; false otherwise
-   * @param renderMethods true, if methods should be contained in output; false otherwise
+   * @param fieldLines rendered field lines (see {@link #renderFields}) or null, if fields should not be
+   * contained in output
+   * @param methodLines rendered method lines (see {@link #renderMethods}) or null, if methods should not be
+   * contained in output
+   * @param memberLimit maximum number of lines per compartment; remaining members will be summarized in a
+   * single "more" line
    * @return created HTML code
    */
   public static @NotNull String renderHtml (@NotNull PsiClass psiClass, @NotNull ClassType classType,
-                                            boolean renderFields, boolean renderMethods)
+                                            @Nullable String [] fieldLines, @Nullable String [] methodLines,
+                                            int memberLimit)
   {
     StringBuilder builder = new StringBuilder ("<html>");
     switch (classType)
@@ -48,34 +57,93 @@ public class ClassPresentation
       default:
         throw new IllegalStateException ("unknown class type: " + classType);
     }
-    URL url = ClassPresentation.class.getResource ("/de/frag/umlplugin/icons/pixel.png");
-    if (renderFields)
+    if (fieldLines != null)
+    {
+      appendCompartment (builder, fieldLines, memberLimit);
+    }
+    if (methodLines != null)
+    {
+      appendCompartment (builder, methodLines, memberLimit);
+    }
+    builder.append ("</html>");
+    return builder.toString ();
+  }
+
+  /**
+   * Renders one HTML line for each field of given class.
+   * @param psiClass class to render fields for
+   * @return rendered field lines
+   */
+  public static @NotNull String [] renderFields (@NotNull PsiClass psiClass)
+  {
+    PsiField[] fields = psiClass.getFields ();
+    String [] lines = new String [fields.length];
+    StringBuilder builder = new StringBuilder ();
+    for (int i = 0; i < fields.length; i++)
+    {
+      builder.setLength (0);
+      builder.append ("<div style='");
+      appendStyle (builder, fields [i]).append ("'><small>");
+      appendField (builder, fields [i]).append ("</small></div>");
+      lines [i] = builder.toString ();
+    }
+    return lines;
+  }
+
+  /**
+   * Renders one HTML line for each method of given class. Constructors are skipped.
+   * @param psiClass class to render methods for
+   * @return rendered method lines
+   */
+  public static @NotNull String [] renderMethods (@NotNull PsiClass psiClass)
+  {
+    List<String> lines = new ArrayList<String> ();
+    StringBuilder builder = new StringBuilder ();
+    for (PsiMethod method : psiClass.getMethods ())
     {
-      builder.append ("<div><img src='").append (url).append ("' alt='' width='").append (MAGIC_WIDTH).append ("'/></div>");
-      PsiField[] fields = psiClass.getFields ();
-      for (PsiField field : fields)
+      if (!method.isConstructor ())
       {
+        builder.setLength (0);
         builder.append ("<div style='");
-        appendStyle (builder, field).append ("'><small>");
-        appendField (builder, field).append ("</small></div>");
+        appendStyle (builder, method).append ("'><small>");
+        appendMethod (builder, method).append ("</small></div>");
+        lines.add (builder.toString ());
       }
     }
-    if (renderMethods)
+    return lines.toArray (new String [lines.size ()]);
+  }
+
+  /**
+   * Appends a compartment with separator to given builder. If there are more lines than given limit, only
+   * the first lines are appended, followed by a line that shows the number of omitted members.
+   * @param builder builder to append compartment to
+   * @param lines rendered member lines
+   * @param memberLimit maximum number of member lines to append
+   */
+  private static void appendCompartment (@NotNull StringBuilder builder, @NotNull String [] lines,
+                                         int memberLimit)
+  {
+    builder.append ("<div><img src='").append (PIXEL_URL).append ("' alt='' width='").append (MAGIC_WIDTH).append ("'/></div>");
+    int count = Math.min (lines.length, Math.max (memberLimit, 0));
+    for (int i = 0; i < count; i++)
     {
-      builder.append ("<div><img src='").append (url).append ("' alt='' width='").append (MAGIC_WIDTH).append ("'/></div>");
-      PsiMethod[] methods = psiClass.getMethods ();
-      for (PsiMethod method : methods)
-      {
-        if (!method.isConstructor ())
-        {
-          builder.append ("<div style='");
-          appendStyle (builder, method).append ("'><small>");
-          appendMethod (builder, method).append ("</small></div>");
-        }
-      }
+      builder.append (lines [i]);
     }
-    builder.append ("</html>");
-    return builder.toString ();
+    if (count < lines.length)
+    {
+      builder.append ("<div><small><i>&hellip; ").append (lines.length - count).append (" more</i></small></div>");
+    }
+  }
+
+  /**
+   * Replaces placeholder width of compartment separators in given HTML code by the measured label width.
+   * @param html HTML code created by {@link #renderHtml}
+   * @param width measured label width
+   * @return HTML code with final separator width
+   */
+  public static @NotNull String setSeparatorWidth (@NotNull String html, int width)
+  {
+    return html.replace ("width='" + MAGIC_WIDTH + "'", "width='" + width + "'");
   }
 
   /**
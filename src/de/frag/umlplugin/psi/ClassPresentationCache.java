@@ -0,0 +1,243 @@
+package de.frag.umlplugin.psi;
+
+import com.intellij.openapi.graph.view.NodeRealizer;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import de.frag.umlplugin.ProjectUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches rendered and measured class presentations, so class nodes can be created or refreshed without
+ * rendering, parsing and measuring HTML again. Each presentation is a sized node realizer template whose label
+ * has already been laid out; nodes are created from copies of that template, like the class cloud does for its
+ * font sizes. Entries are keyed by qualified class name, class type, compartment visibility and member limit and
+ * are only valid as long as the modification stamp of the containing file does not change.
+ * Rendered member lines are cached separately, so changing compartment visibility or member limits does not
+ * require rendering members again.
+ */
+public class ClassPresentationCache
+{
+  private static final int MAX_ENTRIES = 2000;
+
+  private final Map<String, Presentation> presentations = new LinkedHashMap<String, Presentation> (16, 0.75f, true)
+  {
+    protected boolean removeEldestEntry (Map.Entry<String, Presentation> eldest)
+    {
+      return size () > MAX_ENTRIES;
+    }
+  };
+  private final Map<String, MemberText>   memberTexts   = new LinkedHashMap<String, MemberText> (16, 0.75f, true)
+  {
+    protected boolean removeEldestEntry (Map.Entry<String, MemberText> eldest)
+    {
+      return size () > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Gets presentation cache for given project. If there is no cache yet, a new one will be created.
+   * @param project current project
+   * @return existing or new presentation cache
+   */
+  public static @NotNull ClassPresentationCache getInstance (@NotNull Project project)
+  {
+    ClassPresentationCache cache = ProjectUtils.get (project, ClassPresentationCache.class);
+    if (cache == null)
+    {
+      cache = new ClassPresentationCache ();
+      ProjectUtils.set (project, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Gets cached presentation for given class.
+   * @param psiClass class to get presentation for
+   * @param classType class type
+   * @param fieldsVisible true, if field compartment is visible; false otherwise
+   * @param methodsVisible true, if method compartment is visible; false otherwise
+   * @param memberLimit maximum number of rendered members per compartment
+   * @return cached presentation or null, if there is no valid cached presentation
+   */
+  public @Nullable Presentation get (@NotNull PsiClass psiClass, @NotNull ClassType classType, boolean fieldsVisible,
+                                     boolean methodsVisible, int memberLimit)
+  {
+    String key = createKey (psiClass, classType, fieldsVisible, methodsVisible, memberLimit);
+    if (key == null)
+    {
+      return null;
+    }
+    Presentation presentation = presentations.get (key);
+    if (presentation != null && presentation.stamp != getModificationStamp (psiClass))
+    {
+      presentations.remove (key);
+      return null;
+    }
+    return presentation;
+  }
+
+  /**
+   * Stores presentation for given class.
+   * @param psiClass class to store presentation for
+   * @param classType class type
+   * @param fieldsVisible true, if field compartment is visible; false otherwise
+   * @param methodsVisible true, if method compartment is visible; false otherwise
+   * @param memberLimit maximum number of rendered members per compartment
+   * @param template sized node realizer with measured label and final compartment separator width; it must not be
+   * added to a graph, since it is only copied
+   * @return stored presentation
+   */
+  public @NotNull Presentation put (@NotNull PsiClass psiClass, @NotNull ClassType classType, boolean fieldsVisible,
+                                    boolean methodsVisible, int memberLimit, @NotNull NodeRealizer template)
+  {
+    Presentation presentation = new Presentation (template, getModificationStamp (psiClass));
+    String key = createKey (psiClass, classType, fieldsVisible, methodsVisible, memberLimit);
+    if (key != null)
+    {
+      presentations.put (key, presentation);
+    }
+    return presentation;
+  }
+
+  /**
+   * Gets rendered field lines for given class.
+   * @param psiClass class to get field lines for
+   * @return cached or newly rendered field lines
+   */
+  public @NotNull String [] getFieldLines (@NotNull PsiClass psiClass)
+  {
+    MemberText memberText = getMemberText (psiClass);
+    if (memberText.fieldLines == null)
+    {
+      memberText.fieldLines = ClassPresentation.renderFields (psiClass);
+    }
+    return memberText.fieldLines;
+  }
+
+  /**
+   * Gets rendered method lines for given class.
+   * @param psiClass class to get method lines for
+   * @return cached or newly rendered method lines
+   */
+  public @NotNull String [] getMethodLines (@NotNull PsiClass psiClass)
+  {
+    MemberText memberText = getMemberText (psiClass);
+    if (memberText.methodLines == null)
+    {
+      memberText.methodLines = ClassPresentation.renderMethods (psiClass);
+    }
+    return memberText.methodLines;
+  }
+
+  /**
+   * Clears all cached presentations and member lines.
+   */
+  public void clear ()
+  {
+    presentations.clear ();
+    memberTexts.clear ();
+  }
+
+  /**
+   * Gets valid member text entry for given class. Outdated entries will be replaced by empty ones.
+   * @param psiClass class to get member text for
+   * @return existing or new member text entry
+   */
+  private @NotNull MemberText getMemberText (@NotNull PsiClass psiClass)
+  {
+    long stamp = getModificationStamp (psiClass);
+    String qualifiedName = psiClass.getQualifiedName ();
+    if (qualifiedName == null)
+    {
+      return new MemberText (stamp);
+    }
+    MemberText memberText = memberTexts.get (qualifiedName);
+    if (memberText == null || memberText.stamp != stamp)
+    {
+      memberText = new MemberText (stamp);
+      memberTexts.put (qualifiedName, memberText);
+    }
+    return memberText;
+  }
+
+  /**
+   * Creates cache key for given class and compartment visibility.
+   * @param psiClass class to create key for
+   * @param classType class type
+   * @param fieldsVisible true, if field compartment is visible; false otherwise
+   * @param methodsVisible true, if method compartment is visible; false otherwise
+   * @param memberLimit maximum number of rendered members per compartment
+   * @return created key or null, if class has no qualified name
+   */
+  private @Nullable String createKey (@NotNull PsiClass psiClass, @NotNull ClassType classType,
+                                      boolean fieldsVisible, boolean methodsVisible, int memberLimit)
+  {
+    String qualifiedName = psiClass.getQualifiedName ();
+    if (qualifiedName == null)
+    {
+      return null;
+    }
+    String prefix = qualifiedName + "|" + classType.ordinal ();
+    if (!fieldsVisible && !methodsVisible)
+    {
+      return prefix + "--";
+    }
+    return prefix + (fieldsVisible ? "F" : "-") + (methodsVisible ? "M" : "-") + memberLimit;
+  }
+
+  /**
+   * Gets modification stamp of file that contains given class.
+   * @param psiClass class to get modification stamp for
+   * @return modification stamp or -1, if class is not contained in a file
+   */
+  private long getModificationStamp (@NotNull PsiClass psiClass)
+  {
+    PsiFile containingFile = psiClass.getContainingFile ();
+    return containingFile != null ? containingFile.getModificationStamp () : -1;
+  }
+
+  /**
+   * Rendered and measured presentation of a single class.
+   */
+  public static class Presentation
+  {
+    private final NodeRealizer template;
+    private final long         stamp;
+
+    private Presentation (@NotNull NodeRealizer template, long stamp)
+    {
+      this.template = template;
+      this.stamp    = stamp;
+    }
+
+    /**
+     * Creates a new node realizer for this presentation. The copy takes over the measured label and size of the
+     * template, so its label text is neither parsed nor measured again.
+     * @return created node realizer
+     */
+    public @NotNull NodeRealizer createRealizer ()
+    {
+      return template.createCopy ();
+    }
+  }
+
+  /**
+   * Rendered member lines of a single class. Lines are rendered lazily per compartment.
+   */
+  private static class MemberText
+  {
+    private final long stamp;
+    private String []  fieldLines;
+    private String []  methodLines;
+
+    private MemberText (long stamp)
+    {
+      this.stamp = stamp;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package de.frag.umlplugin.psi;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.settings.Settings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches whether classes are collection types. A class is a collection type if it or any of its super types
+ * is one of the configured collection classes. Cached results are discarded when the configured collection
+ * classes or the structure of any class in the project change.
+ */
+public class CollectionTypeCache
+{
+  private final Map<String, Boolean>   collectionTypes = new ConcurrentHashMap<String, Boolean> ();
+  private final PsiModificationTracker modificationTracker;
+  private long                         modificationCount = -1;
+  private int                          collectionVersion = -1;
+
+  /**
+   * Creates a new collection type cache.
+   * @param project current project
+   */
+  private CollectionTypeCache (@NotNull Project project)
+  {
+    modificationTracker = PsiManager.getInstance (project).getModificationTracker ();
+  }
+
+  /**
+   * Gets collection type cache for given project. If there is no cache yet, a new one will be created.
+   * @param project current project
+   * @return existing or new collection type cache
+   */
+  public static synchronized @NotNull CollectionTypeCache getInstance (@NotNull Project project)
+  {
+    CollectionTypeCache cache = ProjectUtils.get (project, CollectionTypeCache.class);
+    if (cache == null)
+    {
+      cache = new CollectionTypeCache (project);
+      ProjectUtils.set (project, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Checks whether given class is a collection type.
+   * @param psiClass class to check
+   * @param settings settings that contain configured collection classes
+   * @return true, if given class or any of its super types is a configured collection class; false otherwise
+   */
+  public boolean isCollection (@NotNull PsiClass psiClass, @NotNull Settings settings)
+  {
+    validate (settings);
+    String qualifiedName = psiClass.getQualifiedName ();
+    if (qualifiedName == null)
+    {
+      return computeIsCollection (psiClass, settings.getCollectionClasses ());
+    }
+    Boolean collection = collectionTypes.get (qualifiedName);
+    if (collection == null)
+    {
+      collection = computeIsCollection (psiClass, settings.getCollectionClasses ());
+      collectionTypes.put (qualifiedName, collection);
+    }
+    return collection;
+  }
+
+  /**
+   * Discards all cached results, if collection classes or PSI structure changed since last check.
+   * @param settings settings that contain configured collection classes
+   */
+  private synchronized void validate (@NotNull Settings settings)
+  {
+    long currentModificationCount = modificationTracker.getOutOfCodeBlockModificationCount ();
+    int  currentCollectionVersion = settings.getCollectionVersion ();
+    if (currentModificationCount != modificationCount || currentCollectionVersion != collectionVersion)
+    {
+      collectionTypes.clear ();
+      modificationCount = currentModificationCount;
+      collectionVersion = currentCollectionVersion;
+    }
+  }
+
+  /**
+   * Walks all super types of given class and checks whether any of them is a configured collection class.
+   * Every super type is visited at most once; super types with cached results are not walked again.
+   * @param psiClass class to check
+   * @param collectionClasses qualified names of configured collection classes
+   * @return true, if given class is a collection type; false otherwise
+   */
+  private boolean computeIsCollection (@NotNull PsiClass psiClass, @NotNull Set<?> collectionClasses)
+  {
+    Set<PsiClass> visited = new HashSet<PsiClass> ();
+    List<PsiClass> pending = new ArrayList<PsiClass> ();
+    pending.add (psiClass);
+    visited.add (psiClass);
+    while (!pending.isEmpty ())
+    {
+      PsiClass current = pending.remove (pending.size () - 1);
+      String qualifiedName = current.getQualifiedName ();
+      if (qualifiedName != null)
+      {
+        //noinspection SuspiciousMethodCalls
+        if (collectionClasses.contains (qualifiedName))
+        {
+          return true;
+        }
+        Boolean cached = current != psiClass ? collectionTypes.get (qualifiedName) : null;
+        if (cached != null)
+        {
+          if (cached)
+          {
+            return true;
+          }
+          continue;
+        }
+      }
+      for (PsiClass superClass : current.getSupers ())
+      {
+        if (visited.add (superClass))
+        {
+          pending.add (superClass);
+        }
+      }
+    }
+    return false;
+  }
+}
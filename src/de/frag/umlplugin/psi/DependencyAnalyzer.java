@@ -1,16 +1,16 @@
 package de.frag.umlplugin.psi;
 
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.search.searches.ReferencesSearch;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.Query;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import de.frag.umlplugin.settings.Settings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 /**
  * Analyzes dependencies from one class to any other classes.
@@ -18,10 +18,12 @@ import java.util.List;
 public class DependencyAnalyzer
 {
   private final PsiClass             psiClass;
-  private final DependencyCollection extendedClasses  = new DependencyCollection ();
-  private final DependencyCollection extendingClasses = new DependencyCollection ();
-  private final DependencyCollection usedClasses      = new DependencyCollection ();
-  private final DependencyCollection usingClasses     = new DependencyCollection ();
+  private final Project              project;
+  private final boolean              projectClass;
+  private final DependencyCollection extendedClasses;
+  private final DependencyCollection extendingClasses;
+  private final DependencyCollection usedClasses;
+  private final DependencyCollection usingClasses;
   private final Settings             settings;
   private boolean analyzedUsing     = false;
   private boolean analyzedUsed      = false;
@@ -35,8 +37,26 @@ public class DependencyAnalyzer
    */
   public DependencyAnalyzer (@NotNull PsiClass psiClass, @NotNull Settings settings)
   {
-    this.settings = settings;
-    this.psiClass = psiClass;
+    this (psiClass, settings, false);
+  }
+
+  /**
+   * Creates a dependency analyzer that analyzes dependencies from given class to any other classes.
+   * @param psiClass PSI class to analyze dependencies for
+   * @param settings settings
+   * @param summary true, if only the dominant dependency reason per class should be collected; false, if all
+   * reasons should be collected
+   */
+  public DependencyAnalyzer (@NotNull PsiClass psiClass, @NotNull Settings settings, boolean summary)
+  {
+    this.extendedClasses  = new DependencyCollection (summary);
+    this.extendingClasses = new DependencyCollection (summary);
+    this.usedClasses      = new DependencyCollection (summary);
+    this.usingClasses     = new DependencyCollection (summary);
+    this.settings         = settings;
+    this.psiClass         = psiClass;
+    this.project          = psiClass.getProject ();
+    this.projectClass     = ClassFinder.isProjectClass (project, psiClass);
   }
 
   /**
@@ -47,7 +67,9 @@ public class DependencyAnalyzer
   {
     if (!analyzedExtended)
     {
+      long start = Instrumentation.start ();
       computeExtendedClasses ();
+      Instrumentation.stop ("DependencyAnalyzer.extendedClasses", start);
       analyzedExtended = true;
     }
     return extendedClasses;
@@ -61,7 +83,9 @@ public class DependencyAnalyzer
   {
     if (!analyzedExtending)
     {
+      long start = Instrumentation.start ();
       computeUsingClasses ();
+      Instrumentation.stop ("DependencyAnalyzer.usingClasses", start);
       analyzedExtending = true;
       analyzedUsing = true;
     }
@@ -76,7 +100,9 @@ public class DependencyAnalyzer
   {
     if (!analyzedUsed)
     {
+      long start = Instrumentation.start ();
       computeUsedClasses ();
+      Instrumentation.stop ("DependencyAnalyzer.usedClasses", start);
       analyzedUsed = true;
     }
     return usedClasses;
@@ -90,7 +116,9 @@ public class DependencyAnalyzer
   {
     if (!analyzedUsing)
     {
+      long start = Instrumentation.start ();
       computeUsingClasses ();
+      Instrumentation.stop ("DependencyAnalyzer.usingClasses", start);
       analyzedUsing = true;
       analyzedExtending = true;
     }
@@ -152,9 +180,13 @@ public class DependencyAnalyzer
   private void addDependency (@NotNull DependencyCollection collection, @NotNull PsiClass psiClass,
                               @NotNull UsageType usageType, int offset)
   {
-    if ((settings.isIncludeNonProjectClasses () || ClassFinder.isProjectClass (psiClass)) &&
-        (settings.isIncludeTestClasses () || !ClassFinder.isTestClass (psiClass)) &&
-        (ClassFinder.isProjectClass (this.psiClass) || ClassFinder.isProjectClass (psiClass)))
+    FileClassificationCache.Classification classification = FileClassificationCache.getInstance (project).classify (psiClass);
+    boolean isProjectClass = classification == FileClassificationCache.Classification.PROJECT ||
+                             classification == FileClassificationCache.Classification.TEST;
+    boolean isTestClass    = classification == FileClassificationCache.Classification.TEST;
+    if ((settings.isIncludeNonProjectClasses () || isProjectClass) &&
+        (settings.isIncludeTestClasses () || !isTestClass) &&
+        (projectClass || isProjectClass))
     {
       collection.addDependency (psiClass, usageType, offset);
     }
@@ -416,43 +448,7 @@ public class DependencyAnalyzer
       return true;
     }
     PsiClass psiClass = typeToClass (type);
-    if (psiClass != null)
-    {
-      String className = psiClass.getQualifiedName ();
-      //noinspection SuspiciousMethodCalls
-      if (className != null && (settings.getCollectionClasses ().contains (className)))
-      {
-        return true;
-      }
-      List<PsiClass> interfaces = getAllInterfaces (psiClass);
-      for (PsiClass implementedInterface : interfaces)
-      {
-        String interfaceName = implementedInterface.getQualifiedName ();
-        //noinspection SuspiciousMethodCalls
-        if (interfaceName != null && settings.getCollectionClasses ().contains (interfaceName))
-        {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  /**
-   * Gets all implemented interfaces for given class.
-   * @param psiClass class to get all implemented interfaces for
-   * @return list of implemented interfaces
-   */
-  private @NotNull List<PsiClass> getAllInterfaces (@NotNull PsiClass psiClass)
-  {
-    List<PsiClass> interfaces = new ArrayList<PsiClass> ();
-    PsiClass[] implementedInterfaces = psiClass.getInterfaces ();
-    for (PsiClass implementedInterface : implementedInterfaces)
-    {
-      interfaces.add (implementedInterface);
-      interfaces.addAll (getAllInterfaces (implementedInterface));
-    }
-    return interfaces;
+    return psiClass != null && CollectionTypeCache.getInstance (project).isCollection (psiClass, settings);
   }
 
   /**
@@ -7,11 +7,58 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 
 /**
- * Contains several dependencies from one class to another.
+ * Contains several dependencies from one class to another. Usage types and offsets of all dependency reasons
+ * of a single target class are stored in parallel int arrays; dependency reason objects are only created on
+ * demand when reasons are accessed. Filtered collections are views that share storage with their source.
+ * Summary collections only keep the dominant reason per target class and are meant for callers that never need
+ * the full list of reasons. Fields of collection types dominate all other reasons, followed by fields of single
+ * object types and new expressions, so a summary shows the strongest kind of dependency, like a composition
+ * rather than a mere method call.
  */
 public class DependencyCollection implements Iterable<PsiClass>
 {
-  private final Map<PsiClass, List<DependencyReason>> dependencies = new HashMap<PsiClass, List<DependencyReason>> ();
+  private static final UsageType [] USAGE_TYPES = UsageType.values ();
+
+  private final Map<PsiClass, Reasons> dependencies;
+  private final DependencyCollection   source;
+  private final Filter                 filter;
+  private final boolean                summary;
+  private List<PsiClass>               sortedClasses;
+  private int                          sortedModificationCount = -1;
+  private int                          modificationCount;
+
+  /**
+   * Creates a new empty dependency collection that keeps all dependency reasons.
+   */
+  public DependencyCollection ()
+  {
+    this (false);
+  }
+
+  /**
+   * Creates a new empty dependency collection.
+   * @param summary true, if only the dominant reason per class should be kept; false to keep all reasons
+   */
+  public DependencyCollection (boolean summary)
+  {
+    this.dependencies = new HashMap<PsiClass, Reasons> ();
+    this.source       = null;
+    this.filter       = null;
+    this.summary      = summary;
+  }
+
+  /**
+   * Creates a filtered view of given collection.
+   * @param source collection to create view for
+   * @param filter filter that restricts visible dependency reasons
+   */
+  private DependencyCollection (@NotNull DependencyCollection source, @NotNull Filter filter)
+  {
+    this.dependencies = source.dependencies;
+    this.source       = source;
+    this.filter       = filter;
+    this.summary      = source.summary;
+  }
 
   /**
    * Adds a dependency.
@@ -21,49 +68,75 @@ public class DependencyCollection implements Iterable<PsiClass>
    */
   public void addDependency (@NotNull PsiClass psiClass, @NotNull UsageType usageType, int offset)
   {
-    List<DependencyReason> dependencyReasonList = dependencies.get (psiClass);
-    if (dependencyReasonList == null)
+    if (source != null)
+    {
+      throw new UnsupportedOperationException ("filtered dependency collections are read only");
+    }
+    Reasons reasons = dependencies.get (psiClass);
+    if (reasons == null)
     {
-      dependencyReasonList = new ArrayList<DependencyReason> ();
-      dependencies.put (psiClass, dependencyReasonList);
+      reasons = new Reasons (summary ? 1 : 2);
+      dependencies.put (psiClass, reasons);
+    }
+    // a new reason may let filtered views accept a class they did not accept before
+    modificationCount++;
+    if (summary)
+    {
+      reasons.replaceIfDominant (usageType, offset);
+    }
+    else
+    {
+      reasons.add (usageType, offset);
     }
-    // usage type not found => add new entry
-    dependencyReasonList.add (new DependencyReason (usageType, offset));
   }
 
   /**
-   * Gets an iterator that iterates over all dependencies.
+   * Gets an iterator that iterates over all dependencies. Classes are sorted by name; the sorted order is
+   * computed once and reused until dependencies are added.
    * @return iterator that iterates over all dependencies
    */
   public @NotNull Iterator<PsiClass> iterator ()
   {
-    List<PsiClass> classes = new ArrayList<PsiClass> (dependencies.keySet ());
-    Collections.sort (classes, new Comparator<PsiClass> () {
-      public int compare (PsiClass class1, PsiClass class2)
+    int currentModificationCount = source != null ? source.modificationCount : modificationCount;
+    if (sortedClasses == null || sortedModificationCount != currentModificationCount)
+    {
+      List<PsiClass> classes = new ArrayList<PsiClass> (dependencies.size ());
+      for (Map.Entry<PsiClass, Reasons> entry : dependencies.entrySet ())
       {
-        String name1 = class1.getName ();
-        String name2 = class2.getName ();
-        name1 = name1 == null ? "" : name1;
-        name2 = name2 == null ? "" : name2;
-        return name1.compareTo (name2);
+        if (filter == null || entry.getValue ().accepts (filter))
+        {
+          classes.add (entry.getKey ());
+        }
       }
-    });
-    return classes.iterator ();
+      Collections.sort (classes, new Comparator<PsiClass> () {
+        public int compare (PsiClass class1, PsiClass class2)
+        {
+          String name1 = class1.getName ();
+          String name2 = class2.getName ();
+          name1 = name1 == null ? "" : name1;
+          name2 = name2 == null ? "" : name2;
+          return name1.compareTo (name2);
+        }
+      });
+      sortedClasses = Collections.unmodifiableList (classes);
+      sortedModificationCount = currentModificationCount;
+    }
+    return sortedClasses.iterator ();
   }
 
   /**
    * Gets a list of dependency reasons for given PSI class.
    * @param psiClass PSI class to get dependency reasons for
-   * @return list of dependency reasons (may be empty)
+   * @return unmodifiable list of dependency reasons (may be empty)
    */
   public @NotNull List<DependencyReason> getDependencyReasons (@NotNull PsiClass psiClass)
   {
-    List<DependencyReason> dependencyReasonList = dependencies.get (psiClass);
-    if (dependencyReasonList == null)
+    Reasons reasons = dependencies.get (psiClass);
+    if (reasons == null)
     {
-      dependencyReasonList = Collections.emptyList ();
+      return Collections.emptyList ();
     }
-    return dependencyReasonList;
+    return reasons.asList (filter);
   }
 
   /**
@@ -73,10 +146,11 @@ public class DependencyCollection implements Iterable<PsiClass>
   {
     /**
      * Accept dependency reason.
-     * @param reason reason to check
+     * @param usageType usage type of reason to check
+     * @param offset source offset of reason to check
      * @return true, if reasn is accepted; false if it should be filtered
      */
-    public boolean accepts (@NotNull DependencyReason reason);
+    public boolean accepts (@NotNull UsageType usageType, int offset);
   }
 
   /**
@@ -84,38 +158,32 @@ public class DependencyCollection implements Iterable<PsiClass>
    */
   public static final Filter FIELD_FILTER = new Filter ()
   {
-    public boolean accepts (@NotNull DependencyReason reason)
+    public boolean accepts (@NotNull UsageType usageType, int offset)
     {
-      UsageType usageType = reason.getUsageType ();
       return usageType == UsageType.FIELD_TYPE_MANY || usageType == UsageType.FIELD_TYPE_ONE;
     }
   };
 
   /**
-   * Filter contents of this dependency collection and return new restricted collection.
+   * Filter contents of this dependency collection. The returned collection is a read only view of this
+   * collection, no dependencies are copied.
    * @param filter filter to use for filtering this collection.
-   * @return new collection that only contains dependencies accepted by given filter
+   * @return view that only contains dependencies accepted by given filter
    */
-  public @NotNull DependencyCollection filter (@NotNull Filter filter)
+  public @NotNull DependencyCollection filter (@NotNull final Filter filter)
   {
-    DependencyCollection result = new DependencyCollection ();
-    for (Map.Entry<PsiClass, List<DependencyReason>> entry : dependencies.entrySet ())
+    if (source == null)
     {
-      List<DependencyReason> reasons = entry.getValue ();
-      List<DependencyReason> filteredReasons = new ArrayList<DependencyReason> ();
-      for (DependencyReason reason : reasons)
-      {
-        if (filter.accepts (reason))
-        {
-          filteredReasons.add (reason);
-        }
-      }
-      if (!filteredReasons.isEmpty ())
+      return new DependencyCollection (this, filter);
+    }
+    final Filter outerFilter = this.filter;
+    return new DependencyCollection (source, new Filter ()
+    {
+      public boolean accepts (@NotNull UsageType usageType, int offset)
       {
-        result.dependencies.put (entry.getKey (), filteredReasons);
+        return outerFilter.accepts (usageType, offset) && filter.accepts (usageType, offset);
       }
-    }
-    return result;
+    });
   }
 
   /**
@@ -128,7 +196,7 @@ public class DependencyCollection implements Iterable<PsiClass>
     for (PsiClass psiClass : this)
     {
       String className = computeClassName (psiClass);
-      boolean isProjectClass = ClassFinder.isProjectClass (psiClass);
+      boolean isProjectClass = ClassFinder.isProjectClass (psiClass.getProject (), psiClass);
       builder.append ("\n").append (className);
       builder.append (isProjectClass ? " (java)" : " (class)");
       List<DependencyReason> reasons = getDependencyReasons (psiClass);
@@ -157,4 +225,142 @@ public class DependencyCollection implements Iterable<PsiClass>
       return psiClass.getName ();
     }
   }
+
+  /**
+   * Usage types and offsets of all dependency reasons for a single target class.
+   */
+  static class Reasons
+  {
+    private int [] usageTypes;
+    private int [] offsets;
+    private int    size;
+
+    /**
+     * Creates new empty reasons.
+     * @param capacity initial capacity
+     */
+    Reasons (int capacity)
+    {
+      usageTypes = new int [capacity];
+      offsets    = new int [capacity];
+    }
+
+    /**
+     * Adds a reason.
+     * @param usageType usage type of reason
+     * @param offset source offset of reason
+     */
+    void add (@NotNull UsageType usageType, int offset)
+    {
+      if (size == usageTypes.length)
+      {
+        usageTypes = Arrays.copyOf (usageTypes, size * 2);
+        offsets    = Arrays.copyOf (offsets,    size * 2);
+      }
+      usageTypes [size] = usageType.ordinal ();
+      offsets    [size] = offset;
+      size++;
+    }
+
+    /**
+     * Stores given reason as single reason, if there is no reason yet or given reason dominates the stored
+     * reason. Fields with many multiplicity dominate fields with single multiplicity, which dominate new
+     * expressions, which dominate all other usages. For equal ranks the first reason is kept.
+     * @param usageType usage type of reason
+     * @param offset source offset of reason
+     */
+    void replaceIfDominant (@NotNull UsageType usageType, int offset)
+    {
+      if (size == 0 || getRank (usageType) > getRank (USAGE_TYPES [usageTypes [0]]))
+      {
+        usageTypes [0] = usageType.ordinal ();
+        offsets    [0] = offset;
+        size = 1;
+      }
+    }
+
+    /**
+     * Gets rank of given usage type for choosing the dominant reason.
+     * @param usageType usage type to get rank for
+     * @return rank; higher ranks dominate lower ranks
+     */
+    private static int getRank (@NotNull UsageType usageType)
+    {
+      switch (usageType)
+      {
+        case FIELD_TYPE_MANY:
+          return 3;
+        case FIELD_TYPE_ONE:
+          return 2;
+        case NEW_EXPRESSION:
+          return 1;
+        default:
+          return 0;
+      }
+    }
+
+    /**
+     * Checks whether given filter accepts at least one reason.
+     * @param filter filter to check
+     * @return true, if any reason is accepted; false otherwise
+     */
+    boolean accepts (@NotNull Filter filter)
+    {
+      for (int i = 0; i < size; i++)
+      {
+        if (filter.accepts (USAGE_TYPES [usageTypes [i]], offsets [i]))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Creates a list view of all reasons accepted by given filter.
+     * @param filter filter or null, if all reasons should be contained in list
+     * @return list view of reasons
+     */
+    @NotNull List<DependencyReason> asList (@Nullable Filter filter)
+    {
+      final int [] indices;
+      final int    count;
+      if (filter == null)
+      {
+        indices = null;
+        count   = size;
+      }
+      else
+      {
+        int [] accepted = new int [size];
+        int acceptedCount = 0;
+        for (int i = 0; i < size; i++)
+        {
+          if (filter.accepts (USAGE_TYPES [usageTypes [i]], offsets [i]))
+          {
+            accepted [acceptedCount++] = i;
+          }
+        }
+        indices = accepted;
+        count   = acceptedCount;
+      }
+      return new AbstractList<DependencyReason> ()
+      {
+        public DependencyReason get (int index)
+        {
+          if (index < 0 || index >= count)
+          {
+            throw new IndexOutOfBoundsException ("index: " + index + ", size: " + count);
+          }
+          int reasonIndex = indices != null ? indices [index] : index;
+          return new DependencyReason (USAGE_TYPES [usageTypes [reasonIndex]], offsets [reasonIndex]);
+        }
+
+        public int size ()
+        {
+          return count;
+        }
+      };
+    }
+  }
 }
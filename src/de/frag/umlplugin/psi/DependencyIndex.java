@@ -0,0 +1,143 @@
+package de.frag.umlplugin.psi;
+
+import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File based index that stores type references of all named classes in Java source files. References are
+ * extracted by {@link SourceDependencyScanner} at indexing time, so querying dependencies of a class never
+ * loads its PSI tree. Keys are qualified class names.
+ */
+public class DependencyIndex extends FileBasedIndexExtension<String, SourceDependencyScanner.ScannedClass>
+{
+  public static final ID<String, SourceDependencyScanner.ScannedClass> NAME = ID.create ("codeNavigator.dependencies");
+
+  private static final int VERSION = 1;
+
+  /**
+   * Gets indexed references of given class.
+   * @param psiClass class to get references for
+   * @return indexed class or null, if class is not contained in index
+   */
+  public static @Nullable SourceDependencyScanner.ScannedClass getScannedClass (@NotNull PsiClass psiClass)
+  {
+    String qualifiedName = psiClass.getQualifiedName ();
+    PsiFile containingFile = psiClass.getContainingFile ();
+    if (qualifiedName == null || containingFile == null)
+    {
+      return null;
+    }
+    GlobalSearchScope scope = GlobalSearchScope.fileScope (containingFile);
+    List<SourceDependencyScanner.ScannedClass> values = FileBasedIndex.getInstance ().getValues (NAME, qualifiedName, scope);
+    return values.isEmpty () ? null : values.get (0);
+  }
+
+  public @NotNull ID<String, SourceDependencyScanner.ScannedClass> getName ()
+  {
+    return NAME;
+  }
+
+  public @NotNull DataIndexer<String, SourceDependencyScanner.ScannedClass, FileContent> getIndexer ()
+  {
+    return new DataIndexer<String, SourceDependencyScanner.ScannedClass, FileContent> ()
+    {
+      @NotNull
+      public Map<String, SourceDependencyScanner.ScannedClass> map (FileContent inputData)
+      {
+        Map<String, SourceDependencyScanner.ScannedClass> result = new HashMap<String, SourceDependencyScanner.ScannedClass> ();
+        for (SourceDependencyScanner.ScannedClass scannedClass : SourceDependencyScanner.scan (inputData.getContentAsText ()))
+        {
+          result.put (scannedClass.getQualifiedName (), scannedClass);
+        }
+        return result;
+      }
+    };
+  }
+
+  public KeyDescriptor<String> getKeyDescriptor ()
+  {
+    return new EnumeratorStringDescriptor ();
+  }
+
+  public DataExternalizer<SourceDependencyScanner.ScannedClass> getValueExternalizer ()
+  {
+    return new DataExternalizer<SourceDependencyScanner.ScannedClass> ()
+    {
+      public void save (DataOutput out, SourceDependencyScanner.ScannedClass value) throws IOException
+      {
+        out.writeUTF (value.getQualifiedName ());
+        out.writeInt (value.getReferences ().size ());
+        for (SourceDependencyScanner.ScannedReference reference : value.getReferences ())
+        {
+          out.writeUTF (reference.getTypeName ());
+          out.writeInt (reference.getUsageMask ());
+          String [] candidates = reference.getCandidates ();
+          out.writeInt (candidates.length);
+          for (String candidate : candidates)
+          {
+            out.writeUTF (candidate);
+          }
+        }
+      }
+
+      public SourceDependencyScanner.ScannedClass read (DataInput in) throws IOException
+      {
+        SourceDependencyScanner.ScannedClass scannedClass = new SourceDependencyScanner.ScannedClass (in.readUTF ());
+        int referenceCount = in.readInt ();
+        for (int i = 0; i < referenceCount; i++)
+        {
+          String typeName = in.readUTF ();
+          int usageMask = in.readInt ();
+          String [] candidates = new String [in.readInt ()];
+          for (int j = 0; j < candidates.length; j++)
+          {
+            candidates [j] = in.readUTF ();
+          }
+          scannedClass.addReference (new SourceDependencyScanner.ScannedReference (typeName, candidates, usageMask));
+        }
+        return scannedClass;
+      }
+    };
+  }
+
+  public FileBasedIndex.InputFilter getInputFilter ()
+  {
+    return new FileBasedIndex.InputFilter ()
+    {
+      public boolean acceptInput (VirtualFile file)
+      {
+        return file.getFileType () == StdFileTypes.JAVA && file.isInLocalFileSystem ();
+      }
+    };
+  }
+
+  public boolean dependsOnFileContent ()
+  {
+    return true;
+  }
+
+  public int getVersion ()
+  {
+    return VERSION;
+  }
+}
@@ -0,0 +1,148 @@
+package de.frag.umlplugin.psi;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import de.frag.umlplugin.ProjectUtils;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Caches classification of files into project, test and library files. Classifying a file requires several
+ * queries to the project file index, so every file is only classified once. Classifications are stored as user
+ * data of the files, so they are released together with the files. The cache is cleared whenever the project
+ * roots change.
+ */
+public class FileClassificationCache
+{
+  /**
+   * Classification of a single file.
+   */
+  public enum Classification
+  {
+    /** File is contained in project sources. */
+    PROJECT,
+    /** File is contained in project test sources. */
+    TEST,
+    /** File is contained in library sources or classes. */
+    LIBRARY,
+    /** File is not contained in any file, e.g. synthetic elements. */
+    NONE
+  }
+
+  private final Key<StampedClassification> classificationKey = new Key<StampedClassification> ("FileClassification");
+  private final ProjectFileIndex           fileIndex;
+  private volatile int                     generation;
+
+  /**
+   * Creates a new classification cache for given project and registers a listener that clears the cache
+   * on root changes.
+   * @param project current project
+   */
+  private FileClassificationCache (@NotNull Project project)
+  {
+    fileIndex = ProjectRootManager.getInstance (project).getFileIndex ();
+    project.getMessageBus ().connect (project).subscribe (ProjectTopics.PROJECT_ROOTS, new ModuleRootListener ()
+    {
+      public void beforeRootsChange (ModuleRootEvent event)
+      {
+      }
+
+      public void rootsChanged (ModuleRootEvent event)
+      {
+        clear ();
+      }
+    });
+  }
+
+  /**
+   * Gets classification cache for given project. If there is no cache yet, a new one will be created.
+   * @param project current project
+   * @return existing or new classification cache
+   */
+  public static synchronized @NotNull FileClassificationCache getInstance (@NotNull Project project)
+  {
+    FileClassificationCache cache = ProjectUtils.get (project, FileClassificationCache.class);
+    if (cache == null)
+    {
+      cache = new FileClassificationCache (project);
+      ProjectUtils.set (project, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Classifies the file that contains given element.
+   * @param element element to classify
+   * @return classification of containing file
+   */
+  public @NotNull Classification classify (@NotNull PsiElement element)
+  {
+    PsiFile containingFile = element.getContainingFile ();
+    if (containingFile == null)
+    {
+      return Classification.NONE;
+    }
+    VirtualFile virtualFile = containingFile.getVirtualFile ();
+    if (virtualFile == null)
+    {
+      return Classification.NONE;
+    }
+    int currentGeneration = generation;
+    StampedClassification stamped = virtualFile.getUserData (classificationKey);
+    if (stamped == null || stamped.generation != currentGeneration)
+    {
+      stamped = new StampedClassification (computeClassification (virtualFile), currentGeneration);
+      virtualFile.putUserData (classificationKey, stamped);
+    }
+    return stamped.classification;
+  }
+
+  /**
+   * Clears all cached classifications. Classifications stored in files are not removed, but they are outdated
+   * and will be computed again on next access.
+   */
+  public synchronized void clear ()
+  {
+    generation++;
+  }
+
+  /**
+   * Computes classification for given file by querying the project file index.
+   * @param virtualFile file to classify
+   * @return computed classification
+   */
+  private @NotNull Classification computeClassification (@NotNull VirtualFile virtualFile)
+  {
+    if (fileIndex.isInLibrarySource (virtualFile) || fileIndex.isInLibraryClasses (virtualFile))
+    {
+      return Classification.LIBRARY;
+    }
+    if (fileIndex.isInTestSourceContent (virtualFile))
+    {
+      return Classification.TEST;
+    }
+    return Classification.PROJECT;
+  }
+
+  /**
+   * Classification of a file together with the cache generation it was computed in.
+   */
+  private static class StampedClassification
+  {
+    private final Classification classification;
+    private final int            generation;
+
+    private StampedClassification (@NotNull Classification classification, int generation)
+    {
+      this.classification = classification;
+      this.generation     = generation;
+    }
+  }
+}
@@ -0,0 +1,582 @@
+package de.frag.umlplugin.psi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Scans Java source text for type references without building a PSI tree. Referenced type names can not be
+ * resolved at scan time, so every reference is stored together with all qualified names it could refer to
+ * (member types of enclosing classes, single type imports, the current package and on-demand imports). The
+ * first candidate that names a known class wins when the reference is resolved later.
+ * Field references are reported as plain references, since collection types are not known at scan time.
+ */
+public class SourceDependencyScanner
+{
+  private static final Set<String> KEYWORDS = new HashSet<String> (Arrays.asList (
+          "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+          "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for",
+          "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native", "new",
+          "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+          "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while",
+          "true", "false", "null"));
+
+  private final List<String>           tokens          = new ArrayList<String> ();
+  private final List<String>           singleImports   = new ArrayList<String> ();
+  private final List<String>           onDemandImports = new ArrayList<String> ();
+  private final LinkedList<ClassFrame> frames          = new LinkedList<ClassFrame> ();
+  private final List<ScannedClass>     scannedClasses  = new ArrayList<ScannedClass> ();
+  private String                       packageName     = "";
+  private int                          position;
+  private int                          braceDepth;
+
+  /**
+   * Scans given source text.
+   * @param text Java source text
+   * @return all named classes declared in given text together with their references
+   */
+  public static @NotNull List<ScannedClass> scan (@NotNull CharSequence text)
+  {
+    SourceDependencyScanner scanner = new SourceDependencyScanner ();
+    scanner.tokenize (text);
+    scanner.parse ();
+    return scanner.scannedClasses;
+  }
+
+  /**
+   * Private constructor, use {@link #scan} instead.
+   */
+  private SourceDependencyScanner ()
+  {
+  }
+
+  /**
+   * Splits given text into identifiers and single character symbols. Whitespace, comments, string and
+   * character literals and number literals are skipped.
+   * @param text text to split
+   */
+  private void tokenize (@NotNull CharSequence text)
+  {
+    int length = text.length ();
+    int index = 0;
+    while (index < length)
+    {
+      char c = text.charAt (index);
+      if (Character.isWhitespace (c))
+      {
+        index++;
+      }
+      else if (c == '/' && index + 1 < length && text.charAt (index + 1) == '/')
+      {
+        while (index < length && text.charAt (index) != '\n')
+        {
+          index++;
+        }
+      }
+      else if (c == '/' && index + 1 < length && text.charAt (index + 1) == '*')
+      {
+        index += 2;
+        while (index + 1 < length && !(text.charAt (index) == '*' && text.charAt (index + 1) == '/'))
+        {
+          index++;
+        }
+        index += 2;
+      }
+      else if (c == '"' || c == '\'')
+      {
+        index++;
+        while (index < length && text.charAt (index) != c && text.charAt (index) != '\n')
+        {
+          index += text.charAt (index) == '\\' ? 2 : 1;
+        }
+        index++;
+      }
+      else if (Character.isDigit (c))
+      {
+        while (index < length && (Character.isLetterOrDigit (text.charAt (index)) || text.charAt (index) == '.' ||
+                                  text.charAt (index) == '_'))
+        {
+          index++;
+        }
+      }
+      else if (Character.isJavaIdentifierStart (c))
+      {
+        int start = index;
+        while (index < length && Character.isJavaIdentifierPart (text.charAt (index)))
+        {
+          index++;
+        }
+        tokens.add (text.subSequence (start, index).toString ());
+      }
+      else
+      {
+        tokens.add (String.valueOf (c));
+        index++;
+      }
+    }
+  }
+
+  /**
+   * Parses token list and collects declared classes and their references.
+   */
+  private void parse ()
+  {
+    while (position < tokens.size ())
+    {
+      String token = tokens.get (position);
+      if (token.equals ("package") && frames.isEmpty ())
+      {
+        position++;
+        packageName = readDottedName ();
+      }
+      else if (token.equals ("import") && frames.isEmpty ())
+      {
+        position++;
+        parseImport ();
+      }
+      else if (token.equals ("@") && position + 1 < tokens.size () && tokens.get (position + 1).equals ("interface"))
+      {
+        position++;
+      }
+      else if (token.equals ("@"))
+      {
+        // skip annotation name, arguments are scanned normally
+        position++;
+        readDottedName ();
+      }
+      else if ((token.equals ("class") || token.equals ("interface") || token.equals ("enum")) && !isAfterDot ())
+      {
+        position++;
+        parseClassHeader (token.equals ("class"));
+      }
+      else if (token.equals ("{"))
+      {
+        braceDepth++;
+        position++;
+      }
+      else if (token.equals ("}"))
+      {
+        if (!frames.isEmpty () && frames.getLast ().depth == braceDepth)
+        {
+          frames.removeLast ();
+        }
+        braceDepth--;
+        position++;
+      }
+      else if (token.equals ("new"))
+      {
+        position++;
+        if (position < tokens.size () && isIdentifier (tokens.get (position)))
+        {
+          addReference (readDottedName (), UsageType.NEW_EXPRESSION);
+        }
+      }
+      else if (isIdentifier (token) && !isAfterDot ())
+      {
+        parseReferenceChain ();
+      }
+      else
+      {
+        position++;
+      }
+    }
+  }
+
+  /**
+   * Parses an import statement. Static imports are treated as imports of the containing class.
+   */
+  private void parseImport ()
+  {
+    boolean staticImport = position < tokens.size () && tokens.get (position).equals ("static");
+    if (staticImport)
+    {
+      position++;
+    }
+    String name = readDottedName ();
+    boolean onDemand = position + 1 < tokens.size () && tokens.get (position).equals (".") &&
+                       tokens.get (position + 1).equals ("*");
+    if (staticImport)
+    {
+      if (!onDemand)
+      {
+        int lastDot = name.lastIndexOf ('.');
+        name = lastDot >= 0 ? name.substring (0, lastDot) : name;
+      }
+      singleImports.add (name);
+    }
+    else if (onDemand)
+    {
+      onDemandImports.add (name);
+    }
+    else
+    {
+      singleImports.add (name);
+    }
+  }
+
+  /**
+   * Parses a class header up to the opening brace of the class body. Types in extends and implements clauses
+   * are recorded as super types, all other types (e.g. type parameter bounds) as plain references.
+   * @param isClass true, if header belongs to a class; false for interfaces and enums
+   */
+  private void parseClassHeader (boolean isClass)
+  {
+    if (position >= tokens.size () || !isIdentifier (tokens.get (position)))
+    {
+      return;
+    }
+    String name = tokens.get (position++);
+    // classes declared in method bodies or initializers are local classes without qualified name
+    boolean local = !frames.isEmpty () && frames.getLast ().depth != braceDepth;
+    String qualifiedName = null;
+    if (!local && (frames.isEmpty () || frames.getLast ().scannedClass != null))
+    {
+      String prefix = frames.isEmpty () ? packageName : frames.getLast ().scannedClass.qualifiedName;
+      qualifiedName = prefix.length () > 0 ? prefix + "." + name : name;
+    }
+    ClassFrame frame = new ClassFrame (qualifiedName != null ? new ScannedClass (qualifiedName) : null,
+                                       braceDepth + 1);
+    if (frame.scannedClass != null)
+    {
+      scannedClasses.add (frame.scannedClass);
+    }
+    frames.addLast (frame);
+
+    UsageType clauseType = null;
+    int angleDepth = 0;
+    while (position < tokens.size () && !tokens.get (position).equals ("{"))
+    {
+      String token = tokens.get (position);
+      if (token.equals ("<"))
+      {
+        angleDepth++;
+        position++;
+      }
+      else if (token.equals (">"))
+      {
+        angleDepth--;
+        position++;
+      }
+      else if (angleDepth == 0 && token.equals ("extends"))
+      {
+        clauseType = isClass ? UsageType.EXTENDS : UsageType.IMPLEMENTS;
+        position++;
+      }
+      else if (angleDepth == 0 && token.equals ("implements"))
+      {
+        clauseType = UsageType.IMPLEMENTS;
+        position++;
+      }
+      else if (isIdentifier (token))
+      {
+        String typeName = readDottedName ();
+        addReference (typeName, angleDepth == 0 && clauseType != null ? clauseType : UsageType.REFERENCE);
+      }
+      else
+      {
+        position++;
+      }
+    }
+  }
+
+  /**
+   * Parses a chain of dotted identifiers and records the contained type reference, if there is any. A chain
+   * that continues after its type part (e.g. a static method call or a class literal) is recorded as static
+   * reference.
+   */
+  private void parseReferenceChain ()
+  {
+    List<String> segments = new ArrayList<String> ();
+    segments.add (tokens.get (position++));
+    while (position + 1 < tokens.size () && tokens.get (position).equals (".") &&
+           (isIdentifier (tokens.get (position + 1)) || tokens.get (position + 1).equals ("class")))
+    {
+      segments.add (tokens.get (position + 1));
+      position += 2;
+    }
+    // find first segment that looks like a type name
+    int first = 0;
+    while (first < segments.size () && !isTypeName (segments.get (first)))
+    {
+      first++;
+    }
+    if (first == segments.size ())
+    {
+      return;
+    }
+    int last = first;
+    while (last + 1 < segments.size () && isTypeName (segments.get (last + 1)) &&
+           !isConstantName (segments.get (last + 1)))
+    {
+      last++;
+    }
+    StringBuilder typeName = new StringBuilder ();
+    for (int i = 0; i <= last; i++)
+    {
+      typeName.append (i > 0 ? "." : "").append (segments.get (i));
+    }
+    addReference (typeName.toString (), last + 1 < segments.size () ? UsageType.STATIC_REFERENCE : UsageType.REFERENCE);
+  }
+
+  /**
+   * Reads a dotted name (e.g. a package name or a qualified class name) starting at current position.
+   * @return read name
+   */
+  private @NotNull String readDottedName ()
+  {
+    StringBuilder builder = new StringBuilder ();
+    if (position < tokens.size () && isIdentifier (tokens.get (position)))
+    {
+      builder.append (tokens.get (position++));
+      while (position + 1 < tokens.size () && tokens.get (position).equals (".") &&
+             isIdentifier (tokens.get (position + 1)))
+      {
+        builder.append ('.').append (tokens.get (position + 1));
+        position += 2;
+      }
+    }
+    return builder.toString ();
+  }
+
+  /**
+   * Adds a reference to the innermost enclosing named class.
+   * @param typeName referenced type name as written in source
+   * @param usageType usage type of reference
+   */
+  private void addReference (@NotNull String typeName, @NotNull UsageType usageType)
+  {
+    if (typeName.length () == 0 || frames.isEmpty () || frames.getLast ().scannedClass == null)
+    {
+      return;
+    }
+    ScannedClass scannedClass = frames.getLast ().scannedClass;
+    ScannedReference reference = scannedClass.references.get (typeName);
+    if (reference == null)
+    {
+      reference = new ScannedReference (typeName, computeCandidates (typeName), 0);
+      scannedClass.references.put (typeName, reference);
+    }
+    reference.usageMask |= 1 << usageType.ordinal ();
+  }
+
+  /**
+   * Computes all qualified names given type name could refer to, ordered by Java scoping rules.
+   * @param typeName type name as written in source
+   * @return candidate qualified names
+   */
+  private @NotNull String [] computeCandidates (@NotNull String typeName)
+  {
+    Set<String> candidates = new LinkedHashSet<String> ();
+    int dot = typeName.indexOf ('.');
+    String firstSegment = dot >= 0 ? typeName.substring (0, dot) : typeName;
+    String rest         = dot >= 0 ? typeName.substring (dot) : "";
+    for (Iterator<ClassFrame> iterator = frames.descendingIterator (); iterator.hasNext ();)
+    {
+      ClassFrame frame = iterator.next ();
+      if (frame.scannedClass != null)
+      {
+        candidates.add (frame.scannedClass.qualifiedName + "." + typeName);
+      }
+    }
+    for (String singleImport : singleImports)
+    {
+      if (singleImport.equals (firstSegment) || singleImport.endsWith ("." + firstSegment))
+      {
+        candidates.add (singleImport + rest);
+      }
+    }
+    candidates.add (packageName.length () > 0 ? packageName + "." + typeName : typeName);
+    for (String onDemandImport : onDemandImports)
+    {
+      candidates.add (onDemandImport + "." + typeName);
+    }
+    if (dot >= 0)
+    {
+      candidates.add (typeName);
+    }
+    return candidates.toArray (new String [candidates.size ()]);
+  }
+
+  /**
+   * Checks whether the token at current position is preceded by a dot.
+   * @return true, if previous token is a dot; false otherwise
+   */
+  private boolean isAfterDot ()
+  {
+    return position > 0 && tokens.get (position - 1).equals (".");
+  }
+
+  /**
+   * Checks whether given token is an identifier that is no keyword.
+   * @param token token to check
+   * @return true, if token is an identifier; false otherwise
+   */
+  private static boolean isIdentifier (@NotNull String token)
+  {
+    return Character.isJavaIdentifierStart (token.charAt (0)) && !KEYWORDS.contains (token);
+  }
+
+  /**
+   * Checks whether given identifier follows the naming convention for types.
+   * @param identifier identifier to check
+   * @return true, if identifier starts with an upper case letter; false otherwise
+   */
+  private static boolean isTypeName (@NotNull String identifier)
+  {
+    return Character.isUpperCase (identifier.charAt (0));
+  }
+
+  /**
+   * Checks whether given identifier follows the naming convention for constants.
+   * @param identifier identifier to check
+   * @return true, if identifier contains no lower case letters; false otherwise
+   */
+  private static boolean isConstantName (@NotNull String identifier)
+  {
+    for (int i = 0; i < identifier.length (); i++)
+    {
+      if (Character.isLowerCase (identifier.charAt (i)))
+      {
+        return false;
+      }
+    }
+    return identifier.length () > 1;
+  }
+
+  /**
+   * Class declaration that is currently being scanned.
+   */
+  private static class ClassFrame
+  {
+    private final ScannedClass scannedClass;
+    private final int          depth;
+
+    private ClassFrame (@Nullable ScannedClass scannedClass, int depth)
+    {
+      this.scannedClass = scannedClass;
+      this.depth        = depth;
+    }
+  }
+
+  /**
+   * Named class found by scanner together with all type references in its body. References in nested named
+   * classes belong to the nested classes, references in anonymous classes to the enclosing class.
+   */
+  public static class ScannedClass
+  {
+    private final String                        qualifiedName;
+    private final Map<String, ScannedReference> references = new LinkedHashMap<String, ScannedReference> ();
+
+    /**
+     * Creates a new scanned class.
+     * @param qualifiedName qualified name of class
+     */
+    public ScannedClass (@NotNull String qualifiedName)
+    {
+      this.qualifiedName = qualifiedName;
+    }
+
+    public @NotNull String getQualifiedName ()
+    {
+      return qualifiedName;
+    }
+
+    public @NotNull Collection<ScannedReference> getReferences ()
+    {
+      return references.values ();
+    }
+
+    /**
+     * Adds a reference, e.g. after reading a stored scan result.
+     * @param reference reference to add
+     */
+    public void addReference (@NotNull ScannedReference reference)
+    {
+      references.put (reference.typeName, reference);
+    }
+  }
+
+  /**
+   * Unresolved type reference with candidate qualified names and all usage types found for it.
+   */
+  public static class ScannedReference
+  {
+    private final String    typeName;
+    private final String [] candidates;
+    private int             usageMask;
+
+    /**
+     * Creates a new reference.
+     * @param typeName referenced type name as written in source
+     * @param candidates candidate qualified names in resolution order
+     * @param usageMask bit mask of usage type ordinals
+     */
+    public ScannedReference (@NotNull String typeName, @NotNull String [] candidates, int usageMask)
+    {
+      this.typeName   = typeName;
+      this.candidates = candidates;
+      this.usageMask  = usageMask;
+    }
+
+    public @NotNull String getTypeName ()
+    {
+      return typeName;
+    }
+
+    public @NotNull String [] getCandidates ()
+    {
+      return candidates;
+    }
+
+    public int getUsageMask ()
+    {
+      return usageMask;
+    }
+
+    /**
+     * Checks whether this reference was used with given usage type.
+     * @param usageType usage type to check
+     * @return true, if reference has given usage type; false otherwise
+     */
+    public boolean hasUsageType (@NotNull UsageType usageType)
+    {
+      return (usageMask & (1 << usageType.ordinal ())) != 0;
+    }
+
+    /**
+     * Checks whether this reference refers to an extended or implemented class.
+     * @return true, if referenced class is a super type; false otherwise
+     */
+    public boolean isSuperType ()
+    {
+      return hasUsageType (UsageType.EXTENDS) || hasUsageType (UsageType.IMPLEMENTS);
+    }
+
+    /**
+     * Checks whether this reference refers to a class that is used other than as super type.
+     * @return true, if referenced class is used; false otherwise
+     */
+    public boolean isUsage ()
+    {
+      return (usageMask & ~((1 << UsageType.EXTENDS.ordinal ()) | (1 << UsageType.IMPLEMENTS.ordinal ()))) != 0;
+    }
+
+    /**
+     * Resolves this reference against given set of known classes.
+     * @param knownClasses qualified names of known classes
+     * @return first candidate that is a known class or null, if no candidate is known
+     */
+    public @Nullable String resolve (@NotNull Set<String> knownClasses)
+    {
+      for (String candidate : candidates)
+      {
+        if (knownClasses.contains (candidate))
+        {
+          return candidate;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package de.frag.umlplugin.settings;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.JDOMExternalizer;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import de.frag.umlplugin.psi.ClassType;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
@@ -40,9 +41,17 @@ public class Settings
   private boolean     animateNavigation        = true;
   /** Duration of smooth transitions in graphical navigator in milli seconds. */
   private long        animationDuration        = 500;
+  /** Number of animated nodes and edges above which they are faded as a single group. */
+  private int         animationGroupThreshold  = 150;
+  /** Number of animated nodes and edges above which navigation is not animated at all. */
+  private int         animationSkipThreshold   = 1500;
+  /** True, if navigation crossfades between snapshots of both graphs instead of animating single elements. */
+  private boolean     snapshotTransition       = false;
 
   /** Names of classes that should be treated as collections for detecting one-to-many fields. */
   private Set<String> collectionClasses        = new HashSet<String> (Arrays.asList ("java.lang.Iterable", "java.util.Map"));
+  /** Incremented whenever the set of collection classes is replaced or re-read. */
+  private int         collectionVersion        = 0;
 
   /** True, if non-project classes should be included in graphical navigator. */
   private boolean     includeNonProjectClasses = false;
@@ -50,12 +59,23 @@ public class Settings
   private boolean     includeTestClasses       = false;
   /** Name of search scope to be used for filtering classes in class cloud. */
   private String      classCloudScopeName      = null;
+  /** True, if class clouds should be built from the dependency index instead of full PSI trees. */
+  private boolean     indexedClassCloud        = false;
+  /** True, if class clouds should show packages that can be expanded into their classes. */
+  private boolean     aggregatedClassCloud     = false;
+  /** True, if class clouds should move dependency relations to a temporary file after layout. */
+  private boolean     compactClassCloud        = false;
 
   /** True, if cyclic dependencies should be highlighted in graphical navigator. */
   private boolean     hightlightCyclicEdges    = false;
 
   /** Grid size for automatic layout in UML diagrams. */
   private int         gridSize                 =  25;
+  /** Number of members per compartment page in UML diagrams. */
+  private int         compartmentMemberLimit   =  25;
+
+  /** True, if timing statistics of analysis and rendering stages should be recorded. */
+  private boolean     recordStatistics         = false;
 
   /** Standard thumbnail height. */
   private int         thumbnailHeight = 40;
@@ -131,6 +151,36 @@ public class Settings
     this.animationDuration = animationDuration;
   }
 
+  public int getAnimationGroupThreshold ()
+  {
+    return animationGroupThreshold;
+  }
+
+  void setAnimationGroupThreshold (int animationGroupThreshold)
+  {
+    this.animationGroupThreshold = animationGroupThreshold;
+  }
+
+  public int getAnimationSkipThreshold ()
+  {
+    return animationSkipThreshold;
+  }
+
+  void setAnimationSkipThreshold (int animationSkipThreshold)
+  {
+    this.animationSkipThreshold = animationSkipThreshold;
+  }
+
+  public boolean isSnapshotTransition ()
+  {
+    return snapshotTransition;
+  }
+
+  void setSnapshotTransition (boolean snapshotTransition)
+  {
+    this.snapshotTransition = snapshotTransition;
+  }
+
   public @NotNull Set<?> getCollectionClasses ()
   {
     return collectionClasses;
@@ -139,6 +189,16 @@ public class Settings
   void setCollectionClasses (@NotNull Set<String> collectionClasses)
   {
     this.collectionClasses = collectionClasses;
+    collectionVersion++;
+  }
+
+  /**
+   * Gets version of collection classes, so cached collection type checks can detect changes.
+   * @return version that changes whenever collection classes change
+   */
+  public int getCollectionVersion ()
+  {
+    return collectionVersion;
   }
 
   public boolean isIncludeNonProjectClasses ()
@@ -171,6 +231,36 @@ public class Settings
     this.classCloudScopeName = classCloudScopeName;
   }
 
+  public boolean isIndexedClassCloud ()
+  {
+    return indexedClassCloud;
+  }
+
+  void setIndexedClassCloud (boolean indexedClassCloud)
+  {
+    this.indexedClassCloud = indexedClassCloud;
+  }
+
+  public boolean isAggregatedClassCloud ()
+  {
+    return aggregatedClassCloud;
+  }
+
+  void setAggregatedClassCloud (boolean aggregatedClassCloud)
+  {
+    this.aggregatedClassCloud = aggregatedClassCloud;
+  }
+
+  public boolean isCompactClassCloud ()
+  {
+    return compactClassCloud;
+  }
+
+  void setCompactClassCloud (boolean compactClassCloud)
+  {
+    this.compactClassCloud = compactClassCloud;
+  }
+
   public boolean isHightlightCyclicEdges ()
   {
     return hightlightCyclicEdges;
@@ -276,6 +366,27 @@ public class Settings
     this.gridSize = gridSize;
   }
 
+  public boolean isRecordStatistics ()
+  {
+    return recordStatistics;
+  }
+
+  void setRecordStatistics (boolean recordStatistics)
+  {
+    this.recordStatistics = recordStatistics;
+    Instrumentation.setEnabled (recordStatistics);
+  }
+
+  public int getCompartmentMemberLimit ()
+  {
+    return compartmentMemberLimit;
+  }
+
+  void setCompartmentMemberLimit (int compartmentMemberLimit)
+  {
+    this.compartmentMemberLimit = Math.max (compartmentMemberLimit, 1);
+  }
+
   public @NotNull Color getNormalCloudColor ()
   {
     return normalCloudColor;
@@ -372,10 +483,16 @@ public class Settings
 
     setAnimateNavigation (JDOMExternalizer.readBoolean (element, "animateNavigation"));
     setAnimationDuration (JDOMExternalizer.readInteger (element, "animationDuration", 500));
+    setAnimationGroupThreshold (JDOMExternalizer.readInteger (element, "animationGroupThreshold", 150));
+    setAnimationSkipThreshold (JDOMExternalizer.readInteger (element, "animationSkipThreshold", 1500));
+    setSnapshotTransition (JDOMExternalizer.readBoolean (element, "snapshotTransition"));
 
     setIncludeNonProjectClasses (JDOMExternalizer.readBoolean (element, "includeNonProjectClasses"));
     setIncludeTestClasses       (JDOMExternalizer.readBoolean (element, "includeTestClasses"));
     setClassCloudScopeName      (JDOMExternalizer.readString  (element, "classCloudScopeName"));
+    setIndexedClassCloud        (JDOMExternalizer.readBoolean (element, "indexedClassCloud"));
+    setAggregatedClassCloud     (JDOMExternalizer.readBoolean (element, "aggregatedClassCloud"));
+    setCompactClassCloud        (JDOMExternalizer.readBoolean (element, "compactClassCloud"));
 
     setHightlightCyclicEdges (JDOMExternalizer.readBoolean (element, "hightlightCyclicEdges"));
 
@@ -386,8 +503,12 @@ public class Settings
     JDOMExternalizer.readMap (element, map, "collectionClasses", "collection");
     collectionClasses.clear ();
     collectionClasses.addAll (map.keySet ());
+    collectionVersion++;
 
     setGridSize (JDOMExternalizer.readInteger (element, "gridSize", 25));
+    setCompartmentMemberLimit (JDOMExternalizer.readInteger (element, "compartmentMemberLimit", 25));
+
+    setRecordStatistics (JDOMExternalizer.readBoolean (element, "recordStatistics"));
   }
 
   /**
@@ -431,10 +552,16 @@ public class Settings
 
     JDOMExternalizer.write (element, "animateNavigation",  animateNavigation);
     JDOMExternalizer.write (element, "animationDuration",  (int) animationDuration);
+    JDOMExternalizer.write (element, "animationGroupThreshold", animationGroupThreshold);
+    JDOMExternalizer.write (element, "animationSkipThreshold",  animationSkipThreshold);
+    JDOMExternalizer.write (element, "snapshotTransition",      snapshotTransition);
 
     JDOMExternalizer.write (element, "includeNonProjectClasses", includeNonProjectClasses);
     JDOMExternalizer.write (element, "includeTestClasses",       includeTestClasses);
     JDOMExternalizer.write (element, "classCloudScopeName",      classCloudScopeName);
+    JDOMExternalizer.write (element, "indexedClassCloud",        indexedClassCloud);
+    JDOMExternalizer.write (element, "aggregatedClassCloud",     aggregatedClassCloud);
+    JDOMExternalizer.write (element, "compactClassCloud",        compactClassCloud);
 
     JDOMExternalizer.write (element, "hightlightCyclicEdges",    hightlightCyclicEdges);
 
@@ -449,5 +576,8 @@ public class Settings
     JDOMExternalizer.writeMap (element, map, "collectionClasses", "collection");
 
     JDOMExternalizer.write (element, "gridSize", gridSize);
+    JDOMExternalizer.write (element, "compartmentMemberLimit", compartmentMemberLimit);
+
+    JDOMExternalizer.write (element, "recordStatistics", recordStatistics);
   }
 }
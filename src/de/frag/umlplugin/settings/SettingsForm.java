@@ -25,6 +25,9 @@ public class SettingsForm
   private final ColorPanel    extendedCloudColorPanel;
   private final JSpinner      minFontSizeCloudSpinner;
   private final JSpinner      maxFontSizeCloudSpinner;
+  private final JCheckBox     indexedCloudCheckBox;
+  private final JCheckBox     aggregatedCloudCheckBox;
+  private final JCheckBox     compactCloudCheckBox;
 
   private final ColorPanel    classColorPanel;
   private final ColorPanel    abstractClassColorPanel;
@@ -33,6 +36,9 @@ public class SettingsForm
 
   private final JCheckBox     animationCheckBox;
   private final JSpinner      animationDurationSpinner;
+  private final JSpinner      animationGroupSpinner;
+  private final JSpinner      animationSkipSpinner;
+  private final JCheckBox     snapshotTransitionCheckBox;
 
   private final AddDeleteList collectionClassesPanel;
   private final JTextField    collectionField;
@@ -41,8 +47,10 @@ public class SettingsForm
   private final JCheckBox     testClassesCheckBox;
 
   private final JSpinner      gridSizeSpinner;
+  private final JSpinner      memberLimitSpinner;
 
   private final JCheckBox     highlightEdgesCheckBox;
+  private final JCheckBox     recordStatisticsCheckBox;
 
   /**
    * Creates a new settings form by creating all GUI elements and building a layout.
@@ -59,9 +67,15 @@ public class SettingsForm
     extendedCloudColorPanel   = new ColorPanel ();
     minFontSizeCloudSpinner   = new JSpinner (new SpinnerNumberModel ( 5,  4, 12, 1));
     maxFontSizeCloudSpinner   = new JSpinner (new SpinnerNumberModel (32, 12, 60, 1));
+    indexedCloudCheckBox      = new JCheckBox ("Analyze dependencies using index (faster, less precise)");
+    aggregatedCloudCheckBox   = new JCheckBox ("Aggregate classes by package (expand packages on click)");
+    compactCloudCheckBox      = new JCheckBox ("Swap dependencies to disk after layout (saves memory)");
 
     animationCheckBox         = new JCheckBox ("Enable Animations");
     animationDurationSpinner  = new JSpinner (new SpinnerNumberModel (500, 50, 5000, 10));
+    animationGroupSpinner     = new JSpinner (new SpinnerNumberModel (150, 10, 10000, 10));
+    animationSkipSpinner      = new JSpinner (new SpinnerNumberModel (1500, 10, 100000, 100));
+    snapshotTransitionCheckBox = new JCheckBox ("Crossfade snapshots (fast for large graphs)");
 
     collectionField           = new JTextField ();
     collectionClassesPanel    = new AddDeleteList ();
@@ -72,12 +86,18 @@ public class SettingsForm
     highlightEdgesCheckBox    = new JCheckBox ("Highlight edges for cyclic dependencies");
 
     gridSizeSpinner           = new JSpinner (new SpinnerNumberModel (25, 5, 200, 5));
+    memberLimitSpinner        = new JSpinner (new SpinnerNumberModel (25, 1, 1000, 5));
+
+    recordStatisticsCheckBox  = new JCheckBox ("Record timing statistics");
 
     animationCheckBox.addChangeListener (new ChangeListener()
     {
       public void stateChanged (ChangeEvent e)
       {
         animationDurationSpinner.setEnabled (animationCheckBox.isSelected ());
+        animationGroupSpinner.setEnabled    (animationCheckBox.isSelected ());
+        animationSkipSpinner.setEnabled     (animationCheckBox.isSelected ());
+        snapshotTransitionCheckBox.setEnabled (animationCheckBox.isSelected ());
       }
     });
 
@@ -113,6 +133,18 @@ public class SettingsForm
             builder.add (maxFontSizeCloudSpinner,                  LABEL);
             builder.addHSpace ();
           builder.end ();
+          builder.beginH ();
+            builder.add (indexedCloudCheckBox,                     LABEL);
+            builder.addHSpace ();
+          builder.end ();
+          builder.beginH ();
+            builder.add (aggregatedCloudCheckBox,                  LABEL);
+            builder.addHSpace ();
+          builder.end ();
+          builder.beginH ();
+            builder.add (compactCloudCheckBox,                     LABEL);
+            builder.addHSpace ();
+          builder.end ();
         builder.end ();
       builder.end ();
 
@@ -134,6 +166,18 @@ public class SettingsForm
             builder.add (animationDurationSpinner,                 FILL_X);
             builder.add (new JLabel ("ms"),                        LABEL);
             builder.addHSpace ();
+            builder.add (new JLabel ("Group Fades Above:"),        LABEL);
+            builder.add (animationGroupSpinner,                    FILL_X);
+            builder.add (new JLabel ("elements"),                  LABEL);
+            builder.addHSpace ();
+            builder.add (new JLabel ("Skip Animation Above:"),     LABEL);
+            builder.add (animationSkipSpinner,                     FILL_X);
+            builder.add (new JLabel ("elements"),                  LABEL);
+            builder.addHSpace ();
+            builder.add (snapshotTransitionCheckBox,               LABEL);
+            builder.addHSpace ();
+            builder.addHSpace ();
+            builder.addHSpace ();
           builder.end ();
           JPanel classFilterPanel = builder.beginH (2);
             builder.add (nonProjectClassesCheckBox,                LABEL);
@@ -149,6 +193,13 @@ public class SettingsForm
             builder.add (new JLabel ("Grid Size:"),                LABEL);
             builder.add (gridSizeSpinner,                          LABEL);
             builder.addHSpace ();
+            builder.add (new JLabel ("Members per Compartment:"),  LABEL);
+            builder.add (memberLimitSpinner,                       LABEL);
+            builder.addHSpace ();
+          builder.end ();
+          JPanel diagnosticsPanel = builder.beginH (2);
+            builder.add (recordStatisticsCheckBox,                 LABEL);
+            builder.addHSpace ();
           builder.end ();
           builder.addVSpace ();
         builder.end ();
@@ -162,6 +213,7 @@ public class SettingsForm
     dependenciesPanel.setBorder     (createBorder ("Cyclic Dependencies"));
     collectionPanel.setBorder       (createBorder ("Collection Classes and Interfaces"));
     umlDiagramLayoutPanel.setBorder (createBorder ("UML Diagram layout"));
+    diagnosticsPanel.setBorder      (createBorder ("Diagnostics"));
   }
 
   /**
@@ -199,9 +251,15 @@ public class SettingsForm
     extendedCloudColorPanel.setSelectedColor (data.getExtendedCloudColor ());
     minFontSizeCloudSpinner.setValue         (data.getMinFontSize ());
     maxFontSizeCloudSpinner.setValue         (data.getMaxFontSize ());
+    indexedCloudCheckBox.setSelected         (data.isIndexedClassCloud ());
+    aggregatedCloudCheckBox.setSelected      (data.isAggregatedClassCloud ());
+    compactCloudCheckBox.setSelected         (data.isCompactClassCloud ());
 
     animationCheckBox.setSelected     (data.isAnimateNavigation ());
     animationDurationSpinner.setValue (data.getAnimationDuration ());
+    animationGroupSpinner.setValue    (data.getAnimationGroupThreshold ());
+    animationSkipSpinner.setValue     (data.getAnimationSkipThreshold ());
+    snapshotTransitionCheckBox.setSelected (data.isSnapshotTransition ());
 
     collectionClassesPanel.setListItems (data.getCollectionClasses ());
 
@@ -211,6 +269,9 @@ public class SettingsForm
     highlightEdgesCheckBox.setSelected (data.isHightlightCyclicEdges ());
 
     gridSizeSpinner.setValue (data.getGridSize ());
+    memberLimitSpinner.setValue (data.getCompartmentMemberLimit ());
+
+    recordStatisticsCheckBox.setSelected (data.isRecordStatistics ());
   }
 
   /**
@@ -231,10 +292,16 @@ public class SettingsForm
     int maxFontSize = ((SpinnerNumberModel) maxFontSizeCloudSpinner.getModel ()).getNumber ().intValue ();
     data.setMinFontSize        (minFontSize);
     data.setMaxFontSize        (maxFontSize);
+    data.setIndexedClassCloud  (indexedCloudCheckBox.isSelected ());
+    data.setAggregatedClassCloud (aggregatedCloudCheckBox.isSelected ());
+    data.setCompactClassCloud  (compactCloudCheckBox.isSelected ());
 
     data.setAnimateNavigation (animationCheckBox.isSelected ());
     int animationDuration = ((SpinnerNumberModel) animationDurationSpinner.getModel ()).getNumber ().intValue ();
     data.setAnimationDuration (animationDuration);
+    data.setAnimationGroupThreshold (((SpinnerNumberModel) animationGroupSpinner.getModel ()).getNumber ().intValue ());
+    data.setAnimationSkipThreshold  (((SpinnerNumberModel) animationSkipSpinner.getModel ()).getNumber ().intValue ());
+    data.setSnapshotTransition (snapshotTransitionCheckBox.isSelected ());
 
     Object [] collections = collectionClassesPanel.getListItems ();
     Set collectionsSet = new HashSet<Object> (Arrays.asList (collections));
@@ -248,6 +315,10 @@ public class SettingsForm
 
     int gridSize = ((SpinnerNumberModel) gridSizeSpinner.getModel ()).getNumber ().intValue ();
     data.setGridSize (gridSize);
+    int memberLimit = ((SpinnerNumberModel) memberLimitSpinner.getModel ()).getNumber ().intValue ();
+    data.setCompartmentMemberLimit (memberLimit);
+
+    data.setRecordStatistics (recordStatisticsCheckBox.isSelected ());
   }
 
   /**
@@ -269,9 +340,15 @@ public class SettingsForm
             !extendedCloudColorPanel.getSelectedColor ().equals (data.getExtendedCloudColor ()) ||
             !minFontSizeCloudSpinner.getValue ().equals (data.getMinFontSize ()) ||
             !maxFontSizeCloudSpinner.getValue ().equals (data.getMaxFontSize ()) ||
+            indexedCloudCheckBox.isSelected () != data.isIndexedClassCloud () ||
+            aggregatedCloudCheckBox.isSelected () != data.isAggregatedClassCloud () ||
+            compactCloudCheckBox.isSelected () != data.isCompactClassCloud () ||
 
             animationCheckBox.isSelected () != data.isAnimateNavigation ()) ||
             !animationDurationSpinner.getValue ().equals (data.getAnimationDuration ()) ||
+            !animationGroupSpinner.getValue ().equals (data.getAnimationGroupThreshold ()) ||
+            !animationSkipSpinner.getValue ().equals (data.getAnimationSkipThreshold ()) ||
+            snapshotTransitionCheckBox.isSelected () != data.isSnapshotTransition () ||
 
             !data.getCollectionClasses ().equals (collectionsSet) ||
 
@@ -279,8 +356,11 @@ public class SettingsForm
             (testClassesCheckBox.isSelected () != data.isIncludeTestClasses () ||
 
             !gridSizeSpinner.getValue ().equals (data.getGridSize ()) ||
+            !memberLimitSpinner.getValue ().equals (data.getCompartmentMemberLimit ()) ||
+
+            (highlightEdgesCheckBox.isSelected () != data.isHightlightCyclicEdges ()) ||
 
-            (highlightEdgesCheckBox.isSelected () != data.isHightlightCyclicEdges ()));
+            (recordStatisticsCheckBox.isSelected () != data.isRecordStatistics ()));
   }
 
   /**
@@ -5,8 +5,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -17,10 +19,13 @@ public class CompartmentVisibility
   public  static final String COMPARTMENT_VISIBILITY = "compartment-visibility";
   private static final String SHOW_FIELDS            = "show-fields";
   private static final String SHOW_METHODS           = "show-methods";
+  private static final String MEMBER_PAGES           = "member-pages";
   private static final String CLASS                  = "class";
+  private static final String PAGES                  = "pages";
 
-  private final Set<String> classesWithVisibleFields  = new HashSet<String> ();
-  private final Set<String> classesWithVisibleMethods = new HashSet<String> ();
+  private final Set<String>          classesWithVisibleFields  = new HashSet<String> ();
+  private final Set<String>          classesWithVisibleMethods = new HashSet<String> ();
+  private final Map<String, Integer> memberPages               = new HashMap<String, Integer> ();
 
   /**
    * Creates new compartment visibility. Initially all field- and method-compartments will be invisible.
@@ -47,6 +52,21 @@ public class CompartmentVisibility
       {
         classesWithVisibleMethods.add (childElement.getAttributeValue (CLASS));
       }
+      else if (childElement.getName ().equals (MEMBER_PAGES))
+      {
+        try
+        {
+          int pages = Integer.parseInt (childElement.getAttributeValue (PAGES));
+          if (pages > 1)
+          {
+            memberPages.put (childElement.getAttributeValue (CLASS), pages);
+          }
+        }
+        catch (NumberFormatException e)
+        {
+          // ignore, class will show first page only
+        }
+      }
       else
       {
         throw new IllegalArgumentException ("unknown element type: " + childElement);
@@ -148,6 +168,41 @@ public class CompartmentVisibility
     toggleMethodsVisible (qualifiedClassName);
   }
 
+  /**
+   * Gets maximum number of members that will be shown per compartment for given class.
+   * @param qualifiedClassName qualified name of class
+   * @param pageSize number of members per page
+   * @return maximum number of shown members
+   */
+  public int getMemberLimit (@Nullable String qualifiedClassName, int pageSize)
+  {
+    Integer pages = memberPages.get (qualifiedClassName);
+    long limit = (long) pageSize * (pages != null ? pages : 1);
+    return (int) Math.min (limit, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Shows one more page of members in all compartments of given class.
+   * @param qualifiedClassName target class
+   */
+  public void showMoreMembers (@Nullable String qualifiedClassName)
+  {
+    if (qualifiedClassName != null)
+    {
+      Integer pages = memberPages.get (qualifiedClassName);
+      memberPages.put (qualifiedClassName, pages != null ? pages + 1 : 2);
+    }
+  }
+
+  /**
+   * Collapses compartments of given class, so only the first page of members will be shown.
+   * @param qualifiedClassName target class
+   */
+  public void collapseMembers (@Nullable String qualifiedClassName)
+  {
+    memberPages.remove (qualifiedClassName);
+  }
+
   /**
    * Creates JDOM element that contains a serialized description of this compartment visibility object.
    * @return created JDOM element
@@ -167,6 +222,13 @@ public class CompartmentVisibility
       methodElement.setAttribute (CLASS, classWithVisibleMethod);
       visibilityElement.addContent (methodElement);
     }
+    for (Map.Entry<String, Integer> entry : memberPages.entrySet ())
+    {
+      Element pagesElement = new Element (MEMBER_PAGES);
+      pagesElement.setAttribute (CLASS, entry.getKey ());
+      pagesElement.setAttribute (PAGES, String.valueOf (entry.getValue ()));
+      visibilityElement.addContent (pagesElement);
+    }
     return visibilityElement;
   }
 
@@ -179,6 +241,12 @@ public class CompartmentVisibility
   {
     renameClasses (classesWithVisibleFields,  renamer);
     renameClasses (classesWithVisibleMethods, renamer);
+    Map<String, Integer> pages = new HashMap<String, Integer> (memberPages);
+    memberPages.clear ();
+    for (Map.Entry<String, Integer> entry : pages.entrySet ())
+    {
+      memberPages.put (renamer.rename (entry.getKey ()), entry.getValue ());
+    }
   }
 
   /**
@@ -2,15 +2,15 @@ package de.frag.umlplugin.uml;
 
 import com.intellij.openapi.graph.GraphManager;
 import com.intellij.openapi.graph.base.*;
-import com.intellij.openapi.graph.layout.BufferedLayouter;
-import com.intellij.openapi.graph.layout.GraphLayout;
 import com.intellij.openapi.graph.layout.LayoutOrientation;
 import com.intellij.openapi.graph.layout.orthogonal.DirectedOrthogonalLayouter;
 import com.intellij.openapi.graph.view.*;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiClass;
+import de.frag.umlplugin.LayoutScheduler;
 import de.frag.umlplugin.UMLEdgeFactory;
 import de.frag.umlplugin.history.HistoryList;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import de.frag.umlplugin.psi.*;
 import de.frag.umlplugin.settings.Settings;
 import de.frag.umlplugin.uml.command.AbstractDiagramCommand;
@@ -44,6 +44,7 @@ public class UMLDiagram implements Comparable<UMLDiagram>, Iterable<String>
   private final HistoryList<DiagramCommand> commands        = new HistoryList<DiagramCommand> (MAX_HISTORY_SIZE);
   private final Map<String, Node>           classNameToNode = new HashMap<String, Node> ();
   private final UMLEdgeFactory              edgeFactory;
+  private final LayoutScheduler             layoutScheduler = new LayoutScheduler ();
   private       CompartmentVisibility       compartmentVisibility;
 
   /**
@@ -254,27 +255,36 @@ public class UMLDiagram implements Comparable<UMLDiagram>, Iterable<String>
   }
 
   /**
-   * Recomputes layout of this diagram.
+   * Recomputes layout of this diagram. The layout is computed on a copy of the graph in a background thread
+   * and applied as soon as it is ready; a pending layout is discarded when a newer one is requested.
    * @param animate true, if layout ill be animated; false otherwise
    */
   public void doLayout (boolean animate)
   {
-    GraphManager graphManager = GraphManager.getGraphManager ();
+    final GraphManager graphManager = GraphManager.getGraphManager ();
     DirectedOrthogonalLayouter layouter = graphManager.createDirectedOrthogonalLayouter ();
     layouter.setGrid (Settings.getSettings ().getGridSize ());
     layouter.setLayoutOrientation (LayoutOrientation.BOTTOM_TO_TOP);
 
-    if (Settings.getSettings ().isAnimateNavigation () && animate)
+    final boolean morph = Settings.getSettings ().isAnimateNavigation () && animate;
+    final long start = Instrumentation.start ();
+    layoutScheduler.schedule (graph, layouter, new LayoutScheduler.LayoutListener ()
     {
-      BufferedLayouter bufferedLayouter = graphManager.createBufferedLayouter (layouter);
-      GraphLayout layoutedGraph = bufferedLayouter.calcLayout (graph);
-      LayoutMorpher layoutMorpher = graphManager.createLayoutMorpher (view, layoutedGraph);
-      layoutMorpher.execute ();
-    }
-    else
-    {
-      layouter.doLayout (graph);
-    }
+      public void layoutComputed (@NotNull LayoutScheduler.LayoutResult result)
+      {
+        Instrumentation.stop ("UMLDiagram.doLayout", start);
+        if (morph)
+        {
+          LayoutMorpher layoutMorpher = graphManager.createLayoutMorpher (view, result.createGraphLayout ());
+          layoutMorpher.execute ();
+        }
+        else
+        {
+          result.commit ();
+          view.updateView ();
+        }
+      }
+    });
   }
 
   /**
@@ -288,26 +298,37 @@ public class UMLDiagram implements Comparable<UMLDiagram>, Iterable<String>
     {
       return null;
     }
-    GraphManager graphManager = GraphManager.getGraphManager ();
-    ShapeNodeRealizer nodeRealizer = graphManager.createShapeNodeRealizer (ShapeNodeRealizer.ROUND_RECT);
-    Node classNode = graph.createNode (nodeRealizer);
-    classNameToNode.put (psiClass.getQualifiedName (), classNode);
-    NodeInfo info = new NodeInfo (psiClass);
-    nodeMap.set (classNode, info);
     ClassType classType = DependencyAnalyzer.computeClassType (psiClass);
-    nodeRealizer.setFillColor (Settings.getSettings ().getColorForClassType (classType));
     String name = psiClass.getQualifiedName ();
     boolean fieldsVisible  = compartmentVisibility.isFieldsVisible (name);
     boolean methodsVisible = compartmentVisibility.isMethodsVisible (name);
-    String nodeText = ClassPresentation.renderHtml (psiClass, classType, fieldsVisible, methodsVisible);
-    nodeRealizer.setLabelText (nodeText);
-    NodeLabel label = nodeRealizer.getLabel ();
+    int memberLimit = compartmentVisibility.getMemberLimit (name, Settings.getSettings ().getCompartmentMemberLimit ());
+    ClassPresentationCache cache = ClassPresentationCache.getInstance (project);
+    ClassPresentationCache.Presentation presentation = cache.get (psiClass, classType, fieldsVisible, methodsVisible,
+                                                                  memberLimit);
+    if (presentation == null)
+    {
+      // render and measure once, then copy measured template until containing file is modified
+      String [] fieldLines  = fieldsVisible  ? cache.getFieldLines  (psiClass) : null;
+      String [] methodLines = methodsVisible ? cache.getMethodLines (psiClass) : null;
+      String nodeText = ClassPresentation.renderHtml (psiClass, classType, fieldLines, methodLines, memberLimit);
+      GraphManager graphManager = GraphManager.getGraphManager ();
+      ShapeNodeRealizer template = graphManager.createShapeNodeRealizer (ShapeNodeRealizer.ROUND_RECT);
+      template.setLabelText (nodeText);
+      NodeLabel label = template.getLabel ();
+      int width = (int) label.getWidth ();
+      template.setLabelText (ClassPresentation.setSeparatorWidth (nodeText, width));
+      template.setSize (Math.max (label.getWidth  () + 10, MIN_NODE_WIDTH),
+                        Math.max (label.getHeight () + 10, MIN_NODE_HEIGHT));
+      presentation = cache.put (psiClass, classType, fieldsVisible, methodsVisible, memberLimit, template);
+    }
+    NodeRealizer nodeRealizer = presentation.createRealizer ();
+    nodeRealizer.setFillColor (Settings.getSettings ().getColorForClassType (classType));
     nodeRealizer.setLocation (MAX_HISTORY_SIZE, MAX_HISTORY_SIZE);
-    int width = (int) label.getWidth ();
-    nodeText = nodeText.replace ("width='" + ClassPresentation.MAGIC_WIDTH +"'", "width='" + width + "'");
-    nodeRealizer.setLabelText (nodeText);
-    nodeRealizer.setSize (Math.max (label.getWidth  () + 10, MIN_NODE_WIDTH),
-                          Math.max (label.getHeight () + 10, MIN_NODE_HEIGHT));
+    Node classNode = graph.createNode (nodeRealizer);
+    classNameToNode.put (name, classNode);
+    NodeInfo info = new NodeInfo (psiClass);
+    nodeMap.set (classNode, info);
     return classNode;
   }
 
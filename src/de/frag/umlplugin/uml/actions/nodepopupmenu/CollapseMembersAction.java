@@ -0,0 +1,21 @@
+package de.frag.umlplugin.uml.actions.nodepopupmenu;
+
+import com.intellij.psi.PsiClass;
+import de.frag.umlplugin.uml.UMLDiagram;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collapses fields and methods of a single class to the first page.
+ */
+public class CollapseMembersAction extends AbstractToggleVisibilityAction
+{
+  /**
+   * Changes visibility of compartments for given diagram and class.
+   * @param diagram  diagram
+   * @param psiClass class
+   */
+  protected void changeVisibility (@NotNull UMLDiagram diagram, @NotNull PsiClass psiClass)
+  {
+    diagram.getCompartmentVisibility ().collapseMembers (psiClass.getQualifiedName ());
+  }
+}
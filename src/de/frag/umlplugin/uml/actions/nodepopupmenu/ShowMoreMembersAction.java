@@ -0,0 +1,65 @@
+package de.frag.umlplugin.uml.actions.nodepopupmenu;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import de.frag.umlplugin.ProjectUtils;
+import de.frag.umlplugin.psi.ClassPresentationCache;
+import de.frag.umlplugin.settings.Settings;
+import de.frag.umlplugin.uml.CompartmentVisibility;
+import de.frag.umlplugin.uml.UMLDiagram;
+import de.frag.umlplugin.uml.UMLDiagramsPanel;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Shows one more page of fields and methods for a single class.
+ */
+public class ShowMoreMembersAction extends AbstractToggleVisibilityAction
+{
+  /**
+   * Updates the state of the action. The action is only enabled if a visible compartment of the selected class
+   * has hidden members.
+   * @param e Carries information on the invocation place and data available
+   */
+  public void update (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    UMLDiagramsPanel diagrams = ProjectUtils.get (project, UMLDiagramsPanel.class);
+    UMLDiagram diagram = diagrams != null ? diagrams.getCurrentDiagram () : null;
+    Node node = ProjectUtils.get (project, Node.class);
+    // popup node might already have been removed from its graph
+    PsiClass psiClass = node != null && node.getGraph () != null ? UMLDiagram.getPsiClass (node) : null;
+    e.getPresentation ().setEnabled (project != null && diagram != null && psiClass != null && psiClass.isValid () &&
+                                     hasHiddenMembers (project, diagram, psiClass));
+  }
+
+  /**
+   * Changes visibility of compartments for given diagram and class.
+   * @param diagram  diagram
+   * @param psiClass class
+   */
+  protected void changeVisibility (@NotNull UMLDiagram diagram, @NotNull PsiClass psiClass)
+  {
+    diagram.getCompartmentVisibility ().showMoreMembers (psiClass.getQualifiedName ());
+  }
+
+  /**
+   * Checks whether any visible compartment of given class has more members than are currently shown.
+   * @param project current project
+   * @param diagram diagram that contains given class
+   * @param psiClass class to check
+   * @return true, if some members are hidden; false otherwise
+   */
+  private boolean hasHiddenMembers (@NotNull Project project, @NotNull UMLDiagram diagram,
+                                    @NotNull PsiClass psiClass)
+  {
+    String name = psiClass.getQualifiedName ();
+    CompartmentVisibility visibility = diagram.getCompartmentVisibility ();
+    int memberLimit = visibility.getMemberLimit (name, Settings.getSettings ().getCompartmentMemberLimit ());
+    ClassPresentationCache cache = ClassPresentationCache.getInstance (project);
+    return visibility.isFieldsVisible  (name) && cache.getFieldLines  (psiClass).length > memberLimit ||
+           visibility.isMethodsVisible (name) && cache.getMethodLines (psiClass).length > memberLimit;
+  }
+}
@@ -0,0 +1,166 @@
+package de.frag.umlplugin.uml.actions.toolbar;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataKeys;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogBuilder;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.TextFieldWithBrowseButton;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import de.frag.umlplugin.ProjectUtils;
+import static de.frag.umlplugin.guilayout.BuilderConstants.*;
+import de.frag.umlplugin.guilayout.LayoutBuilder;
+import de.frag.umlplugin.graphio.GraphFileType;
+import de.frag.umlplugin.settings.Settings;
+import de.frag.umlplugin.uml.UMLDiagram;
+import de.frag.umlplugin.uml.UMLDiagramsPanel;
+import de.frag.umlplugin.uml.diagramio.BatchExport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports all or selected diagrams to separate files in a background task.
+ */
+public class ExportDiagramsAction extends AnAction
+{
+  private static final Key<String> FOLDER_KEY = new Key<String> ("UMLDiagramExportPath");
+
+  /**
+   * Updates the state of the action.
+   * @param e Carries information on the invocation place and data available
+   */
+  public void update (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    UMLDiagramsPanel diagrams = ProjectUtils.get (project, UMLDiagramsPanel.class);
+    e.getPresentation ().setEnabled (diagrams != null && diagrams.iterator ().hasNext ());
+  }
+
+  /**
+   * Asks for diagrams, file type and target folder and starts export.
+   * @param e Carries information on the invocation place
+   */
+  public void actionPerformed (AnActionEvent e)
+  {
+    Project project = DataKeys.PROJECT.getData (e.getDataContext ());
+    UMLDiagramsPanel diagrams = ProjectUtils.get (project, UMLDiagramsPanel.class);
+    if (project == null || diagrams == null)
+    {
+      return;
+    }
+    BatchExport export = showExportDialog (project, diagrams);
+    if (export == null)
+    {
+      return;
+    }
+    int existingFiles = export.countExistingFiles ();
+    if (existingFiles > 0)
+    {
+      int answer = Messages.showYesNoDialog (project, existingFiles + " file(s) already exist. " +
+                                             "Overwrite existing files?", "Files exist", Messages.getQuestionIcon ());
+      if (answer == 1)
+      {
+        return;
+      }
+    }
+    ProgressManager.getInstance ().run (export);
+  }
+
+  /**
+   * Shows dialog for choosing diagrams, file type and target folder.
+   * @param project current project
+   * @param diagrams diagrams panel
+   * @return export task for chosen diagrams or null, if user aborted dialog
+   */
+  private @Nullable BatchExport showExportDialog (@NotNull Project project, @NotNull UMLDiagramsPanel diagrams)
+  {
+    DialogBuilder builder = new DialogBuilder (project);
+    builder.setTitle ("Export diagrams");
+    Settings settings = Settings.getSettings ();
+
+    DefaultListModel diagramListModel = new DefaultListModel ();
+    for (UMLDiagram diagram : diagrams)
+    {
+      diagramListModel.addElement (diagram);
+    }
+    JList diagramList = new JList (diagramListModel);
+    diagramList.setSelectionInterval (0, diagramListModel.getSize () - 1);
+    diagramList.setVisibleRowCount (10);
+
+    final JComboBox fileTypeComboBox = new JComboBox (new GraphFileType [] {GraphFileType.PNG, GraphFileType.SVG,
+                                                                             GraphFileType.SVGZ,
+                                                                             GraphFileType.GRAPHML});
+    final JCheckBox saveThumbnailsCheckBox = new JCheckBox ("Save thumbnails");
+    saveThumbnailsCheckBox.setSelected (settings.isSaveThumbnails ());
+    fileTypeComboBox.addActionListener (new ActionListener ()
+    {
+      public void actionPerformed (ActionEvent e)
+      {
+        saveThumbnailsCheckBox.setEnabled (((GraphFileType) fileTypeComboBox.getSelectedItem ()).canWriteThumbnail ());
+      }
+    });
+    fileTypeComboBox.setSelectedIndex (0);
+
+    TextFieldWithBrowseButton folderField = new TextFieldWithBrowseButton ();
+    folderField.addBrowseFolderListener ("Choose export folder.", "Select folder for exported diagram files.",
+                                         project, FileChooserDescriptorFactory.createSingleFolderDescriptor ());
+    folderField.getTextField ().setColumns (40);
+    String folder = project.getUserData (FOLDER_KEY);
+    if (folder == null)
+    {
+      VirtualFile baseDir = project.getBaseDir ();
+      folder = baseDir != null ? baseDir.getPath () : "";
+    }
+    folderField.setText (folder);
+
+    LayoutBuilder layoutBuilder = new LayoutBuilder ();
+    layoutBuilder.setDefaultInsets (new Insets (5, 5, 5, 5));
+    JPanel panel = layoutBuilder.beginV ();
+      layoutBuilder.add (new JScrollPane (diagramList), STRETCH_XY);
+      layoutBuilder.beginH (2);
+        layoutBuilder.add (new JLabel ("File Type:"), LABEL);
+        layoutBuilder.add (fileTypeComboBox,          STRETCH_X);
+        layoutBuilder.add (new JLabel ("Folder:"),    LABEL);
+        layoutBuilder.add (folderField,               STRETCH_X);
+      layoutBuilder.end ();
+      layoutBuilder.add (saveThumbnailsCheckBox, LABEL);
+    layoutBuilder.end ();
+
+    builder.setCenterPanel (panel);
+    builder.addOkAction ().setText ("Export");
+    builder.addCancelAction ();
+    if (builder.show () != 0)
+    {
+      return null;
+    }
+    List<UMLDiagram> selectedDiagrams = new ArrayList<UMLDiagram> ();
+    for (Object selected : diagramList.getSelectedValues ())
+    {
+      selectedDiagrams.add ((UMLDiagram) selected);
+    }
+    folder = folderField.getText ();
+    if (selectedDiagrams.isEmpty () || !new File (folder).isDirectory ())
+    {
+      Messages.showErrorDialog (project, "Select at least one diagram and an existing folder.",
+                                "Error while exporting diagrams");
+      return null;
+    }
+    project.putUserData (FOLDER_KEY, folder);
+    settings.setSaveThumbnails (saveThumbnailsCheckBox.isSelected ());
+    GraphFileType fileType = (GraphFileType) fileTypeComboBox.getSelectedItem ();
+    return new BatchExport (project, selectedDiagrams, fileType, folder,
+                            saveThumbnailsCheckBox.isSelected (), settings.getThumbnailHeight ());
+  }
+}
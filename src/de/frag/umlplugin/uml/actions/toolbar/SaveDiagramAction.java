@@ -60,7 +60,7 @@ public class SaveDiagramAction extends AnAction
                                                       DiagramFileType.DIAGRAM, DiagramFileType.DIAGRAMS,
                                                       DiagramFileType.GIF,     DiagramFileType.JPG,
                                                       DiagramFileType.PNG,     DiagramFileType.SVG,
-                                                      DiagramFileType.GRAPHML);
+                                                      DiagramFileType.SVGZ,    DiagramFileType.GRAPHML);
         saveDialog.show (new Runnable () {
           public void run ()
           {
@@ -2,7 +2,6 @@ package de.frag.umlplugin.uml.command;
 
 import com.intellij.openapi.graph.base.Node;
 import com.intellij.psi.PsiClass;
-import de.frag.umlplugin.psi.ClassFinder;
 import de.frag.umlplugin.psi.DependencyCollection;
 import de.frag.umlplugin.psi.DependencyReason;
 import de.frag.umlplugin.psi.UsageType;
@@ -11,8 +10,6 @@ import de.frag.umlplugin.uml.UMLDiagram;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 /**
  * Abstract base class for adding depending classes to diagram.
  */
@@ -59,9 +56,7 @@ public abstract class AbstractAddDependentClassesCommand extends AbstractDiagram
       }
       if (node != null)
       {
-        List<DependencyReason> reasons = classes.getDependencyReasons (psiClass);
-        reasons = ClassFinder.filterReasons (reasons);
-        for (DependencyReason reason : reasons)
+        for (DependencyReason reason : classes.getDependencyReasons (psiClass))
         {
           UsageType usageType = reason.getUsageType ();
           Node subjectNode = diagram.getNode (qualifiedClassName);
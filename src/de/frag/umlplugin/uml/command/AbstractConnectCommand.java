@@ -2,15 +2,12 @@ package de.frag.umlplugin.uml.command;
 
 import com.intellij.openapi.graph.base.Node;
 import com.intellij.psi.PsiClass;
-import de.frag.umlplugin.psi.ClassFinder;
 import de.frag.umlplugin.psi.DependencyCollection;
 import de.frag.umlplugin.psi.DependencyReason;
 import de.frag.umlplugin.psi.UsageType;
 import de.frag.umlplugin.uml.UMLDiagram;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 /**
  * Abstract base class for commands that connect existing nodes.
  */
@@ -31,9 +28,7 @@ public abstract class AbstractConnectCommand extends AbstractDiagramCommand
       Node node = diagram.getNode (psiClass);
       if (node != null)
       {
-        List<DependencyReason> reasons = classes.getDependencyReasons (psiClass);
-        reasons = ClassFinder.filterReasons (reasons);
-        for (DependencyReason reason : reasons)
+        for (DependencyReason reason : classes.getDependencyReasons (psiClass))
         {
           UsageType usageType = reason.getUsageType ();
           if (node != subjectNode || usageType == UsageType.FIELD_TYPE_MANY || usageType == UsageType.FIELD_TYPE_ONE)
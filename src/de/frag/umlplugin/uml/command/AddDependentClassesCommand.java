@@ -23,7 +23,7 @@ public class AddDependentClassesCommand extends AbstractAddDependentClassesComma
    */
   protected void addDependentClasses (@NotNull UMLDiagram diagram, @NotNull PsiClass psiClass)
   {
-    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
     addClasses (diagram, analyzer.getUsingClasses (),     false);
     addClasses (diagram, analyzer.getUsedClasses (),      true);
     addClasses (diagram, analyzer.getExtendingClasses (), false);
@@ -23,7 +23,7 @@ public class AddExtendedClassesCommand extends AbstractAddDependentClassesComman
    */
   protected void addDependentClasses (@NotNull UMLDiagram diagram, @NotNull PsiClass psiClass)
   {
-    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
     addClasses (diagram, analyzer.getExtendedClasses (), true);
   }
 
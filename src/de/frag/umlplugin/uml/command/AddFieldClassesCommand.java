@@ -24,7 +24,7 @@ public class AddFieldClassesCommand extends AbstractAddDependentClassesCommand
    */
   protected void addDependentClasses (@NotNull UMLDiagram diagram, @NotNull PsiClass psiClass)
   {
-    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+    DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
     DependencyCollection usingFieldClasses = analyzer.getUsingClasses ().filter (DependencyCollection.FIELD_FILTER);
     DependencyCollection usedFieldClasses  = analyzer.getUsedClasses ().filter (DependencyCollection.FIELD_FILTER);
     addClasses (diagram, usingFieldClasses, false);
@@ -21,7 +21,7 @@ public class ConnectClassesExtendedCommand extends AbstractConnectCommand
       PsiClass psiClass = UMLDiagram.getPsiClass (node);
       if (psiClass != null)
       {
-        DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+        DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
         DependencyCollection extendedClasses = analyzer.getExtendedClasses ();
         addEdges (diagram, node, extendedClasses, true);
       }
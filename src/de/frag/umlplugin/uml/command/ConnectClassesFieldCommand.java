@@ -21,7 +21,7 @@ public class ConnectClassesFieldCommand extends AbstractConnectCommand
       PsiClass psiClass = UMLDiagram.getPsiClass (node);
       if (psiClass != null)
       {
-        DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+        DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
         DependencyCollection usedFieldClasses  = analyzer.getUsedClasses ().filter (DependencyCollection.FIELD_FILTER);
         addEdges (diagram, node, usedFieldClasses, true);
       }
@@ -21,7 +21,7 @@ public class ConnectClassesUsedCommand extends AbstractConnectCommand
       PsiClass psiClass = UMLDiagram.getPsiClass (node);
       if (psiClass != null)
       {
-        DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+        DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
         DependencyCollection usedClasses = analyzer.getUsedClasses ();
         addEdges (diagram, node, usedClasses, true);
       }
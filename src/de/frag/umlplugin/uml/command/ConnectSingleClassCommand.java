@@ -27,7 +27,7 @@ public class ConnectSingleClassCommand extends AbstractConnectCommand
     PsiClass psiClass = diagram.findPsiClass (qualifiedClassName);
     if (psiClass != null)
     {
-      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
       DependencyCollection usingClasses     = analyzer.getUsingClasses ();
       DependencyCollection usedClasses      = analyzer.getUsedClasses ();
       DependencyCollection extendingClasses = analyzer.getExtendingClasses ();
@@ -27,7 +27,7 @@ public class ConnectSingleClassExtendedCommand extends AbstractConnectCommand
     PsiClass psiClass = diagram.findPsiClass (qualifiedClassName);
     if (psiClass != null)
     {
-      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
       DependencyCollection extendedClasses  = analyzer.getExtendedClasses ();
       Node subjectNode = diagram.getNode (qualifiedClassName);
       if (subjectNode != null)
@@ -27,7 +27,7 @@ public class ConnectSingleClassFieldCommand extends AbstractConnectCommand
     PsiClass psiClass = diagram.findPsiClass (qualifiedClassName);
     if (psiClass != null)
     {
-      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
       DependencyCollection usingFieldClasses = analyzer.getUsingClasses ().filter (DependencyCollection.FIELD_FILTER);
       DependencyCollection usedFieldClasses  = analyzer.getUsedClasses ().filter (DependencyCollection.FIELD_FILTER);
       Node subjectNode = diagram.getNode (qualifiedClassName);
@@ -27,7 +27,7 @@ public class ConnectSingleClassUsingCommand extends AbstractConnectCommand
     PsiClass psiClass = diagram.findPsiClass (qualifiedClassName);
     if (psiClass != null)
     {
-      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings ());
+      DependencyAnalyzer analyzer = new DependencyAnalyzer (psiClass, Settings.getSettings (), true);
       DependencyCollection usingClasses     = analyzer.getUsingClasses ();
       Node subjectNode = diagram.getNode (qualifiedClassName);
       if (subjectNode != null)
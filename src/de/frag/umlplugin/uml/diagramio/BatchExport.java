@@ -0,0 +1,281 @@
+package de.frag.umlplugin.uml.diagramio;
+
+import com.intellij.openapi.graph.GraphManager;
+import com.intellij.openapi.graph.base.DataProvider;
+import com.intellij.openapi.graph.base.Edge;
+import com.intellij.openapi.graph.base.EdgeMap;
+import com.intellij.openapi.graph.base.Node;
+import com.intellij.openapi.graph.view.Graph2D;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import de.frag.umlplugin.graphio.GraphFileType;
+import de.frag.umlplugin.instrumentation.Instrumentation;
+import de.frag.umlplugin.uml.UMLDiagram;
+import de.frag.umlplugin.uml.graph.DataProviderKeys;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Background task that exports several diagrams to separate files, one file per diagram. Each diagram is copied in
+ * the event dispatch thread just before it is written, so diagrams can be changed while the export is running and
+ * only the copy that is written and the copy of the next diagram are held in memory. Copies are written one after
+ * another, since painting labels of several graphs at the same time is not thread safe; the next diagram is copied
+ * while the current one is written and image writers encode painted rows in the shared export pool. Progress is
+ * reported per written diagram; cancelling the task stops all diagrams that are not written yet.
+ */
+public class BatchExport extends Task.Backgroundable
+{
+  private final List<UMLDiagram> diagrams;
+  private final String []        names;
+  private final String []        paths;
+  private final GraphFileType    fileType;
+  private final boolean          saveThumbnail;
+  private final int              thumbnailHeight;
+  private final List<String>     failures = new ArrayList<String> ();
+
+  /**
+   * Creates a new export task.
+   * @param project current project
+   * @param diagrams diagrams to export
+   * @param fileType target file type
+   * @param folder target folder; file names are derived from diagram names
+   * @param saveThumbnail true, if thumbnails should be written; false otherwise
+   * @param thumbnailHeight desired thumbnail height in pixels
+   */
+  public BatchExport (@NotNull Project project, @NotNull List<UMLDiagram> diagrams, @NotNull GraphFileType fileType,
+                      @NotNull String folder, boolean saveThumbnail, int thumbnailHeight)
+  {
+    super (project, "Exporting diagrams", true);
+    this.diagrams        = new ArrayList<UMLDiagram> (diagrams);
+    this.fileType        = fileType;
+    this.saveThumbnail   = saveThumbnail && fileType.canWriteThumbnail ();
+    this.thumbnailHeight = thumbnailHeight;
+    this.names           = new String [diagrams.size ()];
+    this.paths           = new String [diagrams.size ()];
+    Set<String> fileNames = new HashSet<String> ();
+    for (int i = 0; i < diagrams.size (); i++)
+    {
+      names [i] = diagrams.get (i).getName ();
+      paths [i] = fileType.appendExtension (folder + File.separator + createFileName (names [i], fileNames));
+    }
+  }
+
+  /**
+   * Counts target files that already exist and would be overwritten.
+   * @return number of existing target files
+   */
+  public int countExistingFiles ()
+  {
+    int count = 0;
+    for (String path : paths)
+    {
+      if (new File (path).exists ())
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Copies and writes all diagrams. Runs in a background thread.
+   * @param indicator progress indicator
+   */
+  public void run (@NotNull final ProgressIndicator indicator)
+  {
+    long start = Instrumentation.start ();
+    indicator.setIndeterminate (false);
+    indicator.setText ("Exporting " + names.length + " diagrams as " + fileType);
+    FutureTask<Graph2D> next = names.length > 0 ? copyLater (0) : null;
+    try
+    {
+      for (int i = 0; i < names.length && !indicator.isCanceled (); i++)
+      {
+        Graph2D graph = awaitCopy (i, next);
+        // the next diagram is copied while this one is written
+        next = i + 1 < names.length ? copyLater (i + 1) : null;
+        if (graph != null)
+        {
+          write (i, graph);
+        }
+        indicator.setFraction ((double) (i + 1) / names.length);
+        indicator.setText2 (names [i]);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread ().interrupt ();
+    }
+    finally
+    {
+      if (next != null)
+      {
+        next.cancel (false);
+      }
+      Instrumentation.stop ("BatchExport.run", start);
+    }
+  }
+
+  /**
+   * Reports diagrams that could not be written. Called in the event dispatch thread after all diagrams are written.
+   */
+  public void onSuccess ()
+  {
+    if (!failures.isEmpty ())
+    {
+      StringBuilder message = new StringBuilder ();
+      message.append ("Could not write ").append (failures.size ()).append (" of ").append (names.length);
+      message.append (" diagrams:");
+      for (String failure : failures)
+      {
+        message.append ('\n').append (failure);
+      }
+      Messages.showErrorDialog (getProject (), message.toString (), "Error while exporting diagrams");
+    }
+  }
+
+  /**
+   * Schedules copying of a single diagram in the event dispatch thread.
+   * @param index index of diagram
+   * @return future of copied graph
+   */
+  private @NotNull FutureTask<Graph2D> copyLater (final int index)
+  {
+    FutureTask<Graph2D> copy = new FutureTask<Graph2D> (new Callable<Graph2D> ()
+    {
+      public Graph2D call ()
+      {
+        return copyGraph (diagrams.get (index).getView ().getGraph2D ());
+      }
+    });
+    SwingUtilities.invokeLater (copy);
+    return copy;
+  }
+
+  /**
+   * Waits until a diagram has been copied.
+   * @param index index of diagram
+   * @param copy future of copied graph
+   * @return copied graph or null, if copying failed
+   * @throws InterruptedException if waiting was interrupted
+   */
+  private @Nullable Graph2D awaitCopy (int index, @NotNull FutureTask<Graph2D> copy) throws InterruptedException
+  {
+    try
+    {
+      return copy.get ();
+    }
+    catch (ExecutionException e)
+    {
+      fail (index, e.getCause ());
+      return null;
+    }
+  }
+
+  /**
+   * Writes a single diagram copy. A file that could not be written completely is removed.
+   * @param index index of diagram
+   * @param graph copy of diagram graph
+   */
+  private void write (int index, @NotNull Graph2D graph)
+  {
+    try
+    {
+      fileType.writeGraph (graph, paths [index], saveThumbnail, thumbnailHeight);
+    }
+    catch (IOException e)
+    {
+      fail (index, e);
+    }
+    catch (RuntimeException e)
+    {
+      fail (index, e);
+    }
+  }
+
+  /**
+   * Records failure of a single diagram and removes its incomplete file.
+   * @param index index of diagram
+   * @param exception cause of failure
+   */
+  private void fail (int index, @NotNull Throwable exception)
+  {
+    File file = new File (paths [index]);
+    if (file.exists () && !file.delete ())
+    {
+      file.deleteOnExit ();
+    }
+    failures.add (names [index] + ": " + exception.getMessage ());
+  }
+
+  /**
+   * Creates a detached copy of given graph with copies of all node and edge realizers and of the usage types of all
+   * edges. Must be called in the event dispatch thread; the copy has no views and can be written in any thread.
+   * @param graph graph to copy
+   * @return copied graph
+   */
+  private static @NotNull Graph2D copyGraph (@NotNull Graph2D graph)
+  {
+    Graph2D copy = GraphManager.getGraphManager ().createGraph2D ();
+    DataProvider usageTypes = graph.getDataProvider (DataProviderKeys.DEPENDENCY_INFO_EDGE_KEY);
+    EdgeMap copiedUsageTypes = copy.createEdgeMap ();
+    copy.addDataProvider (DataProviderKeys.DEPENDENCY_INFO_EDGE_KEY, copiedUsageTypes);
+    Node [] nodes = graph.getNodeArray ();
+    Node [] copiedNodes = new Node [nodes.length];
+    for (Node node : nodes)
+    {
+      copiedNodes [node.index ()] = copy.createNode (graph.getRealizer (node).createCopy ());
+    }
+    for (Edge edge : graph.getEdgeArray ())
+    {
+      Edge copiedEdge = copy.createEdge (copiedNodes [edge.source ().index ()], copiedNodes [edge.target ().index ()],
+                                         graph.getRealizer (edge).createCopy ());
+      if (usageTypes != null)
+      {
+        copiedUsageTypes.set (copiedEdge, usageTypes.get (edge));
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * Creates a file name for given diagram name. Characters that are not allowed in file names are replaced and
+   * names that are already used get a numeric suffix.
+   * @param diagramName diagram name
+   * @param usedNames lower case file names that are already used; the created name is added
+   * @return created file name without extension
+   */
+  private static @NotNull String createFileName (@NotNull String diagramName, @NotNull Set<String> usedNames)
+  {
+    StringBuilder builder = new StringBuilder ();
+    for (int i = 0; i < diagramName.length (); i++)
+    {
+      char c = diagramName.charAt (i);
+      builder.append (c < ' ' || "\\/:*?\"<>|".indexOf (c) >= 0 ? '_' : c);
+    }
+    String base = builder.toString ().trim ();
+    if (base.length () == 0 || base.startsWith ("."))
+    {
+      base = "diagram" + base;
+    }
+    String fileName = base;
+    for (int suffix = 2; !usedNames.add (fileName.toLowerCase ()); suffix++)
+    {
+      fileName = base + "_" + suffix;
+    }
+    return fileName;
+  }
+}
@@ -1,6 +1,7 @@
 package de.frag.umlplugin.uml.diagramio;
 
 import de.frag.umlplugin.graphio.FileType;
+import de.frag.umlplugin.instrumentation.Instrumentation;
 import de.frag.umlplugin.uml.UMLDiagram;
 import org.jetbrains.annotations.NotNull;
 
@@ -23,7 +24,9 @@ public enum DiagramFileType implements FileType
   PNG      ("PNG image",              "Saves current diagram as PNG image",
             ".png", new ImageDiagramWriter ("png")),
   SVG      ("SVG image",              "Saves current diagram as SVG image",
-            ".svg", new SVGDiagramWriter ()),
+            ".svg", new SVGDiagramWriter (false)),
+  SVGZ     ("SVGZ image",             "Saves current diagram as compressed SVG image",
+            ".svgz", new SVGDiagramWriter (true)),
   GRAPHML  ("Graphml file",           "Saves current diagram as Graphml graph (readable by yed)",
             ".graphml", new GraphmlDiagramWriter ());
 
@@ -108,7 +111,9 @@ public enum DiagramFileType implements FileType
   public void writeDiagram (@NotNull UMLDiagram[] diagrams, @NotNull String path, boolean saveThumbnail,
                             int thumbnailHeight) throws IOException
   {
+    long start = Instrumentation.start ();
     diagramWriter.writeDiagram (diagrams, path, saveThumbnail, thumbnailHeight);
+    Instrumentation.stop ("DiagramWriter." + name (), start);
   }
 
   /**
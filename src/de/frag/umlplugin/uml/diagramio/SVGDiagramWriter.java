@@ -18,10 +18,11 @@ public class SVGDiagramWriter implements DiagramWriter
 
   /**
    * Creates a new diagram writer that writes diagrams to vector graphics files.
+   * @param compressed true, if written files should be gzip compressed (SVGZ); false otherwise
    */
-  public SVGDiagramWriter ()
+  public SVGDiagramWriter (boolean compressed)
   {
-    this.graphWriter = new SVGGraphWriter ();
+    this.graphWriter = new SVGGraphWriter (compressed);
   }
 
   /**
@@ -1,6 +1,7 @@
 /**
  * <style type="text/css">a:link img {border: none;vertical-align:top;} a:visited img {border: none;vertical-align:top;}</style>
- * <p>This package contains classes for storing UML-diagrams as XML-, GIF-, JPG-, PNG-, SVG- and GraphML-files.</p>
+ * <p>This package contains classes for storing UML-diagrams as XML-, GIF-, JPG-, PNG-, SVG- and GraphML-files.
+ * Several diagrams can be exported at once by a background task that writes copies of the diagrams in parallel.</p>
  * <p>This static class diagram shows the diagram I/O classes and their relations:
  * <a href="doc-files/diagramio.png" target="_blank"><img src="doc-files/diagramio_thumb.png" alt="UML diagram"/></a>.</p>
  */
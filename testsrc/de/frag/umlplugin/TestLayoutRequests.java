@@ -0,0 +1,55 @@
+package de.frag.umlplugin;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests LayoutRequests class.
+ */
+public class TestLayoutRequests extends TestCase
+{
+  public void testCurrent ()
+  {
+    LayoutRequests requests = new LayoutRequests ();
+    LayoutRequests.Request request = requests.start ();
+    assertFalse (requests.isSuperseded (request));
+    assertTrue  (requests.isCurrent (request));
+  }
+
+  public void testSupersede ()
+  {
+    LayoutRequests requests = new LayoutRequests ();
+    LayoutRequests.Request first  = requests.start ();
+    LayoutRequests.Request second = requests.start ();
+    assertTrue  (requests.isSuperseded (first));
+    assertFalse (requests.isCurrent (first));
+    assertTrue  (requests.isCurrent (second));
+  }
+
+  public void testCancel ()
+  {
+    LayoutRequests requests = new LayoutRequests ();
+    LayoutRequests.Request request = requests.start ();
+    requests.cancel ();
+    assertTrue  (requests.isSuperseded (request));
+    assertFalse (requests.isCurrent (request));
+    assertTrue  (requests.isCurrent (requests.start ()));
+  }
+
+  public void testStale ()
+  {
+    LayoutRequests requests = new LayoutRequests ();
+    LayoutRequests.Request request = requests.start ();
+    request.graphModified ();
+    assertFalse (requests.isSuperseded (request));
+    assertFalse (requests.isCurrent (request));
+  }
+
+  public void testStaleRequestDoesNotAffectNewerRequest ()
+  {
+    LayoutRequests requests = new LayoutRequests ();
+    LayoutRequests.Request first  = requests.start ();
+    LayoutRequests.Request second = requests.start ();
+    first.graphModified ();
+    assertTrue (requests.isCurrent (second));
+  }
+}
@@ -0,0 +1,29 @@
+package de.frag.umlplugin.anim;
+
+import junit.framework.TestCase;
+
+import java.awt.*;
+
+/**
+ * Tests alpha palette.
+ */
+public class TestAlphaPalette extends TestCase
+{
+  public void testSharedPalette ()
+  {
+    AlphaPalette palette = AlphaPalette.getPalette (new Color (10, 20, 30));
+    assertSame (palette, AlphaPalette.getPalette (new Color (10, 20, 30, 40)));
+    assertNotSame (palette, AlphaPalette.getPalette (new Color (10, 20, 31)));
+  }
+
+  public void testColors ()
+  {
+    AlphaPalette palette = AlphaPalette.getPalette (new Color (10, 20, 30, 40));
+    Color color = palette.getColor (128);
+    assertEquals (new Color (10, 20, 30, 128), color);
+    assertSame   (color, palette.getColor (128));
+    assertEquals (255, palette.getColor (255).getAlpha ());
+    assertEquals (0,   palette.getColor (-5).getAlpha ());
+    assertEquals (255, palette.getColor (300).getAlpha ());
+  }
+}
@@ -0,0 +1,130 @@
+package de.frag.umlplugin.anim;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests animation player and animation clock.
+ */
+public class TestAnimationPlayer extends TestCase
+{
+  private static final long MILLIS = 1000000L;
+
+  public void testFramesFollowClock ()
+  {
+    ManualClock clock = new ManualClock ();
+    AnimationPlayer player = new AnimationPlayer (clock);
+    MockAnimationObject animationObject = new MockAnimationObject (1000);
+    player.animate (animationObject);
+    assertTrue  (animationObject.isInitialized ());
+    assertTrue  (player.isPlaying ());
+    assertTrue  (clock.running);
+
+    clock.advance (250 * MILLIS);
+    assertEquals (0.25, animationObject.getTime (), 0.001);
+    // a late tick drops frames instead of slowing down animation
+    clock.advance (500 * MILLIS);
+    assertEquals (0.75, animationObject.getTime (), 0.001);
+    clock.advance (500 * MILLIS);
+    assertEquals (1.0, animationObject.getTime (), 0.001);
+    assertTrue   (animationObject.isDisposed ());
+    assertFalse  (player.isPlaying ());
+    assertFalse  (clock.running);
+  }
+
+  public void testPauseAndResume ()
+  {
+    ManualClock clock = new ManualClock ();
+    AnimationPlayer player = new AnimationPlayer (clock);
+    MockAnimationObject animationObject = new MockAnimationObject (1000);
+    player.animate (animationObject);
+    clock.advance (400 * MILLIS);
+    player.pause ();
+    assertTrue   (player.isPaused ());
+    assertFalse  (clock.running);
+    clock.advance (5000 * MILLIS);
+    assertEquals (0.4, animationObject.getTime (), 0.001);
+    player.resume ();
+    assertFalse  (player.isPaused ());
+    clock.advance (100 * MILLIS);
+    assertEquals (0.5, animationObject.getTime (), 0.001);
+    assertFalse  (animationObject.isDisposed ());
+  }
+
+  public void testCancel ()
+  {
+    ManualClock clock = new ManualClock ();
+    AnimationPlayer player = new AnimationPlayer (clock);
+    MockAnimationObject animationObject = new MockAnimationObject (1000);
+    player.animate (animationObject);
+    clock.advance (100 * MILLIS);
+    player.cancel ();
+    assertEquals (1.0, animationObject.getTime (), 0.001);
+    assertTrue   (animationObject.isDisposed ());
+    assertFalse  (player.isPlaying ());
+    assertEquals (0, clock.getPlayerCount ());
+  }
+
+  public void testAnimateFinishesPreviousAnimation ()
+  {
+    ManualClock clock = new ManualClock ();
+    AnimationPlayer player = new AnimationPlayer (clock);
+    MockAnimationObject first  = new MockAnimationObject (1000);
+    MockAnimationObject second = new MockAnimationObject (1000);
+    player.animate (first);
+    clock.advance (100 * MILLIS);
+    player.animate (second);
+    assertTrue   (first.isDisposed ());
+    assertEquals (1.0, first.getTime (), 0.001);
+    assertTrue   (second.isInitialized ());
+    assertEquals (1, clock.getPlayerCount ());
+  }
+
+  public void testSharedClock ()
+  {
+    ManualClock clock = new ManualClock ();
+    AnimationPlayer player1 = new AnimationPlayer (clock);
+    AnimationPlayer player2 = new AnimationPlayer (clock);
+    MockAnimationObject animationObject1 = new MockAnimationObject (1000);
+    MockAnimationObject animationObject2 = new MockAnimationObject ( 500);
+    player1.animate (animationObject1);
+    player2.animate (animationObject2);
+    assertEquals (2, clock.getPlayerCount ());
+    clock.advance (250 * MILLIS);
+    assertEquals (0.25, animationObject1.getTime (), 0.001);
+    assertEquals (0.5,  animationObject2.getTime (), 0.001);
+    clock.advance (250 * MILLIS);
+    assertTrue   (animationObject2.isDisposed ());
+    assertEquals (1, clock.getPlayerCount ());
+    assertTrue   (clock.running);
+  }
+
+  /**
+   * Clock that is advanced manually instead of by a timer.
+   */
+  private static class ManualClock extends AnimationClock
+  {
+    private long    time;
+    private boolean running;
+
+    long now ()
+    {
+      return time;
+    }
+
+    void advance (long nanos)
+    {
+      time += nanos;
+      tick ();
+    }
+
+    void startTimer ()
+    {
+      running = true;
+    }
+
+    void stopTimer ()
+    {
+      running = false;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package de.frag.umlplugin.classcloud;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Tests DependencyReachability class.
+ */
+public class TestDependencyReachability extends TestCase
+{
+  private DependencyReachability reachability;
+
+  protected void setUp () throws Exception
+  {
+    super.setUp ();
+    // A -> B -> C -> B, C -> D, E -> D, F (isolated by self-loop)
+    StronglyConnectedComponents components = new StronglyConnectedComponents ();
+    components.addEdge ("A", "B");
+    components.addEdge ("B", "C");
+    components.addEdge ("C", "B");
+    components.addEdge ("C", "D");
+    components.addEdge ("E", "D");
+    components.addEdge ("F", "F");
+    reachability = new DependencyReachability (components.compute ());
+  }
+
+  public void testReachable ()
+  {
+    assertTrue  (reachability.isReachable ("A", "D"));
+    assertTrue  (reachability.isReachable ("B", "C"));
+    assertTrue  (reachability.isReachable ("C", "B"));
+    assertTrue  (reachability.isReachable ("E", "D"));
+    assertFalse (reachability.isReachable ("D", "A"));
+    assertFalse (reachability.isReachable ("E", "A"));
+    assertFalse (reachability.isReachable ("A", "E"));
+    assertFalse (reachability.isReachable ("A", "F"));
+    assertFalse (reachability.isReachable ("A", "Unknown"));
+  }
+
+  public void testDiamond ()
+  {
+    // one of the paths to D is not part of the spanning forest, so both label kinds and the search are used
+    StronglyConnectedComponents components = new StronglyConnectedComponents ();
+    components.addEdge ("A", "B");
+    components.addEdge ("A", "C");
+    components.addEdge ("B", "D");
+    components.addEdge ("C", "D");
+    components.addEdge ("C", "E");
+    components.addEdge ("X", "C");
+    DependencyReachability diamond = new DependencyReachability (components.compute ());
+    assertTrue  (diamond.isReachable ("A", "D"));
+    assertTrue  (diamond.isReachable ("B", "D"));
+    assertTrue  (diamond.isReachable ("C", "D"));
+    assertTrue  (diamond.isReachable ("X", "D"));
+    assertTrue  (diamond.isReachable ("X", "E"));
+    assertFalse (diamond.isReachable ("X", "B"));
+    assertFalse (diamond.isReachable ("B", "C"));
+    assertFalse (diamond.isReachable ("D", "A"));
+  }
+
+  public void testTransitiveUsers ()
+  {
+    assertEquals (new HashSet<String> (Arrays.asList ("A", "B", "C", "E")),
+                  new HashSet<String> (reachability.getTransitiveUsers ("D")));
+    assertEquals (new HashSet<String> (Arrays.asList ("A", "C")),
+                  new HashSet<String> (reachability.getTransitiveUsers ("B")));
+    assertTrue (reachability.getTransitiveUsers ("A").isEmpty ());
+    assertTrue (reachability.getTransitiveUsers ("Unknown").isEmpty ());
+  }
+
+  public void testTransitiveDependencies ()
+  {
+    assertEquals (new HashSet<String> (Arrays.asList ("B", "C", "D")),
+                  new HashSet<String> (reachability.getTransitiveDependencies ("A")));
+    assertTrue (reachability.getTransitiveDependencies ("D").isEmpty ());
+  }
+
+  public void testLargeGraph ()
+  {
+    // compare label based queries with plain searches on a random graph
+    java.util.Random random = new java.util.Random (42);
+    int nodeCount = 300;
+    StronglyConnectedComponents components = new StronglyConnectedComponents ();
+    boolean [][] edges = new boolean [nodeCount][nodeCount];
+    for (int i = 0; i < 600; i++)
+    {
+      int source = random.nextInt (nodeCount);
+      int target = random.nextInt (nodeCount);
+      edges [source][target] = true;
+      components.addEdge ("N" + source, "N" + target);
+    }
+    DependencyReachability largeReachability = new DependencyReachability (components.compute ());
+    for (int source = 0; source < nodeCount; source++)
+    {
+      boolean [] reachable = new boolean [nodeCount];
+      reachable [source] = true;
+      java.util.LinkedList<Integer> queue = new java.util.LinkedList<Integer> (Arrays.asList (source));
+      while (!queue.isEmpty ())
+      {
+        int node = queue.removeFirst ();
+        for (int target = 0; target < nodeCount; target++)
+        {
+          if (edges [node][target] && !reachable [target])
+          {
+            reachable [target] = true;
+            queue.add (target);
+          }
+        }
+      }
+      for (int target = 0; target < nodeCount; target++)
+      {
+        if (components.getComponent ("N" + source) >= 0 && components.getComponent ("N" + target) >= 0)
+        {
+          assertEquals (reachable [target], largeReachability.isReachable ("N" + source, "N" + target));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package de.frag.umlplugin.classcloud;
+
+import de.frag.umlplugin.codenavigator.graph.DependencyType;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Tests swapping of ProjectDependenciesAnalyzer content to a temporary file.
+ */
+public class TestProjectDependenciesAnalyzer extends TestCase
+{
+  public void testSwapRestore () throws IOException
+  {
+    ProjectDependenciesAnalyzer analyzer = createAnalyzer ();
+    analyzer.analyzeDependencies ();
+    List<String> classes = analyzer.getClasses ();
+    Map<String, String> infos = describeInfos (analyzer);
+    StronglyConnectedComponents cycles = analyzer.getCycles ();
+
+    assertTrue  (analyzer.swap ());
+    assertTrue  (analyzer.isSwapped ());
+    assertFalse (analyzer.swap ());
+    assertEquals ("b", analyzer.getPackage ("b.B"));
+    assertSame (cycles, analyzer.getCycles ());
+
+    analyzer.restore ();
+    assertFalse (analyzer.isSwapped ());
+    assertEquals (classes, analyzer.getClasses ());
+    assertEquals (infos, describeInfos (analyzer));
+    assertSame (cycles, analyzer.getCycles ());
+    assertEquals (set ("b.B", "b.B2", "c.C"), analyzer.getDependencies ("a.A", DependencyType.USING));
+    assertEquals (set ("a.A"),               analyzer.getDependencies ("c.C", DependencyType.USED));
+    assertEquals (set ("a.A"),               analyzer.getDependencies ("b.B2", DependencyType.EXTENDING));
+    assertEquals (set ("b.B2"),              analyzer.getDependencies ("a.A", DependencyType.EXTENDED));
+  }
+
+  public void testSwapRestoreAggregated () throws IOException
+  {
+    ProjectDependenciesAnalyzer analyzer = createAnalyzer ();
+    analyzer.analyzeDependencies ();
+    ProjectDependenciesAnalyzer aggregated = analyzer.aggregateByPackage (Collections.<String>emptySet ());
+    Map<String, String> infos = describeInfos (aggregated);
+
+    assertTrue (aggregated.swap ());
+    aggregated.restore ();
+    assertEquals (infos, describeInfos (aggregated));
+    assertEquals (set ("a", "b", "c"), aggregated.getPackageNodes ());
+    assertTrue   (aggregated.isPackage ("b"));
+    assertEquals (2, aggregated.getMultiplicity ("a", "b"));
+    assertEquals (1, aggregated.getMultiplicity ("a", "c"));
+    assertEquals (0, aggregated.getMultiplicity ("c", "a"));
+    assertEquals (set ("a"), aggregated.getDependencies ("b", DependencyType.EXTENDING));
+  }
+
+  public void testAggregateOutOfScope ()
+  {
+    ProjectDependenciesAnalyzer analyzer = createAnalyzer ();
+    analyzer.addUsed ("a.A", "x.X");
+    analyzer.analyzeDependencies ();
+    ProjectDependenciesAnalyzer aggregated = analyzer.aggregateByPackage (Collections.singleton ("b"));
+    assertEquals (set ("a", "c"), aggregated.getPackageNodes ());
+    assertFalse  (aggregated.isPackage ("x"));
+    assertEquals (set ("a", "b.B", "b.B2", "c"), new HashSet<String> (aggregated.getClasses ()));
+    assertEquals ("b", aggregated.getPackage ("b.B"));
+
+    aggregated.clear ();
+    assertEquals (4, analyzer.getClassCount ());
+  }
+
+  public void testAccessWhileSwapped ()
+  {
+    ProjectDependenciesAnalyzer analyzer = createAnalyzer ();
+    analyzer.analyzeDependencies ();
+    assertTrue (analyzer.swap ());
+    try
+    {
+      analyzer.getDependencies ("a.A", DependencyType.USING);
+      fail ("swapped content must not be accessible");
+    }
+    catch (IllegalStateException e)
+    {
+      // expected
+    }
+    analyzer.clear ();
+    assertFalse (analyzer.isSwapped ());
+    assertEquals (0, analyzer.getClassCount ());
+  }
+
+  public void testSwapEmpty ()
+  {
+    assertFalse (new ProjectDependenciesAnalyzer ().swap ());
+  }
+
+  private static ProjectDependenciesAnalyzer createAnalyzer ()
+  {
+    ProjectDependenciesAnalyzer analyzer = new ProjectDependenciesAnalyzer ();
+    for (String className : Arrays.asList ("a.A", "b.B", "b.B2", "c.C"))
+    {
+      analyzer.addClass (className);
+    }
+    analyzer.addUsed     ("a.A",  "b.B");
+    analyzer.addUsed     ("a.A",  "c.C");
+    analyzer.addUsed     ("b.B",  "a.A");
+    analyzer.addExtended ("b.B2", "a.A");
+    analyzer.addUsed     ("a.A",  "b.B2");
+    return analyzer;
+  }
+
+  private static Map<String, String> describeInfos (ProjectDependenciesAnalyzer analyzer)
+  {
+    Map<String, String> descriptions = new TreeMap<String, String> ();
+    for (Map.Entry<String, ProjectDependenciesAnalyzer.DependencyInfo> entry : analyzer.getInfos ().entrySet ())
+    {
+      descriptions.put (entry.getKey (), entry.getValue ().toString ());
+    }
+    return descriptions;
+  }
+
+  private static Set<String> set (String... values)
+  {
+    return new HashSet<String> (Arrays.asList (values));
+  }
+}
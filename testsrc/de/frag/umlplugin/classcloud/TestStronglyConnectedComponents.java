@@ -0,0 +1,64 @@
+package de.frag.umlplugin.classcloud;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Tests StronglyConnectedComponents class.
+ */
+public class TestStronglyConnectedComponents extends TestCase
+{
+  public void testCycles ()
+  {
+    StronglyConnectedComponents components = new StronglyConnectedComponents ();
+    components.addEdge ("A", "B");
+    components.addEdge ("B", "C");
+    components.addEdge ("C", "A");
+    components.addEdge ("C", "D");
+    components.addEdge ("D", "E");
+    components.addEdge ("E", "D");
+    components.addEdge ("E", "F");
+    components.addEdge ("G", "G");
+    components.compute ();
+
+    assertEquals (4, components.getComponentCount ());
+    assertEquals (new HashSet<String> (Arrays.asList ("A", "B", "C", "D", "E", "G")), components.getCyclicClasses ());
+    assertTrue  (components.isCyclic ("A"));
+    assertFalse (components.isCyclic ("F"));
+    assertFalse (components.isCyclic ("Unknown"));
+    assertTrue  (components.isCyclicEdge ("C", "A"));
+    assertTrue  (components.isCyclicEdge ("E", "D"));
+    assertFalse (components.isCyclicEdge ("C", "D"));
+    assertFalse (components.isCyclicEdge ("E", "F"));
+    assertEquals (components.getComponent ("A"), components.getComponent ("C"));
+    assertEquals (-1, components.getComponent ("Unknown"));
+  }
+
+  public void testAcyclic ()
+  {
+    StronglyConnectedComponents components = new StronglyConnectedComponents ();
+    components.addEdge ("A", "B");
+    components.addEdge ("A", "C");
+    components.addEdge ("B", "C");
+    components.compute ();
+    assertEquals (3, components.getComponentCount ());
+    assertTrue (components.getCyclicClasses ().isEmpty ());
+  }
+
+  public void testLongChain ()
+  {
+    // deep chains must not overflow the stack
+    StronglyConnectedComponents components = new StronglyConnectedComponents ();
+    int length = 200000;
+    for (int i = 0; i < length; i++)
+    {
+      components.addEdge ("C" + i, "C" + (i + 1));
+    }
+    components.addEdge ("C" + length, "C0");
+    components.compute ();
+    assertEquals (1, components.getComponentCount ());
+    assertTrue (components.isCyclicEdge ("C" + (length / 2), "C" + (length / 2 + 1)));
+  }
+}
@@ -0,0 +1,97 @@
+package de.frag.umlplugin.graphio;
+
+import junit.framework.TestCase;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Tests image scaler.
+ */
+public class TestImageScaler extends TestCase
+{
+  public void testSize ()
+  {
+    BufferedImage image = new BufferedImage (1000, 400, BufferedImage.TYPE_INT_RGB);
+    BufferedImage thumbnail = new ImageScaler (100).filter (image);
+    assertEquals (250, thumbnail.getWidth  ());
+    assertEquals (100, thumbnail.getHeight ());
+  }
+
+  public void testUniformColor ()
+  {
+    // odd sizes and a non integer reduction factor still must not change a uniform color
+    BufferedImage image = createImage (997, 613, BufferedImage.TYPE_INT_RGB, new Color (12, 34, 56));
+    BufferedImage thumbnail = new ImageScaler (50).filter (image);
+    for (int y = 0; y < thumbnail.getHeight (); y++)
+    {
+      for (int x = 0; x < thumbnail.getWidth (); x++)
+      {
+        assertEquals (new Color (12, 34, 56).getRGB (), thumbnail.getRGB (x, y));
+      }
+    }
+  }
+
+  public void testAreaAverage ()
+  {
+    BufferedImage image = new BufferedImage (4, 2, BufferedImage.TYPE_INT_RGB);
+    image.setRGB (0, 0, 0xFFFFFF);
+    image.setRGB (1, 1, 0xFFFFFF);
+    image.setRGB (2, 0, 0x808080);
+    image.setRGB (3, 0, 0x808080);
+    image.setRGB (2, 1, 0x808080);
+    image.setRGB (3, 1, 0x808080);
+    BufferedImage thumbnail = new ImageScaler (1).filter (image);
+    assertEquals (2, thumbnail.getWidth ());
+    assertEquals (0x808080, thumbnail.getRGB (0, 0) & 0xFFFFFF);
+    assertEquals (0x808080, thumbnail.getRGB (1, 0) & 0xFFFFFF);
+  }
+
+  public void testAlpha ()
+  {
+    // transparent black pixels must not darken opaque red pixels
+    BufferedImage image = new BufferedImage (2, 2, BufferedImage.TYPE_INT_ARGB);
+    image.setRGB (0, 0, 0xFFFF0000);
+    image.setRGB (1, 1, 0xFFFF0000);
+    BufferedImage thumbnail = new ImageScaler (1).filter (image);
+    int pixel = thumbnail.getRGB (0, 0);
+    assertEquals (0x80, pixel >>> 24);
+    assertEquals (0xFF0000, pixel & 0xFFFFFF);
+  }
+
+  public void testReduceKeepsEdges ()
+  {
+    // 70 x 9 pixels are reduced by blocks of 4 x 4, so the last row and the last two columns do not fill a block
+    BufferedImage image = new BufferedImage (70, 9, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < 70; x++)
+    {
+      image.setRGB (x, 8, 0xFFFFFF);
+    }
+    for (int y = 0; y < 9; y++)
+    {
+      image.setRGB (69, y, 0xFFFFFF);
+    }
+    BufferedImage thumbnail = new ImageScaler (2).filter (image);
+    assertEquals (0, thumbnail.getRGB (0, 0) & 0xFFFFFF);
+    assertTrue ((thumbnail.getRGB (0, 1) & 0xFF) > 0);
+    assertTrue ((thumbnail.getRGB (thumbnail.getWidth () - 1, 0) & 0xFF) > 0);
+  }
+
+  public void testParallel ()
+  {
+    BufferedImage image = createImage (2000, 1000, BufferedImage.TYPE_INT_RGB, new Color (12, 34, 56));
+    BufferedImage thumbnail = new ImageScaler (100).filter (image);
+    assertEquals (200, thumbnail.getWidth ());
+    assertEquals (new Color (12, 34, 56).getRGB (), thumbnail.getRGB (199, 99));
+  }
+
+  private BufferedImage createImage (int width, int height, int type, Color color)
+  {
+    BufferedImage image = new BufferedImage (width, height, type);
+    Graphics2D graphics = image.createGraphics ();
+    graphics.setColor (color);
+    graphics.fillRect (0, 0, width, height);
+    graphics.dispose ();
+    return image;
+  }
+}
@@ -0,0 +1,57 @@
+package de.frag.umlplugin.graphio;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests splitting label texts into lines.
+ */
+public class TestLabelText extends TestCase
+{
+  public void testPlainText ()
+  {
+    List<LabelText.Line> lines = LabelText.parse ("*");
+    assertEquals (1, lines.size ());
+    assertEquals ("*", lines.get (0).getText ());
+    assertTrue (lines.get (0).isCentered ());
+  }
+
+  public void testInterface ()
+  {
+    List<LabelText.Line> lines = LabelText.parse ("<html><center><font size='-2'>&laquo;interface&raquo;</font>" +
+                                                  "<div>Runnable</div></center</html>");
+    assertEquals (2, lines.size ());
+    assertEquals ("\u00ABinterface\u00BB", lines.get (0).getText ());
+    assertTrue   (lines.get (0).isSmall ());
+    assertTrue   (lines.get (0).isCentered ());
+    assertEquals ("Runnable", lines.get (1).getText ());
+    assertFalse  (lines.get (1).isSmall ());
+    assertTrue   (lines.get (1).isCentered ());
+  }
+
+  public void testCompartments ()
+  {
+    List<LabelText.Line> lines = LabelText.parse ("<html><center style='font-style:italic'>Shape</center>" +
+                                                  "<div><img src='pixel.png' alt='' width='80'/></div>" +
+                                                  "<div style='text-decoration:underline;'><small>+ count:  int" +
+                                                  "</small></div><div style=''><small>- name: String</small></div>" +
+                                                  "<div><small><i>&hellip; 3 more</i></small></div></html>");
+    assertEquals (5, lines.size ());
+    assertEquals ("Shape", lines.get (0).getText ());
+    assertTrue   (lines.get (0).isItalic ());
+    assertTrue   (lines.get (1).isSeparator ());
+    assertEquals ("+ count: int", lines.get (2).getText ());
+    assertTrue   (lines.get (2).isUnderlined ());
+    assertFalse  (lines.get (2).isCentered ());
+    assertFalse  (lines.get (3).isUnderlined ());
+    assertEquals ("\u2026 3 more", lines.get (4).getText ());
+    assertTrue   (lines.get (4).isItalic ());
+  }
+
+  public void testEntities ()
+  {
+    List<LabelText.Line> lines = LabelText.parse ("<html>List&lt;String&gt; &amp; &#65;</html>");
+    assertEquals ("List<String> & A", lines.get (0).getText ());
+  }
+}
@@ -0,0 +1,61 @@
+package de.frag.umlplugin.graphio;
+
+import junit.framework.TestCase;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Tests streaming PNG writer.
+ */
+public class TestPngStreamWriter extends TestCase
+{
+  public void testRoundTrip () throws IOException
+  {
+    int width  = 123;
+    int height = 77;
+    int [] pixels = new int [width * height];
+    Random random = new Random (42);
+    for (int i = 0; i < pixels.length; i++)
+    {
+      pixels [i] = random.nextInt () | 0xFF000000;
+    }
+    ByteArrayOutputStream stream = new ByteArrayOutputStream ();
+    PngStreamWriter writer = new PngStreamWriter (stream, width, height);
+    // write in uneven bands to check that rows continue across calls
+    writer.writeRows (pixels, 0, width, 10);
+    writer.writeRows (pixels, 10 * width, width, 50);
+    writer.writeRows (pixels, 60 * width, width, 17);
+    writer.finish ();
+
+    BufferedImage image = ImageIO.read (new ByteArrayInputStream (stream.toByteArray ()));
+    assertEquals (width,  image.getWidth  ());
+    assertEquals (height, image.getHeight ());
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+      {
+        assertEquals (pixels [y * width + x], image.getRGB (x, y));
+      }
+    }
+  }
+
+  public void testMissingRows () throws IOException
+  {
+    PngStreamWriter writer = new PngStreamWriter (new ByteArrayOutputStream (), 4, 4);
+    writer.writeRows (new int [8], 0, 4, 2);
+    try
+    {
+      writer.finish ();
+      fail ("incomplete image must not be finished");
+    }
+    catch (IOException e)
+    {
+      writer.dispose ();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package de.frag.umlplugin.graphio;
+
+import junit.framework.TestCase;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Tests SVG stream writer.
+ */
+public class TestSVGStreamWriter extends TestCase
+{
+  public void testSharedStyleClasses ()
+  {
+    SVGStreamWriter svg = new SVGStreamWriter (new StringWriter ());
+    assertEquals ("reference",   svg.getStyleClass ("reference", "fill:#ff0000"));
+    assertEquals ("reference",   svg.getStyleClass ("reference", "fill:#ff0000"));
+    assertEquals ("reference-2", svg.getStyleClass ("reference", "fill:#00ff00"));
+    assertEquals ("extends",     svg.getStyleClass ("extends",   "fill:#ff0000"));
+  }
+
+  public void testMarkers () throws IOException
+  {
+    StringWriter writer = new StringWriter ();
+    SVGStreamWriter svg = new SVGStreamWriter (writer);
+    String end   = svg.getMarkerReference (SVGStreamWriter.Marker.DELTA, Color.RED, false);
+    String start = svg.getMarkerReference (SVGStreamWriter.Marker.DELTA, Color.RED, true);
+    assertFalse  (end.equals (start));
+    assertEquals (end, svg.getMarkerReference (SVGStreamWriter.Marker.DELTA, Color.RED, false));
+    assertFalse  (end.equals (svg.getMarkerReference (SVGStreamWriter.Marker.DELTA, Color.BLUE, false)));
+    // diamonds fit the start of a path, so they are only rotated at its end
+    String diamond = svg.getMarkerReference (SVGStreamWriter.Marker.DIAMOND, Color.RED, true);
+    svg.startDocument (0, 0, 10, 10);
+    svg.endDocument ();
+    String document = writer.toString ();
+    assertTrue  (document.contains (getId (end)   + "' markerUnits='userSpaceOnUse' orient='auto' overflow='visible'>" +
+                                    "<path d='M-12,-5 L0,0 L-12,5 Z' fill='#ff0000' stroke='none'/>"));
+    assertTrue  (document.contains (getId (start) + "' markerUnits='userSpaceOnUse' orient='auto' overflow='visible'>" +
+                                    "<path d='M-12,-5 L0,0 L-12,5 Z' fill='#ff0000' stroke='none' " +
+                                    "transform='rotate(180)'/>"));
+    assertTrue  (document.contains (getId (diamond) + "' markerUnits='userSpaceOnUse' orient='auto' " +
+                                    "overflow='visible'><path d='M0,0 L8,-4 L16,0 L8,4 Z' fill='#ff0000' " +
+                                    "stroke='none'/>"));
+  }
+
+  public void testDocument () throws Exception
+  {
+    StringWriter writer = new StringWriter ();
+    SVGStreamWriter svg = new SVGStreamWriter (writer);
+    String node = svg.getStyleClass ("node", "fill:" + SVGStreamWriter.formatColor (Color.YELLOW) + ";stroke:#000000");
+    String edge = svg.getStyleClass ("extends", "fill:none;stroke:#000000;marker-end:" +
+                                     svg.getMarkerReference (SVGStreamWriter.Marker.WHITE_DELTA, Color.BLACK, false));
+    svg.startDocument (-20, -20.26, 200, 100);
+    svg.rect (0, 0, 50.04, 20, 5, node);
+    svg.polyline (new double [] {25, 20, 25, 60, 80.55, 60}, 3, edge);
+    svg.text (25, 15, true, "List<String> & 'x'", node);
+    svg.endDocument ();
+    String document = writer.toString ();
+    assertTrue (document.contains ("viewBox='-20 -20.3 200 100'"));
+    assertTrue (document.contains ("<rect class='" + node + "' x='0' y='0' width='50' height='20' rx='5'/>"));
+    assertTrue (document.contains ("points='25,20 25,60 80.6,60'"));
+    assertTrue (document.contains ("." + node + "{fill:#ffff00;stroke:#000000}"));
+    // document must be well formed
+    DocumentBuilderFactory.newInstance ().newDocumentBuilder ().parse (
+      new ByteArrayInputStream (document.getBytes ("UTF-8")));
+  }
+
+  public void testColors () throws IOException
+  {
+    assertEquals ("none",    SVGStreamWriter.formatColor (null));
+    assertEquals ("#0a0b0c", SVGStreamWriter.formatColor (new Color (10, 11, 12)));
+    assertEquals ("rgba(255,255,255,0.47)", SVGStreamWriter.formatColor (new Color (0x77FFFFFF, true)));
+  }
+
+  private static String getId (String reference)
+  {
+    return reference.substring ("url(#".length (), reference.length () - 1);
+  }
+}
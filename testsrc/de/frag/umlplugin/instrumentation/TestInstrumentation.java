@@ -0,0 +1,80 @@
+package de.frag.umlplugin.instrumentation;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests Instrumentation and Statistic classes.
+ */
+public class TestInstrumentation extends TestCase
+{
+  protected void tearDown () throws Exception
+  {
+    Instrumentation.setEnabled (false);
+    Instrumentation.reset ();
+    super.tearDown ();
+  }
+
+  public void testDisabled ()
+  {
+    Instrumentation.setEnabled (false);
+    long start = Instrumentation.start ();
+    assertEquals (0, start);
+    Instrumentation.stop ("timer", start);
+    Instrumentation.count ("counter", 5);
+    assertNull (Instrumentation.getTimer ("timer"));
+    assertNull (Instrumentation.getCounter ("counter"));
+  }
+
+  public void testEnabled ()
+  {
+    Instrumentation.setEnabled (true);
+    long start = Instrumentation.start ();
+    Instrumentation.stop ("timer", start);
+    Instrumentation.stop ("timer", Instrumentation.start ());
+    Instrumentation.count ("counter", 5);
+    Instrumentation.count ("counter", 7);
+    assertEquals (2, Instrumentation.getTimer ("timer").getCount ());
+    Statistic counter = Instrumentation.getCounter ("counter");
+    assertEquals (2,  counter.getCount ());
+    assertEquals (12, counter.getSum ());
+    assertEquals (5,  counter.getMin ());
+    assertEquals (7,  counter.getMax ());
+    String report = Instrumentation.createReport ();
+    assertTrue (report.contains ("timer: count=2"));
+    assertTrue (report.contains ("counter: count=2"));
+    Instrumentation.reset ();
+    assertNull (Instrumentation.getTimer ("timer"));
+  }
+
+  public void testHistogram ()
+  {
+    Statistic statistic = new Statistic ("test");
+    statistic.record (0);
+    statistic.record (1);
+    statistic.record (2);
+    statistic.record (3);
+    statistic.record (1000);
+    assertEquals (1, statistic.getBucketCount (0));
+    assertEquals (1, statistic.getBucketCount (1));
+    assertEquals (2, statistic.getBucketCount (2));
+    assertEquals (1, statistic.getBucketCount (Statistic.getBucket (1000)));
+    assertEquals (512, Statistic.getBucketLowerBound (Statistic.getBucket (1000)));
+    assertEquals (0, Statistic.getBucket (0));
+  }
+
+  public void testReset ()
+  {
+    Statistic statistic = new Statistic ("test");
+    statistic.record (3);
+    statistic.record (1000);
+    statistic.reset ();
+    assertEquals (0, statistic.getCount ());
+    assertEquals (0, statistic.getSum ());
+    assertEquals (0, statistic.getMin ());
+    assertEquals (0, statistic.getMax ());
+    assertEquals (0, statistic.getBucketCount (Statistic.getBucket (1000)));
+    statistic.record (5);
+    assertEquals (5, statistic.getMin ());
+    assertEquals (5, statistic.getMax ());
+  }
+}
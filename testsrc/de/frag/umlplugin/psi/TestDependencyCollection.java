@@ -0,0 +1,183 @@
+package de.frag.umlplugin.psi;
+
+import com.intellij.psi.PsiClass;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests packed dependency reasons of dependency collections.
+ */
+public class TestDependencyCollection extends TestCase
+{
+  private static final DependencyCollection.Filter LATE_FILTER = new DependencyCollection.Filter ()
+  {
+    public boolean accepts (@NotNull UsageType usageType, int offset)
+    {
+      return offset >= 30;
+    }
+  };
+
+  public void testRoundTrip ()
+  {
+    DependencyCollection.Reasons reasons = new DependencyCollection.Reasons (2);
+    UsageType [] usageTypes = UsageType.values ();
+    for (int i = 0; i < usageTypes.length; i++)
+    {
+      reasons.add (usageTypes [i], i * 10);
+    }
+    List<DependencyReason> list = reasons.asList (null);
+    assertEquals (usageTypes.length, list.size ());
+    for (int i = 0; i < usageTypes.length; i++)
+    {
+      assertEquals (usageTypes [i], list.get (i).getUsageType ());
+      assertEquals (i * 10,         list.get (i).getOffset ());
+    }
+  }
+
+  public void testFilteredRoundTrip ()
+  {
+    DependencyCollection.Reasons reasons = new DependencyCollection.Reasons (2);
+    reasons.add (UsageType.REFERENCE,       10);
+    reasons.add (UsageType.FIELD_TYPE_ONE,  20);
+    reasons.add (UsageType.NEW_EXPRESSION,  30);
+    reasons.add (UsageType.FIELD_TYPE_MANY, 40);
+    assertEquals (Arrays.asList ("FIELD_TYPE_ONE (20)", "FIELD_TYPE_MANY (40)"),
+                  describe (reasons.asList (DependencyCollection.FIELD_FILTER)));
+    assertTrue  (reasons.accepts (LATE_FILTER));
+    assertFalse (new DependencyCollection.Reasons (1).accepts (LATE_FILTER));
+    try
+    {
+      reasons.asList (DependencyCollection.FIELD_FILTER).get (2);
+      fail ("index must be checked against number of accepted reasons");
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      // expected
+    }
+  }
+
+  public void testDominantReason ()
+  {
+    DependencyCollection.Reasons reasons = new DependencyCollection.Reasons (1);
+    reasons.replaceIfDominant (UsageType.REFERENCE,       10);
+    reasons.replaceIfDominant (UsageType.NEW_EXPRESSION,  20);
+    reasons.replaceIfDominant (UsageType.REFERENCE,       30);
+    reasons.replaceIfDominant (UsageType.FIELD_TYPE_ONE,  40);
+    reasons.replaceIfDominant (UsageType.FIELD_TYPE_ONE,  50);
+    assertEquals (Arrays.asList ("FIELD_TYPE_ONE (40)"), describe (reasons.asList (null)));
+    reasons.replaceIfDominant (UsageType.FIELD_TYPE_MANY, 60);
+    reasons.replaceIfDominant (UsageType.NEW_EXPRESSION,  70);
+    assertEquals (Arrays.asList ("FIELD_TYPE_MANY (60)"), describe (reasons.asList (null)));
+  }
+
+  public void testMergedFilters ()
+  {
+    PsiClass first  = createClass ("First");
+    PsiClass second = createClass ("Second");
+    DependencyCollection collection = new DependencyCollection ();
+    collection.addDependency (second, UsageType.FIELD_TYPE_ONE,  10);
+    collection.addDependency (second, UsageType.REFERENCE,       20);
+    collection.addDependency (first,  UsageType.FIELD_TYPE_MANY, 30);
+    collection.addDependency (first,  UsageType.REFERENCE,       40);
+
+    DependencyCollection fields = collection.filter (DependencyCollection.FIELD_FILTER);
+    assertEquals (Arrays.asList (first, second), toList (fields));
+    DependencyCollection lateFields = fields.filter (LATE_FILTER);
+    assertEquals (Arrays.asList (first), toList (lateFields));
+    assertEquals (Arrays.asList ("FIELD_TYPE_MANY (30)"), describe (lateFields.getDependencyReasons (first)));
+    assertTrue   (lateFields.getDependencyReasons (second).isEmpty ());
+
+    // views share storage with their source
+    collection.addDependency (second, UsageType.FIELD_TYPE_MANY, 50);
+    assertEquals (Arrays.asList (first, second), toList (lateFields));
+  }
+
+  public void testSummary ()
+  {
+    PsiClass psiClass = createClass ("Target");
+    DependencyCollection collection = new DependencyCollection (true);
+    collection.addDependency (psiClass, UsageType.REFERENCE,      10);
+    collection.addDependency (psiClass, UsageType.FIELD_TYPE_ONE, 20);
+    collection.addDependency (psiClass, UsageType.REFERENCE,      30);
+    assertEquals (Arrays.asList ("FIELD_TYPE_ONE (20)"), describe (collection.getDependencyReasons (psiClass)));
+  }
+
+  public void testReadOnly ()
+  {
+    PsiClass psiClass = createClass ("Target");
+    DependencyCollection collection = new DependencyCollection ();
+    collection.addDependency (psiClass, UsageType.FIELD_TYPE_ONE, 10);
+    DependencyCollection fields = collection.filter (DependencyCollection.FIELD_FILTER);
+    try
+    {
+      fields.addDependency (psiClass, UsageType.FIELD_TYPE_MANY, 20);
+      fail ("filtered collections must be read only");
+    }
+    catch (UnsupportedOperationException e)
+    {
+      // expected
+    }
+    try
+    {
+      collection.getDependencyReasons (psiClass).add (new DependencyReason (UsageType.REFERENCE, 30));
+      fail ("reason lists must be read only");
+    }
+    catch (UnsupportedOperationException e)
+    {
+      // expected
+    }
+    assertEquals (1, collection.getDependencyReasons (psiClass).size ());
+  }
+
+  private static List<String> describe (List<DependencyReason> reasons)
+  {
+    List<String> descriptions = new ArrayList<String> ();
+    for (DependencyReason reason : reasons)
+    {
+      descriptions.add (reason.toString ());
+    }
+    return descriptions;
+  }
+
+  private static List<PsiClass> toList (DependencyCollection collection)
+  {
+    List<PsiClass> classes = new ArrayList<PsiClass> ();
+    for (PsiClass psiClass : collection)
+    {
+      classes.add (psiClass);
+    }
+    return classes;
+  }
+
+  private static PsiClass createClass (final String name)
+  {
+    return (PsiClass) Proxy.newProxyInstance (PsiClass.class.getClassLoader (), new Class [] {PsiClass.class},
+                                              new InvocationHandler ()
+    {
+      public Object invoke (Object proxy, Method method, Object [] args)
+      {
+        String methodName = method.getName ();
+        if (methodName.equals ("equals"))
+        {
+          return proxy == args [0];
+        }
+        if (methodName.equals ("hashCode"))
+        {
+          return System.identityHashCode (proxy);
+        }
+        if (methodName.equals ("getName") || methodName.equals ("toString"))
+        {
+          return name;
+        }
+        return null;
+      }
+    });
+  }
+}
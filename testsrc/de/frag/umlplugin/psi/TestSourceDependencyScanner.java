@@ -0,0 +1,112 @@
+package de.frag.umlplugin.psi;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+/**
+ * Tests source dependency scanner.
+ */
+public class TestSourceDependencyScanner extends TestCase
+{
+  private static final String SOURCE =
+          "package a.b;\n" +
+          "import x.y.Imported;\n" +
+          "import z.*;\n" +
+          "import static s.t.Util.helper;\n" +
+          "/** class Commented extends Nothing */\n" +
+          "@Deprecated\n" +
+          "public class Outer<T extends Bound> extends Base implements First, x.y.Second {\n" +
+          "  private Imported field = new Created (\"new Quoted ()\");\n" +
+          "  private static final int SIZE = Constants.MAX;\n" +
+          "  class Inner implements Runnable {\n" +
+          "    public void run () { Object o = Holder.class; }\n" +
+          "  }\n" +
+          "  void method () {\n" +
+          "    class Local extends Hidden {}\n" +
+          "    Runnable r = new Runnable () { public void run () { Anonymous.call (); } };\n" +
+          "    Util.helper ();\n" +
+          "  }\n" +
+          "}\n" +
+          "interface Other extends First {}\n";
+
+  public void testDeclaredClasses ()
+  {
+    List<SourceDependencyScanner.ScannedClass> classes = SourceDependencyScanner.scan (SOURCE);
+    List<String> names = new ArrayList<String> ();
+    for (SourceDependencyScanner.ScannedClass scannedClass : classes)
+    {
+      names.add (scannedClass.getQualifiedName ());
+    }
+    assertEquals (Arrays.asList ("a.b.Outer", "a.b.Outer.Inner", "a.b.Other"), names);
+  }
+
+  public void testUsageTypes ()
+  {
+    Map<String, SourceDependencyScanner.ScannedReference> outer = getReferences ("a.b.Outer");
+    assertTrue  (outer.get ("Base").hasUsageType (UsageType.EXTENDS));
+    assertTrue  (outer.get ("First").hasUsageType (UsageType.IMPLEMENTS));
+    assertTrue  (outer.get ("x.y.Second").hasUsageType (UsageType.IMPLEMENTS));
+    assertFalse (outer.get ("Bound").isSuperType ());
+    assertTrue  (outer.get ("Bound").isUsage ());
+    assertFalse (outer.get ("Base").isUsage ());
+    assertTrue  (outer.get ("Imported").hasUsageType (UsageType.REFERENCE));
+    assertTrue  (outer.get ("Created").hasUsageType (UsageType.NEW_EXPRESSION));
+    assertTrue  (outer.get ("Constants").hasUsageType (UsageType.STATIC_REFERENCE));
+    assertTrue  (outer.get ("Anonymous").hasUsageType (UsageType.STATIC_REFERENCE));
+    assertTrue  (outer.get ("Util").hasUsageType (UsageType.STATIC_REFERENCE));
+    assertFalse (outer.containsKey ("Commented"));
+    assertFalse (outer.containsKey ("Nothing"));
+    assertFalse (outer.containsKey ("Quoted"));
+    assertFalse (outer.containsKey ("Hidden"));
+    assertFalse (outer.containsKey ("Holder"));
+    assertFalse (outer.containsKey ("Deprecated"));
+
+    Map<String, SourceDependencyScanner.ScannedReference> inner = getReferences ("a.b.Outer.Inner");
+    assertTrue (inner.get ("Runnable").hasUsageType (UsageType.IMPLEMENTS));
+    assertTrue (inner.get ("Holder").hasUsageType (UsageType.STATIC_REFERENCE));
+
+    Map<String, SourceDependencyScanner.ScannedReference> other = getReferences ("a.b.Other");
+    assertTrue (other.get ("First").hasUsageType (UsageType.IMPLEMENTS));
+  }
+
+  public void testResolve ()
+  {
+    Map<String, SourceDependencyScanner.ScannedReference> outer = getReferences ("a.b.Outer");
+    Set<String> known = new HashSet<String> (Arrays.asList ("a.b.Base", "x.y.Imported", "z.Created", "s.t.Util",
+                                                            "a.b.Outer.Inner", "x.y.Second"));
+    assertEquals ("a.b.Base",     outer.get ("Base").resolve (known));
+    assertEquals ("x.y.Imported", outer.get ("Imported").resolve (known));
+    assertEquals ("z.Created",    outer.get ("Created").resolve (known));
+    assertEquals ("s.t.Util",     outer.get ("Util").resolve (known));
+    assertEquals ("x.y.Second",   outer.get ("x.y.Second").resolve (known));
+    assertNull   (outer.get ("First").resolve (known));
+
+    Map<String, SourceDependencyScanner.ScannedReference> inner = getReferences ("a.b.Outer.Inner");
+    known.add ("a.b.Outer.Holder");
+    known.add ("a.b.Holder");
+    assertEquals ("a.b.Outer.Holder", inner.get ("Holder").resolve (known));
+  }
+
+  /**
+   * Gets references of given scanned class by type name.
+   * @param qualifiedName qualified name of scanned class
+   * @return references by type name
+   */
+  private Map<String, SourceDependencyScanner.ScannedReference> getReferences (String qualifiedName)
+  {
+    Map<String, SourceDependencyScanner.ScannedReference> references =
+            new HashMap<String, SourceDependencyScanner.ScannedReference> ();
+    for (SourceDependencyScanner.ScannedClass scannedClass : SourceDependencyScanner.scan (SOURCE))
+    {
+      if (scannedClass.getQualifiedName ().equals (qualifiedName))
+      {
+        for (SourceDependencyScanner.ScannedReference reference : scannedClass.getReferences ())
+        {
+          references.put (reference.getTypeName (), reference);
+        }
+      }
+    }
+    return references;
+  }
+}